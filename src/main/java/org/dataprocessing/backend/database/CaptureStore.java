@@ -0,0 +1,166 @@
+package org.dataprocessing.backend.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Records the tables of the queries into capture files and replays them without a database
+ * <p>
+ * The mode is set with the dataprocessing.capture system property to off, record or replay and the captures are kept
+ * in the directory of the dataprocessing.capture.dir system property. A capture is a {@link TableSnapshot} of the
+ * query, so the column names and the Java types of the values are replayed as they were read from the server.
+ *
+ * @author Nicholas Curl
+ */
+public class CaptureStore {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger       logger    = LogManager.getLogger(CaptureStore.class);
+    /**
+     * The freshness token of every capture, a capture is replayed regardless of the state of the server
+     */
+    private static final String       TOKEN     = "capture";
+    /**
+     * The mode of the captures
+     */
+    private static final Mode         mode      = parseMode(System.getProperty("dataprocessing.capture", "off"));
+    /**
+     * The directory the captures are kept in
+     */
+    private static final Path         directory = Paths.get(System.getProperty("dataprocessing.capture.dir",
+                                                                               "captures"
+    ));
+    /**
+     * The instance of this class
+     */
+    private static final CaptureStore instance  = new CaptureStore();
+
+    /**
+     * The constructor for this class
+     */
+    private CaptureStore() {
+        if (mode != Mode.OFF) {
+            logger.info("Capture mode " + mode + " in " + directory.toAbsolutePath());
+        }
+    }
+
+    /**
+     * Gets the instance of this class
+     *
+     * @return The instance of this class
+     */
+    public static CaptureStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * Parses the mode of the captures
+     *
+     * @param value The value of the system property
+     *
+     * @return The mode, off if the value is not a mode
+     */
+    private static Mode parseMode(String value) {
+        try {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+        catch (IllegalArgumentException e) {
+            logger.warn("Unknown capture mode " + value + ", captures are off");
+            return Mode.OFF;
+        }
+    }
+
+    /**
+     * Are the tables of the queries being recorded
+     *
+     * @return True if the tables are being recorded
+     */
+    public boolean isRecording() {
+        return mode == Mode.RECORD;
+    }
+
+    /**
+     * Are the tables of the queries replayed instead of read from the server
+     *
+     * @return True if the tables are replayed
+     */
+    public boolean isReplaying() {
+        return mode == Mode.REPLAY;
+    }
+
+    /**
+     * Opens a writer for the capture of the query
+     *
+     * @param sql    The query
+     * @param header The column names
+     *
+     * @return The writer, null if the capture could not be created
+     */
+    public TableSnapshot.Writer record(String sql, List<String> header) {
+        try {
+            Files.createDirectories(directory);
+            return TableSnapshot.write(file(sql), TOKEN, header);
+        }
+        catch (IOException e) {
+            logger.warn("Unable to create capture", e);
+            return null;
+        }
+    }
+
+    /**
+     * Replays the capture of the query
+     *
+     * @param sql        The query
+     * @param headerSink Receives the column names
+     * @param rowSink    Receives the rows, returns false to stop reading
+     *
+     * @throws IllegalStateException If the query has not been recorded
+     */
+    public void replay(String sql, Consumer<List<String>> headerSink, Predicate<List<?>> rowSink) {
+        Path file = file(sql);
+        if (!TableSnapshot.read(file, TOKEN, headerSink, rowSink)) {
+            throw new IllegalStateException("No capture of the query in " + file.toAbsolutePath());
+        }
+        logger.debug("Replayed capture " + file.getFileName());
+    }
+
+    /**
+     * Gets the capture file of the query
+     *
+     * @param sql The query
+     *
+     * @return The capture file
+     */
+    private Path file(String sql) {
+        return directory.resolve(SnapshotCache.key(sql) + ".capture");
+    }
+
+    /**
+     * The modes of the captures
+     */
+    public enum Mode {
+        /**
+         * The queries are read from the server and not recorded
+         */
+        OFF,
+        /**
+         * The queries are read from the server and recorded
+         */
+        RECORD,
+        /**
+         * The queries are replayed from their captures without a server
+         */
+        REPLAY
+    }
+}
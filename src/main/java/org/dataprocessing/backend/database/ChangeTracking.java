@@ -0,0 +1,322 @@
+package org.dataprocessing.backend.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds the keys of a query whose rows changed since a SQL Server Change Tracking version
+ * <p>
+ * Each tracked table maps the primary key columns returned by CHANGETABLE, aliased CT, to the key of the query, so an
+ * insert, update or delete in any tracked table marks the rows of that key as changed. The other tables the query
+ * joins are probed with a checksum and any change to them forces a full extraction, as does reaching the
+ * dataprocessing.changeTracking.maxMerges property, 7 by default, merges since the last full extraction.
+ *
+ * @author Nicholas Curl
+ */
+public class ChangeTracking {
+
+    /**
+     * The maximum number of keys bound to one query, below the 2100 parameter limit of SQL Server
+     */
+    private static final int                 MAX_PARAMETERS  = 1000;
+    /**
+     * The prefix of a snapshot token that holds a change tracking version
+     */
+    private static final String              TOKEN_PREFIX    = "ct:";
+    /**
+     * Separates the parts of a snapshot token
+     */
+    private static final char                TOKEN_SEPARATOR = '|';
+    /**
+     * The most incremental merges before the query is extracted in full again
+     */
+    private static final int                 maxMerges       = Integer.getInteger(
+            "dataprocessing.changeTracking.maxMerges",
+            7
+    );
+    /**
+     * The key column of the query as it is referenced in the WHERE clause
+     */
+    private final        String              keyColumn;
+    /**
+     * The index of the key column in the rows of the query
+     */
+    private final        int                 keyIndex;
+    /**
+     * The tracked tables mapped to the expression over CT that gives the key of the query
+     */
+    private final        Map<String, String> tables          = new LinkedHashMap<>();
+
+    /**
+     * The constructor for this class
+     *
+     * @param keyColumn The key column of the query as it is referenced in the WHERE clause
+     * @param keyIndex  The index of the key column in the rows of the query
+     */
+    public ChangeTracking(String keyColumn, int keyIndex) {
+        this.keyColumn = keyColumn;
+        this.keyIndex = keyIndex;
+    }
+
+    /**
+     * Gets the snapshot token of a change tracking version
+     *
+     * @param version    The change tracking version
+     * @param merges     The number of incremental merges since the last full extraction
+     * @param dimensions The checksum probe of the joined tables that are not tracked
+     *
+     * @return The snapshot token
+     */
+    public static String token(long version, int merges, String dimensions) {
+        return TOKEN_PREFIX + version + TOKEN_SEPARATOR + merges + TOKEN_SEPARATOR + dimensions;
+    }
+
+    /**
+     * Gets the change tracking version of a snapshot token
+     *
+     * @param token The snapshot token
+     *
+     * @return The change tracking version, -1 if the token does not hold one
+     */
+    public static long version(String token) {
+        String version = part(token, 0);
+        try {
+            return version == null ? -1 : Long.parseLong(version);
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the number of incremental merges since the last full extraction of a snapshot token
+     *
+     * @param token The snapshot token
+     *
+     * @return The number of merges, 0 if the token does not hold one
+     */
+    public static int merges(String token) {
+        String merges = part(token, 1);
+        try {
+            return merges == null ? 0 : Integer.parseInt(merges);
+        }
+        catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Gets a part of a snapshot token
+     *
+     * @param token The snapshot token
+     * @param index The index of the part, 0 for the version, 1 for the merges and 2 for the checksum probe
+     *
+     * @return The part, null if the token does not hold it
+     */
+    private static String part(String token, int index) {
+        if (token == null || !token.startsWith(TOKEN_PREFIX)) {
+            return null;
+        }
+        String[] parts = token.substring(TOKEN_PREFIX.length()).split("\\" + TOKEN_SEPARATOR, 3);
+        return index < parts.length ? parts[index] : null;
+    }
+
+    /**
+     * Splits the keys into chunks that can be bound to one query
+     *
+     * @param keys The keys
+     *
+     * @return The chunks of keys
+     */
+    public static List<List<Object>> chunks(Collection<Object> keys) {
+        List<List<Object>> chunks = new ArrayList<>();
+        List<Object> chunk = new ArrayList<>(MAX_PARAMETERS);
+        for (Object key : keys) {
+            chunk.add(key);
+            if (chunk.size() == MAX_PARAMETERS) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(MAX_PARAMETERS);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Tracks the changes of a table
+     *
+     * @param table         The tracked table
+     * @param keyExpression The expression over the CHANGETABLE alias CT that gives the key of the query
+     *
+     * @return This instance
+     */
+    public ChangeTracking track(String table, String keyExpression) {
+        tables.put(table, keyExpression);
+        return this;
+    }
+
+    /**
+     * Gets the tables the query joins that are not tracked, which are probed with a checksum instead
+     *
+     * @param sql The query
+     *
+     * @return The joined tables that are not tracked
+     */
+    public List<String> untrackedTables(String sql) {
+        List<String> untracked = new ArrayList<>();
+        for (String table : SnapshotCache.sourceTables(sql)) {
+            if (!isTracked(table)) {
+                untracked.add(table);
+            }
+        }
+        return untracked;
+    }
+
+    /**
+     * Can the changes since the previous snapshot be merged into it, which needs the untracked tables to be unchanged
+     * and fewer than the maximum merges since the last full extraction
+     *
+     * @param previousToken The freshness token of the previous snapshot
+     * @param dimensions    The checksum probe of the untracked tables
+     *
+     * @return True if the changes can be merged, false if the query has to be extracted in full
+     */
+    public static boolean canMerge(String previousToken, String dimensions) {
+        return dimensions.equals(part(previousToken, 2)) && merges(previousToken) < maxMerges;
+    }
+
+    /**
+     * Is a table one of the tracked tables, comparing the last part of its name without brackets
+     *
+     * @param table The name of the table as it appears in the query
+     *
+     * @return True if the table is tracked
+     */
+    private boolean isTracked(String table) {
+        String name = baseName(table);
+        for (String tracked : tables.keySet()) {
+            if (baseName(tracked).equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the last part of a table name without brackets
+     *
+     * @param table The name of the table
+     *
+     * @return The last part of the name in lower case
+     */
+    private static String baseName(String table) {
+        String name = table.substring(table.lastIndexOf('.') + 1);
+        if (name.startsWith("[") && name.endsWith("]")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the key column of the query as it is referenced in the WHERE clause
+     *
+     * @return The key column
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+
+    /**
+     * Gets the key of a row of the query
+     *
+     * @param row The row
+     *
+     * @return The key, trimmed to its string form
+     */
+    public String key(List<?> row) {
+        Object key = row.get(keyIndex);
+        return key == null ? "" : key.toString().trim();
+    }
+
+    /**
+     * Gets the current change tracking version of the database
+     *
+     * @param connection The connection to the database
+     *
+     * @return The current version
+     *
+     * @throws SQLException If change tracking is not enabled on the database
+     */
+    public long currentVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT CHANGE_TRACKING_CURRENT_VERSION()")) {
+            resultSet.next();
+            long version = resultSet.getLong(1);
+            if (resultSet.wasNull()) {
+                throw new SQLException("Change tracking is not enabled on the database");
+            }
+            return version;
+        }
+    }
+
+    /**
+     * Gets the keys whose rows changed since the version
+     *
+     * @param connection The connection to the database
+     * @param version    The version the previous extraction was taken at
+     *
+     * @return The changed keys mapped by their trimmed string form, null if the changes since the version are no
+     *         longer retained and the query has to be extracted in full
+     *
+     * @throws SQLException If change tracking is not enabled on a tracked table
+     */
+    public Map<String, Object> changesSince(Connection connection, long version) throws SQLException {
+        if (version < 0) {
+            return null;
+        }
+        for (String table : tables.keySet()) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT CHANGE_TRACKING_MIN_VALID_VERSION(OBJECT_ID(?))")) {
+                statement.setString(1, table);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    long minValid = resultSet.getLong(1);
+                    if (resultSet.wasNull()) {
+                        throw new SQLException("Change tracking is not enabled on " + table);
+                    }
+                    if (minValid > version) {
+                        return null;
+                    }
+                }
+            }
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : tables.entrySet()) {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT DISTINCT " + entry.getValue() + " FROM CHANGETABLE(CHANGES " + entry.getKey() +
+                    ", ?) AS CT")) {
+                statement.setLong(1, version);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        Object key = resultSet.getObject(1);
+                        if (key != null) {
+                            keys.putIfAbsent(key.toString().trim(), key);
+                        }
+                    }
+                }
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,482 @@
+package org.dataprocessing.backend.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of connections to the server
+ * <p>
+ * Connections are borrowed with {@link #borrow(long, TimeUnit)} and returned to the pool when they are closed. Idle
+ * connections are validated before they are handed out and are evicted once they have been idle for longer than the
+ * idle timeout. The pool can be {@link #warmUp() warmed up} to its minimum number of idle connections, those are kept
+ * alive by validating them on every eviction pass so a run does not start with a dead or missing connection.
+ *
+ * @author Nicholas Curl
+ */
+public class ConnectionPool {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger                           logger             = LogManager.getLogger(ConnectionPool.class);
+    /**
+     * The number of seconds to wait for a connection to be validated
+     */
+    private static final int                              VALIDATION_TIMEOUT = 5;
+    /**
+     * Opens new connections to the server
+     */
+    private final        ConnectionFactory                factory;
+    /**
+     * The maximum number of connections in the pool
+     */
+    private final        int                              maxSize;
+    /**
+     * The number of idle connections kept open and validated between runs
+     */
+    private final        int                              minIdle;
+    /**
+     * The number of milliseconds a connection can be idle before it is evicted
+     */
+    private final        long                             idleTimeout;
+    /**
+     * The permits for borrowing a connection, one per connection the pool can hold
+     */
+    private final        Semaphore                        permits;
+    /**
+     * The idle connections, the most recently returned connection is first
+     */
+    private final        BlockingDeque<PooledConnection>  idle               = new LinkedBlockingDeque<>();
+    /**
+     * The number of connections currently borrowed
+     */
+    private final        AtomicInteger                    active             = new AtomicInteger();
+    /**
+     * The number of times a connection was borrowed
+     */
+    private final        AtomicLong                       borrowCount        = new AtomicLong();
+    /**
+     * The total time spent waiting to borrow a connection in nanoseconds
+     */
+    private final        AtomicLong                       totalWait          = new AtomicLong();
+    /**
+     * The longest time spent waiting to borrow a connection in nanoseconds
+     */
+    private final        AtomicLong                       maxWait            = new AtomicLong();
+    /**
+     * Runs the idle connection eviction
+     */
+    private final        ScheduledExecutorService         evictor;
+    /**
+     * Is the pool closed
+     */
+    private volatile     boolean                          closed;
+
+    /**
+     * The constructor for this class
+     *
+     * @param factory     Opens new connections to the server
+     * @param maxSize     The maximum number of connections in the pool
+     * @param idleTimeout The number of milliseconds a connection can be idle before it is evicted
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, long idleTimeout) {
+        this(factory, maxSize, 0, idleTimeout);
+    }
+
+    /**
+     * The constructor for this class that keeps a minimum number of idle connections
+     *
+     * @param factory     Opens new connections to the server
+     * @param maxSize     The maximum number of connections in the pool
+     * @param minIdle     The number of idle connections kept open and validated between runs
+     * @param idleTimeout The number of milliseconds a connection can be idle before it is evicted
+     */
+    public ConnectionPool(ConnectionFactory factory, int maxSize, int minIdle, long idleTimeout) {
+        this.factory = factory;
+        this.maxSize = Math.max(1, maxSize);
+        this.minIdle = Math.max(0, Math.min(minIdle, this.maxSize));
+        this.idleTimeout = idleTimeout;
+        this.permits = new Semaphore(this.maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeout / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new one if there are no idle connections
+     * <p>
+     * Closing the returned connection returns it to the pool.
+     *
+     * @param timeout How long to wait for a connection
+     * @param unit    The unit of the timeout
+     *
+     * @return The borrowed connection
+     *
+     * @throws SQLException If no connection became available before the timeout or a connection could not be opened
+     */
+    public Connection borrow(long timeout, TimeUnit unit) throws SQLException {
+        if (closed) {
+            throw new SQLException("The connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeout, unit)) {
+                throw new SQLTimeoutException("Timed out waiting for a connection after " + unit.toMillis(timeout) +
+                                              " ms, " + active.get() + " of " + maxSize + " connections are in use");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isValid(pooled.connection)) {
+                    break;
+                }
+                discard(pooled.connection);
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.create());
+            }
+            active.incrementAndGet();
+            return pooled.lease();
+        }
+        catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens connections until the pool holds its minimum number of connections
+     *
+     * @return The number of connections opened
+     *
+     * @throws SQLException If a connection could not be opened
+     */
+    public int warmUp() throws SQLException {
+        int opened = 0;
+        while (!closed && idle.size() + active.get() < minIdle) {
+            Connection connection = factory.create();
+            if (closed) {
+                discard(connection);
+                break;
+            }
+            idle.offerLast(new PooledConnection(connection));
+            opened++;
+        }
+        return opened;
+    }
+
+    /**
+     * Closes the pool and all of its idle connections, borrowed connections are closed when they are returned
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled.connection);
+        }
+    }
+
+    /**
+     * Is the pool closed
+     *
+     * @return True if the pool is closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets the maximum number of connections in the pool
+     *
+     * @return The maximum number of connections
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of connections currently borrowed
+     *
+     * @return The number of borrowed connections
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * Gets the number of idle connections in the pool
+     *
+     * @return The number of idle connections
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Gets the number of times a connection was borrowed
+     *
+     * @return The number of borrows
+     */
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * Gets the average time spent waiting to borrow a connection
+     *
+     * @return The average wait in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        long borrows = borrowCount.get();
+        return borrows == 0 ? 0 : totalWait.get() / 1_000_000.0 / borrows;
+    }
+
+    /**
+     * Gets the longest time spent waiting to borrow a connection
+     *
+     * @return The longest wait in milliseconds
+     */
+    public double getMaxWaitMillis() {
+        return maxWait.get() / 1_000_000.0;
+    }
+
+    /**
+     * Logs the metrics of the pool
+     */
+    public void logMetrics() {
+        logger.info(String.format("Connection pool: max size %d, active %d, idle %d, borrows %d, " +
+                                  "average wait %.2f ms, max wait %.2f ms",
+                                  maxSize,
+                                  getActiveCount(),
+                                  getIdleCount(),
+                                  getBorrowCount(),
+                                  getAverageWaitMillis(),
+                                  getMaxWaitMillis()
+        ));
+    }
+
+    /**
+     * Records the time spent waiting to borrow a connection
+     *
+     * @param nanos The time spent waiting in nanoseconds
+     */
+    private void recordWait(long nanos) {
+        borrowCount.incrementAndGet();
+        totalWait.addAndGet(nanos);
+        maxWait.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns a borrowed connection to the pool
+     *
+     * @param pooled The connection being returned
+     */
+    private void giveBack(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (closed || pooled.connection.isClosed()) {
+                discard(pooled.connection);
+            }
+            else {
+                if (!pooled.connection.getAutoCommit()) {
+                    pooled.connection.rollback();
+                    pooled.connection.setAutoCommit(true);
+                }
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        }
+        catch (SQLException e) {
+            logger.warn("Unable to reset connection, discarding it", e);
+            discard(pooled.connection);
+        }
+        finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes the idle connections that have been idle for longer than the idle timeout, validates the idle connections
+     * that are kept and opens new ones to replace those that are no longer usable
+     */
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeout;
+        Iterator<PooledConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext()) {
+            PooledConnection pooled = iterator.next();
+            if (pooled.lastUsed < cutoff && idle.size() > minIdle && idle.removeFirstOccurrence(pooled)) {
+                logger.debug("Evicting idle connection");
+                discard(pooled.connection);
+            }
+        }
+        for (int i = Math.min(idle.size(), minIdle); i > 0; i--) {
+            PooledConnection pooled = idle.pollLast();
+            if (pooled == null) {
+                break;
+            }
+            if (isValid(pooled.connection)) {
+                idle.offerFirst(pooled);
+            }
+            else {
+                logger.debug("Discarding idle connection that failed validation");
+                discard(pooled.connection);
+            }
+        }
+        try {
+            warmUp();
+        }
+        catch (SQLException e) {
+            logger.warn("Unable to reopen idle connections", e);
+        }
+    }
+
+    /**
+     * Checks if the connection is still usable
+     *
+     * @param connection The connection to check
+     *
+     * @return True if the connection is usable
+     */
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT);
+        }
+        catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes a connection that is no longer part of the pool
+     *
+     * @param connection The connection to close
+     */
+    private void discard(Connection connection) {
+        try {
+            connection.close();
+        }
+        catch (SQLException e) {
+            logger.warn("Unable to close pooled connection", e);
+        }
+    }
+
+    /**
+     * Opens new connections to the server
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+
+        /**
+         * Opens a new connection to the server
+         *
+         * @return The new connection
+         *
+         * @throws SQLException If the connection could not be opened
+         */
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * A connection owned by the pool
+     */
+    private class PooledConnection {
+
+        /**
+         * The physical connection to the server
+         */
+        private final    Connection connection;
+        /**
+         * The time the connection was last returned to the pool
+         */
+        private volatile long       lastUsed;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param connection The physical connection to the server
+         */
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        /**
+         * Wraps the physical connection so that closing it returns it to the pool
+         *
+         * @return The wrapped connection
+         */
+        private Connection lease() {
+            AtomicBoolean returned = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                       new Class<?>[]{Connection.class},
+                                                       (proxy, method, args) -> invoke(proxy, returned, method, args)
+            );
+        }
+
+        /**
+         * Handles a call on the wrapped connection
+         *
+         * @param proxy    The wrapped connection
+         * @param returned Has the connection been returned to the pool
+         * @param method   The method called
+         * @param args     The arguments of the call
+         *
+         * @return The result of the call
+         *
+         * @throws Throwable Any exception thrown by the physical connection
+         */
+        private Object invoke(Object proxy, AtomicBoolean returned, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) {
+                        giveBack(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || connection.isClosed();
+                case "equals":
+                    return args[0] == proxy;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (returned.get()) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    }
+                    catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
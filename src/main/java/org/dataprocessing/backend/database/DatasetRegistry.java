@@ -0,0 +1,147 @@
+package org.dataprocessing.backend.database;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.dataprocessing.utils.Table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shares the tables of named datasets between the mappers of a session so that a query requested by several mappers
+ * is only read once
+ * <p>
+ * The first request for a dataset loads it, concurrent requests for the same dataset wait on the same future. The
+ * tables are handed out as read only views, a mapper that has to change a table must copy it first. The datasets are
+ * dropped when the session ends.
+ *
+ * @author Nicholas Curl
+ */
+public class DatasetRegistry {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger                                                    logger   = LogManager.getLogger(
+            DatasetRegistry.class);
+    /**
+     * The instance of this class
+     */
+    private static final DatasetRegistry                                           instance = new DatasetRegistry();
+    /**
+     * The datasets of the session mapped by their name
+     */
+    private final        ConcurrentMap<String, CompletableFuture<List<List<?>>>> datasets = new ConcurrentHashMap<>();
+
+    /**
+     * The constructor for this class
+     */
+    private DatasetRegistry() {
+    }
+
+    /**
+     * Gets the instance of this class
+     *
+     * @return The instance of this class
+     */
+    public static DatasetRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets the table of the dataset, loading it if no other request has
+     * <p>
+     * If the load fails or is canceled the dataset is not kept, a request waiting on a canceled load loads the dataset
+     * itself.
+     *
+     * @param name   The name of the dataset
+     * @param loader Loads the table of the dataset, throws a CancellationException if the load was canceled
+     *
+     * @return The read only table of the dataset
+     *
+     * @throws Exception Any exception that occurred while loading the dataset
+     */
+    public List<List<?>> get(String name, Callable<List<List<?>>> loader) throws Exception {
+        while (true) {
+            CompletableFuture<List<List<?>>> future = new CompletableFuture<>();
+            CompletableFuture<List<List<?>>> existing = datasets.putIfAbsent(name, future);
+            if (existing == null) {
+                return load(name, future, loader);
+            }
+            try {
+                List<List<?>> table = existing.get();
+                logger.debug("Reusing dataset " + name);
+                return table;
+            }
+            catch (CancellationException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+            }
+            catch (ExecutionException e) {
+                if (!(e.getCause() instanceof CancellationException) || Thread.currentThread().isInterrupted()) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the datasets of the session
+     */
+    public void clear() {
+        datasets.clear();
+    }
+
+    /**
+     * Loads the table of the dataset and completes its future
+     *
+     * @param name   The name of the dataset
+     * @param future The future of the dataset
+     * @param loader Loads the table of the dataset
+     *
+     * @return The read only table of the dataset
+     *
+     * @throws Exception Any exception that occurred while loading the dataset
+     */
+    private List<List<?>> load(String name, CompletableFuture<List<List<?>>> future, Callable<List<List<?>>> loader)
+            throws Exception {
+        try {
+            List<List<?>> table = readOnly(loader.call());
+            future.complete(table);
+            return table;
+        }
+        catch (Exception | Error e) {
+            datasets.remove(name, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps the table and its rows in read only views, a table or row that is already read only is kept as it is so
+     * that a columnar table can still be unwrapped from its rows
+     *
+     * @param table The table
+     *
+     * @return The read only table
+     */
+    private static List<List<?>> readOnly(List<List<?>> table) {
+        if ((List<?>) table instanceof Table.Rows || table instanceof ImmutableList) {
+            return table;
+        }
+        List<List<?>> rows = new ArrayList<>(table.size());
+        for (List<?> row : table) {
+            rows.add(row instanceof ImmutableList ? row : Collections.unmodifiableList(row));
+        }
+        return Collections.unmodifiableList(rows);
+    }
+}
@@ -0,0 +1,365 @@
+package org.dataprocessing.backend.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves the keys of a dimension table to one of its columns with batched queries and a bounded LRU cache
+ * <p>
+ * A stage collects the keys it needs and {@link #prefetch(Collection) prefetches} them, the missing keys are read in
+ * parameterized IN queries of up to a thousand keys. The IN lists are padded to a few fixed sizes so the server and
+ * the driver statement pool reuse the same prepared statements. Keys that are not in the table are cached as well.
+ * While the queries are recorded the values read in a session are stored as a capture of the lookup when the session
+ * ends, and while they are replayed the keys are resolved from that capture without a server.
+ *
+ * @author Nicholas Curl
+ */
+public class DimensionLookup {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger                 logger       = LogManager.getLogger(DimensionLookup.class);
+    /**
+     * The instance of the SqlServer class
+     */
+    private static final SqlServer              server       = SqlServer.getInstance();
+    /**
+     * The instance of the CaptureStore class
+     */
+    private static final CaptureStore           captures     = CaptureStore.getInstance();
+    /**
+     * The sizes the IN lists are padded to
+     */
+    private static final int[]                  BATCH_SIZES  = {1, 10, 100, 1000};
+    /**
+     * The default number of keys a lookup keeps
+     */
+    private static final int                    DEFAULT_SIZE = Integer.getInteger("dataprocessing.lookup.cacheSize",
+                                                                                  10000
+    );
+    /**
+     * The lookups created in this session
+     */
+    private static final List<DimensionLookup>  lookups      = new CopyOnWriteArrayList<>();
+    /**
+     * The lookup of the vendor names by vendor number
+     */
+    private static final DimensionLookup        vendorNames  = new DimensionLookup("Vendor Name",
+                                                                                   "VendorFile",
+                                                                                   "VendorNumber",
+                                                                                   "VendorName",
+                                                                                   DEFAULT_SIZE
+    );
+    /**
+     * The name the lookup queries are measured under
+     */
+    private final        String                 name;
+    /**
+     * The query selecting the key and the value of the dimension table without its IN list
+     */
+    private final        String                 select;
+    /**
+     * The key column of the dimension table
+     */
+    private final        String                 keyColumn;
+    /**
+     * The cached values in least recently used order, a null value marks a key that is not in the table
+     */
+    private final        Map<String, String>    cache;
+    /**
+     * The number of keys found in the cache
+     */
+    private final        LongAdder              hits         = new LongAdder();
+    /**
+     * The number of keys that had to be read from the table
+     */
+    private final        LongAdder              misses       = new LongAdder();
+    /**
+     * The number of queries sent to the server
+     */
+    private final        LongAdder              roundTrips   = new LongAdder();
+    /**
+     * The values read from the table in this session, kept for the capture of the lookup while recording
+     */
+    private final        Map<String, String>    recorded     = new LinkedHashMap<>();
+    /**
+     * The values of the capture of the lookup, null until the capture is replayed
+     */
+    private              Map<String, String>    replayed;
+
+    /**
+     * The constructor for this class
+     *
+     * @param name        The name the lookup queries are measured under
+     * @param table       The dimension table
+     * @param keyColumn   The key column of the dimension table
+     * @param valueColumn The column the keys are resolved to
+     * @param capacity    The number of keys to keep
+     */
+    public DimensionLookup(String name, String table, String keyColumn, String valueColumn, int capacity) {
+        this.name = name;
+        this.select = "SELECT " + keyColumn + ", " + valueColumn + " FROM " + table + " WHERE " + keyColumn + " IN (";
+        this.keyColumn = keyColumn;
+        this.cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > capacity;
+            }
+        };
+        lookups.add(this);
+    }
+
+    /**
+     * Gets the lookup of the vendor names by vendor number
+     *
+     * @return The lookup of the vendor names
+     */
+    public static DimensionLookup vendorNames() {
+        return vendorNames;
+    }
+
+    /**
+     * Logs the hit rates of the lookups of the session, stores their captures while recording and clears their caches
+     */
+    public static void endSession() {
+        for (DimensionLookup lookup : lookups) {
+            lookup.logStats();
+            lookup.commitCapture();
+            lookup.clear();
+        }
+    }
+
+    /**
+     * Resolves a key
+     *
+     * @param key The key
+     *
+     * @return The value of the key, null if the key is not in the table
+     *
+     * @throws SQLException If the key could not be read
+     */
+    public String get(Object key) throws SQLException {
+        String normalized = normalize(key);
+        synchronized (cache) {
+            if (cache.containsKey(normalized)) {
+                hits.increment();
+                return cache.get(normalized);
+            }
+        }
+        prefetch(Collections.singletonList(normalized));
+        synchronized (cache) {
+            return cache.get(normalized);
+        }
+    }
+
+    /**
+     * Reads the keys that are not cached yet in batches
+     *
+     * @param keys The keys a stage is going to resolve
+     *
+     * @throws SQLException If the keys could not be read
+     */
+    public void prefetch(Collection<?> keys) throws SQLException {
+        Set<String> missing = new LinkedHashSet<>();
+        synchronized (cache) {
+            for (Object key : keys) {
+                String normalized = normalize(key);
+                if (!cache.containsKey(normalized)) {
+                    missing.add(normalized);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        misses.add(missing.size());
+        if (captures.isReplaying()) {
+            replay(missing);
+            return;
+        }
+        List<String> batch = new ArrayList<>(BATCH_SIZES[BATCH_SIZES.length - 1]);
+        try (Connection connection = server.getConnection()) {
+            for (String key : missing) {
+                batch.add(key);
+                if (batch.size() == BATCH_SIZES[BATCH_SIZES.length - 1]) {
+                    read(connection, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                read(connection, batch);
+            }
+        }
+    }
+
+    /**
+     * Logs the hit rate of this lookup
+     */
+    public void logStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        if (hitCount + missCount > 0) {
+            logger.info(String.format("%s lookup: %d hits, %d misses, %.1f%% hit rate, %d queries",
+                                      name,
+                                      hitCount,
+                                      missCount,
+                                      100.0 * hitCount / (hitCount + missCount),
+                                      roundTrips.sum()
+            ));
+        }
+    }
+
+    /**
+     * Clears the cached values and the hit rate
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+            replayed = null;
+        }
+        synchronized (recorded) {
+            recorded.clear();
+        }
+        hits.reset();
+        misses.reset();
+        roundTrips.reset();
+    }
+
+    /**
+     * Reads a batch of keys and caches their values
+     *
+     * @param connection The connection to the server
+     * @param keys       The keys to read
+     *
+     * @throws SQLException If the keys could not be read
+     */
+    private void read(Connection connection, List<String> keys) throws SQLException {
+        int size = BATCH_SIZES[BATCH_SIZES.length - 1];
+        for (int batchSize : BATCH_SIZES) {
+            if (batchSize >= keys.size()) {
+                size = batchSize;
+                break;
+            }
+        }
+        StringBuilder sql = new StringBuilder(select);
+        for (int i = 0; i < size; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String key : keys) {
+            values.put(key, null);
+        }
+        try (PreparedStatement statement = QueryStats.getInstance().instrument(connection.prepareStatement(
+                sql.toString()), name)) {
+            for (int i = 0; i < size; i++) {
+                statement.setString(i + 1, keys.get(Math.min(i, keys.size() - 1)));
+            }
+            QueryStats.Meter meter = QueryStats.getInstance().meter(name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (meter.next(resultSet)) {
+                    String key = resultSet.getString(1);
+                    String value = resultSet.getString(2);
+                    meter.row(Arrays.asList(key, value));
+                    if (key != null && values.containsKey(key.trim())) {
+                        values.put(key.trim(), value);
+                    }
+                }
+            }
+        }
+        roundTrips.increment();
+        synchronized (cache) {
+            cache.putAll(values);
+        }
+        if (captures.isRecording()) {
+            synchronized (recorded) {
+                recorded.putAll(values);
+            }
+        }
+        logger.debug("Read " + keys.size() + " keys of " + keyColumn + " for " + name);
+    }
+
+    /**
+     * Resolves the keys from the capture of the lookup, reading the capture the first time
+     *
+     * @param keys The keys to resolve
+     *
+     * @throws SQLException If the lookup has not been recorded
+     */
+    private void replay(Collection<String> keys) throws SQLException {
+        synchronized (cache) {
+            if (replayed == null) {
+                Map<String, String> values = new HashMap<>();
+                try {
+                    captures.replay(select, header -> {
+                    }, row -> {
+                        values.put(normalize(row.get(0)), row.get(1) == null ? null : row.get(1).toString());
+                        return true;
+                    });
+                }
+                catch (IllegalStateException e) {
+                    throw new SQLException("The " + name + " lookup has not been recorded", e);
+                }
+                replayed = values;
+            }
+            for (String key : keys) {
+                cache.put(key, replayed.get(key));
+            }
+        }
+    }
+
+    /**
+     * Stores the values read in this session as the capture of the lookup if the queries are being recorded
+     */
+    private void commitCapture() {
+        Map<String, String> values;
+        synchronized (recorded) {
+            if (recorded.isEmpty()) {
+                return;
+            }
+            values = new LinkedHashMap<>(recorded);
+        }
+        try (TableSnapshot.Writer writer = captures.record(select, Arrays.asList(keyColumn, name))) {
+            if (writer == null) {
+                return;
+            }
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writer.writeRow(Arrays.asList(entry.getKey(), entry.getValue()));
+            }
+            writer.commit();
+        }
+        catch (IOException e) {
+            logger.warn("Unable to store the capture of the " + name + " lookup", e);
+        }
+    }
+
+    /**
+     * Normalizes a key to the form it is cached under
+     *
+     * @param key The key
+     *
+     * @return The trimmed string form of the key
+     */
+    private static String normalize(Object key) {
+        return key == null ? "" : key.toString().trim();
+    }
+}
@@ -0,0 +1,138 @@
+package org.dataprocessing.backend.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * An in process H2 stand-in for the POR3 database that runs the mapper queries in SQL Server compatibility mode
+ * <p>
+ * The first connection creates the tables the mappers read from the por3-schema.sql script and fills them with the
+ * {@link EmbeddedPorGenerator}. The number of generated transaction items is set with the
+ * dataprocessing.embedded.rows system property and the database with the dataprocessing.embedded.url system property,
+ * a file database keeps the generated data between runs. SQL Server features without an H2 equivalent, like change
+ * tracking and the catalog statistics, fail and the callers fall back to reading the queries in full.
+ *
+ * @author Nicholas Curl
+ */
+public class EmbeddedPorDataSource implements ServerDataSource {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger  logger = LogManager.getLogger(EmbeddedPorDataSource.class);
+    /**
+     * The connection string of the embedded database
+     */
+    private static final String  url    = System.getProperty("dataprocessing.embedded.url",
+                                                             "jdbc:h2:mem:por3;DB_CLOSE_DELAY=-1"
+                                          ) + ";MODE=MSSQLServer;INIT=CREATE SCHEMA IF NOT EXISTS DBO\\;SET SCHEMA DBO";
+    /**
+     * The number of transaction items to generate
+     */
+    private static final int     rows   = Integer.getInteger("dataprocessing.embedded.rows", 100000);
+    /**
+     * Has the database been checked for its tables
+     */
+    private              boolean seeded;
+
+    /**
+     * The SQL Server IIF function for the embedded database
+     *
+     * @param condition The condition
+     * @param whenTrue  The value if the condition is true
+     * @param whenFalse The value if the condition is false or unknown
+     *
+     * @return The value chosen by the condition
+     */
+    public static String iif(Boolean condition, String whenTrue, String whenFalse) {
+        return Boolean.TRUE.equals(condition) ? whenTrue : whenFalse;
+    }
+
+    @Override
+    public Connection create() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, "sa", "");
+        try {
+            seed(connection);
+        }
+        catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    @Override
+    public String getDescription() {
+        return url;
+    }
+
+    /**
+     * Creates and fills the tables if the database does not have them yet
+     *
+     * @param connection The connection to the database
+     *
+     * @throws SQLException If the tables could not be created or filled
+     */
+    private synchronized void seed(Connection connection) throws SQLException {
+        if (seeded) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT COUNT(*) FROM Transactions").close();
+            seeded = true;
+            return;
+        }
+        catch (SQLException ignored) {
+        }
+        long start = System.currentTimeMillis();
+        runScript(connection, "/sql/por3-schema.sql");
+        new EmbeddedPorGenerator(rows).generate(connection);
+        logger.info("Generated embedded POR3 database with " + rows + " transaction items in " +
+                    (System.currentTimeMillis() - start) + " ms");
+        seeded = true;
+    }
+
+    /**
+     * Runs the statements of a script on the classpath
+     *
+     * @param connection The connection to run the script on
+     * @param resource   The path of the script on the classpath
+     *
+     * @throws SQLException If a statement failed
+     */
+    private void runScript(Connection connection, String resource) throws SQLException {
+        StringBuilder script = new StringBuilder();
+        try (InputStream inputStream = EmbeddedPorDataSource.class.getResourceAsStream(resource)) {
+            if (inputStream == null) {
+                throw new SQLException("Missing script " + resource);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().startsWith("--")) {
+                    script.append(line).append('\n');
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new SQLException("Unable to read script " + resource, e);
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : script.toString().split(";")) {
+                if (!sql.trim().isEmpty()) {
+                    statement.execute(sql);
+                }
+            }
+        }
+    }
+}
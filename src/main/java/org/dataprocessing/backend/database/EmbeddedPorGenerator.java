@@ -0,0 +1,417 @@
+package org.dataprocessing.backend.database;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills the tables of the embedded POR3 database with generated data shaped like the production data
+ * <p>
+ * The sizes of the tables are scaled from the number of transaction items, with the same ratios of open, closed,
+ * reserved and quoted contracts, kits and purchase orders the mappers filter on. The data is generated from a fixed
+ * seed so runs with the same number of rows read the same tables.
+ *
+ * @author Nicholas Curl
+ */
+public class EmbeddedPorGenerator {
+
+    /**
+     * The number of rows inserted in one batch
+     */
+    private static final int      BATCH_SIZE = 1000;
+    /**
+     * The stores of the company
+     */
+    private static final String[] STORES     = {"001", "002", "003"};
+    /**
+     * The contract statuses, repeated by how often they occur
+     */
+    private static final String[] STATUSES   = {"O", "O", "O", "O", "F", "C", "C", "R", "Q"};
+    /**
+     * The first date of the generated transactions
+     */
+    private static final long     START_DATE = Timestamp.valueOf("2020-01-01 08:00:00").getTime();
+    /**
+     * The number of transaction items to generate
+     */
+    private final        int      transactionItems;
+    /**
+     * The random number generator of the data
+     */
+    private final        Random   random     = new Random(20210601L);
+
+    /**
+     * The constructor for this class
+     *
+     * @param transactionItems The number of transaction items to generate
+     */
+    public EmbeddedPorGenerator(int transactionItems) {
+        this.transactionItems = Math.max(100, transactionItems);
+    }
+
+    /**
+     * Fills the tables of the database
+     *
+     * @param connection The connection to the database
+     *
+     * @throws SQLException If the data could not be inserted
+     */
+    public void generate(Connection connection) throws SQLException {
+        int items = Math.max(100, transactionItems / 20);
+        int customers = Math.max(50, transactionItems / 40);
+        int transactions = Math.max(10, transactionItems / 5);
+        int vendors = 100;
+        int purchaseOrders = Math.max(10, transactionItems / 50);
+        int jobSites = 200;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            insert(connection, "INSERT INTO ParameterFile VALUES (?, ?)", STORES.length, (statement, i) -> {
+                statement.setString(1, STORES[i]);
+                statement.setString(2, "Store " + STORES[i]);
+            });
+            insert(connection, "INSERT INTO Salesman VALUES (?, ?, ?)", 20, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setString(2, "Sales Rep " + (i + 1));
+                statement.setString(3, "OP" + (i + 1));
+            });
+            insert(connection, "INSERT INTO OperatorId VALUES (?)", 25, (statement, i) -> {
+                statement.setString(1, "OP" + (i + 1));
+            });
+            insert(connection, "INSERT INTO CustomerType VALUES (?)", 5, (statement, i) -> statement.setInt(1, i + 1));
+            insert(connection, "INSERT INTO CustomerStatus VALUES (?, ?)", 3, (statement, i) -> {
+                statement.setString(1, new String[]{"A", "I", "H"}[i]);
+                statement.setString(2, new String[]{"Active", "Inactive", "Hold"}[i]);
+            });
+            insert(connection, "INSERT INTO TransactionType VALUES (?, ?)", 4, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setString(2, new String[]{"Rental", "Sale", "Event", "Service"}[i]);
+            });
+            insert(connection, "INSERT INTO TransactionOperation VALUES (?)", 3, (statement, i) -> {
+                statement.setInt(1, i + 1);
+            });
+            insert(connection, "INSERT INTO TaxTable VALUES (?, ?, ?)", 5, (statement, i) -> {
+                statement.setString(1, "TX" + (i + 1));
+                statement.setString(2, "Tax District " + (i + 1));
+                statement.setDouble(3, 0.05 + i * 0.005);
+            });
+            insert(connection, "INSERT INTO ItemDepartment VALUES (?, ?)", 15, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setString(2, "Department " + (i + 1));
+            });
+            insert(connection, "INSERT INTO DepartmentMapping VALUES (?, ?, ?)", 15, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setInt(2, i % 5 + 1);
+                statement.setString(3, "New Department " + (i % 5 + 1));
+            });
+            insert(connection, "INSERT INTO ItemCategory VALUES (?, ?, ?)", 30, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setString(2, "Category " + (i + 1));
+                statement.setString(3, "4" + i % 10 + "00");
+            });
+            insert(connection, "INSERT INTO ItemType VALUES (?)", 2, (statement, i) -> {
+                statement.setString(1, i == 0 ? "R" : "S");
+            });
+            insert(connection, "INSERT INTO ServiceMap VALUES (?, ?, ?, ?)", 30, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setInt(2, i % 15 + 1);
+                statement.setString(3, "Service " + (i + 1));
+                statement.setInt(4, i + 1);
+            });
+            insert(connection, "INSERT INTO NewAccounts VALUES (?, ?, ?)", 15, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setString(2, i < 10 ? "4" + i + "00" : "5" + (i - 10) + "00");
+                statement.setString(3, (i < 10 ? "Income " : "Cost of Goods ") + (i + 1));
+            });
+            insert(connection, "INSERT INTO NewAccountMap VALUES (?, ?)", 10, (statement, i) -> {
+                statement.setString(1, "4" + i + "00");
+                statement.setInt(2, i + 1);
+            });
+            insert(connection, "INSERT INTO COGS_Association VALUES (?, ?)", 5, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setInt(2, i + 11);
+            });
+            insert(connection, "INSERT INTO VendorFile VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", vendors,
+                   (statement, i) -> {
+                       statement.setInt(1, i + 1);
+                       statement.setString(2, "Vendor " + (i + 1));
+                       statement.setString(3, "Net 30");
+                       statement.setString(4, (100 + i) + " Supply Rd");
+                       statement.setString(5, "");
+                       statement.setString(6, "Lancaster, PA");
+                       statement.setString(7, "17601");
+                       statement.setString(8, "Contact " + (i + 1));
+                       statement.setString(9, phone());
+                       statement.setString(10, "vendor" + (i + 1) + "@example.com");
+                       statement.setString(11, phone());
+                   }
+            );
+            insert(connection, "INSERT INTO CustomerJobSite VALUES (?, ?)", jobSites, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setInt(2, random.nextInt(20) + 1);
+            });
+            insert(connection, "INSERT INTO CustomerFile VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
+                               "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", customers, (statement, i) -> {
+                statement.setString(1, customerNumber(i));
+                statement.setString(2, "Customer " + (i + 1));
+                statement.setString(3, (i + 1) + " Main St");
+                statement.setString(4, random.nextInt(5) == 0 ? "Suite " + (random.nextInt(400) + 1) : "");
+                statement.setString(5, "Lancaster, PA");
+                statement.setString(6, "17601");
+                statement.setString(7, "");
+                statement.setString(8, phone());
+                statement.setString(9, phone());
+                statement.setString(10, phone());
+                statement.setString(11, phone());
+                statement.setBigDecimal(12, money(50000));
+                statement.setString(13, new String[]{"A", "A", "A", "I", "H"}[random.nextInt(5)]);
+                statement.setString(14, "customer" + (i + 1) + "@example.com");
+                statement.setString(15, "Billing " + (i + 1));
+                statement.setString(16, phone());
+                statement.setString(17, (i + 1) + " Main St");
+                statement.setString(18, "");
+                statement.setString(19, "Lancaster, PA");
+                statement.setString(20, "17601");
+                statement.setString(21, "");
+                statement.setString(22, random.nextInt(10) == 0 ? "EX" + random.nextInt(100000) : "");
+                statement.setTimestamp(23, date(random.nextInt(1000)));
+                statement.setString(24, random.nextInt(4) == 0 ? "INS" + random.nextInt(100000) : "");
+                statement.setTimestamp(25, date(random.nextInt(1000)));
+                statement.setString(26, random.nextBoolean() ? "Net 30" : "COD");
+                statement.setString(27, "");
+                statement.setBoolean(28, random.nextInt(10) == 0);
+                statement.setBigDecimal(29, money(5000));
+                statement.setInt(30, random.nextInt(5) + 1);
+                statement.setInt(31, random.nextInt(20) + 1);
+            });
+            insert(connection, "INSERT INTO ItemFile VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
+                               "?)", items, (statement, i) -> {
+                int department = random.nextInt(15) + 1;
+                statement.setInt(1, i + 1);
+                statement.setString(2, itemKey(i, items));
+                statement.setString(3, (i < items / 10 ? "Tent Package " : "Item ") + (i + 1));
+                statement.setInt(4, department);
+                statement.setInt(5, random.nextInt(30) + 1);
+                statement.setString(6, random.nextInt(3) == 0 ? "S" : "R");
+                statement.setString(7, STORES[random.nextInt(STORES.length)]);
+                statement.setDouble(8, random.nextInt(200));
+                statement.setDouble(9, random.nextInt(50));
+                statement.setString(10, "Manufacturer " + (random.nextInt(40) + 1));
+                statement.setDouble(11, random.nextInt(10));
+                statement.setInt(12, random.nextInt(vendors) + 1);
+                statement.setInt(13, random.nextInt(vendors) + 1);
+                statement.setInt(14, random.nextInt(vendors) + 1);
+                statement.setDouble(15, random.nextInt(500) / 10.0);
+                statement.setBigDecimal(16, money(500));
+                statement.setBigDecimal(17, money(1000));
+                statement.setBigDecimal(18, money(1500));
+                statement.setBoolean(19, random.nextInt(20) == 0);
+            });
+            int kits = items / 10;
+            insert(connection, "INSERT INTO ItemKitsAuto VALUES (?, ?, ?, ?, ?)", kits * 4, (statement, i) -> {
+                int kit = i / 4;
+                int component = kits + random.nextInt(items - kits);
+                statement.setInt(1, i + 1);
+                statement.setInt(2, kit + 1);
+                statement.setDouble(3, random.nextInt(4) + 1);
+                boolean subassembly = i % 4 == 3 && kit + 1 < kits;
+                statement.setString(4, itemKey(subassembly ? kit + 1 : component, items));
+                statement.setString(5, random.nextInt(8) == 0 ? "Misc " + (i + 1) : "");
+            });
+            insert(connection, "INSERT INTO Transactions VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
+                               "?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", transactions, (statement, i) -> {
+                String status = STATUSES[random.nextInt(STATUSES.length)];
+                BigDecimal total = money(20000);
+                BigDecimal paid = total.multiply(BigDecimal.valueOf(random.nextInt(3) == 0 ? 100 : random.nextInt(100)))
+                                       .divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP);
+                int day = random.nextInt(1000);
+                statement.setString(1, contractNumber(i));
+                statement.setString(2, customerNumber(random.nextInt(customers)));
+                statement.setTimestamp(3, date(day));
+                statement.setString(4, status);
+                statement.setBigDecimal(5, total);
+                statement.setBigDecimal(6, paid);
+                statement.setBigDecimal(7, random.nextInt(10) == 0 ? money(1000) : BigDecimal.ZERO);
+                statement.setString(8, random.nextInt(50) == 0 ? "T" : "C");
+                statement.setTimestamp(9, "ORQ".contains(status) ? null : date(day + 30));
+                statement.setInt(10, random.nextInt(20) == 0 ? 1 : 0);
+                statement.setInt(11, random.nextInt(20) + 1);
+                statement.setInt(12, random.nextInt(jobSites) + 1);
+                statement.setInt(13, random.nextInt(4) + 1);
+                statement.setInt(14, random.nextInt(3) + 1);
+                statement.setString(15, "TX" + (random.nextInt(5) + 1));
+                statement.setString(16, STORES[random.nextInt(STORES.length)]);
+                statement.setTimestamp(17, date(day + 7));
+                statement.setString(18, (random.nextInt(9000) + 100) + " Event Ln");
+                statement.setString(19, "Lancaster");
+                statement.setString(20, "17601");
+                statement.setString(21, "Contact " + (i + 1));
+                statement.setString(22, phone());
+                statement.setString(23, random.nextInt(3) == 0 ? "PO" + random.nextInt(100000) : "");
+                statement.setString(24, "");
+                statement.setString(25, "Job " + (i + 1));
+                statement.setString(26, random.nextInt(4) == 0 ? "Deliver to the back entrance" : "");
+                statement.setTimestamp(27, date(day + 9));
+                statement.setTimestamp(28, date(day + 10));
+                statement.setBoolean(29, random.nextInt(10) == 0);
+            });
+            int itemsPerTransaction = Math.max(1, transactionItems / transactions);
+            insert(connection, "INSERT INTO TransactionItems VALUES (?, ?, ?, ?, ?, ?, ?)", transactionItems,
+                   (statement, i) -> {
+                       statement.setString(1, contractNumber(Math.min(i / itemsPerTransaction, transactions - 1)));
+                       statement.setInt(2, i);
+                       statement.setInt(3, random.nextInt(items) + 1);
+                       statement.setString(4, random.nextInt(10) == 0 ? "Custom description " + i : "");
+                       statement.setDouble(5, random.nextInt(20) + 1);
+                       statement.setBigDecimal(6, money(2000));
+                       statement.setString(7, random.nextInt(5) == 0 ? "Comment " + i : "");
+                   }
+            );
+            insert(connection, "INSERT INTO PurchaseOrder VALUES (?, ?, ?, ?, ?, ?)", purchaseOrders,
+                   (statement, i) -> {
+                       statement.setInt(1, i + 1);
+                       statement.setString(2, STORES[random.nextInt(STORES.length)]);
+                       statement.setTimestamp(3, date(random.nextInt(1000)));
+                       statement.setString(4, random.nextInt(4) == 0 ? "Rush order" : "");
+                       statement.setInt(5, random.nextInt(vendors) + 1);
+                       statement.setString(6, random.nextInt(3) == 0 ? "O" : "C");
+                   }
+            );
+            insert(connection, "INSERT INTO PurchaseOrderDetail VALUES (?, ?, ?, ?, ?, ?, ?)", purchaseOrders * 4,
+                   (statement, i) -> {
+                       int item = random.nextInt(items) + 1;
+                       statement.setInt(1, i / 4 + 1);
+                       statement.setInt(2, i % 4 + 1);
+                       statement.setInt(3, item);
+                       statement.setString(4, "Item " + item);
+                       statement.setString(5, "");
+                       statement.setBigDecimal(6, money(500));
+                       statement.setDouble(7, random.nextInt(50) + 1);
+                   }
+            );
+            insert(connection, "INSERT INTO CallLog VALUES (?, ?, ?)", customers * 2, (statement, i) -> {
+                statement.setInt(1, i + 1);
+                statement.setString(2, customerNumber(random.nextInt(customers)));
+                statement.setString(3, "OP" + (random.nextInt(25) + 1));
+            });
+            connection.commit();
+        }
+        catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        }
+        finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Inserts the generated rows of a table in batches
+     *
+     * @param connection The connection to the database
+     * @param sql        The insert statement
+     * @param count      The number of rows to insert
+     * @param filler     Sets the parameters of a row
+     *
+     * @throws SQLException If the rows could not be inserted
+     */
+    private void insert(Connection connection, String sql, int count, RowFiller filler) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < count; i++) {
+                filler.fill(statement, i);
+                statement.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Gets the contract number of a transaction
+     *
+     * @param index The index of the transaction
+     *
+     * @return The contract number
+     */
+    private static String contractNumber(int index) {
+        return String.format("%08d", index + 1);
+    }
+
+    /**
+     * Gets the customer number of a customer
+     *
+     * @param index The index of the customer
+     *
+     * @return The customer number
+     */
+    private static String customerNumber(int index) {
+        return String.format("%07d", index + 1);
+    }
+
+    /**
+     * Gets the item key of an item, the first tenth of the items are kits
+     *
+     * @param index The index of the item
+     * @param items The number of items
+     *
+     * @return The item key
+     */
+    private static String itemKey(int index, int items) {
+        return (index < items / 10 ? "KIT-" : "ITM-") + String.format("%06d", index + 1);
+    }
+
+    /**
+     * Generates a random amount of money
+     *
+     * @param max The largest amount
+     *
+     * @return The amount with four decimal places
+     */
+    private BigDecimal money(int max) {
+        return BigDecimal.valueOf(random.nextInt(max * 100), 2).setScale(4, RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * Generates a random phone number
+     *
+     * @return The phone number
+     */
+    private String phone() {
+        return String.format("717-%03d-%04d", random.nextInt(1000), random.nextInt(10000));
+    }
+
+    /**
+     * Gets the date a number of days after the first date of the generated transactions
+     *
+     * @param days The number of days
+     *
+     * @return The date
+     */
+    private static Timestamp date(int days) {
+        return new Timestamp(START_DATE + TimeUnit.DAYS.toMillis(days));
+    }
+
+    /**
+     * Sets the parameters of a generated row
+     */
+    @FunctionalInterface
+    private interface RowFiller {
+
+        /**
+         * Sets the parameters of a row
+         *
+         * @param statement The insert statement
+         * @param index     The index of the row
+         *
+         * @throws SQLException If a parameter could not be set
+         */
+        void fill(PreparedStatement statement, int index) throws SQLException;
+    }
+}
@@ -0,0 +1,498 @@
+package org.dataprocessing.backend.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a query into queries over disjoint ranges of a key column so the ranges can be read on separate connections
+ * <p>
+ * The ranges are found by probing the minimum and maximum of the key, integral keys and string keys whose minimum and
+ * maximum differ only in their digits are split evenly between the two and any other key is split with an NTILE
+ * histogram, which has to sort the keys of the query. Each range is lower exclusive and upper inclusive, the first
+ * range also holds the null keys, so every row of the query belongs to exactly one range. The key must identify the
+ * output rows, a DISTINCT or GROUP BY that merges rows with different keys will return those rows once per range.
+ *
+ * @author Nicholas Curl
+ */
+public class PartitionedQuery {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger  logger = LogManager.getLogger(PartitionedQuery.class);
+    /**
+     * Matches a query that limits its rows with TOP
+     */
+    private static final Pattern TOP    = Pattern.compile("^\\s*SELECT\\s+(?:DISTINCT\\s+)?TOP\\b");
+    /**
+     * The original query
+     */
+    private final        String  sql;
+    /**
+     * The key column that the query is split on
+     */
+    private final        String  keyColumn;
+    /**
+     * The select list of the query up to the top level FROM
+     */
+    private final        String  select;
+    /**
+     * The FROM clause of the query
+     */
+    private final        String  from;
+    /**
+     * The condition of the top level WHERE clause, null if there is none
+     */
+    private final        String  where;
+    /**
+     * The GROUP BY and HAVING clauses of the query
+     */
+    private final        String  grouping;
+    /**
+     * The ORDER BY list of the query without the keyword, null if there is none
+     */
+    private final        String  orderBy;
+    /**
+     * Can the query be split
+     */
+    private final        boolean splittable;
+
+    /**
+     * The constructor for this class
+     *
+     * @param sql       The query to split
+     * @param keyColumn The key column to split the query on as it is referenced in the WHERE clause
+     */
+    public PartitionedQuery(String sql, String keyColumn) {
+        this.sql = sql.trim();
+        this.keyColumn = keyColumn;
+        String upper = maskQuoted(this.sql).toUpperCase(Locale.ROOT);
+        int fromIndex = findKeyword(upper, "FROM", 0);
+        int whereIndex = fromIndex < 0 ? -1 : findKeyword(upper, "WHERE", fromIndex);
+        int groupIndex = fromIndex < 0 ? -1 : findFirst(upper, fromIndex, "GROUP BY", "HAVING");
+        int orderIndex = fromIndex < 0 ? -1 : findKeyword(upper, "ORDER BY", fromIndex);
+        int tailIndex = min(groupIndex, orderIndex, this.sql.length());
+        splittable = fromIndex > 0 &&
+                     findFirst(upper, 0, "UNION", "EXCEPT", "INTERSECT", "OFFSET", "FOR XML", "FOR JSON") < 0 &&
+                     !TOP.matcher(upper).find() &&
+                     (whereIndex < 0 || whereIndex < tailIndex);
+        if (!splittable) {
+            select = from = where = grouping = orderBy = null;
+            return;
+        }
+        select = this.sql.substring(0, fromIndex);
+        if (whereIndex >= 0) {
+            from = this.sql.substring(fromIndex, whereIndex);
+            where = this.sql.substring(whereIndex + "WHERE".length(), tailIndex).trim();
+        }
+        else {
+            from = this.sql.substring(fromIndex, tailIndex);
+            where = null;
+        }
+        grouping = groupIndex >= 0 ? this.sql.substring(groupIndex, orderIndex >= 0 ? orderIndex : this.sql.length())
+                   : "";
+        orderBy = orderIndex >= 0 ? this.sql.substring(orderIndex + "ORDER BY".length()).trim() : null;
+    }
+
+    /**
+     * Can the query be split, queries with a set operator, TOP, OFFSET or FOR clause are read as one partition
+     *
+     * @return True if the query can be split
+     */
+    public boolean isSplittable() {
+        return splittable;
+    }
+
+    /**
+     * Splits the query into at most the specified number of partitions
+     *
+     * @param connection The connection used to probe the key column
+     * @param count      The number of partitions to split the query into
+     * @param ordered    Should the partitions be ordered by the key so that they can be concatenated in key order
+     * @param name       The name the probes of the key are measured under
+     *
+     * @return The partitions of the query in ascending key order
+     *
+     * @throws SQLException If the key column could not be probed
+     */
+    public List<Partition> split(Connection connection, int count, boolean ordered, String name)
+            throws SQLException {
+        if (!splittable || count <= 1) {
+            if (!splittable) {
+                logger.warn("Query can not be split on " + keyColumn + ", reading it as one partition");
+            }
+            return Collections.singletonList(new Partition(ordered && splittable ? build(null, ordered) : sql,
+                                                           Collections.emptyList()
+            ));
+        }
+        List<Object> boundaries = probe(connection, count, name);
+        List<Partition> partitions = new ArrayList<>();
+        if (boundaries.isEmpty()) {
+            partitions.add(new Partition(build(null, ordered), Collections.emptyList()));
+            return partitions;
+        }
+        partitions.add(new Partition(build("(" + keyColumn + " <= ? OR " + keyColumn + " IS NULL)", ordered),
+                                     Collections.singletonList(boundaries.get(0))
+        ));
+        for (int i = 1; i < boundaries.size(); i++) {
+            List<Object> parameters = new ArrayList<>();
+            parameters.add(boundaries.get(i - 1));
+            parameters.add(boundaries.get(i));
+            partitions.add(new Partition(build(keyColumn + " > ? AND " + keyColumn + " <= ?", ordered), parameters));
+        }
+        partitions.add(new Partition(build(keyColumn + " > ?", ordered),
+                                     Collections.singletonList(boundaries.get(boundaries.size() - 1))
+        ));
+        return partitions;
+    }
+
+    /**
+     * Restricts the query to the rows of the keys
+     *
+     * @param keys The keys, at most as many as can be bound to one query
+     *
+     * @return The query over the keys
+     */
+    public Partition restrictTo(List<Object> keys) {
+        if (!splittable) {
+            throw new IllegalStateException("Query can not be restricted on " + keyColumn);
+        }
+        StringBuilder predicate = new StringBuilder(keyColumn).append(" IN (");
+        for (int i = 0; i < keys.size(); i++) {
+            predicate.append(i == 0 ? "?" : ", ?");
+        }
+        predicate.append(")");
+        return new Partition(build(predicate.toString(), false), keys);
+    }
+
+    /**
+     * Finds the upper boundaries of all but the last partition
+     *
+     * @param connection The connection used to probe the key column
+     * @param count      The number of partitions
+     * @param name       The name the probes are measured under
+     *
+     * @return The ascending, distinct boundaries, empty if the query has no keys
+     *
+     * @throws SQLException If the key column could not be probed
+     */
+    private List<Object> probe(Connection connection, int count, String name) throws SQLException {
+        String source = from + (where != null ? " WHERE " + where : "");
+        Object min;
+        Object max;
+        try (PreparedStatement statement = QueryStats.getInstance().instrument(connection.prepareStatement(
+                "SELECT MIN(" + keyColumn + "), MAX(" + keyColumn + ") " + source), name);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            min = resultSet.getObject(1);
+            max = resultSet.getObject(2);
+        }
+        List<Object> boundaries = new ArrayList<>();
+        if (min == null || max == null) {
+            return boundaries;
+        }
+        if (isIntegral(min) && isIntegral(max)) {
+            boundaries.addAll(split(((Number) min).longValue(), ((Number) max).longValue(), count));
+            return boundaries;
+        }
+        if (min instanceof String && max instanceof String) {
+            String low = (String) min;
+            String high = (String) max;
+            int prefix = 0;
+            while (prefix < low.length() && prefix < high.length() && low.charAt(prefix) == high.charAt(prefix)) {
+                prefix++;
+            }
+            int width = Math.min(Math.max(low.length(), high.length()) - prefix, 18);
+            if (width > 0 && isDigits(low, prefix) && isDigits(high, prefix)) {
+                for (long boundary : split(digits(low, prefix, width), digits(high, prefix, width), count)) {
+                    boundaries.add(high.substring(0, prefix) + String.format("%0" + width + "d", boundary));
+                }
+                return boundaries;
+            }
+        }
+        logger.debug("Splitting " + keyColumn + " with a histogram of its keys");
+        String histogram = "SELECT MAX(partition_key) FROM (SELECT " + keyColumn + " AS partition_key, NTILE(" +
+                           count + ") OVER (ORDER BY " + keyColumn + ") AS partition_bucket " + source +
+                           ") AS partition_probe WHERE partition_key IS NOT NULL " +
+                           "GROUP BY partition_bucket ORDER BY partition_bucket";
+        try (PreparedStatement statement = QueryStats.getInstance().instrument(connection.prepareStatement(histogram),
+                                                                               name
+        );
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                Object boundary = resultSet.getObject(1);
+                if (boundary != null && (boundaries.isEmpty() || !Objects.equals(boundaries.get(
+                        boundaries.size() - 1), boundary))) {
+                    boundaries.add(boundary);
+                }
+            }
+        }
+        if (!boundaries.isEmpty()) {
+            boundaries.remove(boundaries.size() - 1);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Splits the keys between the minimum and maximum evenly
+     *
+     * @param low   The minimum key
+     * @param high  The maximum key
+     * @param count The number of partitions
+     *
+     * @return The ascending, distinct boundaries below the maximum
+     */
+    private static List<Long> split(long low, long high, int count) {
+        List<Long> boundaries = new ArrayList<>();
+        double step = ((double) high - low) / count;
+        for (int i = 1; i < count; i++) {
+            long boundary = low + (long) Math.floor(step * i);
+            if (boundary < high && (boundaries.isEmpty() || boundaries.get(boundaries.size() - 1) != boundary)) {
+                boundaries.add(boundary);
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * Are the characters of the string from the index on all digits
+     *
+     * @param string The string
+     * @param start  The index of the first character to check
+     *
+     * @return True if the characters are all digits
+     */
+    private static boolean isDigits(String string, int start) {
+        for (int i = start; i < string.length(); i++) {
+            if (string.charAt(i) < '0' || string.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the digits of the string from the index on as a number of the width, padding them on the right with zeros
+     * so that the numbers of the strings are in the order of the strings
+     *
+     * @param string The string
+     * @param start  The index of the first digit
+     * @param width  The number of digits to read
+     *
+     * @return The number of the digits
+     */
+    private static long digits(String string, int start, int width) {
+        long number = 0;
+        for (int i = 0; i < width; i++) {
+            int index = start + i;
+            number = number * 10 + (index < string.length() ? string.charAt(index) - '0' : 0);
+        }
+        return number;
+    }
+
+    /**
+     * Builds the query for a range of the key
+     *
+     * @param predicate The range condition on the key, null for the whole query
+     * @param ordered   Should the key lead the ORDER BY
+     *
+     * @return The query for the range
+     */
+    private String build(String predicate, boolean ordered) {
+        StringBuilder builder = new StringBuilder(select).append(from);
+        if (where != null && predicate != null) {
+            builder.append(" WHERE (").append(where).append(") AND (").append(predicate).append(") ");
+        }
+        else if (where != null) {
+            builder.append(" WHERE ").append(where).append(" ");
+        }
+        else if (predicate != null) {
+            builder.append(" WHERE ").append(predicate).append(" ");
+        }
+        builder.append(grouping);
+        if (ordered) {
+            builder.append(" ORDER BY ").append(keyColumn);
+            if (orderBy != null) {
+                builder.append(", ").append(orderBy);
+            }
+        }
+        else if (orderBy != null) {
+            builder.append(" ORDER BY ").append(orderBy);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Is the value a whole number that can be split arithmetically
+     *
+     * @param value The value to check
+     *
+     * @return True if the value is a whole number
+     */
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Replaces the contents of string literals, quoted identifiers and parentheses with spaces so that only the top
+     * level keywords of the query remain visible, the length of the query is preserved
+     *
+     * @param sql The query
+     *
+     * @return The masked query
+     */
+    static String maskQuoted(String sql) {
+        char[] chars = sql.toCharArray();
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (quote != 0) {
+                if (c == quote) {
+                    if (i + 1 < chars.length && chars[i + 1] == quote) {
+                        chars[i++] = ' ';
+                    }
+                    else {
+                        quote = 0;
+                    }
+                }
+                chars[i] = ' ';
+                continue;
+            }
+            if (c == '\'' || c == '"') {
+                quote = c;
+                chars[i] = ' ';
+            }
+            else if (c == '[') {
+                quote = ']';
+                chars[i] = ' ';
+            }
+            else if (c == '(') {
+                depth++;
+                chars[i] = ' ';
+            }
+            else if (c == ')') {
+                depth--;
+                chars[i] = ' ';
+            }
+            else if (depth > 0) {
+                chars[i] = ' ';
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Finds a keyword in the masked query
+     *
+     * @param masked  The masked, upper case query
+     * @param keyword The keyword, words separated by single spaces
+     * @param start   The index to start searching at
+     *
+     * @return The index of the keyword, -1 if it is not found
+     */
+    static int findKeyword(String masked, String keyword, int start) {
+        Matcher matcher = Pattern.compile("\\b" + keyword.replace(" ", "\\s+") + "\\b").matcher(masked);
+        return matcher.find(start) ? matcher.start() : -1;
+    }
+
+    /**
+     * Finds the first of several keywords in the masked query
+     *
+     * @param masked   The masked, upper case query
+     * @param start    The index to start searching at
+     * @param keywords The keywords
+     *
+     * @return The index of the first keyword found, -1 if none are found
+     */
+    private static int findFirst(String masked, int start, String... keywords) {
+        int first = -1;
+        for (String keyword : keywords) {
+            int index = findKeyword(masked, keyword, start);
+            if (index >= 0 && (first < 0 || index < first)) {
+                first = index;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Gets the smallest of the indices that were found
+     *
+     * @param first  The first index, -1 if not found
+     * @param second The second index, -1 if not found
+     * @param end    The index to use if neither was found
+     *
+     * @return The smallest index found
+     */
+    private static int min(int first, int second, int end) {
+        int result = end;
+        if (first >= 0) {
+            result = Math.min(result, first);
+        }
+        if (second >= 0) {
+            result = Math.min(result, second);
+        }
+        return result;
+    }
+
+    /**
+     * A query over one range of the key
+     */
+    public static class Partition {
+
+        /**
+         * The query over the range
+         */
+        private final String       sql;
+        /**
+         * The boundaries of the range to bind to the query
+         */
+        private final List<Object> parameters;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param sql        The query over the range
+         * @param parameters The boundaries of the range to bind to the query
+         */
+        public Partition(String sql, List<Object> parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        /**
+         * Gets the query over the range
+         *
+         * @return The query
+         */
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * Binds the boundaries of the range to the query
+         *
+         * @param statement The statement prepared from the query
+         *
+         * @throws SQLException If the boundaries could not be bound
+         */
+        public void bind(PreparedStatement statement) throws SQLException {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.dataprocessing.backend.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The select list of a query and the position of each of its columns by name
+ * <p>
+ * A mapper declares the columns it reads and {@link #prune(Collection) prunes} the query to them, the pruned query
+ * selects only those columns in the declared order. A column is named by its alias, or by its last identifier if it
+ * has no alias, and names are matched without regard to case or brackets. Queries whose rows depend on the whole
+ * select list, those with DISTINCT, a star, a set operator or an ORDER BY, are not pruned but their columns are still
+ * checked and resolved by name.
+ *
+ * @author Nicholas Curl
+ */
+public class Projection {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger               logger     = LogManager.getLogger(Projection.class);
+    /**
+     * Matches the start of the query up to its select list
+     */
+    private static final Pattern              HEAD       = Pattern.compile(
+            "^\\s*SELECT\\s+(DISTINCT\\s+)?(?:TOP\\b\\s*(?:\\d+\\s+)?(?:PERCENT\\s+)?(?:WITH\\s+TIES\\s+)?)?");
+    /**
+     * Matches the last top level AS of a column in the masked, upper case select list
+     */
+    private static final Pattern              ALIAS      = Pattern.compile("\\bAS\\b");
+    /**
+     * Matches the last identifier of a column without an alias
+     */
+    private static final Pattern              IDENTIFIER = Pattern.compile("(\\[[^\\]]+]|\"[^\"]+\"|\\w+)\\s*$");
+    /**
+     * Marks a name that more than one column of the query has
+     */
+    private static final int                  AMBIGUOUS  = -1;
+    /**
+     * The query
+     */
+    private final        String               sql;
+    /**
+     * The query up to and including the SELECT, DISTINCT and TOP keywords
+     */
+    private final        String               head;
+    /**
+     * The query from its top level FROM on
+     */
+    private final        String               tail;
+    /**
+     * The expressions of the select list
+     */
+    private final        List<String>         items;
+    /**
+     * The names of the columns in the order they are selected
+     */
+    private final        List<String>         columns;
+    /**
+     * The positions of the columns mapped by their normalized name
+     */
+    private final        Map<String, Integer> indexes;
+    /**
+     * Can the select list be pruned without changing which rows the query returns
+     */
+    private final        boolean              prunable;
+
+    /**
+     * The constructor for this class
+     *
+     * @param sql The query
+     */
+    public Projection(String sql) {
+        this.sql = sql.trim();
+        this.items = new ArrayList<>();
+        this.columns = new ArrayList<>();
+        this.indexes = new HashMap<>();
+        String masked = PartitionedQuery.maskQuoted(this.sql).toUpperCase(Locale.ROOT);
+        Matcher matcher = HEAD.matcher(masked);
+        int fromIndex = PartitionedQuery.findKeyword(masked, "FROM", 0);
+        if (!matcher.find() || fromIndex < matcher.end()) {
+            head = tail = null;
+            prunable = false;
+            return;
+        }
+        head = this.sql.substring(0, matcher.end());
+        tail = this.sql.substring(fromIndex);
+        boolean star = false;
+        int start = matcher.end();
+        for (int i = start; i <= fromIndex; i++) {
+            if (i == fromIndex || masked.charAt(i) == ',') {
+                String maskedItem = masked.substring(start, i);
+                star |= maskedItem.trim().endsWith("*");
+                add(this.sql.substring(start, i), maskedItem);
+                start = i + 1;
+            }
+        }
+        prunable = matcher.group(1) == null &&
+                   !star &&
+                   PartitionedQuery.findKeyword(masked, "UNION", fromIndex) < 0 &&
+                   PartitionedQuery.findKeyword(masked, "EXCEPT", fromIndex) < 0 &&
+                   PartitionedQuery.findKeyword(masked, "INTERSECT", fromIndex) < 0 &&
+                   PartitionedQuery.findKeyword(masked, "ORDER BY", fromIndex) < 0;
+    }
+
+    /**
+     * Prunes the select list of the query to the columns, in the order they are declared
+     *
+     * @param columns The names of the columns that are read
+     *
+     * @return The projection of the pruned query, this projection if the query can not be pruned
+     *
+     * @throws IllegalArgumentException If a column is not selected by the query or its name is ambiguous
+     */
+    public Projection prune(Collection<String> columns) {
+        List<String> selected = new ArrayList<>();
+        for (String column : new LinkedHashSet<>(columns)) {
+            selected.add(items.get(indexOf(column)));
+        }
+        if (!prunable) {
+            logger.debug("Query can not be pruned, reading all of its " + items.size() + " columns");
+            return this;
+        }
+        if (selected.size() == items.size() && selected.equals(items)) {
+            return this;
+        }
+        logger.debug("Pruned query from " + items.size() + " to " + selected.size() + " columns");
+        return new Projection(head + String.join(", ", selected) + " " + tail);
+    }
+
+    /**
+     * Gets the position of a column in the rows of the query
+     *
+     * @param column The name of the column
+     *
+     * @return The zero based position of the column
+     *
+     * @throws IllegalArgumentException If the column is not selected by the query or its name is ambiguous
+     */
+    public int indexOf(String column) {
+        Integer index = indexes.get(normalize(column));
+        if (index == null) {
+            throw new IllegalArgumentException("Column " + column + " is not selected by the query, the selected " +
+                                               "columns are " + columns);
+        }
+        if (index == AMBIGUOUS) {
+            throw new IllegalArgumentException("Column " + column + " is selected more than once by the query");
+        }
+        return index;
+    }
+
+    /**
+     * Gets the names of the columns in the order they are selected
+     *
+     * @return The names of the columns
+     */
+    public List<String> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Gets the query
+     *
+     * @return The query
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Can the select list be pruned without changing which rows the query returns
+     *
+     * @return True if the query can be pruned
+     */
+    public boolean isPrunable() {
+        return prunable;
+    }
+
+    /**
+     * Adds a column of the select list and maps its name to its position
+     *
+     * @param item       The expression of the column
+     * @param maskedItem The masked, upper case expression of the column
+     */
+    private void add(String item, String maskedItem) {
+        String name = null;
+        Matcher alias = ALIAS.matcher(maskedItem);
+        int aliasEnd = -1;
+        while (alias.find()) {
+            aliasEnd = alias.end();
+        }
+        if (aliasEnd >= 0) {
+            name = item.substring(aliasEnd).trim();
+        }
+        else {
+            Matcher identifier = IDENTIFIER.matcher(item);
+            if (identifier.find()) {
+                name = identifier.group(1);
+            }
+        }
+        name = name == null ? item.trim() : unquote(name);
+        int index = items.size();
+        items.add(item.trim());
+        columns.add(name);
+        indexes.merge(normalize(name), index, (previous, current) -> AMBIGUOUS);
+    }
+
+    /**
+     * Removes the brackets or quotes around an identifier
+     *
+     * @param name The identifier
+     *
+     * @return The identifier without its brackets or quotes
+     */
+    private static String unquote(String name) {
+        if (name.length() > 1 && (name.startsWith("[") && name.endsWith("]") ||
+                                  name.startsWith("\"") && name.endsWith("\""))) {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    /**
+     * Normalizes the name of a column to the form it is looked up by
+     *
+     * @param name The name of the column
+     *
+     * @return The unquoted, lower case name
+     */
+    private static String normalize(String name) {
+        return unquote(name.trim()).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,441 @@
+package org.dataprocessing.backend.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.RollingFileAppender;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the named queries of a run by wrapping their statements and result sets
+ * <p>
+ * For every query name the number of executions, the time to execute, the time to the first row, the time spent
+ * fetching, the rows and the approximate bytes read are recorded. The statements are wrapped to time their executions,
+ * the rows are measured by the reader through a {@link Meter} that times each fetch and estimates the bytes of each row
+ * it builds, so nothing is added to the calls reading the cells. The report of a run is logged and written to a CSV
+ * file in the directory of the dataprocessing.queryReportDir system property, by default the directory the log file of
+ * the application is written to. The measurements can be turned off
+ * with the dataprocessing.queryStats system property. Setting the dataprocessing.queryStats.sampleGetters system
+ * property to true wraps the result sets as well and estimates the bytes of every value read from them instead, which
+ * also measures readers that do not use a meter at the cost of a reflective call per cell.
+ *
+ * @author Nicholas Curl
+ */
+public class QueryStats {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger                   logger        = LogManager.getLogger(QueryStats.class);
+    /**
+     * Are the queries measured
+     */
+    private static final boolean                  enabled       = Boolean.parseBoolean(System.getProperty(
+            "dataprocessing.queryStats",
+            "true"
+    ));
+    /**
+     * Are the bytes of the values read from the result sets estimated by wrapping the result sets
+     */
+    private static final boolean                  sampleGetters = Boolean.parseBoolean(System.getProperty(
+            "dataprocessing.queryStats.sampleGetters",
+            "false"
+    ));
+    /**
+     * The directory the reports are written to
+     */
+    private static final Path                     reportDir     = reportDirectory();
+    /**
+     * The instance of this class
+     */
+    private static final QueryStats               instance      = new QueryStats();
+    /**
+     * The measurements of the run mapped by the query name
+     */
+    private final        Map<String, Measurement> queries       = new ConcurrentHashMap<>();
+
+    /**
+     * The constructor for this class
+     */
+    private QueryStats() {
+    }
+
+    /**
+     * Gets the instance of this class
+     *
+     * @return The instance of this class
+     */
+    public static QueryStats getInstance() {
+        return instance;
+    }
+
+    /**
+     * Gets a name for a query that has not been named, the first table named after a FROM and a short hash of the
+     * query
+     *
+     * @param sql The query
+     *
+     * @return The name of the query
+     */
+    public static String nameOf(String sql) {
+        List<String> tables = SnapshotCache.sourceTables(sql);
+        String table = tables.isEmpty() ? "query" : tables.get(0);
+        return table + "#" + SnapshotCache.key(sql).substring(0, 8);
+    }
+
+    /**
+     * Wraps a statement so that its executions are measured under the query name
+     *
+     * @param statement The statement
+     * @param name      The name of the query
+     *
+     * @return The measured statement, the statement itself if the queries are not measured
+     */
+    public PreparedStatement instrument(PreparedStatement statement, String name) {
+        if (!enabled) {
+            return statement;
+        }
+        Measurement measurement = queries.computeIfAbsent(name, key -> new Measurement());
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                                          new Class<?>[]{PreparedStatement.class},
+                                                          (proxy, method, args) -> {
+                                                              if (method.getName().equals("executeQuery") &&
+                                                                  method.getParameterCount() == 0) {
+                                                                  return execute(statement, measurement);
+                                                              }
+                                                              return call(statement, method, args);
+                                                          }
+        );
+    }
+
+    /**
+     * Gets the directory the reports are written to, the directory of the dataprocessing.queryReportDir system
+     * property or else the directory of the log file of the application
+     *
+     * @return The absolute path of the directory
+     */
+    private static Path reportDirectory() {
+        String property = System.getProperty("dataprocessing.queryReportDir");
+        if (property != null) {
+            return Paths.get(property).toAbsolutePath();
+        }
+        if (LogManager.getContext(false) instanceof LoggerContext) {
+            LoggerContext context = (LoggerContext) LogManager.getContext(false);
+            Appender appender = context.getConfiguration().getAppender("RollingFile");
+            if (appender instanceof RollingFileAppender) {
+                Path parent = Paths.get(((RollingFileAppender) appender).getFileName()).toAbsolutePath().getParent();
+                if (parent != null) {
+                    return parent;
+                }
+            }
+        }
+        return Paths.get("logs").toAbsolutePath();
+    }
+
+    /**
+     * Gets a meter for the rows of one execution of a query, created before the query is executed so that it times the
+     * first row from the execution
+     *
+     * @param name The name of the query
+     *
+     * @return The meter, which only moves the result set forward if the queries are not measured
+     */
+    public Meter meter(String name) {
+        return new Meter(enabled ? queries.computeIfAbsent(name, key -> new Measurement()) : null);
+    }
+
+    /**
+     * Logs the report of the run and writes it to a CSV file, then starts a new run
+     */
+    public void report() {
+        if (queries.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, Measurement>> entries = new ArrayList<>(queries.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().totalNanos(), a.getValue().totalNanos()));
+        queries.clear();
+        StringBuilder log = new StringBuilder("Query report");
+        for (Map.Entry<String, Measurement> entry : entries) {
+            Measurement measurement = entry.getValue();
+            log.append(String.format("%n  %s: %d executions, execute %.1f ms, first row %.1f ms, fetch %.1f ms, " +
+                                     "%d rows, %.1f MB, %.0f rows/s",
+                                     entry.getKey(),
+                                     measurement.executions.sum(),
+                                     millis(measurement.executeNanos.sum()),
+                                     millis(measurement.firstRowNanos.sum()),
+                                     millis(measurement.fetchNanos.sum()),
+                                     measurement.rows.sum(),
+                                     measurement.bytes.sum() / (1024.0 * 1024.0),
+                                     measurement.rowsPerSecond()
+            ));
+        }
+        logger.info(log);
+        Path file = reportDir.resolve("query-report-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) +
+                                      ".csv");
+        try {
+            Files.createDirectories(reportDir);
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write("Query,Executions,Execute ms,First row ms,Fetch ms,Rows,Bytes,Rows/s\n");
+                for (Map.Entry<String, Measurement> entry : entries) {
+                    Measurement measurement = entry.getValue();
+                    writer.write(String.format("\"%s\",%d,%.1f,%.1f,%.1f,%d,%d,%.0f%n",
+                                               entry.getKey().replace("\"", "\"\""),
+                                               measurement.executions.sum(),
+                                               millis(measurement.executeNanos.sum()),
+                                               millis(measurement.firstRowNanos.sum()),
+                                               millis(measurement.fetchNanos.sum()),
+                                               measurement.rows.sum(),
+                                               measurement.bytes.sum(),
+                                               measurement.rowsPerSecond()
+                    ));
+                }
+            }
+        }
+        catch (IOException e) {
+            logger.warn("Unable to write query report " + file, e);
+        }
+    }
+
+    /**
+     * Executes the query of a measured statement, wrapping its result set if the values read from it are sampled
+     *
+     * @param statement   The statement
+     * @param measurement The measurement of the query
+     *
+     * @return The result set
+     *
+     * @throws Throwable Any exception thrown by the statement
+     */
+    private ResultSet execute(PreparedStatement statement, Measurement measurement) throws Throwable {
+        long start = System.nanoTime();
+        ResultSet resultSet;
+        try {
+            resultSet = statement.executeQuery();
+        }
+        finally {
+            measurement.executions.increment();
+            measurement.executeNanos.add(System.nanoTime() - start);
+        }
+        if (!sampleGetters) {
+            return resultSet;
+        }
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                                                  new Class<?>[]{ResultSet.class},
+                                                  (proxy, method, args) -> {
+                                                      Object value = call(resultSet, method, args);
+                                                      if (method.getName().startsWith("get") && args != null &&
+                                                          args.length == 1) {
+                                                          measurement.bytes.add(estimateBytes(value));
+                                                      }
+                                                      return value;
+                                                  }
+        );
+    }
+
+    /**
+     * Calls a method on the wrapped object
+     *
+     * @param target The wrapped object
+     * @param method The method called
+     * @param args   The arguments of the call
+     *
+     * @return The result of the call
+     *
+     * @throws Throwable Any exception thrown by the wrapped object
+     */
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Estimates the number of bytes a value took on the wire
+     *
+     * @param value The value read from the result set
+     *
+     * @return The approximate number of bytes
+     */
+    private static long estimateBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 2L * ((String) value).length();
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof BigDecimal) {
+            return 17;
+        }
+        if (value instanceof Integer || value instanceof Float) {
+            return 4;
+        }
+        if (value instanceof Short) {
+            return 2;
+        }
+        if (value instanceof Byte || value instanceof Boolean) {
+            return 1;
+        }
+        return 8;
+    }
+
+    /**
+     * Converts nanoseconds to milliseconds
+     *
+     * @param nanos The nanoseconds
+     *
+     * @return The milliseconds
+     */
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Measures the rows of one execution of a query as a reader moves through them
+     */
+    public static class Meter {
+
+        /**
+         * The measurement of the query, null if the queries are not measured
+         */
+        private final Measurement measurement;
+        /**
+         * The time the meter was created in nanoseconds
+         */
+        private final long        start;
+        /**
+         * Has the first row been fetched
+         */
+        private       boolean     fetched;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param measurement The measurement of the query, null if the queries are not measured
+         */
+        private Meter(Measurement measurement) {
+            this.measurement = measurement;
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Moves the result set to its next row, timing the fetch
+         *
+         * @param resultSet The result set of the query
+         *
+         * @return True if the result set moved to a row, false if it has no more rows
+         *
+         * @throws SQLException If the next row could not be fetched
+         */
+        public boolean next(ResultSet resultSet) throws SQLException {
+            if (measurement == null) {
+                return resultSet.next();
+            }
+            long fetchStart = System.nanoTime();
+            boolean next = resultSet.next();
+            long fetchEnd = System.nanoTime();
+            measurement.fetchNanos.add(fetchEnd - fetchStart);
+            if (!fetched) {
+                fetched = true;
+                measurement.firstRowNanos.add(fetchEnd - start);
+            }
+            if (next) {
+                measurement.rows.increment();
+            }
+            return next;
+        }
+
+        /**
+         * Estimates the bytes of a row read from the result set, unless the values read are already sampled
+         *
+         * @param row The values of the row
+         */
+        public void row(List<?> row) {
+            if (measurement == null || sampleGetters) {
+                return;
+            }
+            long bytes = 0;
+            for (int i = 0, size = row.size(); i < size; i++) {
+                bytes += estimateBytes(row.get(i));
+            }
+            measurement.bytes.add(bytes);
+        }
+    }
+
+    /**
+     * The measurements of one named query
+     */
+    private static class Measurement {
+
+        /**
+         * The number of times the query was executed
+         */
+        private final LongAdder executions    = new LongAdder();
+        /**
+         * The time spent executing the query in nanoseconds
+         */
+        private final LongAdder executeNanos  = new LongAdder();
+        /**
+         * The time from executing the query to its first row in nanoseconds
+         */
+        private final LongAdder firstRowNanos = new LongAdder();
+        /**
+         * The time spent fetching the rows in nanoseconds
+         */
+        private final LongAdder fetchNanos    = new LongAdder();
+        /**
+         * The number of rows read
+         */
+        private final LongAdder rows          = new LongAdder();
+        /**
+         * The approximate number of bytes read
+         */
+        private final LongAdder bytes         = new LongAdder();
+
+        /**
+         * Gets the time spent on the query in nanoseconds
+         *
+         * @return The time spent executing and fetching
+         */
+        private long totalNanos() {
+            return executeNanos.sum() + fetchNanos.sum();
+        }
+
+        /**
+         * Gets the number of rows read per second spent on the query
+         *
+         * @return The rows per second
+         */
+        private double rowsPerSecond() {
+            long nanos = totalNanos();
+            return nanos == 0 ? 0 : rows.sum() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.dataprocessing.backend.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reads the results of a query before the statement and connection that produced them are released
+ *
+ * @param <T> The type of value read from the results
+ *
+ * @author Nicholas Curl
+ */
+@FunctionalInterface
+public interface ResultSetHandler<T> {
+
+    /**
+     * Reads the results of a query
+     *
+     * @param resultSet The results of the query
+     *
+     * @return The value read from the results
+     *
+     * @throws SQLException If the results could not be read
+     */
+    T handle(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,178 @@
+package org.dataprocessing.backend.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates the number of rows a query returns without running the query a second time
+ * <p>
+ * The estimate is the row count recorded the last time the query was read, or if the query has not been read before,
+ * the row count of its driving table from the catalog statistics. Tasks combine the estimate with the rows they have
+ * read so far so that their progress converges even when the estimate is off.
+ *
+ * @author Nicholas Curl
+ */
+public class RowCountEstimator {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger            logger    = LogManager.getLogger(RowCountEstimator.class);
+    /**
+     * The file the row counts of the previous runs are stored in
+     */
+    private static final Path              countFile = Paths.get(System.getProperty("dataprocessing.rowCounts",
+                                                                                    "cache/row-counts.properties"
+    ));
+    /**
+     * Matches the first table named after a FROM
+     */
+    private static final Pattern           fromTable = Pattern.compile("(?i)\\bFROM\\s+((?:\\[[^\\]]+]|\\w+)" +
+                                                                       "(?:\\.(?:\\[[^\\]]+]|\\w+))*)");
+    /**
+     * Counts the rows of a table from the catalog statistics
+     */
+    private static final String            statsSql  = "SELECT SUM(row_count) FROM sys.dm_db_partition_stats " +
+                                                       "WHERE object_id = OBJECT_ID(?) AND index_id IN (0, 1)";
+    /**
+     * The instance of this class
+     */
+    private static final RowCountEstimator instance  = new RowCountEstimator();
+    /**
+     * The row counts of the previous runs keyed by the hash of the query
+     */
+    private final        Properties        counts    = new Properties();
+
+    /**
+     * The constructor for this class that loads the row counts of the previous runs
+     */
+    private RowCountEstimator() {
+        if (Files.exists(countFile)) {
+            try (InputStream inputStream = Files.newInputStream(countFile)) {
+                counts.load(inputStream);
+            }
+            catch (IOException e) {
+                logger.warn("Unable to load previous row counts", e);
+            }
+        }
+    }
+
+    /**
+     * Gets the instance of this class
+     *
+     * @return The instance of this class
+     */
+    public static RowCountEstimator getInstance() {
+        return instance;
+    }
+
+    /**
+     * Estimates the number of rows the query returns
+     *
+     * @param connection The connection used to read the catalog statistics
+     * @param sql        The query
+     *
+     * @return The estimated number of rows, -1 if there is no estimate
+     */
+    public long estimate(Connection connection, String sql) {
+        String previous = counts.getProperty(key(sql));
+        if (previous != null) {
+            try {
+                return Long.parseLong(previous);
+            }
+            catch (NumberFormatException ignored) {
+            }
+        }
+        String table = drivingTable(sql);
+        if (table == null) {
+            return -1;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(statsSql)) {
+            statement.setString(1, table.replace("[", "").replace("]", ""));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    long count = resultSet.getLong(1);
+                    return resultSet.wasNull() ? -1 : count;
+                }
+            }
+        }
+        catch (SQLException e) {
+            logger.debug("Unable to read catalog statistics for " + table, e);
+        }
+        return -1;
+    }
+
+    /**
+     * Records the number of rows the query returned for the next run
+     *
+     * @param sql      The query
+     * @param rowCount The number of rows the query returned
+     */
+    public synchronized void record(String sql, long rowCount) {
+        counts.setProperty(key(sql), Long.toString(rowCount));
+        try {
+            if (countFile.getParent() != null) {
+                Files.createDirectories(countFile.getParent());
+            }
+            try (OutputStream outputStream = Files.newOutputStream(countFile)) {
+                counts.store(outputStream, "Row counts of the previous run");
+            }
+        }
+        catch (IOException e) {
+            logger.warn("Unable to store row counts", e);
+        }
+    }
+
+    /**
+     * Gets the progress of reading a query
+     *
+     * @param rowsRead  The number of rows read so far
+     * @param estimate  The estimated number of rows, -1 if there is no estimate
+     * @param increment The number of rows expected to be read before the next update
+     *
+     * @return The progress between 0 and 1, never reaching 1 before the query has finished
+     */
+    public static double progress(long rowsRead, long estimate, long increment) {
+        if (estimate > rowsRead + increment) {
+            return (double) rowsRead / estimate;
+        }
+        return (double) rowsRead / (rowsRead + increment);
+    }
+
+    /**
+     * Gets the key the row count of the query is stored under
+     *
+     * @param sql The query
+     *
+     * @return The key of the query
+     */
+    private static String key(String sql) {
+        return SnapshotCache.key(sql);
+    }
+
+    /**
+     * Gets the first table named after a FROM in the query
+     *
+     * @param sql The query
+     *
+     * @return The name of the table, null if there is none
+     */
+    private static String drivingTable(String sql) {
+        Matcher matcher = fromTable.matcher(sql);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -0,0 +1,46 @@
+package org.dataprocessing.backend.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * A source of connections to a POR database
+ * <p>
+ * The source is chosen with the dataprocessing.dataSource system property, sqlserver for the POR SQL Server and
+ * embedded for an in process stand-in seeded with generated data.
+ *
+ * @author Nicholas Curl
+ */
+public interface ServerDataSource extends ConnectionPool.ConnectionFactory {
+
+    /**
+     * Creates the data source chosen by the system properties
+     *
+     * @return The data source
+     */
+    static ServerDataSource fromProperties() {
+        String name = System.getProperty("dataprocessing.dataSource", "sqlserver").trim().toLowerCase(Locale.ROOT);
+        if (name.equals("embedded")) {
+            return new EmbeddedPorDataSource();
+        }
+        return new SqlServerDataSource();
+    }
+
+    /**
+     * Opens a new connection to the database
+     *
+     * @return The connection
+     *
+     * @throws SQLException If the connection could not be opened
+     */
+    @Override
+    Connection create() throws SQLException;
+
+    /**
+     * Gets the description of the database for the logs
+     *
+     * @return The description of the database
+     */
+    String getDescription();
+}
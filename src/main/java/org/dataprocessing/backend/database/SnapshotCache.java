@@ -0,0 +1,267 @@
+package org.dataprocessing.backend.database;
+
+import com.google.common.hash.Hashing;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches query tables as snapshots in a directory, keyed by the normalized query and validated with a freshness probe
+ * of the tables the query reads
+ * <p>
+ * The probe takes a CHECKSUM_AGG(BINARY_CHECKSUM(*)) and a row count of every source table in one round trip, which
+ * is far cheaper than the joins of the query. If the probe fails, for example because a source is not a plain table,
+ * the query is not cached.
+ *
+ * @author Nicholas Curl
+ */
+public class SnapshotCache {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger  logger      = LogManager.getLogger(SnapshotCache.class);
+    /**
+     * Matches the tables named after a FROM or JOIN
+     */
+    private static final Pattern sourceTable = Pattern.compile("(?i)\\b(?:FROM|JOIN)\\s+((?:\\[[^\\]]+]|\\w+)" +
+                                                               "(?:\\.(?:\\[[^\\]]+]|\\w+))*)");
+    /**
+     * The directory the snapshots are stored in
+     */
+    private final        Path    directory;
+
+    /**
+     * The constructor for this class
+     *
+     * @param directory The directory the snapshots are stored in
+     */
+    public SnapshotCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Normalizes a query so that formatting does not change its key
+     *
+     * @param sql The query
+     *
+     * @return The normalized query
+     */
+    public static String normalize(String sql) {
+        return sql.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Gets the key of the query
+     *
+     * @param sql The query
+     *
+     * @return The SHA-256 hash of the normalized query
+     */
+    public static String key(String sql) {
+        return Hashing.sha256().hashString(normalize(sql), StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Gets the names of the tables the query reads
+     *
+     * @param sql The query
+     *
+     * @return The distinct table names in the order they appear
+     */
+    public static List<String> sourceTables(String sql) {
+        Map<String, String> tables = new LinkedHashMap<>();
+        Matcher matcher = sourceTable.matcher(sql);
+        while (matcher.find()) {
+            String table = matcher.group(1);
+            tables.putIfAbsent(table.toLowerCase(Locale.ROOT), table);
+        }
+        return new ArrayList<>(tables.values());
+    }
+
+    /**
+     * Probes the tables the query reads for a token that changes when their contents change
+     *
+     * @param connection The connection used to probe the tables
+     * @param sql        The query
+     *
+     * @return The freshness token, null if the tables could not be probed
+     */
+    public String probe(Connection connection, String sql) {
+        List<String> tables = sourceTables(sql);
+        if (tables.isEmpty()) {
+            return null;
+        }
+        return probe(connection, tables);
+    }
+
+    /**
+     * Probes tables for a token that changes when their contents change
+     *
+     * @param connection The connection used to probe the tables
+     * @param tables     The tables to probe
+     *
+     * @return The freshness token, empty if there are no tables and null if the tables could not be probed
+     */
+    public String probe(Connection connection, List<String> tables) {
+        if (tables.isEmpty()) {
+            return "";
+        }
+        StringBuilder probe = new StringBuilder("SELECT ");
+        for (int i = 0; i < tables.size(); i++) {
+            if (i > 0) {
+                probe.append(", ");
+            }
+            probe.append("(SELECT CHECKSUM_AGG(BINARY_CHECKSUM(*)) FROM ").append(tables.get(i)).append("), ")
+                 .append("(SELECT COUNT_BIG(*) FROM ").append(tables.get(i)).append(")");
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(probe.toString())) {
+            resultSet.next();
+            StringBuilder token = new StringBuilder();
+            for (int i = 1; i <= tables.size() * 2; i++) {
+                token.append(resultSet.getString(i)).append(';');
+            }
+            return token.toString();
+        }
+        catch (SQLException e) {
+            logger.debug("Unable to probe the source tables, the query will not be cached", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads the snapshot of the query if it was taken with the same freshness token
+     *
+     * @param sql        The query
+     * @param token      The freshness token of the source tables
+     * @param headerSink Receives the column names
+     * @param rowSink    Receives the rows, returns false to stop reading
+     *
+     * @return True if the snapshot was read
+     */
+    public boolean load(String sql, String token, Consumer<List<String>> headerSink, Predicate<List<?>> rowSink) {
+        Path file = file(sql, token);
+        boolean hit = TableSnapshot.read(file, token, headerSink, rowSink);
+        if (hit) {
+            logger.debug("Loaded snapshot " + file.getFileName());
+        }
+        return hit;
+    }
+
+    /**
+     * Gets the freshness token of the most recent snapshot of the query
+     *
+     * @param sql The query
+     *
+     * @return The freshness token, null if the query has no snapshot
+     */
+    public String latestToken(String sql) {
+        List<Path> snapshots = snapshots(sql);
+        snapshots.sort(Comparator.comparing((Path path) -> path.toFile().lastModified()).reversed());
+        for (Path snapshot : snapshots) {
+            String token = TableSnapshot.readToken(snapshot);
+            if (token != null && snapshot.equals(file(sql, token))) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Opens a writer for the snapshot of the query
+     *
+     * @param sql    The query
+     * @param token  The freshness token of the source tables
+     * @param header The column names
+     *
+     * @return The writer, null if the snapshot could not be created
+     */
+    public TableSnapshot.Writer store(String sql, String token, List<String> header) {
+        try {
+            return TableSnapshot.write(file(sql, token), token, header);
+        }
+        catch (IOException e) {
+            logger.warn("Unable to create snapshot", e);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the snapshots of the query other than the one taken with the freshness token
+     * <p>
+     * A snapshot that is still mapped can not be deleted on every platform, it is left for a later run to delete.
+     *
+     * @param sql   The query
+     * @param token The freshness token of the snapshot to keep
+     */
+    public void prune(String sql, String token) {
+        Path keep = file(sql, token);
+        for (Path snapshot : snapshots(sql)) {
+            if (!snapshot.equals(keep)) {
+                try {
+                    Files.deleteIfExists(snapshot);
+                }
+                catch (IOException e) {
+                    logger.debug("Unable to delete stale snapshot " + snapshot.getFileName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the snapshot files of the query
+     *
+     * @param sql The query
+     *
+     * @return The snapshot files
+     */
+    private List<Path> snapshots(String sql) {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, key(sql) + "-*.snapshot")) {
+            for (Path path : stream) {
+                snapshots.add(path);
+            }
+        }
+        catch (IOException e) {
+            logger.warn("Unable to list snapshots", e);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Gets the snapshot file of the query taken with the freshness token, every token has its own file so a new
+     * snapshot never has to replace one that is still mapped
+     *
+     * @param sql   The query
+     * @param token The freshness token of the source tables
+     *
+     * @return The snapshot file
+     */
+    private Path file(String sql, String token) {
+        String tokenHash = Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString().substring(0, 16);
+        return directory.resolve(key(sql) + "-" + tokenHash + ".snapshot");
+    }
+}
@@ -1,10 +1,15 @@
 package org.dataprocessing.backend.database;
 
-import com.microsoft.sqlserver.jdbc.SQLServerDriver;
+import com.microsoft.sqlserver.jdbc.SQLServerStatement;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class that runs and connects to the POR SQL Server
@@ -16,42 +21,60 @@ public class SqlServer {
     /**
      * The instance of the logger
      */
-    private static final Logger     logger         = LogManager.getLogger(SqlServer.class);
+    private static final Logger                            logger         = LogManager.getLogger(SqlServer.class);
     /**
-     * The connection string for the database
+     * The source of the connections to the database
      */
-    private static final String     dbString       = "jdbc:sqlserver://localhost\\SQLEXPRESS;database=POR3";
+    private static final ServerDataSource                  dataSource     = ServerDataSource.fromProperties();
     /**
-     * The username to login into the server
+     * The maximum number of connections in the pool
      */
-    private static final String     user           = "dataprocessing";
+    private static final int                               poolMaxSize    = Integer.getInteger(
+            "dataprocessing.pool.maxSize",
+            8
+    );
     /**
-     * The password to login into the server
+     * The number of idle connections opened ahead of a run and kept alive between runs
      */
-    private static final String     pwd            = "dataprocessing";
+    private static final int                               poolMinIdle    = Integer.getInteger(
+            "dataprocessing.pool.minIdle",
+            2
+    );
+    /**
+     * The number of seconds a pooled connection can be idle before it is closed
+     */
+    private static final long                              poolIdleTime   = Long.getLong(
+            "dataprocessing.pool.idleTimeout",
+            300
+    );
+    /**
+     * The number of seconds to wait for a pooled connection before giving up
+     */
+    private static final long                              poolWaitTime   = Long.getLong(
+            "dataprocessing.pool.borrowTimeout",
+            600
+    );
     /**
      * Create a static instance
      */
-    private static final SqlServer  serverInstance = new SqlServer();
+    private static final SqlServer                         serverInstance = new SqlServer();
     /**
-     * The connection to the server
+     * Opens the connection pool in the background
      */
-    private              Connection connection     = null;
-    private              boolean    closed;
-
+    private static final ExecutorService                   connector      = Executors.newSingleThreadExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "sql-server-connector");
+                thread.setDaemon(true);
+                return thread;
+            });
     /**
-     * The constructor for the class that registers the Microsoft SQL Server driver
+     * The pool of connections to the server
      */
-    public SqlServer() {
-        closed = true;
-        try {
-            DriverManager.registerDriver(new SQLServerDriver());
-        }
-        catch (SQLException e) {
-            logger.fatal("Unable to register driver", e);
-            System.exit(-1);
-        }
-    }
+    private volatile     ConnectionPool                    pool           = null;
+    /**
+     * The connection of the pool in progress or completed, null if the server has not been connected to
+     */
+    private volatile     CompletableFuture<ConnectionPool> connecting     = null;
 
     /**
      * Get the instance of the class
@@ -63,58 +86,113 @@ public class SqlServer {
     }
 
     /**
-     * Closes the server connection
+     * Ends a run by reporting the queries and lookups of the run and dropping the datasets and lookups cached during
+     * the run, the connection pool stays open for the next run
      */
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                logger.debug("Closed");
-                connection.close();
-                closed = true;
+    public void endRun() {
+        DatasetRegistry.getInstance().clear();
+        QueryStats.getInstance().report();
+        DimensionLookup.endSession();
+        ConnectionPool current = pool;
+        if (current != null && !current.isClosed()) {
+            current.logMetrics();
+        }
+    }
+
+    /**
+     * Ends the run and closes the connection pool and all of its idle connections
+     */
+    public synchronized void closeConnection() {
+        endRun();
+        if (pool != null && !pool.isClosed()) {
+            pool.close();
+            logger.debug("Closed");
+        }
+        connecting = null;
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting for the pool to be connected if it is not open yet
+     * <p>
+     * The connection must be closed to return it to the pool.
+     *
+     * @return The borrowed connection to the server
+     *
+     * @throws SQLException If no connection became available or a connection could not be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (CaptureStore.getInstance().isReplaying()) {
+            throw new SQLException("The server is not available while replaying captures");
+        }
+        ConnectionPool current = pool;
+        if (current == null || current.isClosed()) {
+            current = awaitConnection();
+            if (current == null) {
+                throw new SQLException("The connection pool is not open");
             }
         }
-        catch (SQLException e) {
-            logger.fatal("Unable to close server connection", e);
-            System.exit(-1);
+        return current.borrow(poolWaitTime, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Starts connecting to the SQL Server in the background, opening the connection pool and warming it up to its
+     * minimum number of idle connections
+     * <p>
+     * Returns the connection in progress if there is one and the completed connection if the pool is still open, so it
+     * can be called whenever a view that runs queries opens. A connection that failed, completed without a pool or
+     * whose pool was closed is started again. Does not connect while replaying captures.
+     *
+     * @return The connection of the pool, completes with null while replaying captures
+     */
+    public synchronized CompletableFuture<ConnectionPool> connectAsync() {
+        CompletableFuture<ConnectionPool> current = connecting;
+        if (current == null || current.isCompletedExceptionally() || (current.isDone() && (pool == null ||
+                                                                                           pool.isClosed()))) {
+            current = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return openPool();
+                }
+                catch (SQLException e) {
+                    logger.warn("Unable to connect to server in the background", e);
+                    throw new IllegalStateException(e);
+                }
+            }, connector);
+            connecting = current;
         }
+        return current;
     }
 
     /**
-     * Gets the server connection, if one does not exist connect to the server
+     * Waits for the connection of the pool, starting it if the server has not been connected to
+     *
+     * @return The connection pool, null while replaying captures
      *
-     * @return The connection to the server
+     * @throws SQLException If the server could not be connected to
      */
-    public Connection getConnection() {
-        if (connection == null) {
-            return connectToServer();
+    public ConnectionPool awaitConnection() throws SQLException {
+        try {
+            return connectAsync().get();
         }
-        else {
-            return connection;
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while connecting to server", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof IllegalStateException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
         }
     }
 
     /**
-     * Connects to the SQL Server
+     * Connects to the SQL Server and waits for the connection pool to be open
+     * <p>
+     * Does not connect while replaying captures.
      *
-     * @return The connection to the SQL Server
+     * @return The connection pool, null while replaying captures
      */
-    public Connection connectToServer() {
+    public ConnectionPool connectToServer() {
         try {
-            connection = DriverManager.getConnection(dbString, user, pwd);
-            if (connection != null) {
-                String connectionString = "Connected\n";
-                DatabaseMetaData dm = connection.getMetaData();
-                connectionString += "Driver name: " + dm.getDriverName() + "\n";
-                connectionString += "Driver version: " + dm.getDriverVersion() + "\n";
-                connectionString += "Product name: " + dm.getDatabaseProductName() + "\n";
-                connectionString += "Product version: " + dm.getDatabaseProductVersion();
-                logger.debug(connectionString);
-                closed = false;
-                return connection;
-            }
-            else {
-                return null;
-            }
+            return awaitConnection();
         }
         catch (SQLException e) {
             logger.fatal("Unable to to connect to server.", e);
@@ -124,92 +202,171 @@ public class SqlServer {
     }
 
     /**
-     * Gets the progress update value of the SQL query
+     * Opens the connection pool, checks that a connection can be made and opens the minimum number of idle connections
      *
-     * @param sql The SQL query
+     * @return The connection pool, null while replaying captures
      *
-     * @return The value of the progress update based off of row and column count
+     * @throws SQLException If a connection could not be made
      */
-    public double getLocalProgressUpdate(String sql) {
-        ResultSet table = queryServer(sql);
-        int rowCount = getQueryCount(sql);
-        double progressUpdate = 1.0;
+    private ConnectionPool openPool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current != null && !current.isClosed()) {
+            return current;
+        }
+        if (CaptureStore.getInstance().isReplaying()) {
+            logger.info("Replaying captures, not connecting to the server");
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        ConnectionPool newPool = new ConnectionPool(dataSource,
+                                                    poolMaxSize,
+                                                    poolMinIdle,
+                                                    TimeUnit.SECONDS.toMillis(poolIdleTime)
+        );
         try {
-            ResultSetMetaData tableMeta = table.getMetaData();
-            int colCount = tableMeta.getColumnCount();
-            progressUpdate = (1 / (double) rowCount) * (1 / (double) colCount);
+            try (Connection connection = newPool.borrow(poolWaitTime, TimeUnit.SECONDS)) {
+                String connectionString = "Connected to " + dataSource.getDescription() + "\n";
+                DatabaseMetaData dm = connection.getMetaData();
+                connectionString += "Driver name: " + dm.getDriverName() + "\n";
+                connectionString += "Driver version: " + dm.getDriverVersion() + "\n";
+                connectionString += "Product name: " + dm.getDatabaseProductName() + "\n";
+                connectionString += "Product version: " + dm.getDatabaseProductVersion() + "\n";
+                connectionString += "Pool size: " + newPool.getMaxSize();
+                logger.debug(connectionString);
+            }
+            newPool.warmUp();
         }
-        catch (SQLException e) {
-            logger.fatal("Unable to get local progress.", e);
-            System.exit(-1);
+        catch (SQLException | RuntimeException e) {
+            newPool.close();
+            throw e;
         }
-        return progressUpdate;
+        logger.info("Connection pool warmed up with " + newPool.getIdleCount() + " idle connections in " +
+                    (System.currentTimeMillis() - start) + " ms");
+        pool = newPool;
+        return newPool;
     }
 
     /**
-     * Query the server with the SQL query
+     * Gets the connection pool
      *
-     * @param sql The SQL query
+     * @return The connection pool, null if the server has not been connected to
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Prepares a forward only, read only statement that streams its results from the server in batches of the fetch
+     * size instead of buffering the whole result on the client
+     *
+     * @param connection The connection to prepare the statement on
+     * @param sql        The SQL query
+     * @param fetchSize  The number of rows to fetch from the server at a time
+     *
+     * @return The streaming statement
      *
-     * @return The results of the query
+     * @throws SQLException If the statement could not be prepared
      */
-    public ResultSet queryServer(String sql) {
-        try {
-            Statement statement = connection.createStatement();
-            return statement.executeQuery(sql);
-        }
-        catch (SQLException e) {
-            logger.fatal("Unable to process query.", e);
-            System.exit(-1);
-            return null;
+    public PreparedStatement prepareStreamingStatement(Connection connection, String sql, int fetchSize)
+    throws SQLException {
+        return prepareStreamingStatement(connection, sql, fetchSize, QueryStats.nameOf(sql));
+    }
+
+    /**
+     * Prepares a forward only, read only statement that streams its results from the server in batches of the fetch
+     * size, measured under the query name
+     *
+     * @param connection The connection to prepare the statement on
+     * @param sql        The SQL query
+     * @param fetchSize  The number of rows to fetch from the server at a time
+     * @param name       The name the query is measured under
+     *
+     * @return The streaming statement
+     *
+     * @throws SQLException If the statement could not be prepared
+     */
+    public PreparedStatement prepareStreamingStatement(Connection connection, String sql, int fetchSize, String name)
+    throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql,
+                                                                  ResultSet.TYPE_FORWARD_ONLY,
+                                                                  ResultSet.CONCUR_READ_ONLY
+        );
+        statement.setFetchSize(fetchSize);
+        if (statement.isWrapperFor(SQLServerStatement.class)) {
+            statement.unwrap(SQLServerStatement.class).setResponseBuffering("adaptive");
         }
+        return QueryStats.getInstance().instrument(statement, name);
     }
 
     /**
-     * Gets the count of the SQL query
+     * Query the server with the SQL query on a pooled connection
      *
-     * @param sql The SQL Query
+     * @param sql     The SQL query
+     * @param handler Reads the results of the query before the connection is returned to the pool
+     * @param <T>     The type of value read from the results
      *
-     * @return The number of results from the query
+     * @return The value read from the results
      */
-    public int getQueryCount(String sql) {
-        String[] split = sql.split("(?<=SELECT)(.*?)(?=FROM)", 2);
-        String countSql = split[0] + " count(*) " + split[1];
-        try {
-            ResultSet resultSet = queryServer(countSql);
-            resultSet.next();
-            return resultSet.getInt(1);
+    public <T> T queryServer(String sql, ResultSetHandler<T> handler) {
+        return queryServer(QueryStats.nameOf(sql), sql, handler);
+    }
+
+    /**
+     * Query the server with the SQL query on a pooled connection, measured under the query name
+     * <p>
+     * Only the execution is measured, the rows the handler reads are measured when the values read are sampled.
+     *
+     * @param name    The name the query is measured under
+     * @param sql     The SQL query
+     * @param handler Reads the results of the query before the connection is returned to the pool
+     * @param <T>     The type of value read from the results
+     *
+     * @return The value read from the results
+     */
+    public <T> T queryServer(String name, String sql, ResultSetHandler<T> handler) {
+        try (Connection connection = getConnection();
+             PreparedStatement statement = QueryStats.getInstance().instrument(connection.prepareStatement(sql),
+                                                                               name
+             );
+             ResultSet resultSet = statement.executeQuery()) {
+            return handler.handle(resultSet);
         }
         catch (SQLException e) {
-            logger.fatal("Unable to get count of query.", e);
+            logger.fatal("Unable to process query.", e);
             System.exit(-1);
-            return -1;
+            return null;
         }
     }
 
     /**
      * Gets the vendor's name based off of the vendor's ID
+     * <p>
+     * Resolves the vendor through the cached {@link DimensionLookup#vendorNames() vendor name lookup}, a stage that
+     * resolves many vendors should prefetch them first.
      *
      * @param vendNum The vendor's ID
      *
-     * @return The vendor's name
+     * @return The vendor's name, null if there is no such vendor
      */
     public String getVendorName(int vendNum) {
-        String sql = "SELECT VendorName FROM VendorFile WHERE VendorNumber='" + vendNum + "'";
         try {
-            ResultSet resultSet = queryServer(sql);
-            resultSet.next();
-            return resultSet.getString(1);
+            return DimensionLookup.vendorNames().get(vendNum);
         }
         catch (SQLException e) {
-            logger.fatal("Unable to get vendor name.", e);
+            logger.fatal("Unable to process query.", e);
             System.exit(-1);
             return null;
         }
     }
 
+    /**
+     * Is the connection pool closed or not yet opened
+     *
+     * @return True if there is no open connection pool
+     */
     public boolean isClosed() {
-        return closed;
+        ConnectionPool current = pool;
+        return current == null || current.isClosed();
     }
 
 }
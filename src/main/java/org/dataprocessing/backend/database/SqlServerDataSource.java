@@ -0,0 +1,74 @@
+package org.dataprocessing.backend.database;
+
+import com.microsoft.sqlserver.jdbc.SQLServerDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Connects to the POR SQL Server
+ * <p>
+ * The connection string and login default to the local POR3 database and can be changed with the
+ * dataprocessing.jdbcUrl, dataprocessing.jdbcUser and dataprocessing.jdbcPassword system properties.
+ *
+ * @author Nicholas Curl
+ */
+public class SqlServerDataSource implements ServerDataSource {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger logger   = LogManager.getLogger(SqlServerDataSource.class);
+    /**
+     * The connection string for the database
+     */
+    private static final String dbString = System.getProperty("dataprocessing.jdbcUrl",
+                                                              "jdbc:sqlserver://localhost\\SQLEXPRESS;database=POR3"
+    );
+    /**
+     * The username to login into the server
+     */
+    private static final String user     = System.getProperty("dataprocessing.jdbcUser", "dataprocessing");
+    /**
+     * The password to login into the server
+     */
+    private static final String pwd      = System.getProperty("dataprocessing.jdbcPassword", "dataprocessing");
+    /**
+     * The number of prepared statements the driver keeps per connection so repeated lookups are not prepared again
+     */
+    private static final int    stmtPool = Integer.getInteger("dataprocessing.statementCacheSize", 64);
+
+    /**
+     * The constructor for this class that registers the Microsoft SQL Server driver
+     */
+    public SqlServerDataSource() {
+        try {
+            DriverManager.registerDriver(new SQLServerDriver());
+        }
+        catch (SQLException e) {
+            logger.fatal("Unable to register driver", e);
+            System.exit(-1);
+        }
+    }
+
+    @Override
+    public Connection create() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", user);
+        properties.setProperty("password", pwd);
+        if (stmtPool > 0) {
+            properties.setProperty("disableStatementPooling", "false");
+            properties.setProperty("statementPoolingCacheSize", Integer.toString(stmtPool));
+        }
+        return DriverManager.getConnection(dbString, properties);
+    }
+
+    @Override
+    public String getDescription() {
+        return dbString;
+    }
+}
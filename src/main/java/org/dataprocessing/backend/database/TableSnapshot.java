@@ -0,0 +1,628 @@
+package org.dataprocessing.backend.database;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A compact binary snapshot of a query table that keeps the Java types of its values
+ * <p>
+ * The file holds a magic number, the format version, the freshness token of the source tables, the column names and
+ * then each row as a row marker followed by one type tagged value per column. Values of types without a tag are
+ * stored as their string form. Snapshots are read back with memory mapped I/O, a segment of at most 1 GB at a time so
+ * that snapshots larger than a single mapping can still be read.
+ *
+ * @author Nicholas Curl
+ */
+public class TableSnapshot {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger logger      = LogManager.getLogger(TableSnapshot.class);
+    /**
+     * The magic number at the start of every snapshot
+     */
+    private static final int    MAGIC       = 0x44505331;
+    /**
+     * The version of the snapshot format
+     */
+    private static final int    VERSION     = 1;
+    /**
+     * Marks the start of a row
+     */
+    private static final byte   ROW         = 1;
+    /**
+     * Marks the end of the rows
+     */
+    private static final byte   END         = 0;
+    /**
+     * The type tag of a null value
+     */
+    private static final byte   T_NULL      = 0;
+    /**
+     * The type tag of a string value
+     */
+    private static final byte   T_STRING    = 1;
+    /**
+     * The type tag of an integer value
+     */
+    private static final byte   T_INTEGER   = 2;
+    /**
+     * The type tag of a long value
+     */
+    private static final byte   T_LONG      = 3;
+    /**
+     * The type tag of a short value
+     */
+    private static final byte   T_SHORT     = 4;
+    /**
+     * The type tag of a byte value
+     */
+    private static final byte   T_BYTE      = 5;
+    /**
+     * The type tag of a double value
+     */
+    private static final byte   T_DOUBLE    = 6;
+    /**
+     * The type tag of a float value
+     */
+    private static final byte   T_FLOAT     = 7;
+    /**
+     * The type tag of a decimal value
+     */
+    private static final byte   T_DECIMAL   = 8;
+    /**
+     * The type tag of a boolean value
+     */
+    private static final byte   T_BOOLEAN   = 9;
+    /**
+     * The type tag of a timestamp value
+     */
+    private static final byte   T_TIMESTAMP = 10;
+    /**
+     * The type tag of a date value
+     */
+    private static final byte   T_DATE      = 11;
+    /**
+     * The type tag of a time value
+     */
+    private static final byte   T_TIME      = 12;
+    /**
+     * The type tag of a binary value
+     */
+    private static final byte   T_BYTES     = 13;
+    /**
+     * The number of bytes of a snapshot mapped at a time
+     */
+    private static final int    SEGMENT     = 1 << 30;
+
+    /**
+     * Private constructor as this class only has static members
+     */
+    private TableSnapshot() {
+    }
+
+    /**
+     * Reads a snapshot if it exists and was taken with the same freshness token
+     *
+     * @param file       The snapshot file
+     * @param token      The freshness token the snapshot must have been taken with
+     * @param headerSink Receives the column names
+     * @param rowSink    Receives the rows, returns false to stop reading
+     *
+     * @return True if the snapshot was read, false if it is missing, stale or unreadable
+     */
+    public static boolean read(Path file, String token, Consumer<List<String>> headerSink,
+                               Predicate<List<?>> rowSink
+    ) {
+        if (!Files.isRegularFile(file) || !token.equals(readToken(file))) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            if (channel.read(last, channel.size() - 1) != 1 || last.get(0) != END) {
+                logger.warn("Snapshot " + file + " is incomplete");
+                return false;
+            }
+            Segments buffer = new Segments(channel, headerLength(token));
+            int colCount = buffer.getInt();
+            List<String> header = new ArrayList<>(colCount);
+            for (int i = 0; i < colCount; i++) {
+                header.add(getString(buffer));
+            }
+            headerSink.accept(header);
+            try {
+                while (buffer.get() == ROW) {
+                    List<Object> row = new ArrayList<>(colCount);
+                    for (int i = 0; i < colCount; i++) {
+                        row.add(getValue(buffer));
+                    }
+                    if (!rowSink.test(row)) {
+                        break;
+                    }
+                }
+            }
+            catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+                throw new IllegalStateException("Snapshot " + file + " is corrupt after its rows were read", e);
+            }
+            return true;
+        }
+        catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            logger.warn("Unable to read snapshot " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the freshness token of a snapshot without mapping the file, so that a stale snapshot can still be deleted
+     *
+     * @param file The snapshot file
+     *
+     * @return The freshness token, null if the file is not a snapshot in this format
+     */
+    public static String readToken(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            byte[] stored = new byte[in.readInt()];
+            in.readFully(stored);
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        catch (IOException | NegativeArraySizeException e) {
+            logger.warn("Unable to read snapshot " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the length of the magic number, version and freshness token at the start of a snapshot
+     *
+     * @param token The freshness token
+     *
+     * @return The number of bytes before the column names
+     */
+    private static int headerLength(String token) {
+        return Integer.BYTES * 3 + token.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Opens a writer for a new snapshot, the snapshot replaces the file only once the writer is committed
+     *
+     * @param file   The snapshot file
+     * @param token  The freshness token of the source tables
+     * @param header The column names
+     *
+     * @return The writer
+     *
+     * @throws IOException If the snapshot could not be created
+     */
+    public static Writer write(Path file, String token, List<String> header) throws IOException {
+        return new Writer(file, token, header);
+    }
+
+    /**
+     * Reads a length prefixed UTF-8 string
+     *
+     * @param buffer The buffer to read from
+     *
+     * @return The string
+     *
+     * @throws IOException If the next segment could not be mapped
+     */
+    private static String getString(Segments buffer) throws IOException {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a type tagged value
+     *
+     * @param buffer The buffer to read from
+     *
+     * @return The value
+     *
+     * @throws IOException If the next segment could not be mapped
+     */
+    private static Object getValue(Segments buffer) throws IOException {
+        byte type = buffer.get();
+        switch (type) {
+            case T_NULL:
+                return null;
+            case T_STRING:
+                return getString(buffer);
+            case T_INTEGER:
+                return buffer.getInt();
+            case T_LONG:
+                return buffer.getLong();
+            case T_SHORT:
+                return buffer.getShort();
+            case T_BYTE:
+                return buffer.get();
+            case T_DOUBLE:
+                return buffer.getDouble();
+            case T_FLOAT:
+                return buffer.getFloat();
+            case T_DECIMAL:
+                int scale = buffer.getInt();
+                byte[] unscaled = new byte[buffer.getInt()];
+                buffer.get(unscaled);
+                return new BigDecimal(new BigInteger(unscaled), scale);
+            case T_BOOLEAN:
+                return buffer.get() != 0;
+            case T_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(buffer.getLong());
+                timestamp.setNanos(buffer.getInt());
+                return timestamp;
+            case T_DATE:
+                return new java.sql.Date(buffer.getLong());
+            case T_TIME:
+                return new Time(buffer.getLong());
+            case T_BYTES:
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                return bytes;
+            default:
+                throw new IllegalArgumentException("Unknown value type " + type);
+        }
+    }
+
+    /**
+     * Reads a snapshot through a window mapped a segment at a time, the window moves forward whenever a value does not
+     * fit in the bytes left in it
+     */
+    private static class Segments {
+
+        /**
+         * The channel of the snapshot file
+         */
+        private final FileChannel      channel;
+        /**
+         * The size of the snapshot file
+         */
+        private final long             size;
+        /**
+         * The position in the file of the start of the window
+         */
+        private       long             start;
+        /**
+         * The mapped window
+         */
+        private       MappedByteBuffer window;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param channel  The channel of the snapshot file
+         * @param position The position in the file to start reading at
+         *
+         * @throws IOException If the first segment could not be mapped
+         */
+        private Segments(FileChannel channel, long position) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(position, 0);
+        }
+
+        /**
+         * Reads a byte
+         *
+         * @return The byte
+         *
+         * @throws IOException If the next segment could not be mapped
+         */
+        private byte get() throws IOException {
+            return require(Byte.BYTES).get();
+        }
+
+        /**
+         * Reads bytes into an array, filling it
+         *
+         * @param bytes The array to read into
+         *
+         * @throws IOException If the next segment could not be mapped
+         */
+        private void get(byte[] bytes) throws IOException {
+            require(bytes.length).get(bytes);
+        }
+
+        /**
+         * Reads a short
+         *
+         * @return The short
+         *
+         * @throws IOException If the next segment could not be mapped
+         */
+        private short getShort() throws IOException {
+            return require(Short.BYTES).getShort();
+        }
+
+        /**
+         * Reads an int
+         *
+         * @return The int
+         *
+         * @throws IOException If the next segment could not be mapped
+         */
+        private int getInt() throws IOException {
+            return require(Integer.BYTES).getInt();
+        }
+
+        /**
+         * Reads a long
+         *
+         * @return The long
+         *
+         * @throws IOException If the next segment could not be mapped
+         */
+        private long getLong() throws IOException {
+            return require(Long.BYTES).getLong();
+        }
+
+        /**
+         * Reads a float
+         *
+         * @return The float
+         *
+         * @throws IOException If the next segment could not be mapped
+         */
+        private float getFloat() throws IOException {
+            return require(Float.BYTES).getFloat();
+        }
+
+        /**
+         * Reads a double
+         *
+         * @return The double
+         *
+         * @throws IOException If the next segment could not be mapped
+         */
+        private double getDouble() throws IOException {
+            return require(Double.BYTES).getDouble();
+        }
+
+        /**
+         * Moves the window forward if fewer bytes than needed are left in it
+         *
+         * @param length The number of bytes needed
+         *
+         * @return The window holding at least the bytes needed
+         *
+         * @throws IOException If the next segment could not be mapped
+         */
+        private MappedByteBuffer require(int length) throws IOException {
+            if (window.remaining() < length) {
+                map(start + window.position(), length);
+            }
+            return window;
+        }
+
+        /**
+         * Maps the segment starting at a position of the file
+         *
+         * @param position The position in the file
+         * @param length   The number of bytes the segment must hold
+         *
+         * @throws IOException If the segment could not be mapped
+         */
+        private void map(long position, int length) throws IOException {
+            if (length < 0 || position + length > size) {
+                throw new BufferUnderflowException();
+            }
+            start = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY,
+                                 position,
+                                 Math.min(size - position, Math.max(SEGMENT, length))
+            );
+        }
+    }
+
+    /**
+     * Writes the rows of a snapshot as they are read from the server
+     */
+    public static class Writer implements Closeable {
+
+        /**
+         * The snapshot file
+         */
+        private final Path             file;
+        /**
+         * The temporary file the snapshot is written to
+         */
+        private final Path             temp;
+        /**
+         * The stream writing the temporary file
+         */
+        private final DataOutputStream out;
+        /**
+         * Has the snapshot been committed
+         */
+        private       boolean          committed;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param file   The snapshot file
+         * @param token  The freshness token of the source tables
+         * @param header The column names
+         *
+         * @throws IOException If the snapshot could not be created
+         */
+        private Writer(Path file, String token, List<String> header) throws IOException {
+            this.file = file;
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            this.temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(token);
+            out.writeInt(header.size());
+            for (String column : header) {
+                writeString(column);
+            }
+        }
+
+        /**
+         * Writes a row of the snapshot
+         *
+         * @param row The row to write
+         *
+         * @throws IOException If the row could not be written
+         */
+        public void writeRow(List<?> row) throws IOException {
+            out.writeByte(ROW);
+            for (Object value : row) {
+                writeValue(value);
+            }
+        }
+
+        /**
+         * Finishes the snapshot and replaces the snapshot file with it
+         *
+         * @throws IOException If the snapshot could not be finished
+         */
+        public void commit() throws IOException {
+            out.writeByte(END);
+            out.close();
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            committed = true;
+        }
+
+        /**
+         * Discards the snapshot if it has not been committed
+         */
+        @Override
+        public void close() {
+            if (committed) {
+                return;
+            }
+            try {
+                out.close();
+                Files.deleteIfExists(temp);
+            }
+            catch (IOException e) {
+                logger.warn("Unable to discard snapshot " + temp, e);
+            }
+        }
+
+        /**
+         * Writes a length prefixed UTF-8 string
+         *
+         * @param string The string to write
+         *
+         * @throws IOException If the string could not be written
+         */
+        private void writeString(String string) throws IOException {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        /**
+         * Writes a type tagged value
+         *
+         * @param value The value to write
+         *
+         * @throws IOException If the value could not be written
+         */
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(T_NULL);
+            }
+            else if (value instanceof String) {
+                out.writeByte(T_STRING);
+                writeString((String) value);
+            }
+            else if (value instanceof Integer) {
+                out.writeByte(T_INTEGER);
+                out.writeInt((Integer) value);
+            }
+            else if (value instanceof Long) {
+                out.writeByte(T_LONG);
+                out.writeLong((Long) value);
+            }
+            else if (value instanceof Short) {
+                out.writeByte(T_SHORT);
+                out.writeShort((Short) value);
+            }
+            else if (value instanceof Byte) {
+                out.writeByte(T_BYTE);
+                out.writeByte((Byte) value);
+            }
+            else if (value instanceof Double) {
+                out.writeByte(T_DOUBLE);
+                out.writeDouble((Double) value);
+            }
+            else if (value instanceof Float) {
+                out.writeByte(T_FLOAT);
+                out.writeFloat((Float) value);
+            }
+            else if (value instanceof BigDecimal) {
+                BigDecimal decimal = (BigDecimal) value;
+                byte[] unscaled = decimal.unscaledValue().toByteArray();
+                out.writeByte(T_DECIMAL);
+                out.writeInt(decimal.scale());
+                out.writeInt(unscaled.length);
+                out.write(unscaled);
+            }
+            else if (value instanceof Boolean) {
+                out.writeByte(T_BOOLEAN);
+                out.writeByte((Boolean) value ? 1 : 0);
+            }
+            else if (value instanceof Timestamp) {
+                Timestamp timestamp = (Timestamp) value;
+                out.writeByte(T_TIMESTAMP);
+                out.writeLong(timestamp.getTime());
+                out.writeInt(timestamp.getNanos());
+            }
+            else if (value instanceof java.sql.Date) {
+                out.writeByte(T_DATE);
+                out.writeLong(((java.sql.Date) value).getTime());
+            }
+            else if (value instanceof Time) {
+                out.writeByte(T_TIME);
+                out.writeLong(((Time) value).getTime());
+            }
+            else if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                out.writeByte(T_BYTES);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            else {
+                out.writeByte(T_STRING);
+                writeString(value.toString());
+            }
+        }
+    }
+}
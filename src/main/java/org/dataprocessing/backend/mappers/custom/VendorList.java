@@ -90,6 +90,7 @@ public class VendorList {
                 "         LEFT JOIN ItemDepartment ID on I.Department = ID.Department\n" +
                 "WHERE PO.Status LIKE 'O%'"
         );
+        tableConvertTask.setQueryName("Vendor List");
         writeTask = fileUtils.writeXlsxTask(storeLocation.resolve("Vendor List.xlsx"));
         tasks.add(tableConvertTask);
         tasks.add(mapTemplate);
@@ -9,6 +9,7 @@ import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.dataprocessing.backend.database.Projection;
 import org.dataprocessing.backend.tasks.ServerTableConvertTask;
 import org.dataprocessing.gui.model.PorModel;
 import org.dataprocessing.utils.Alerts;
@@ -84,6 +85,10 @@ public class PORCustomer {
      * The second server table convert task
      */
     private final        ServerTableConvertTask tableConvertTask1;
+    /**
+     * The columns of the Customer File read by the mapping
+     */
+    private final        Projection             columns;
     /**
      * The progress of the Customer File table mapping
      */
@@ -148,6 +153,36 @@ public class PORCustomer {
                 "FROM CustomerFile CF\n" +
                 "         LEFT OUTER JOIN CustomerStatus CS on CF.Status = CS.Status"
         );
+        columns = tableConvertTask.selectColumns("NAME",
+                                                 "Address",
+                                                 "Address2",
+                                                 "City",
+                                                 "Zip",
+                                                 "ZIP4",
+                                                 "Phone",
+                                                 "WORK",
+                                                 "MOBILE",
+                                                 "FAX",
+                                                 "CNUM",
+                                                 "CreditLimit",
+                                                 "Status",
+                                                 "Email",
+                                                 "BillContact",
+                                                 "BillPhone",
+                                                 "BillAddress1",
+                                                 "BillAddress2",
+                                                 "BillCityState",
+                                                 "BillZip",
+                                                 "BillZip4",
+                                                 "TaxExemptNumber",
+                                                 "TaxExemptExpire",
+                                                 "InsuranceNumber",
+                                                 "InsuranceExpire",
+                                                 "Terms",
+                                                 "Nontaxable"
+        );
+        tableConvertTask.setQueryName("Customers");
+        tableConvertTask.enableSnapshotCache(porStoreLocation);
         tableConvertTask1 = new ServerTableConvertTask(
                 "SELECT CallLog.CNUM AS CustomerNo, Salesman.Name AS SalesRep\n" +
                 "FROM CallLog\n" +
@@ -155,6 +190,8 @@ public class PORCustomer {
                 "         LEFT JOIN CustomerFile ON CustomerFile.CNUM = CallLog.CNUM\n" +
                 "         LEFT JOIN Salesman ON OperatorId.OPNO = Salesman.OperatorNo"
         );
+        tableConvertTask1.setQueryName("Customer Call Log");
+        tableConvertTask1.enableSnapshotCache(porStoreLocation);
         writeTask = fileUtils.writeXlsxTask(porStoreLocation.resolve("Customer Template.xlsx").toFile());
         corrections = mapperUtils.getCorrections(correctionsFile);
         tasks = new ArrayList<>();
@@ -259,7 +296,7 @@ public class PORCustomer {
                 }
                 switch (j) {
                     case 1:
-                        mapRow.add(j, row.get(10) + "#");
+                        mapRow.add(j, row.get(columns.indexOf("CNUM")) + "#");
                         break;
                     case 2:
                     case 36:
@@ -268,17 +305,17 @@ public class PORCustomer {
                         mapRow.add(j, "FALSE");
                         break;
                     case 8:
-                        mapRow.add(j, row.get(0).toUpperCase(Locale.ROOT));
+                        mapRow.add(j, row.get(columns.indexOf("NAME")).toUpperCase(Locale.ROOT));
                         break;
                     case 10:
-                        mapRow.add(j, row.get(12));
+                        mapRow.add(j, row.get(columns.indexOf("Status")));
                         break;
                     case 11:
                         mapRow.add(j, "Mahaffey USA");
                         break;
                     case 12:
                         try {
-                            customerNums.put(Integer.parseInt(row.get(10)), i);
+                            customerNums.put(Integer.parseInt(row.get(columns.indexOf("CNUM"))), i);
                             mapRow.add(j, "");
                         }
                         catch (NumberFormatException e) {
@@ -287,49 +324,49 @@ public class PORCustomer {
                         }
                         break;
                     case 18:
-                        mapRow.add(j, row.get(13));
+                        mapRow.add(j, row.get(columns.indexOf("Email")));
                         break;
                     case 20:
-                        mapRow.add(j, row.get(6));
+                        mapRow.add(j, row.get(columns.indexOf("Phone")));
                         break;
                     case 21:
-                        mapRow.add(j, row.get(7));
+                        mapRow.add(j, row.get(columns.indexOf("WORK")));
                         break;
                     case 22:
-                        mapRow.add(j, row.get(8));
+                        mapRow.add(j, row.get(columns.indexOf("MOBILE")));
                         break;
                     case 24:
-                        mapRow.add(j, row.get(9));
+                        mapRow.add(j, row.get(columns.indexOf("FAX")));
                         break;
                     case 29:
-                        mapRow.add(j, row.get(1));
+                        mapRow.add(j, row.get(columns.indexOf("Address")));
                         break;
                     case 30:
-                        mapRow.add(j, row.get(2));
+                        mapRow.add(j, row.get(columns.indexOf("Address2")));
                         break;
                     case 31:
                         //Checks to see if the city and state is blank
-                        if (utils.isBlankString(row.get(3))) {
+                        if (utils.isBlankString(row.get(columns.indexOf("City")))) {
                             mapRow.add(j, "");
                             mapRow.add(j + 1, "");
                         }
                         //Checks to see if the city and state has a correction
-                        else if (corrections.containsKey(row.get(3).trim())) {
-                            split = corrections.get(row.get(3).trim()).split(",");
+                        else if (corrections.containsKey(row.get(columns.indexOf("City")).trim())) {
+                            split = corrections.get(row.get(columns.indexOf("City")).trim()).split(",");
                             mapRow.add(j, split[0].trim());
                             mapRow.add(j + 1, split[1].trim());
                         }
                         else {
-                            split = row.get(3).split(",");
+                            split = row.get(columns.indexOf("City")).split(",");
                             //Checks to see if the proper format exists, if not prompts the user to fix the format
                             if (split.length < 2) {
                                 String correction = alerts.stringFormatPrompt(
                                         "Please fix the format shown in the prompt",
                                         "(format should be City, State)",
-                                        row.get(3).trim(),
-                                        row.get(0).trim()
+                                        row.get(columns.indexOf("City")).trim(),
+                                        row.get(columns.indexOf("NAME")).trim()
                                 );
-                                corrections.put(row.get(3).trim(), correction);
+                                corrections.put(row.get(columns.indexOf("City")).trim(), correction);
                                 String[] correctionSplit = correction.split(",");
                                 mapRow.add(j, correctionSplit[0].trim());
                                 mapRow.add(j + 1, correctionSplit[1].trim());
@@ -345,14 +382,14 @@ public class PORCustomer {
                         break;
                     case 33:
                         //formats the zipcode
-                        if (utils.isBlankString(row.get(5))) {
-                            mapRow.add(j, row.get(4));
+                        if (utils.isBlankString(row.get(columns.indexOf("ZIP4")))) {
+                            mapRow.add(j, row.get(columns.indexOf("Zip")));
                         }
-                        else if (utils.isBlankString(row.get(4)) && utils.isBlankString(row.get(5))) {
+                        else if (utils.isBlankString(row.get(columns.indexOf("Zip"))) && utils.isBlankString(row.get(columns.indexOf("ZIP4")))) {
                             mapRow.add(j, "");
                         }
                         else {
-                            mapRow.add(j, row.get(4) + "-" + row.get(5));
+                            mapRow.add(j, row.get(columns.indexOf("Zip")) + "-" + row.get(columns.indexOf("ZIP4")));
                         }
                         break;
                     case 34:
@@ -363,40 +400,40 @@ public class PORCustomer {
                         mapRow.add(j, "TRUE");
                         break;
                     case 38:
-                        mapRow.add(j, row.get(14));
+                        mapRow.add(j, row.get(columns.indexOf("BillContact")));
                         break;
                     case 40:
-                        mapRow.add(j, row.get(15));
+                        mapRow.add(j, row.get(columns.indexOf("BillPhone")));
                         break;
                     case 41:
-                        mapRow.add(j, row.get(16));
+                        mapRow.add(j, row.get(columns.indexOf("BillAddress1")));
                         break;
                     case 42:
-                        mapRow.add(j, row.get(17));
+                        mapRow.add(j, row.get(columns.indexOf("BillAddress2")));
                         break;
                     case 43:
                         //Checks to see if the city and state is blank
-                        if (utils.isBlankString(row.get(18))) {
+                        if (utils.isBlankString(row.get(columns.indexOf("BillCityState")))) {
                             mapRow.add(j, "");
                             mapRow.add(j + 1, "");
                         }
                         //Checks to see if the city and state has a correction
-                        else if (corrections.containsKey(row.get(18).trim())) {
-                            split = corrections.get(row.get(18).trim()).split(",");
+                        else if (corrections.containsKey(row.get(columns.indexOf("BillCityState")).trim())) {
+                            split = corrections.get(row.get(columns.indexOf("BillCityState")).trim()).split(",");
                             mapRow.add(j, split[0].trim());
                             mapRow.add(j + 1, split[1].trim());
                         }
                         else {
-                            split = row.get(18).split(",");
+                            split = row.get(columns.indexOf("BillCityState")).split(",");
                             //Checks to see if the proper format exists, if not prompts the user to fix the format
                             if (split.length < 2) {
                                 String correction = alerts.stringFormatPrompt(
                                         "Please fix the format shown in the prompt",
                                         "(format should be City, State)",
-                                        row.get(18).trim(),
-                                        row.get(0).trim()
+                                        row.get(columns.indexOf("BillCityState")).trim(),
+                                        row.get(columns.indexOf("NAME")).trim()
                                 );
-                                corrections.put(row.get(18).trim(), correction);
+                                corrections.put(row.get(columns.indexOf("BillCityState")).trim(), correction);
                                 String[] correctionSplit = correction.split(",");
                                 mapRow.add(j, correctionSplit[0].trim());
                                 mapRow.add(j + 1, correctionSplit[1].trim());
@@ -409,27 +446,27 @@ public class PORCustomer {
                         break;
                     case 45:
                         //formats the zipcode
-                        if (utils.isBlankString(row.get(20))) {
-                            mapRow.add(j, row.get(19));
+                        if (utils.isBlankString(row.get(columns.indexOf("BillZip4")))) {
+                            mapRow.add(j, row.get(columns.indexOf("BillZip")));
                         }
-                        else if (utils.isBlankString(row.get(19)) && utils.isBlankString(row.get(20))) {
+                        else if (utils.isBlankString(row.get(columns.indexOf("BillZip"))) && utils.isBlankString(row.get(columns.indexOf("BillZip4")))) {
                             mapRow.add(j, "");
                         }
                         else {
-                            mapRow.add(j, row.get(19) + "-" + row.get(20));
+                            mapRow.add(j, row.get(columns.indexOf("BillZip")) + "-" + row.get(columns.indexOf("BillZip4")));
                         }
                         break;
                     case 64:
                         mapRow.add(j, "USA");
                         break;
                     case 65:
-                        mapRow.add(j, row.get(25));
+                        mapRow.add(j, row.get(columns.indexOf("Terms")));
                         break;
                     case 66:
-                        mapRow.add(j, row.get(11));
+                        mapRow.add(j, row.get(columns.indexOf("CreditLimit")));
                         break;
                     case 70:
-                        String tempStr = row.get(27);
+                        String tempStr = row.get(columns.indexOf("Nontaxable"));
                         if (tempStr.equalsIgnoreCase("FALSE")) {
                             mapRow.add(j, "TRUE");
                         }
@@ -441,22 +478,22 @@ public class PORCustomer {
                         }
                         break;
                     case 72:
-                        mapRow.add(j, row.get(21) + "@");
+                        mapRow.add(j, row.get(columns.indexOf("TaxExemptNumber")) + "@");
                         break;
                     case 76:
                         mapRow.add(j, "PDF");
                         break;
                     case 77:
-                        mapRow.add(j, row.get(0));
+                        mapRow.add(j, row.get(columns.indexOf("NAME")));
                         break;
                     case 98:
-                        mapRow.add(j, row.get(23) + "@");
+                        mapRow.add(j, row.get(columns.indexOf("InsuranceNumber")) + "@");
                         break;
                     case 99:
-                        mapRow.add(j, row.get(24));
+                        mapRow.add(j, row.get(columns.indexOf("InsuranceExpire")));
                         break;
                     case 100:
-                        mapRow.add(j, row.get(22));
+                        mapRow.add(j, row.get(columns.indexOf("TaxExemptExpire")));
                         break;
                     default:
                         mapRow.add(j, "");
@@ -5,7 +5,7 @@ import javafx.beans.binding.DoubleBinding;
 import javafx.concurrent.Task;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.dataprocessing.backend.database.SqlServer;
+import org.dataprocessing.backend.database.DimensionLookup;
 import org.dataprocessing.backend.tasks.RemoveDuplicates;
 import org.dataprocessing.backend.tasks.RemoveNonAlphaNum;
 import org.dataprocessing.backend.tasks.ServerTableConvertTask;
@@ -14,8 +14,11 @@ import org.dataprocessing.utils.MapperUtils;
 import org.dataprocessing.utils.Utils;
 
 import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -99,7 +102,7 @@ public class PORItemMaster {
                 "      FROM dbo.ItemFile\n" +
                 "      WHERE [KEY] NOT LIKE '.%'\n" +
                 "        AND [KEY] NOT LIKE ':%'\n" +
-                "        AND Inactive = 'false'\n" +
+                "        AND Inactive = 0\n" +
                 "        AND Name NOT LIKE 'Custom Accessory%'\n" +
                 "        AND [KEY] NOT LIKE '%PKG'\n" +
                 "        AND NOT ((NOT (Department = 13 OR Department = 7 OR Department = 10)) AND CurrentStore = '003')\n" +
@@ -110,7 +113,7 @@ public class PORItemMaster {
                 "                           FROM dbo.ItemFile\n" +
                 "                           WHERE [KEY] NOT LIKE '.%'\n" +
                 "                             AND [KEY] NOT LIKE ':%'\n" +
-                "                             AND Inactive = 'false'\n" +
+                "                             AND Inactive = 0\n" +
                 "                             AND Name NOT LIKE 'Custom Accessory%'\n" +
                 "                             AND [KEY] NOT LIKE '%PKG'\n" +
                 "                             AND NOT ((NOT (Department = 13 OR Department = 7 OR Department = 10)) AND\n" +
@@ -131,6 +134,9 @@ public class PORItemMaster {
                 "                         ON E.NewDepartment = G.DepartmentNum\n" +
                 "         LEFT OUTER JOIN dbo.NewAccounts AS D ON B.GLNumber = D.AccountNum"
         );
+        tableConvertTask.setQueryName("Item Master");
+        tableConvertTask.enableSnapshotCache(porStoreLocation);
+        tableConvertTask.setPartitioning("A.NUM", true);
         removeDuplicates = new RemoveDuplicates();
         removeNonAlphaNum = new RemoveNonAlphaNum();
         writeTask = fileUtils.writeXlsxTask(porStoreLocation.resolve("Inventory Item Template.xlsx").toFile());
@@ -215,9 +221,9 @@ public class PORItemMaster {
          */
         private static final MapperUtils        mapperUtils = MapperUtils.getInstance();
         /**
-         * The instance of SqlServer Class
+         * The lookup of the vendor names by vendor number
          */
-        private static final SqlServer          server      = SqlServer.getInstance();
+        private static final DimensionLookup    vendorNames = DimensionLookup.vendorNames();
         /**
          * The template associated with this mapping
          */
@@ -255,6 +261,7 @@ public class PORItemMaster {
             double progress = 0.0;
             updateProgress(0, 1.0);
             double progressUpdate = 1.0 / (data.size() - 1) / header.size();
+            prefetchVendors();
             loopBreak:
             for (int i = 1; i < data.size(); i++) {
                 if (isCancelled()) {
@@ -325,7 +332,7 @@ public class PORItemMaster {
                             else {
                                 try {
                                     int vendNum = Integer.parseInt(row.get(6).trim());
-                                    String vendName = server.getVendorName(vendNum);
+                                    String vendName = vendorNames.get(vendNum);
                                     if (vendName == null) {
                                         logger.fatal("Vendor name must not be null.", new NullPointerException());
                                         System.exit(-1);
@@ -355,7 +362,7 @@ public class PORItemMaster {
                             else {
                                 try {
                                     int vendNum = Integer.parseInt(row.get(7).trim());
-                                    String vendName = server.getVendorName(vendNum);
+                                    String vendName = vendorNames.get(vendNum);
                                     if (vendName == null) {
                                         logger.fatal("Vendor name must not be null.", new NullPointerException());
                                         System.exit(-1);
@@ -385,7 +392,7 @@ public class PORItemMaster {
                             else {
                                 try {
                                     int vendNum = Integer.parseInt(row.get(8).trim());
-                                    String vendName = server.getVendorName(vendNum);
+                                    String vendName = vendorNames.get(vendNum);
                                     if (vendName == null) {
                                         logger.fatal("Vendor name must not be null.", new NullPointerException());
                                         System.exit(-1);
@@ -478,6 +485,28 @@ public class PORItemMaster {
             return mapTable;
         }
 
+        /**
+         * Reads the names of the vendors of all items in batches before the items are mapped
+         *
+         * @throws SQLException If the vendor names could not be read
+         */
+        private void prefetchVendors() throws SQLException {
+            Set<Integer> vendors = new HashSet<>();
+            for (List<String> row : data.subList(1, data.size())) {
+                for (int column = 6; column <= 8; column++) {
+                    try {
+                        int vendNum = Integer.parseInt(row.get(column).trim());
+                        if (vendNum != 0 && vendNum != -1) {
+                            vendors.add(vendNum);
+                        }
+                    }
+                    catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            vendorNames.prefetch(vendors);
+        }
+
         /**
          * Logs the exception when the task transitions to the failure state
          */
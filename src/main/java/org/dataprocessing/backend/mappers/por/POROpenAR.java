@@ -8,7 +8,11 @@ import org.apache.logging.log4j.Logger;
 import org.dataprocessing.backend.tasks.ServerTableConvertTask;
 import org.dataprocessing.utils.FileUtils;
 import org.dataprocessing.utils.MapperUtils;
+import org.dataprocessing.utils.Table;
+import org.dataprocessing.utils.TableSort;
+import org.dataprocessing.utils.TypedValue;
 import org.dataprocessing.utils.Utils;
+import org.dataprocessing.utils.XlsxWriteGroup;
 
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
@@ -35,7 +39,6 @@ public class POROpenAR {
      * The instance of the FileUtils class
      */
     private static final FileUtils              fileUtils = FileUtils.getInstance();
-    private final        Utils                  utils     = Utils.getInstance();
     /**
      * The template mapping task
      */
@@ -100,6 +103,9 @@ public class POROpenAR {
                 "  AND Transactions.STAT NOT LIKE 'Q%'\n" +
                 "  AND Transactions.STAT NOT LIKE 'O%'"
         );
+        tableConvertTask.setQueryName("Open AR");
+        tableConvertTask.enableSnapshotCache(storeLocation);
+        tableConvertTask.collectTable();
         mapTemplate = new POROpenAR.MapTemplate();
         writeTask1 = fileUtils.writeXlsxTask(storeLocation.resolve("Open AR Template-Mahaffey Tent & Awning.xlsx"));
         writeTask2 = fileUtils.writeXlsxTask(storeLocation.resolve("Open AR Template-Mahaffey USA.xlsx"));
@@ -149,20 +155,18 @@ public class POROpenAR {
      */
     public void map(ExecutorService executorService) {
         tableConvertTask.setOnSucceeded(event -> {
-            mapTemplate.setData(utils.convertToTableString(tableConvertTask.getValue()));
+            mapTemplate.setData(tableConvertTask.getTable());
             executorService.submit(mapTemplate);
         });
         mapTemplate.setOnSucceeded(event -> {
             writeTask1.setTable(mapTemplate.getValue().get(0));
             writeTask2.setTable(mapTemplate.getValue().get(1));
             writeTask3.setTable(mapTemplate.getValue().get(2));
-            executorService.submit(writeTask1);
-        });
-        writeTask1.setOnSucceeded(event -> {
-            executorService.submit(writeTask2);
-        });
-        writeTask2.setOnSucceeded(event -> {
-            executorService.submit(writeTask3);
+            XlsxWriteGroup writeGroup = new XlsxWriteGroup("Open AR");
+            writeGroup.add(writeTask1);
+            writeGroup.add(writeTask2);
+            writeGroup.add(writeTask3);
+            writeGroup.start(executorService);
         });
         executorService.submit(tableConvertTask);
     }
@@ -179,7 +183,7 @@ public class POROpenAR {
     /**
      * Maps the data to the Open AR Template
      */
-    private static class MapTemplate extends Task<List<List<List<String>>>> {
+    private static class MapTemplate extends Task<List<Table>> {
 
         /**
          * The instance of the Utils class
@@ -199,59 +203,68 @@ public class POROpenAR {
          */
         private final        List<String>             header;
         /**
-         * The table that stores the mapped data for store 1
+         * The builder of the table of the mapped data for store 1
          */
-        private final        List<List<String>>       mapTable1;
+        private final        Table.Builder            mapTable1;
         /**
-         * The table that stores the mapped data for store 2
+         * The builder of the table of the mapped data for store 2
          */
-        private final        List<List<String>>       mapTable2;
+        private final        Table.Builder            mapTable2;
         /**
-         * The table that stores the mapped data for store 3
+         * The builder of the table of the mapped data for store 3
          */
-        private final        List<List<String>>       mapTable3;
+        private final        Table.Builder            mapTable3;
         /**
          * The list of tables for every store listed in POR
          */
-        private final        List<List<List<String>>> tables;
+        private final        List<Table>              tables;
         /**
          * The data to be mapped
          */
-        private              List<List<String>>       data;
+        private              Table                    data;
 
         /**
          * The constructor for this inner class
          */
         private MapTemplate() {
             header = mapperUtils.getHeader(template);
-            mapTable1 = mapperUtils.createMapTable(template);
-            mapTable2 = mapperUtils.createMapTable(template);
-            mapTable3 = mapperUtils.createMapTable(template);
+            mapTable1 = Table.builder(header)
+                              .setKind(0, TypedValue.Kind.TEXT)
+                              .setKind(1, TypedValue.Kind.TEXT);
+            mapTable2 = Table.builder(header)
+                              .setKind(0, TypedValue.Kind.TEXT)
+                              .setKind(1, TypedValue.Kind.TEXT);
+            mapTable3 = Table.builder(header)
+                              .setKind(0, TypedValue.Kind.TEXT)
+                              .setKind(1, TypedValue.Kind.TEXT);
             tables = new ArrayList<>();
         }
 
         /**
          * Maps the Open AR template
          *
-         * @return The table of the mapped data
+         * @return The tables of the mapped data
          *
          * @throws Exception Any exception that might occur when executing this task
          */
         @Override
-        protected List<List<List<String>>> call() throws Exception {
+        protected List<Table> call() throws Exception {
             double progress = 0.0;
-            double progressUpdate = 1.0 / (data.size() - 1) / header.size();
+            double progressUpdate = 1.0 / data.getRowCount() / header.size();
             updateProgress(progress, 1.0);
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
             Date date;
             String dateString;
+            int store1 = data.codeOf(9, "001");
+            int store2 = data.codeOf(9, "002");
+            int store3 = data.codeOf(9, "003");
             loopBreak:
-            for (int i = 1; i < data.size(); i++) {
+            for (int i = 0; i < data.getRowCount(); i++) {
                 if (isCancelled()) {
                     break;
                 }
-                List<String> row = data.get(i);
-                List<String> mapRow = new ArrayList<>();
+                Table.Row row = data.row(i);
+                List<Object> mapRow = new ArrayList<>();
                 for (int j = 0; j < header.size(); j++) {
                     if (isCancelled()) {
                         break loopBreak;
@@ -259,25 +272,23 @@ public class POROpenAR {
                     switch (j) {
                         case 0:
                         case 1:
-                            mapRow.add(j, row.get(2).trim() + "@");
+                            mapRow.add(j, row.getString(2));
                             break;
                         case 2:
-                            mapRow.add(j, row.get(0).trim());
+                            mapRow.add(j, row.getString(0));
                             break;
                         case 5:
-                            if (!utils.isBlankString(row.get(3).trim())) {
-                                mapRow.add(j, row.get(3).trim());
-                            }
+                            mapRow.add(j, row.get(3));
                             break;
                         case 8:
-                            mapRow.add(j, row.get(8).trim());
+                            mapRow.add(j, row.getString(8));
                             break;
                         case 9:
-                            date = dateFormat.parse(row.get(3).trim());
+                            date = dateFormat.parse(row.getString(3));
                             Calendar calendar = Calendar.getInstance();
                             calendar.setTime(date);
                             Pattern p = Pattern.compile("\\d+");
-                            Matcher m = p.matcher(row.get(8).trim());
+                            Matcher m = p.matcher(row.getString(8));
                             String terms = "";
                             if (m.find()) {
                                 terms = m.group();
@@ -289,27 +300,26 @@ public class POROpenAR {
                             catch (NumberFormatException ignored) {
                             }
                             calendar.add(Calendar.DATE, days);
-                            dateString = dateFormat.format(calendar.getTime());
-                            mapRow.add(j, dateString);
+                            mapRow.add(j, new java.sql.Date(calendar.getTimeInMillis()));
                             break;
                         case 10:
-                            date = dateFormat.parse(row.get(3).trim());
+                            date = dateFormat.parse(row.getString(3));
                             SimpleDateFormat postDate = new SimpleDateFormat("MM/yy");
                             dateString = postDate.format(date);
                             mapRow.add(j, dateString);
                             break;
                         case 11:
-                            String contractSalesRep = row.get(4).trim();
+                            String contractSalesRep = row.getString(4);
                             mapRow.add(j, contractSalesRep);
                             break;
                         case 12:
-                            mapRow.add(j, row.get(5).trim());
+                            mapRow.add(j, row.getString(5));
                             break;
                         case 15:
                             mapRow.add(j, "USA");
                             break;
                         case 16:
-                            mapRow.add(j, "1#");
+                            mapRow.add(j, 1);
                             break;
                         default:
                             mapRow.add(j, "");
@@ -318,58 +328,21 @@ public class POROpenAR {
                     progress += progressUpdate;
                     updateProgress(progress, 1.0);
                 }
-                switch (row.get(9).trim()) {
-                    case "001":
-                        mapTable1.add(mapRow);
-                        break;
-                    case "002":
-                        mapTable2.add(mapRow);
-                        break;
-                    case "003":
-                        mapTable3.add(mapRow);
-                        break;
+                int store = row.getCode(9);
+                if (store == store1) {
+                    mapTable1.add(mapRow);
+                }
+                else if (store == store2) {
+                    mapTable2.add(mapRow);
+                }
+                else if (store == store3) {
+                    mapTable3.add(mapRow);
                 }
                 utils.sleep(1);
             }
-            mapTable1.sort((o1, o2) -> {
-                               if (mapTable1.indexOf(o1) == 0) {
-                                   return -1;
-                               }
-                               else if (mapTable1.indexOf(o2) == 0) {
-                                   return 1;
-                               }
-                               else {
-                                   return o1.get(0).compareTo(o2.get(0));
-                               }
-                           }
-            );
-            mapTable2.sort((o1, o2) -> {
-                               if (mapTable2.indexOf(o1) == 0) {
-                                   return -1;
-                               }
-                               else if (mapTable2.indexOf(o2) == 0) {
-                                   return 1;
-                               }
-                               else {
-                                   return o1.get(0).compareTo(o2.get(0));
-                               }
-                           }
-            );
-            mapTable3.sort((o1, o2) -> {
-                               if (mapTable3.indexOf(o1) == 0) {
-                                   return -1;
-                               }
-                               else if (mapTable3.indexOf(o2) == 0) {
-                                   return 1;
-                               }
-                               else {
-                                   return o1.get(0).compareTo(o2.get(0));
-                               }
-                           }
-            );
-            tables.add(mapTable1);
-            tables.add(mapTable2);
-            tables.add(mapTable3);
+            tables.add(TableSort.ascending(0).sort(mapTable1.build()));
+            tables.add(TableSort.ascending(0).sort(mapTable2.build()));
+            tables.add(TableSort.ascending(0).sort(mapTable3.build()));
             return tables;
         }
 
@@ -387,7 +360,7 @@ public class POROpenAR {
          *
          * @param data The data to map
          */
-        public void setData(List<List<String>> data) {
+        public void setData(Table data) {
             this.data = data;
         }
     }
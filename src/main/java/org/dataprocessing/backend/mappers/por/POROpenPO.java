@@ -5,7 +5,9 @@ import javafx.beans.binding.DoubleBinding;
 import javafx.concurrent.Task;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.dataprocessing.backend.database.ChangeTracking;
 import org.dataprocessing.backend.database.SqlServer;
+import org.dataprocessing.backend.tasks.RowStream;
 import org.dataprocessing.backend.tasks.ServerTableConvertTask;
 import org.dataprocessing.utils.FileUtils;
 import org.dataprocessing.utils.MapperUtils;
@@ -26,16 +28,19 @@ public class POROpenPO {
     /**
      * The instance of the logger
      */
-    private static final Logger                 logger    = LogManager.getLogger(POROpenPO.class);
+    private static final Logger                 logger          = LogManager.getLogger(POROpenPO.class);
     /**
      * The instance of the FileUtils class
      */
-    private static final FileUtils              fileUtils = FileUtils.getInstance();
+    private static final FileUtils              fileUtils       = FileUtils.getInstance();
+    /**
+     * The number of queried rows held in memory while waiting to be mapped
+     */
+    private static final int                    STREAM_CAPACITY = 2000;
     /**
      * The template mapping task
      */
     private final        MapTemplate            mapTemplate;
-    private final        Utils                  utils     = Utils.getInstance();
     /**
      * The server table convert task
      */
@@ -91,6 +96,11 @@ public class POROpenPO {
                 "         LEFT JOIN ItemDepartment ID on I.Department = ID.Department\n" +
                 "WHERE PO.Status LIKE 'O%'"
         );
+        tableConvertTask.setQueryName("Open Purchase Orders");
+        tableConvertTask.enableSnapshotCache(storeLocation);
+        tableConvertTask.setIncremental(new ChangeTracking("PO.PONumber", 0)
+                                                .track("PurchaseOrder", "CT.PONumber")
+                                                .track("PurchaseOrderDetail", "CT.PONumber"));
         writeTask = fileUtils.writeXlsxTask(storeLocation.resolve("Open Purchase Order Template.xlsx"));
         tasks.add(tableConvertTask);
         tasks.add(mapTemplate);
@@ -130,15 +140,13 @@ public class POROpenPO {
      * @param executorService The controller thread executor
      */
     public void map(ExecutorService executorService) {
-        tableConvertTask.setOnSucceeded(event -> {
-            mapTemplate.setData(utils.convertToTableString(tableConvertTask.getValue()));
-            executorService.submit(mapTemplate);
-        });
+        mapTemplate.setStream(tableConvertTask.openStream(STREAM_CAPACITY));
         mapTemplate.setOnSucceeded(event -> {
             writeTask.setTable(mapTemplate.getValue());
             executorService.submit(writeTask);
         });
         executorService.submit(tableConvertTask);
+        executorService.submit(mapTemplate);
     }
 
     /**
@@ -184,9 +192,9 @@ public class POROpenPO {
          */
         private final        List<List<String>> mapTable;
         /**
-         * Local copy of the data to map
+         * The stream of queried rows to map
          */
-        private              List<List<String>> data;
+        private              RowStream          stream;
 
         /**
          * The constructor for this inner class
@@ -205,148 +213,20 @@ public class POROpenPO {
          */
         @Override
         protected List<List<String>> call() throws Exception {
-            double progress = 0.0;
             updateProgress(0, 1.0);
-            double progressUpdate = 1.0 / (data.size() - 1) / header.size();
-            loopBreak:
-            for (int i = 1; i < data.size(); i++) {
+            List<String> previousRow = null;
+            for (List<?> streamedRow : stream) {
                 if (isCancelled()) {
                     break;
                 }
-                List<String> row = data.get(i);
-                List<String> mapRow = new ArrayList<>();
-                for (int j = 0; j < header.size(); j++) {
-                    if (isCancelled()) {
-                        break loopBreak;
-                    }
-                    switch (j) {
-                        case 0:
-                        case 8:
-                            mapRow.add(j, row.get(0).trim() + "#");
-                            break;
-                        case 1:
-                            mapRow.add(j, row.get(20).trim() + "#");
-                            break;
-                        case 2:
-                            mapRow.add(j, row.get(21).trim());
-                            break;
-                        case 5:
-                        case 26:
-                            mapRow.add(j, "TRUE");
-                            break;
-                        case 14:
-                            mapRow.add(j, "1#");
-                            break;
-                        case 27:
-                        case 41:
-                        case 42:
-                        case 44:
-                            mapRow.add(j, "FALSE");
-                            break;
-                        case 7:
-                            mapRow.add(j, row.get(2).trim());
-                            break;
-                        case 9:
-                            if (i != 1) {
-                                if (row.get(0).trim().equalsIgnoreCase(data.get(i - 1).get(0).trim())) {
-                                    mapRow.add(j, "");
-                                }
-                                else {
-                                    mapRow.add(j, row.get(3).trim() + "^");
-                                }
-                            }
-                            else {
-                                mapRow.add(j, row.get(3).trim() + "^");
-                            }
-                            break;
-                        case 12:
-                            String location = row.get(1).trim();
-                            if (location.equalsIgnoreCase("003")) {
-                                mapRow.add(j, "Houston Depot");
-                            }
-                            else {
-                                mapRow.add(j, "Memphis");
-                            }
-                            break;
-                        case 15:
-                            mapRow.add(j, row.get(4).trim());
-                            break;
-                        case 16:
-                            mapRow.add(j, row.get(8).trim());
-                            break;
-                        case 19:
-                            mapRow.add(j, row.get(7).trim());
-                            break;
-                        case 20:
-                            double qty = 0;
-                            double perUnit = 0;
-                            try {
-                                qty = Double.parseDouble(row.get(8).trim());
-                                perUnit = Double.parseDouble(row.get(7).trim());
-                            }
-                            catch (NumberFormatException ignored) {
-                            }
-                            double amount = qty * perUnit;
-                            mapRow.add(j, amount + "$");
-                            break;
-                        case 21:
-                            mapRow.add(j, row.get(5).trim());
-                            break;
-                        case 22:
-                            mapRow.add(j, row.get(19).trim());
-                            break;
-                        case 24:
-                            String currentStore = row.get(18).trim();
-                            if (currentStore.equalsIgnoreCase("003")) {
-                                mapRow.add(j, "Houston Depot");
-                            }
-                            else {
-                                mapRow.add(j, "Memphis");
-                            }
-                            break;
-                        case 30:
-                            mapRow.add(j, row.get(9).trim());
-                            break;
-                        case 32:
-                            mapRow.add(j, row.get(14).trim());
-                            break;
-                        case 34:
-                            mapRow.add(j, row.get(10).trim());
-                            break;
-                        case 35:
-                            mapRow.add(j, row.get(11).trim());
-                            break;
-                        case 36:
-                            String[] split = row.get(12).split(",");
-                            mapRow.add(j, split[0].trim());
-                            mapRow.add(j + 1, split[1].trim());
-                            break;
-                        case 37:
-                            break;
-                        case 38:
-                            mapRow.add(j, row.get(13).trim());
-                            break;
-                        case 40:
-                            mapRow.add(j, row.get(15).trim() + "@");
-                            break;
-                        case 43:
-                            mapRow.add(j, row.get(16).trim());
-                            break;
-                        case 45:
-                            mapRow.add(j, row.get(17).trim() + "@");
-                            break;
-                        case 47:
-                            mapRow.add(j, row.get(6).trim());
-                            break;
-                        default:
-                            mapRow.add(j, "");
-                            break;
-                    }
-                    progress += progressUpdate;
-                    updateProgress(progress, 1.0);
+                List<String> row = utils.convertToRowString(streamedRow);
+                List<String> mapRow = mapRow(row, previousRow);
+                if (mapRow == null) {
+                    break;
                 }
                 mapTable.add(mapRow);
-                utils.sleep(1);
+                previousRow = row;
+                updateProgress(stream.getConsumedRows(), stream.getProducedRows() + 1);
             }
             mapTable.sort((o1, o2) -> {
                               if (mapTable.indexOf(o1) == 0) {
@@ -363,6 +243,153 @@ public class POROpenPO {
             return mapTable;
         }
 
+        /**
+         * Maps a single row of the query to a row of the template
+         *
+         * @param row         The row of the query
+         * @param previousRow The previous row of the query, null if this is the first row
+         *
+         * @return The mapped row, null if this task was canceled
+         */
+        private List<String> mapRow(List<String> row, List<String> previousRow) {
+            List<String> mapRow = new ArrayList<>();
+            for (int j = 0; j < header.size(); j++) {
+                if (isCancelled()) {
+                    return null;
+                }
+                switch (j) {
+                    case 0:
+                    case 8:
+                        mapRow.add(j, row.get(0).trim() + "#");
+                        break;
+                    case 1:
+                        mapRow.add(j, row.get(20).trim() + "#");
+                        break;
+                    case 2:
+                        mapRow.add(j, row.get(21).trim());
+                        break;
+                    case 5:
+                    case 26:
+                        mapRow.add(j, "TRUE");
+                        break;
+                    case 14:
+                        mapRow.add(j, "1#");
+                        break;
+                    case 27:
+                    case 41:
+                    case 42:
+                    case 44:
+                        mapRow.add(j, "FALSE");
+                        break;
+                    case 7:
+                        mapRow.add(j, row.get(2).trim());
+                        break;
+                    case 9:
+                        if (previousRow != null) {
+                            if (row.get(0).trim().equalsIgnoreCase(previousRow.get(0).trim())) {
+                                mapRow.add(j, "");
+                            }
+                            else {
+                                mapRow.add(j, row.get(3).trim() + "^");
+                            }
+                        }
+                        else {
+                            mapRow.add(j, row.get(3).trim() + "^");
+                        }
+                        break;
+                    case 12:
+                        String location = row.get(1).trim();
+                        if (location.equalsIgnoreCase("003")) {
+                            mapRow.add(j, "Houston Depot");
+                        }
+                        else {
+                            mapRow.add(j, "Memphis");
+                        }
+                        break;
+                    case 15:
+                        mapRow.add(j, row.get(4).trim());
+                        break;
+                    case 16:
+                        mapRow.add(j, row.get(8).trim());
+                        break;
+                    case 19:
+                        mapRow.add(j, row.get(7).trim());
+                        break;
+                    case 20:
+                        double qty = 0;
+                        double perUnit = 0;
+                        try {
+                            qty = Double.parseDouble(row.get(8).trim());
+                            perUnit = Double.parseDouble(row.get(7).trim());
+                        }
+                        catch (NumberFormatException ignored) {
+                        }
+                        double amount = qty * perUnit;
+                        mapRow.add(j, amount + "$");
+                        break;
+                    case 21:
+                        mapRow.add(j, row.get(5).trim());
+                        break;
+                    case 22:
+                        mapRow.add(j, row.get(19).trim());
+                        break;
+                    case 24:
+                        String currentStore = row.get(18).trim();
+                        if (currentStore.equalsIgnoreCase("003")) {
+                            mapRow.add(j, "Houston Depot");
+                        }
+                        else {
+                            mapRow.add(j, "Memphis");
+                        }
+                        break;
+                    case 30:
+                        mapRow.add(j, row.get(9).trim());
+                        break;
+                    case 32:
+                        mapRow.add(j, row.get(14).trim());
+                        break;
+                    case 34:
+                        mapRow.add(j, row.get(10).trim());
+                        break;
+                    case 35:
+                        mapRow.add(j, row.get(11).trim());
+                        break;
+                    case 36:
+                        String[] split = row.get(12).split(",");
+                        mapRow.add(j, split[0].trim());
+                        mapRow.add(j + 1, split[1].trim());
+                        break;
+                    case 37:
+                        break;
+                    case 38:
+                        mapRow.add(j, row.get(13).trim());
+                        break;
+                    case 40:
+                        mapRow.add(j, row.get(15).trim() + "@");
+                        break;
+                    case 43:
+                        mapRow.add(j, row.get(16).trim());
+                        break;
+                    case 45:
+                        mapRow.add(j, row.get(17).trim() + "@");
+                        break;
+                    case 47:
+                        mapRow.add(j, row.get(6).trim());
+                        break;
+                    default:
+                        mapRow.add(j, "");
+                        break;
+                }
+            }
+            return mapRow;
+        }
+
+        @Override
+        protected void succeeded() {
+            super.succeeded();
+            updateProgress(1.0, 1.0);
+        }
+
         /**
          * Logs the exception when the task transitions to the failure state
          */
@@ -373,12 +400,12 @@ public class POROpenPO {
         }
 
         /**
-         * Sets the data to map
+         * Sets the stream of queried rows to map
          *
-         * @param data The data to map
+         * @param stream The stream of queried rows
          */
-        public void setData(List<List<String>> data) {
-            this.data = data;
+        public void setStream(RowStream stream) {
+            this.stream = stream;
         }
     }
 }
@@ -4,10 +4,12 @@ import com.google.common.collect.Iterables;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.DoubleBinding;
 import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.dataprocessing.backend.database.ChangeTracking;
 import org.dataprocessing.backend.objects.SalesOrder;
 import org.dataprocessing.backend.objects.Subassembly;
 import org.dataprocessing.backend.objects.Subassembly.AssemblyItem;
@@ -18,7 +20,11 @@ import org.dataprocessing.utils.CustomExecutors;
 import org.dataprocessing.utils.FileUtils;
 import org.dataprocessing.utils.FileUtils.XlsxTask;
 import org.dataprocessing.utils.MapperUtils;
+import org.dataprocessing.utils.RowGroups;
+import org.dataprocessing.utils.SpillableRowStore;
+import org.dataprocessing.utils.TableSort;
 import org.dataprocessing.utils.Utils;
+import org.dataprocessing.utils.XlsxWriteGroup;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -139,8 +145,8 @@ public class POROpenSales {
                 "       Transactions.PickupDate,\n" +
                 "       Transactions.STR,\n" +
                 "       ItemCategory.Name,\n" +
-                "       isnull(ServiceMap.ServiceName, 0) as ServiceName,\n" +
-                "       isnull(ServiceMap.ServiceID, 0)   as ServiceID,\n" +
+                "       isnull(ServiceMap.ServiceName, '0') as ServiceName,\n" +
+                "       isnull(ServiceMap.ServiceID, 0)     as ServiceID,\n" +
                 "       Transactions.JOBN,\n" +
                 "       TransactionItems.[Desc]\n" +
                 "FROM TransactionItems\n" +
@@ -190,9 +196,59 @@ public class POROpenSales {
                 "         left join ServiceMap\n" +
                 "                   on ItemFile.Category = ServiceMap.ItemCatID and ItemFile.Department = ServiceMap.ItemDeptID"
         );
+        //The columns are declared in the order the mapping reads them by position
+        tableConvertTask.selectColumns("Contract Number",
+                                        "Customer Name",
+                                        "Transaction Date",
+                                        "Transaction Sales Rep",
+                                        "Item No",
+                                        "Item Name",
+                                        "QTY",
+                                        "Sales Price",
+                                        "Item Department",
+                                        "Location",
+                                        "DeliveryDate",
+                                        "DeliveryAddress",
+                                        "DeliveryCity",
+                                        "DeliveryZip",
+                                        "Delivery Contact",
+                                        "Delivery Contact Phone Num",
+                                        "Terms",
+                                        "BillContact",
+                                        "BillPhone",
+                                        "BillAddress1",
+                                        "BillAddress2",
+                                        "BillCityState",
+                                        "BillZip",
+                                        "BillZip4",
+                                        "Email",
+                                        "FAX",
+                                        "TaxDescription",
+                                        "JBPO",
+                                        "Notes",
+                                        "JBID",
+                                        "TypeName",
+                                        "Comments",
+                                        "EventEndDate",
+                                        "ReviewBilling",
+                                        "TaxRent1",
+                                        "PickupDate",
+                                        "STR",
+                                        "Name",
+                                        "ServiceName",
+                                        "ServiceID",
+                                        "JOBN"
+        );
+        tableConvertTask.setQueryName("Open Sales");
+        tableConvertTask.enableSnapshotCache(storeLocation);
+        tableConvertTask.setPartitioning("TransactionItems.CNTR", false);
+        tableConvertTask.setIncremental(new ChangeTracking("TransactionItems.CNTR", 0)
+                                                .track("Transactions", "CT.CNTR")
+                                                .track("TransactionItems", "CT.CNTR"));
         groupData = new GroupSalesOrders();
         createSalesOrders = new CreateSalesOrders();
         kitMapper = new KitMapper();
+        kitMapper.enableSnapshotCache(storeLocation);
         kitMapping = (KitMapping) kitMapper.getTasks().get(1);
         writeTask1 = fileUtils.writeXlsxTask(storeLocation.resolve("Open Sales Template-Mahaffey Tent & Awning.xlsx"));
         writeTask2 = fileUtils.writeXlsxTask(storeLocation.resolve("Open Sales Template-Mahaffey USA.xlsx"));
@@ -267,32 +323,40 @@ public class POROpenSales {
 
     /**
      * Maps the template
+     * <p>
+     * The sales lines are grouped once both the query and the kit mapping have succeeded, whichever finishes last.
      */
     public void map(ExecutorService executorService) {
-        kitMapping.setOnSucceeded(event -> {
-            tableConvertTask.getValue().remove(0);
-            List<List<?>> dataTemp = tableConvertTask.getValue()
-                                                     .parallelStream()
-                                                     .sorted(Comparator.comparing((List<?> o) -> (String) o.get(0))
-                                                                       .thenComparing((List<?> o) -> {
-                                                                           if ((Double) o.get(6) == 0) {
-                                                                               return (BigDecimal) o.get(7);
-                                                                           }
-                                                                           else {
-                                                                               return ((BigDecimal) o.get(7)).divide(
-                                                                                       BigDecimal.valueOf((Double) o.get(
-                                                                                               6)),
-                                                                                       RoundingMode.HALF_UP
-                                                                               );
-                                                                           }
-                                                                       }, Comparator.reverseOrder())
-                                                                       .thenComparing((List<?> o) -> (String) o.get(4)))
-                                                     .collect(Collectors.toList());
+        Runnable groupSales = () -> {
+            if (tableConvertTask.getState() != Worker.State.SUCCEEDED ||
+                kitMapping.getState() != Worker.State.SUCCEEDED) {
+                return;
+            }
+            List<List<?>> table = tableConvertTask.getValue();
+            List<List<?>> dataTemp = table.subList(1, table.size())
+                                          .parallelStream()
+                                          .sorted(Comparator.comparing((List<?> o) -> (String) o.get(0))
+                                                            .thenComparing((List<?> o) -> {
+                                                                if ((Double) o.get(6) == 0) {
+                                                                    return (BigDecimal) o.get(7);
+                                                                }
+                                                                else {
+                                                                    return ((BigDecimal) o.get(7)).divide(
+                                                                            BigDecimal.valueOf((Double) o.get(
+                                                                                    6)),
+                                                                            RoundingMode.HALF_UP
+                                                                    );
+                                                                }
+                                                            }, Comparator.reverseOrder())
+                                                            .thenComparing((List<?> o) -> (String) o.get(4)))
+                                          .collect(Collectors.toList());
             groupData.setHasHeader(false);
             List<List<String>> dataTempString = utils.convertToTableString(dataTemp);
             groupData.setData(dataTempString);
             executorService.submit(groupData);
-        });
+        };
+        tableConvertTask.setOnSucceeded(event -> groupSales.run());
+        kitMapping.setOnSucceeded(event -> groupSales.run());
         groupData.setOnSucceeded(event -> {
             createSalesOrders.setData(groupData.getValue());
             executorService.submit(createSalesOrders);
@@ -309,9 +373,13 @@ public class POROpenSales {
             /*groupSalesOrders.setData(mapTemplate.getValue().get(0));
             groupSalesOrders1.setData(mapTemplate.getValue().get(1));
             groupSalesOrders2.setData(mapTemplate.getValue().get(2));*/
-            executorService.submit(writeTask1);
+            XlsxWriteGroup writeGroup = new XlsxWriteGroup("Open Sales");
+            writeGroup.add(writeTask1, () -> mapTemplate.getValue().get(0).close());
+            writeGroup.add(writeTask2, () -> mapTemplate.getValue().get(1).close());
+            writeGroup.add(writeTask3, () -> mapTemplate.getValue().get(2).close());
+            writeGroup.add(writeTask7, () -> mapTemplate.getValue().get(3).close());
+            writeGroup.start(executorService);
         });
-        writeTask3.setOnSucceeded(event -> executorService.submit(writeTask7));
         /*groupSalesOrders.setOnSucceeded(event -> {
             filterSubassemblies.setData(groupSalesOrders.getValue());
             filterSubassemblies.setKits(kitMapping.getValue());
@@ -375,9 +443,6 @@ public class POROpenSales {
             executorService.submit(writeTask6);
         });
         writeTask6.setOnSucceeded(event -> executorService.submit());*/
-        writeTask7.setOnSucceeded(event -> totalProgress.add(0.0001));
-        writeTask1.setOnSucceeded(event -> executorService.submit(writeTask2));
-        writeTask2.setOnSucceeded(event -> executorService.submit(writeTask3));
         executorService.submit(tableConvertTask);
         kitMapper.map(executorService);
     }
@@ -435,7 +500,7 @@ public class POROpenSales {
         /**
          * Local copy of the data to map
          */
-        private              MultiValuedMap<String, List<String>> data;
+        private              RowGroups<List<String>, String>      data;
 
         private CreateSalesOrders() {
             this.salesOrders = new ArrayList<>();
@@ -457,11 +522,12 @@ public class POROpenSales {
         @Override
         protected List<SalesOrder> call() throws Exception {
             double progress = 0.0;
-            double progressUpdate = 1.0 / data.keySet().size();
+            double progressUpdate = 1.0 / data.size();
             updateProgress(progress, 1.0);
-            for (String salesKey : data.keySet()) {
+            for (RowGroups<List<String>, String>.Group group : data) {
+                String salesKey = group.getKey();
                 SalesOrder salesOrder = new SalesOrder(salesKey);
-                List<List<String>> dataSet = new ArrayList<>(data.get(salesKey));
+                List<List<String>> dataSet = new ArrayList<>(group.getRows());
                 if (dataSet.get(0).get(40).trim().toLowerCase(Locale.ROOT).contains("mts")) {
                     List<List<String>> structures = findStructure(dataSet, "mts");
                     findMainStructures(salesKey, salesOrder, dataSet, structures);
@@ -653,7 +719,7 @@ public class POROpenSales {
             return bays;
         }
 
-        public void setData(MultiValuedMap<String, List<String>> data) {
+        public void setData(RowGroups<List<String>, String> data) {
             this.data = data;
         }
     }
@@ -661,7 +727,7 @@ public class POROpenSales {
     /**
      * Maps the data to the Open Sales Template
      */
-    private static class MapTemplate extends Task<List<List<List<String>>>> {
+    private static class MapTemplate extends Task<List<SpillableRowStore>> {
 
         /**
          * The instance of the Utils class
@@ -692,20 +758,20 @@ public class POROpenSales {
         /**
          * The table that stores the mapped data for store 1
          */
-        private final        List<List<String>>       mapTable1;
+        private final        SpillableRowStore        mapTable1;
         /**
          * The table that stores the mapped data for store 2
          */
-        private final        List<List<String>>       mapTable2;
+        private final        SpillableRowStore        mapTable2;
         /**
          * The table that stores the mapped data for store 3
          */
-        private final        List<List<String>>       mapTable3;
-        private final        List<List<String>>       mapTableAll;
+        private final        SpillableRowStore        mapTable3;
+        private final        SpillableRowStore        mapTableAll;
         /**
          * The list of tables for every store listed in POR
          */
-        private final        List<List<List<String>>> tables;
+        private final        List<SpillableRowStore>  tables;
         /**
          * Local copy of the data to map
          */
@@ -716,10 +782,10 @@ public class POROpenSales {
          */
         private MapTemplate() {
             header = mapperUtils.getHeader(template);
-            mapTable1 = mapperUtils.createMapTable(template);
-            mapTable2 = mapperUtils.createMapTable(template);
-            mapTable3 = mapperUtils.createMapTable(template);
-            mapTableAll = mapperUtils.createMapTable(template);
+            mapTable1 = new SpillableRowStore(mapperUtils.createMapTable(template));
+            mapTable2 = new SpillableRowStore(mapperUtils.createMapTable(template));
+            mapTable3 = new SpillableRowStore(mapperUtils.createMapTable(template));
+            mapTableAll = new SpillableRowStore(mapperUtils.createMapTable(template));
             corrections = mapperUtils.getCorrections(correctionsFile);
             tables = new ArrayList<>();
         }
@@ -732,11 +798,11 @@ public class POROpenSales {
          * @throws Exception Any exception that might occur when executing this task
          */
         @Override
-        protected List<List<List<String>>> call() throws Exception {
-            List<List<String>> mapTable1Temp = Collections.synchronizedList(new ArrayList<>());
-            List<List<String>> mapTable2Temp = Collections.synchronizedList(new ArrayList<>());
-            List<List<String>> mapTable3Temp = Collections.synchronizedList(new ArrayList<>());
-            List<List<String>> mapTableAllTemp = Collections.synchronizedList(new ArrayList<>());
+        protected List<SpillableRowStore> call() throws Exception {
+            SpillableRowStore mapTable1Temp = new SpillableRowStore();
+            SpillableRowStore mapTable2Temp = new SpillableRowStore();
+            SpillableRowStore mapTable3Temp = new SpillableRowStore();
+            SpillableRowStore mapTableAllTemp = new SpillableRowStore();
             AtomicReference<Double> progress = new AtomicReference<>(0.0);
             updateProgress(0, 1.0);
             double progressUpdate = 1.0 / data.size() / header.size();
@@ -1070,10 +1136,10 @@ public class POROpenSales {
                 });
             }
             utils.shutdownExecutor(service, logger);
-            mapTable1.addAll(utils.parallelSortListAscending(mapTable1Temp, 0));
-            mapTable2.addAll(utils.parallelSortListAscending(mapTable2Temp, 0));
-            mapTable3.addAll(utils.parallelSortListAscending(mapTable3Temp, 0));
-            mapTableAll.addAll(utils.parallelSortListAscending(mapTableAllTemp, 0));
+            mapTable1.moveFrom(mapTable1Temp, TableSort.ascending(0).permutation(mapTable1Temp));
+            mapTable2.moveFrom(mapTable2Temp, TableSort.ascending(0).permutation(mapTable2Temp));
+            mapTable3.moveFrom(mapTable3Temp, TableSort.ascending(0).permutation(mapTable3Temp));
+            mapTableAll.moveFrom(mapTableAllTemp, TableSort.ascending(0).permutation(mapTableAllTemp));
             tables.add(mapTable1);
             tables.add(mapTable2);
             tables.add(mapTable3);
@@ -1111,43 +1177,29 @@ public class POROpenSales {
     }
 
 
-    private static class GroupSalesOrders extends Task<MultiValuedMap<String, List<String>>> {
+    private static class GroupSalesOrders extends Task<RowGroups<List<String>, String>> {
 
         private List<List<String>> data;
         private boolean            hasHeader = true;
 
         /**
-         * Invoked when the Task is executed, the call method must be overridden and
-         * implemented by subclasses. The call method actually performs the
-         * background thread logic. Only the updateProgress, updateMessage, updateValue and
-         * updateTitle methods of Task may be called from code within this method.
-         * Any other interaction with the Task from the background thread will result
-         * in runtime exceptions.
+         * Groups the item lines by their contract, the lines are read sorted by contract so each contract is a range
+         * of the lines
          *
-         * @return The result of the background work, if any.
+         * @return The item lines grouped by their contract
          *
          * @throws Exception an unhandled exception which occurred during the
          *                   background operation
          */
         @Override
-        protected MultiValuedMap<String, List<String>> call() throws Exception {
-            final MultiValuedMap<String, List<String>> groupedMap = new ArrayListValuedHashMap<>();
-            double progress = 0.0;
-            updateProgress(progress, 1.0);
-            if (hasHeader) {
-                data.remove(0);
+        protected RowGroups<List<String>, String> call() throws Exception {
+            updateProgress(0.0, 1.0);
+            List<List<String>> rows = hasHeader && !data.isEmpty() ? data.subList(1, data.size()) : data;
+            RowGroups<List<String>, String> groups = RowGroups.of(rows, row -> row.get(0));
+            if (!groups.isSorted()) {
+                logger.debug("Item lines are not sorted by contract, grouping them by hash");
             }
-            double progressUpdate = 1.0 / data.size();
-            for (List<String> list : data) {
-                if (isCancelled()) {
-                    break;
-                }
-                groupedMap.put(list.get(0), list);
-                progress += progressUpdate;
-                updateProgress(progress, 1.0);
-                utils.sleep(1);
-            }
-            return groupedMap;
+            return groups;
         }
 
         @Override
@@ -1166,7 +1218,7 @@ public class POROpenSales {
         }
 
         public void setData(List<List<String>> data) {
-            this.data = new ArrayList<>(data);
+            this.data = data;
         }
 
         public void setHasHeader(boolean hasHeader) {
@@ -2,13 +2,12 @@ package org.dataprocessing.backend.tasks;
 
 import javafx.concurrent.Task;
 import org.apache.commons.collections4.MultiValuedMap;
-import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.dataprocessing.backend.objects.Subassembly;
 import org.dataprocessing.backend.objects.Subassembly.AssemblyItem;
+import org.dataprocessing.utils.ConcurrentMultiValuedMap;
 import org.dataprocessing.utils.CustomExecutors;
-import org.dataprocessing.utils.SynchronizedMultiValuedMap;
 import org.dataprocessing.utils.Utils;
 
 import java.util.ArrayList;
@@ -79,7 +78,7 @@ public class KitBreakouts extends Task<MultiValuedMap<String, List<?>>> {
      */
     @Override
     protected MultiValuedMap<String, List<?>> call() throws Exception {
-        MultiValuedMap<String, List<?>> breakout = new SynchronizedMultiValuedMap<>(new ArrayListValuedHashMap<>());
+        MultiValuedMap<String, List<?>> breakout = new ConcurrentMultiValuedMap<>();
         AtomicReference<Double> progress = new AtomicReference<>(0.0);
         updateProgress(progress.get(), 1.0);
         double progressUpdate = 1.0 / subassemblies.size();
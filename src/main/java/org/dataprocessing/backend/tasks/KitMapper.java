@@ -7,17 +7,18 @@ import javafx.concurrent.Task;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.util.Strings;
-import org.dataprocessing.backend.database.SqlServer;
 import org.dataprocessing.backend.objects.Subassembly;
 import org.dataprocessing.backend.objects.Subassembly.AssemblyItem;
 import org.dataprocessing.utils.CustomThreadPoolExecutor;
 import org.dataprocessing.utils.Utils;
 
-import java.sql.ResultSet;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -34,7 +35,6 @@ public class KitMapper {
      */
     private static final Logger                 logger = LogManager.getLogger(KitMapper.class);
     private static final Utils                  utils  = Utils.getInstance();
-    private final static SqlServer              server = SqlServer.getInstance();
     /**
      * The server table convert task
      */
@@ -65,6 +65,7 @@ public class KitMapper {
                 "  AND ItemKey NOT LIKE '.%'\n" +
                 "  AND NOT ItemFile.[KEY] = 'kit'"
         );
+        this.tableConvertTask.setQueryName("Kits");
         this.kitMapping = new KitMapping();
         tasks.add(tableConvertTask);
         tasks.add(kitMapping);
@@ -76,6 +77,15 @@ public class KitMapper {
         );
     }
 
+    /**
+     * Caches the kit table as a snapshot under the output directory
+     *
+     * @param storeLocation The directory the mapped data is stored in
+     */
+    public void enableSnapshotCache(Path storeLocation) {
+        tableConvertTask.enableSnapshotCache(storeLocation);
+    }
+
     public List<Task<?>> getTasks() {
         return tasks;
     }
@@ -128,15 +138,11 @@ public class KitMapper {
             Map<String, Subassembly> subassemblies = new ConcurrentHashMap<>();
             AtomicReference<Double> progress = new AtomicReference<>(0.0);
             updateProgress(0, 1.0);
-            ResultSet resultSet = server.queryServer("Select count(*)\n" +
-                                                     "from (select distinct ItemKitsAuto.Num\n" +
-                                                     "      from ItemKitsAuto\n" +
-                                                     "               LEFT OUTER JOIN ItemFile ON ItemFile.NUM = ItemKitsAuto.Num\n" +
-                                                     "      WHERE NOT ItemKey = ''\n" +
-                                                     "        AND ItemKey NOT LIKE '.%'\n" +
-                                                     "        AND NOT ItemFile.[KEY] = 'kit') as IKAN");
-            resultSet.next();
-            int kitCount = resultSet.getInt(1);
+            Set<String> kits = new HashSet<>();
+            for (List<String> row : data.subList(1, data.size())) {
+                kits.add(row.get(2));
+            }
+            int kitCount = kits.size();
             double progressUpdate = 1.0 / (data.size() + kitCount);
             CustomThreadPoolExecutor threadPoolExecutor = new CustomThreadPoolExecutor(20,
                                                                                        20,
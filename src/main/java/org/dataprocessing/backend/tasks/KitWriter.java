@@ -14,7 +14,9 @@ import org.apache.poi.ss.util.AreaReference;
 import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.xssf.usermodel.*;
 import org.dataprocessing.backend.tasks.KitMapper.KitMapping;
+import org.dataprocessing.utils.ColumnWidthTracker;
 import org.dataprocessing.utils.FileUtils;
+import org.dataprocessing.utils.TypedValue;
 import org.dataprocessing.utils.Utils;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTAutoFilter;
 
@@ -157,6 +159,10 @@ public class KitWriter {
             CellStyle dataCell = wb.createCellStyle();
             dataCell.setFont(dataFont);
             dataCell.setDataFormat((short) 0);
+            ColumnWidthTracker widths = new ColumnWidthTracker(columnTotal);
+            for (int j = 0; j < columnTotal; j++) {
+                widths.measureHeader(j, headerRow.getCell(j).getStringCellValue());
+            }
             int i = 1;
             for (String s : kits.keySet()) {
                 int startRow = i + 1;
@@ -184,6 +190,7 @@ public class KitWriter {
                             cell.setCellValue(aDouble);
                         }
                         cell.setCellStyle(dataCell);
+                        widths.measure(j, TypedValue.Kind.GENERAL, value);
                     }
                     i++;
                 }
@@ -209,7 +216,7 @@ public class KitWriter {
             CTAutoFilter autoFilter = xssfTable.getCTTable().addNewAutoFilter();
             autoFilter.setRef(reference.formatAsString());
             for (int j = 0; j < columnTotal; j++) {
-                sheet.autoSizeColumn(j);
+                widths.apply(sheet, j);
             }
             try {
                 FileOutputStream fileOutputStream = new FileOutputStream(filename);
@@ -0,0 +1,214 @@
+package org.dataprocessing.backend.tasks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A bounded, single-pass stream of table rows that hands the rows of a query to the next stage while the query is
+ * still returning
+ * <p>
+ * The producer blocks once the stream holds its capacity of rows, so the memory held by the stream tracks the
+ * capacity rather than the size of the result.
+ *
+ * @author Nicholas Curl
+ */
+public class RowStream implements Iterator<List<?>>, Iterable<List<?>> {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger                   logger       = LogManager.getLogger(RowStream.class);
+    /**
+     * The marker that signals the end of the stream
+     */
+    private static final List<?>                  END_OF_ROWS  = Collections.emptyList();
+    /**
+     * How long a producer or consumer waits before checking if it has been canceled
+     */
+    private static final long                     POLL_MILLIS  = 100;
+    /**
+     * The queue holding the rows that have not been consumed yet
+     */
+    private final        BlockingQueue<List<?>>   queue;
+    /**
+     * The number of rows that have been put into the stream
+     */
+    private final        AtomicLong               producedRows = new AtomicLong();
+    /**
+     * The number of rows that have been taken from the stream
+     */
+    private final        AtomicLong               consumedRows = new AtomicLong();
+    /**
+     * The exception that stopped the producer, if any
+     */
+    private volatile     Throwable                failure;
+    /**
+     * Is the producer done putting rows into the stream
+     */
+    private volatile     boolean                  closed;
+    /**
+     * The next row to return
+     */
+    private              List<?>                  next;
+    /**
+     * Has the consumer reached the end of the stream
+     */
+    private              boolean                  finished;
+
+    /**
+     * The constructor for this class
+     *
+     * @param capacity The maximum number of rows that the stream holds before the producer blocks
+     */
+    public RowStream(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * Puts a row into the stream, blocking while the stream is full
+     *
+     * @param row      The row to put into the stream
+     * @param canceled Checks if the producer has been canceled while waiting
+     *
+     * @return True if the row was put into the stream, false if the producer was canceled or interrupted
+     */
+    public boolean put(List<?> row, BooleanSupplier canceled) {
+        try {
+            while (!queue.offer(row, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (canceled.getAsBoolean()) {
+                    return false;
+                }
+            }
+            producedRows.incrementAndGet();
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Signals the consumer that no more rows will be put into the stream
+     *
+     * @param canceled Checks if the producer has been canceled while waiting for room in the stream
+     */
+    public void close(BooleanSupplier canceled) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            while (!queue.offer(END_OF_ROWS, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (canceled.getAsBoolean()) {
+                    queue.clear();
+                    queue.offer(END_OF_ROWS);
+                    return;
+                }
+                logger.debug("Waiting for the consumer to make room for the end of the stream");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Signals the consumer that the producer failed
+     *
+     * @param throwable The exception that stopped the producer
+     */
+    public void fail(Throwable throwable) {
+        failure = throwable;
+        queue.clear();
+        close(() -> true);
+    }
+
+    /**
+     * Gets the number of rows that have been put into the stream
+     *
+     * @return The number of rows put into the stream
+     */
+    public long getProducedRows() {
+        return producedRows.get();
+    }
+
+    /**
+     * Gets the number of rows that have been taken from the stream
+     *
+     * @return The number of rows taken from the stream
+     */
+    public long getConsumedRows() {
+        return consumedRows.get();
+    }
+
+    /**
+     * Blocks until the next row is available or the stream has ended
+     *
+     * @return True if there is another row, false if the stream has ended
+     *
+     * @throws IllegalStateException if the producer failed
+     */
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            List<?> row = queue.take();
+            if (row == END_OF_ROWS) {
+                finished = true;
+                if (failure != null) {
+                    throw new IllegalStateException("The producer of the row stream failed", failure);
+                }
+                return false;
+            }
+            next = row;
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished = true;
+            return false;
+        }
+    }
+
+    /**
+     * Takes the next row from the stream
+     *
+     * @return The next row
+     */
+    @Override
+    public List<?> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<?> row = next;
+        next = null;
+        consumedRows.incrementAndGet();
+        return row;
+    }
+
+    /**
+     * Gets this stream as an iterator, the stream can only be iterated once
+     *
+     * @return This stream
+     */
+    @Override
+    public Iterator<List<?>> iterator() {
+        return this;
+    }
+}
@@ -1,27 +1,56 @@
 package org.dataprocessing.backend.tasks;
 
-import com.google.common.collect.Iterables;
-import com.sun.rowset.internal.Row;
 import javafx.concurrent.Task;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.dataprocessing.backend.database.CaptureStore;
+import org.dataprocessing.backend.database.ChangeTracking;
+import org.dataprocessing.backend.database.DatasetRegistry;
+import org.dataprocessing.backend.database.PartitionedQuery;
+import org.dataprocessing.backend.database.Projection;
+import org.dataprocessing.backend.database.QueryStats;
+import org.dataprocessing.backend.database.RowCountEstimator;
+import org.dataprocessing.backend.database.SnapshotCache;
 import org.dataprocessing.backend.database.SqlServer;
+import org.dataprocessing.backend.database.TableSnapshot;
 import org.dataprocessing.utils.CustomExecutors;
+import org.dataprocessing.utils.Table;
 import org.dataprocessing.utils.Utils;
 
-import javax.sql.rowset.CachedRowSet;
-import javax.sql.rowset.RowSetFactory;
-import javax.sql.rowset.RowSetProvider;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Converts a SQL query table into a List&lt;List&lt;String&gt;&gt; Table
+ * <p>
+ * The query is read with a forward only, read only result set that fetches its rows from the server in batches of
+ * the fetch size. By default the rows are collected into the table returned by this task, if a {@link RowStream} has
+ * been opened the rows are handed to the stream instead so the next stage can start while the query is returning.
+ * A partitioned query is split into ranges of its key column that are read in parallel on separate pooled
+ * connections and merged in key order or in the order the ranges finish. A cached query is stored as a snapshot and
+ * loaded from it on the next run while its source tables are unchanged. Tasks of a session that read the same query
+ * share one read only table. In capture record mode the table is also written to a capture file, in replay mode the
+ * table is read back from its capture without the server.
  *
  * @author Nicholas Curl
  */
@@ -30,19 +59,111 @@ public class ServerTableConvertTask extends Task<List<List<?>>> {
     /**
      * The instance of the logger
      */
-    private static final Logger    logger = LogManager.getLogger(ServerTableConvertTask.class);
+    private static final Logger               logger             = LogManager.getLogger(ServerTableConvertTask.class);
     /**
      * The instance of the Utils class
      */
-    private static final Utils     utils  = Utils.getInstance();
+    private static final Utils                utils              = Utils.getInstance();
     /**
      * The instance of the SqlServer class
      */
-    private static final SqlServer server = SqlServer.getInstance();
+    private static final SqlServer            server             = SqlServer.getInstance();
+    /**
+     * The instance of the RowCountEstimator class
+     */
+    private static final RowCountEstimator    estimator          = RowCountEstimator.getInstance();
+    /**
+     * The instance of the CaptureStore class
+     */
+    private static final CaptureStore         captures           = CaptureStore.getInstance();
+    /**
+     * The instance of the DatasetRegistry class
+     */
+    private static final DatasetRegistry      registry           = DatasetRegistry.getInstance();
+    /**
+     * Should the tables of the queries be shared between the tasks of a session
+     */
+    private static final boolean              SHARE_DATASETS     = Boolean.parseBoolean(
+            System.getProperty("dataprocessing.sharedDatasets", "true"));
+    /**
+     * The default number of rows fetched from the server at a time
+     */
+    private static final int                  DEFAULT_FETCH_SIZE = Integer.getInteger("dataprocessing.fetchSize", 1000);
+    /**
+     * The default number of ranges a partitioned query is split into
+     */
+    private static final int                  DEFAULT_PARTITIONS = Integer.getInteger("dataprocessing.partitions",
+                                                                                      Runtime.getRuntime()
+                                                                                             .availableProcessors()
+    );
     /**
      * The string containing the SQL Query
      */
-    private final        String    sql;
+    private              String               sql;
+    /**
+     * The number of rows read from the server
+     */
+    private final        AtomicLong           rowsRead           = new AtomicLong();
+    /**
+     * The estimated number of rows the query returns, -1 if there is no estimate
+     */
+    private volatile     long                 estimatedRows      = -1;
+    /**
+     * The name the query is measured under
+     */
+    private              String               queryName;
+    /**
+     * The name the table of the query is shared under, null if the table is not shared
+     */
+    private              String               datasetName;
+    /**
+     * The number of rows fetched from the server at a time
+     */
+    private              int                  fetchSize;
+    /**
+     * The stream the rows are handed to, null if the rows are collected into the table
+     */
+    private              RowStream            stream;
+    /**
+     * The query split into ranges of its key column, null if the query is read as a whole
+     */
+    private              PartitionedQuery     partitionedQuery;
+    /**
+     * The number of ranges the query is split into
+     */
+    private              int                  partitions;
+    /**
+     * Should the ranges be returned in key order
+     */
+    private              boolean              ordered;
+    /**
+     * The cache of query snapshots, null if the query is not cached
+     */
+    private              SnapshotCache        snapshotCache;
+    /**
+     * The freshness token of the source tables, null if the query is not cached
+     */
+    private              String               snapshotToken;
+    /**
+     * The tables tracked for changes, null if the query is not read incrementally
+     */
+    private              ChangeTracking       changeTracking;
+    /**
+     * The writer of the snapshot being taken, null if no snapshot is being taken
+     */
+    private              TableSnapshot.Writer snapshotWriter;
+    /**
+     * The writer of the capture being recorded, null if no capture is being recorded
+     */
+    private              TableSnapshot.Writer captureWriter;
+    /**
+     * Are the rows collected into a columnar table
+     */
+    private              boolean              columnar;
+    /**
+     * The builder of the columnar table while the rows are read
+     */
+    private              Table.Builder        tableBuilder;
 
     /**
      * The constructor for this class
@@ -52,9 +173,168 @@ public class ServerTableConvertTask extends Task<List<List<?>>> {
     public ServerTableConvertTask(String sql) {
         sql = sql.replaceAll("(?:[\n\r]|\\s{2,})", " ");
         this.sql = sql;
+        this.fetchSize = DEFAULT_FETCH_SIZE;
+        this.queryName = QueryStats.nameOf(sql);
+        this.datasetName = SHARE_DATASETS ? "query:" + SnapshotCache.key(sql) : null;
         this.updateProgress(0, 1.0);
     }
 
+    /**
+     * Prunes the query to the columns that are read, the rows of the table hold the columns in the declared order
+     * <p>
+     * Queries that can not be pruned without changing their rows keep all of their columns, use the returned
+     * projection to find the position of a column. Must be called before this task is started and before the
+     * partitioning and the incremental reads are set.
+     *
+     * @param columns The names of the columns that are read
+     *
+     * @return The projection of the query the rows are read from
+     *
+     * @throws IllegalArgumentException If a column is not selected by the query
+     */
+    public Projection selectColumns(String... columns) {
+        if (partitionedQuery != null || changeTracking != null) {
+            throw new IllegalStateException("The columns must be selected before the partitioning and incremental " +
+                                            "reads are set");
+        }
+        Projection projection = new Projection(sql).prune(Arrays.asList(columns));
+        if (!projection.getSql().equals(sql)) {
+            if (queryName.equals(QueryStats.nameOf(sql))) {
+                queryName = QueryStats.nameOf(projection.getSql());
+            }
+            String prefix = columnar ? "table:" : "query:";
+            if (datasetName != null && datasetName.equals(prefix + SnapshotCache.key(sql))) {
+                datasetName = prefix + SnapshotCache.key(projection.getSql());
+            }
+            sql = projection.getSql();
+        }
+        return projection;
+    }
+
+    /**
+     * Collects the rows into a columnar {@link Table} as they are read instead of a list of rows
+     * <p>
+     * String columns are dictionary encoded as the rows arrive, so each distinct string of a column is kept once and
+     * its cells hold int codes. The value of this task becomes a read only string view of the table, get the table
+     * itself with {@link #getTable()}. Tables are shared between tasks separately from the lists of rows. Must be
+     * called before this task is started.
+     */
+    public void collectTable() {
+        if (!columnar && datasetName != null && datasetName.equals("query:" + SnapshotCache.key(sql))) {
+            datasetName = "table:" + SnapshotCache.key(sql);
+        }
+        columnar = true;
+    }
+
+    /**
+     * Gets the table of the query once this task has succeeded
+     *
+     * @return The columnar table of the query, converted from the rows if they were not collected into a table
+     */
+    public Table getTable() {
+        Object value = getValue();
+        if (value instanceof Table.Rows) {
+            return ((Table.Rows) value).getTable();
+        }
+        return Table.fromRows(getValue());
+    }
+
+    /**
+     * Sets the number of rows fetched from the server at a time
+     *
+     * @param fetchSize The number of rows fetched from the server at a time
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = Math.max(1, fetchSize);
+    }
+
+    /**
+     * Sets the name the query is measured under in the query report
+     *
+     * @param queryName The name of the query
+     */
+    public void setQueryName(String queryName) {
+        this.queryName = queryName;
+    }
+
+    /**
+     * Opens a stream that the rows of the query are handed to instead of being collected into the table
+     * <p>
+     * The header is still returned as the only row of the table. Must be called before this task is started.
+     *
+     * @param capacity The number of rows the stream holds before the query waits for the next stage
+     *
+     * @return The stream of rows
+     */
+    public RowStream openStream(int capacity) {
+        stream = new RowStream(capacity);
+        return stream;
+    }
+
+    /**
+     * Splits the query into ranges of the key column that are read in parallel on separate pooled connections
+     * <p>
+     * Must be called before this task is started.
+     *
+     * @param keyColumn  The key column to split the query on as it is referenced in the WHERE clause
+     * @param partitions The number of ranges to split the query into
+     * @param ordered    Should the rows be returned in key order, otherwise the ranges are returned as they finish
+     */
+    public void setPartitioning(String keyColumn, int partitions, boolean ordered) {
+        this.partitionedQuery = new PartitionedQuery(sql, keyColumn);
+        this.partitions = Math.max(1, partitions);
+        this.ordered = ordered;
+    }
+
+    /**
+     * Splits the query into ranges of the key column that are read in parallel on separate pooled connections, using
+     * the default number of ranges
+     * <p>
+     * Must be called before this task is started.
+     *
+     * @param keyColumn The key column to split the query on as it is referenced in the WHERE clause
+     * @param ordered   Should the rows be returned in key order, otherwise the ranges are returned as they finish
+     */
+    public void setPartitioning(String keyColumn, boolean ordered) {
+        setPartitioning(keyColumn, DEFAULT_PARTITIONS, ordered);
+    }
+
+    /**
+     * Caches the table of the query as a snapshot in the .cache directory of the output directory, a rerun loads the
+     * snapshot instead of querying the server while the source tables are unchanged
+     * <p>
+     * Does nothing if the dataprocessing.snapshotCache system property is false. Must be called before this task is
+     * started.
+     *
+     * @param storeLocation The directory the mapped data is stored in
+     */
+    public void enableSnapshotCache(Path storeLocation) {
+        if (Boolean.parseBoolean(System.getProperty("dataprocessing.snapshotCache", "true"))) {
+            snapshotCache = new SnapshotCache(storeLocation.resolve(".cache"));
+        }
+    }
+
+    /**
+     * Reads only the rows whose key changed since the previous run and merges them into the previous snapshot of the
+     * query, falling back to a full read if there is no previous snapshot, its changes are no longer retained, a joined
+     * table that is not tracked changed or the snapshot has been merged into too many times
+     * <p>
+     * Only applies if the snapshot cache is enabled and the query can be restricted on the key column. Must be called
+     * after {@link #enableSnapshotCache(Path)} and before this task is started.
+     *
+     * @param changeTracking The tables tracked for changes and how they map to the key of the query
+     */
+    public void setIncremental(ChangeTracking changeTracking) {
+        if (snapshotCache == null) {
+            return;
+        }
+        if (!new PartitionedQuery(sql, changeTracking.getKeyColumn()).isSplittable()) {
+            logger.warn("Query can not be restricted on " + changeTracking.getKeyColumn() + ", it will be read in full");
+            return;
+        }
+        this.changeTracking = changeTracking;
+    }
+
     /**
      * Converts the sql query into a data table
      *
@@ -64,61 +344,585 @@ public class ServerTableConvertTask extends Task<List<List<?>>> {
      */
     @Override
     protected List<List<?>> call() throws Exception {
-        List<List<?>> table = Collections.synchronizedList(new ArrayList<>());
-        AtomicReference<Double> localProgress = new AtomicReference<>(0.0);
-        updateProgress(localProgress.get(), 1.0);
+        if (datasetName == null || stream != null || utils.isBlankString(sql)) {
+            return readTable();
+        }
+        return registry.get(datasetName, () -> {
+            List<List<?>> table = readTable();
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+            return table;
+        });
+    }
+
+    /**
+     * Shares the table of the query with the other tasks of the session under the name, a task requesting the same
+     * dataset gets the same read only table instead of reading the query again
+     * <p>
+     * Queries are shared under their normalized text by default, tasks with the same query therefore already share
+     * their table. Does nothing if a stream is opened, since the rows of a stream are not kept. Must be called before
+     * this task is started.
+     *
+     * @param datasetName The name of the dataset, null to not share the table
+     */
+    public void shareAs(String datasetName) {
+        this.datasetName = datasetName;
+    }
+
+    /**
+     * Reads the query and finishes the columnar table if the rows are collected into one
+     *
+     * @return The table containing the SQL query, a string view of the columnar table if the rows are collected into
+     * one
+     *
+     * @throws Exception Any exception that might occur when reading the query
+     */
+    @SuppressWarnings("unchecked")
+    private List<List<?>> readTable() throws Exception {
+        List<List<?>> table = read();
+        if (!columnar) {
+            return table;
+        }
+        if (tableBuilder == null) {
+            tableBuilder = Table.builder(headerOf(table));
+        }
+        Table built = tableBuilder.build();
+        tableBuilder = null;
+        return (List<List<?>>) (List<?>) built.asRows();
+    }
+
+    /**
+     * Gets the column names of the table being built
+     *
+     * @param table The table being built
+     *
+     * @return The column names, empty if the header has not been read
+     */
+    private static List<String> headerOf(List<List<?>> table) {
+        List<String> header = new ArrayList<>();
+        if (!table.isEmpty()) {
+            for (Object name : table.get(0)) {
+                header.add(String.valueOf(name));
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Reads the query into a data table
+     *
+     * @return The table containing the SQL query
+     *
+     * @throws Exception Any exception that might occur when reading the query
+     */
+    private List<List<?>> read() throws Exception {
+        List<List<?>> table = new ArrayList<>();
+        updateProgress(0, 1.0);
         if (utils.isBlankString(sql)) {
+            closeStream();
             updateProgress(1.0, 1.0);
             return table;
         }
-        if (!isCancelled()) {
-            if (!server.isClosed()) {
-                RowSetFactory factory = RowSetProvider.newFactory();
-                CachedRowSet rowSet = factory.createCachedRowSet();
-                rowSet.setCommand(sql);
-                rowSet.execute(server.getConnection());
-                List<?> list = new ArrayList<>(rowSet.toCollection());
-                double localProgressUpdate = 1.0 / rowSet.size();
-                ResultSetMetaData metaData = rowSet.getMetaData();
-                List<String> header = new ArrayList<>();
+        if (captures.isReplaying()) {
+            captures.replay(sql, table::add, row -> {
+                countRow();
+                return emit(table, row);
+            });
+            closeStream();
+            return table;
+        }
+        try {
+            if (!isCancelled()) {
+                Map<String, Object> changedKeys = null;
+                String previousToken = null;
+                try (Connection connection = server.getConnection()) {
+                    estimatedRows = estimator.estimate(connection, sql);
+                    if (changeTracking != null) {
+                        try {
+                            long version = changeTracking.currentVersion(connection);
+                            String dimensions = snapshotCache.probe(connection, changeTracking.untrackedTables(sql));
+                            if (dimensions == null) {
+                                throw new SQLException("Unable to probe the joined tables that are not tracked");
+                            }
+                            previousToken = snapshotCache.latestToken(sql);
+                            if (ChangeTracking.canMerge(previousToken, dimensions)) {
+                                changedKeys = changeTracking.changesSince(connection,
+                                                                          ChangeTracking.version(previousToken)
+                                );
+                            }
+                            if (changedKeys != null && ChangeTracking.version(previousToken) == version) {
+                                snapshotToken = previousToken;
+                            }
+                            else {
+                                snapshotToken = ChangeTracking.token(version,
+                                                                     changedKeys == null ? 0 :
+                                                                     ChangeTracking.merges(previousToken) + 1,
+                                                                     dimensions
+                                );
+                            }
+                        }
+                        catch (SQLException e) {
+                            logger.warn("Change tracking is unavailable, the query will be read in full", e);
+                            changeTracking = null;
+                        }
+                    }
+                    if (snapshotCache != null && changeTracking == null) {
+                        snapshotToken = snapshotCache.probe(connection, sql);
+                    }
+                }
+                if (changedKeys != null && !snapshotToken.equals(previousToken)) {
+                    readChanges(previousToken, changedKeys, table);
+                    if (!isCancelled()) {
+                        commitSnapshot();
+                        commitCapture();
+                    }
+                    closeStream();
+                    return table;
+                }
+                if (snapshotToken != null && snapshotCache.load(sql, snapshotToken, header -> {
+                    table.add(header);
+                    startCapture(header);
+                }, row -> {
+                    countRow();
+                    return emit(table, row);
+                })) {
+                    if (!isCancelled()) {
+                        commitCapture();
+                    }
+                    closeStream();
+                    return table;
+                }
+                List<PartitionedQuery.Partition> ranges;
+                try (Connection connection = server.getConnection()) {
+                    if (partitionedQuery == null) {
+                        ranges = Collections.singletonList(new PartitionedQuery.Partition(sql,
+                                                                                          Collections.emptyList()
+                        ));
+                    }
+                    else {
+                        ranges = partitionedQuery.split(connection,
+                                                        Math.min(partitions, server.getPool().getMaxSize()),
+                                                        ordered,
+                                                        queryName + " probe"
+                        );
+                    }
+                }
+                if (ranges.size() == 1) {
+                    readRange(ranges.get(0), header -> addHeader(table, header), row -> emit(table, row));
+                }
+                else {
+                    readRanges(ranges, table);
+                }
+                if (!isCancelled()) {
+                    estimator.record(sql, rowsRead.get());
+                    commitSnapshot();
+                    commitCapture();
+                }
+            }
+        }
+        catch (Exception e) {
+            if (stream != null) {
+                stream.fail(e);
+            }
+            throw e;
+        }
+        finally {
+            if (snapshotWriter != null) {
+                snapshotWriter.close();
+                snapshotWriter = null;
+            }
+            if (captureWriter != null) {
+                captureWriter.close();
+                captureWriter = null;
+            }
+        }
+        closeStream();
+        return table;
+    }
+
+    /**
+     * Reads the rows of the changed keys and merges them into the previous snapshot of the query
+     * <p>
+     * The rows of the changed keys are read first so that the merged table can be handed on as the previous snapshot
+     * is read. The rows of a changed key take the place of its first row in the snapshot and rows of deleted keys are
+     * dropped because the query no longer returns them. Rows of keys that are not in the snapshot are appended after
+     * it, so a consumer that needs the rows in the order of the query must sort them again.
+     *
+     * @param previousToken The freshness token of the previous snapshot
+     * @param changedKeys   The changed keys mapped by their trimmed string form
+     * @param table         The table being built
+     *
+     * @throws Exception Any exception that occurred while reading the changes
+     */
+    private void readChanges(String previousToken, Map<String, Object> changedKeys, List<List<?>> table)
+            throws Exception {
+        logger.debug("Merging " + changedKeys.size() + " changed keys into the previous snapshot");
+        PartitionedQuery query = new PartitionedQuery(sql, changeTracking.getKeyColumn());
+        Map<String, List<List<?>>> changedRows = new LinkedHashMap<>();
+        for (List<Object> keys : ChangeTracking.chunks(changedKeys.values())) {
+            if (isCancelled()) {
+                return;
+            }
+            readRange(query.restrictTo(keys), header -> {
+            }, row -> changedRows.computeIfAbsent(changeTracking.key(row), key -> new ArrayList<>()).add(row), false);
+        }
+        boolean loaded = snapshotCache.load(sql, previousToken, header -> addHeader(table, header), row -> {
+            String key = changeTracking.key(row);
+            if (changedKeys.containsKey(key)) {
+                List<List<?>> rows = changedRows.remove(key);
+                return rows == null || emitChanged(table, rows);
+            }
+            countRow();
+            return emit(table, row);
+        });
+        if (!loaded) {
+            throw new IOException("Previous snapshot of the query could not be read");
+        }
+        for (List<List<?>> rows : changedRows.values()) {
+            if (!emitChanged(table, rows)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts and adds the rows of a changed key to the table
+     *
+     * @param table The table being built
+     * @param rows  The rows of the changed key
+     *
+     * @return False if the rows should no longer be read
+     */
+    private boolean emitChanged(List<List<?>> table, List<List<?>> rows) {
+        for (List<?> row : rows) {
+            countRow();
+            if (!emit(table, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the ranges of a partitioned query in parallel and merges them into the table
+     * <p>
+     * Ranges returned as they finish hand their rows through one bounded stream, so only the rows the stream holds are
+     * kept besides the table. Ranges returned in key order are buffered until the ranges before them have been merged,
+     * and each buffer is released once its rows have been merged.
+     *
+     * @param ranges The ranges of the query in key order
+     * @param table  The table being built
+     *
+     * @throws Exception Any exception that occurred while reading a range
+     */
+    private void readRanges(List<PartitionedQuery.Partition> ranges, List<List<?>> table) throws Exception {
+        logger.debug("Reading query in " + ranges.size() + " partitions");
+        ExecutorService executor = CustomExecutors.newFixedThreadPool(ranges.size());
+        AtomicReference<List<String>> header = new AtomicReference<>();
+        try {
+            if (ordered) {
+                readOrderedRanges(executor, ranges, header, table);
+            }
+            else {
+                readMergedRanges(executor, ranges, header, table);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the ranges of a partitioned query in parallel and merges their rows into the table in key order
+     *
+     * @param executor The executor the ranges are read on
+     * @param ranges   The ranges of the query in key order
+     * @param header   Receives the column names of the query
+     * @param table    The table being built
+     *
+     * @throws Exception Any exception that occurred while reading a range
+     */
+    private void readOrderedRanges(ExecutorService executor, List<PartitionedQuery.Partition> ranges,
+                                   AtomicReference<List<String>> header, List<List<?>> table
+    ) throws Exception {
+        List<Future<List<List<?>>>> futures = new ArrayList<>();
+        for (PartitionedQuery.Partition range : ranges) {
+            futures.add(executor.submit(() -> {
+                List<List<?>> rows = new ArrayList<>();
+                readRange(range, columns -> header.compareAndSet(null, columns), rows::add);
+                return rows;
+            }));
+        }
+        for (int i = 0; i < futures.size() && !isCancelled(); i++) {
+            List<List<?>> rows = getRange(futures.get(i));
+            futures.set(i, null);
+            if (table.isEmpty()) {
+                addHeader(table, header.get());
+            }
+            for (List<?> row : rows) {
+                if (!emit(table, row)) {
+                    return;
+                }
+            }
+            rows.clear();
+        }
+    }
+
+    /**
+     * Reads the ranges of a partitioned query in parallel and merges their rows into the table as they arrive
+     *
+     * @param executor The executor the ranges are read on
+     * @param ranges   The ranges of the query
+     * @param header   Receives the column names of the query
+     * @param table    The table being built
+     *
+     * @throws Exception Any exception that occurred while reading a range
+     */
+    private void readMergedRanges(ExecutorService executor, List<PartitionedQuery.Partition> ranges,
+                                  AtomicReference<List<String>> header, List<List<?>> table
+    ) throws Exception {
+        RowStream merged = new RowStream(fetchSize * ranges.size());
+        AtomicInteger remaining = new AtomicInteger(ranges.size());
+        for (PartitionedQuery.Partition range : ranges) {
+            executor.submit(() -> {
+                try {
+                    readRange(range,
+                              columns -> header.compareAndSet(null, columns),
+                              row -> merged.put(row, this::isCancelled)
+                    );
+                }
+                catch (Exception e) {
+                    merged.fail(e);
+                }
+                finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        merged.close(this::isCancelled);
+                    }
+                }
+            });
+        }
+        try {
+            for (List<?> row : merged) {
+                if (table.isEmpty()) {
+                    addHeader(table, header.get());
+                }
+                if (!emit(table, row)) {
+                    return;
+                }
+            }
+        }
+        catch (IllegalStateException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+        if (table.isEmpty() && header.get() != null) {
+            addHeader(table, header.get());
+        }
+    }
+
+    /**
+     * Waits for a range to finish reading
+     *
+     * @param future The result of reading the range
+     *
+     * @return The rows of the range
+     *
+     * @throws Exception The exception that stopped the range from being read
+     */
+    private List<List<?>> getRange(Future<List<List<?>>> future) throws Exception {
+        try {
+            return future.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a range of the query on its own pooled connection
+     *
+     * @param range      The range of the query to read
+     * @param headerSink Receives the column names of the query
+     * @param rowSink    Receives the rows of the query, returns false to stop reading
+     *
+     * @throws SQLException If the range could not be read
+     */
+    private void readRange(PartitionedQuery.Partition range, Consumer<List<String>> headerSink,
+                           Predicate<List<?>> rowSink
+    ) throws SQLException {
+        readRange(range, headerSink, rowSink, true);
+    }
+
+    /**
+     * Reads a range of the query on its own pooled connection
+     *
+     * @param range      The range of the query to read
+     * @param headerSink Receives the column names of the query
+     * @param rowSink    Receives the rows of the query, returns false to stop reading
+     * @param counted    Should the rows be counted as they are read, otherwise the caller counts them
+     *
+     * @throws SQLException If the range could not be read
+     */
+    private void readRange(PartitionedQuery.Partition range, Consumer<List<String>> headerSink,
+                           Predicate<List<?>> rowSink, boolean counted
+    ) throws SQLException {
+        try (Connection connection = server.getConnection();
+             PreparedStatement statement = server.prepareStreamingStatement(connection,
+                                                                            range.getSql(),
+                                                                            fetchSize,
+                                                                            queryName
+             )) {
+            range.bind(statement);
+            QueryStats.Meter meter = QueryStats.getInstance().meter(queryName);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
                 int colCount = metaData.getColumnCount();
+                List<String> header = new ArrayList<>(colCount);
                 for (int i = 1; i <= colCount; i++) {
-                    if (isCancelled()) {
-                        break;
-                    }
                     header.add(metaData.getColumnName(i));
-                    utils.sleep(1);
                 }
-                localProgress.updateAndGet(v -> v + localProgressUpdate);
-                updateProgress(localProgress.get(), 1.0);
-                table.add(header);
-                Iterable<? extends List<?>> partition = Iterables.partition(list, 10);
-                ExecutorService threadPoolExecutor = CustomExecutors.newFixedThreadPool(20);
-                for (List<?> objects : partition) {
-                    if (isCancelled()) {
+                headerSink.accept(header);
+                while (!isCancelled() && meter.next(resultSet)) {
+                    List<Object> row = new ArrayList<>(colCount);
+                    for (int i = 1; i <= colCount; i++) {
+                        row.add(resultSet.getObject(i));
+                    }
+                    meter.row(row);
+                    if (!rowSink.test(row)) {
                         break;
                     }
-                    threadPoolExecutor.submit(() -> {
-                        for (Object object : objects) {
-                            if (isCancelled()) {
-                                break;
-                            }
-                            if (object instanceof Row) {
-                                Row row = (Row) object;
-                                ArrayList<Object> listRow = new ArrayList<>(Arrays.asList(row.getOrigRow()));
-                                table.add(listRow);
-                            }
-                            localProgress.updateAndGet(v -> v + localProgressUpdate);
-                            updateProgress(localProgress.get(), 1.0);
-                            utils.sleep(1);
-                        }
-                        return null;
-                    });
+                    if (counted) {
+                        countRow();
+                    }
                 }
-                utils.shutdownExecutor(threadPoolExecutor, logger);
             }
         }
-        return new ArrayList<>(table);
+    }
+
+    /**
+     * Counts a row that was read and updates the progress
+     */
+    private void countRow() {
+        long rowCount = rowsRead.incrementAndGet();
+        if (rowCount % fetchSize == 0) {
+            updateProgress(RowCountEstimator.progress(rowCount, estimatedRows, fetchSize), 1.0);
+        }
+    }
+
+    /**
+     * Adds the column names to the table and starts the snapshot of the query if it is cached and its capture if it is
+     * recorded
+     *
+     * @param table  The table being built
+     * @param header The column names of the query
+     */
+    private void addHeader(List<List<?>> table, List<String> header) {
+        table.add(header);
+        if (snapshotToken != null) {
+            snapshotWriter = snapshotCache.store(sql, snapshotToken, header);
+        }
+        startCapture(header);
+    }
+
+    /**
+     * Starts the capture of the query if the tables of the queries are being recorded
+     *
+     * @param header The column names of the query
+     */
+    private void startCapture(List<String> header) {
+        if (captures.isRecording()) {
+            captureWriter = captures.record(sql, header);
+        }
+    }
+
+    /**
+     * Finishes the capture of the query if one is being written
+     */
+    private void commitCapture() {
+        if (captureWriter != null) {
+            try {
+                captureWriter.commit();
+            }
+            catch (IOException e) {
+                logger.warn("Unable to store capture", e);
+            }
+        }
+    }
+
+    /**
+     * Finishes the snapshot of the query if one is being written
+     */
+    private void commitSnapshot() {
+        if (snapshotWriter != null) {
+            try {
+                snapshotWriter.commit();
+                snapshotCache.prune(sql, snapshotToken);
+            }
+            catch (IOException e) {
+                logger.warn("Unable to store snapshot", e);
+            }
+        }
+    }
+
+    /**
+     * Hands the row to the stream if one is open, otherwise adds it to the columnar table if the rows are collected
+     * into one or to the table
+     * <p>
+     * The row is also written to the snapshot of the query if it is cached and to its capture if it is recorded.
+     *
+     * @param table The table being built
+     * @param row   The row read from the query
+     *
+     * @return True if the row was accepted, false if this task was canceled while waiting on the stream
+     */
+    private boolean emit(List<List<?>> table, List<?> row) {
+        if (snapshotWriter != null) {
+            try {
+                snapshotWriter.writeRow(row);
+            }
+            catch (IOException e) {
+                logger.warn("Unable to write snapshot, the query will not be cached", e);
+                snapshotWriter.close();
+                snapshotWriter = null;
+            }
+        }
+        if (captureWriter != null) {
+            try {
+                captureWriter.writeRow(row);
+            }
+            catch (IOException e) {
+                logger.warn("Unable to write capture, the query will not be recorded", e);
+                captureWriter.close();
+                captureWriter = null;
+            }
+        }
+        if (stream != null) {
+            return stream.put(row, this::isCancelled);
+        }
+        if (columnar) {
+            if (tableBuilder == null) {
+                tableBuilder = Table.builder(headerOf(table));
+            }
+            tableBuilder.add(row);
+            return true;
+        }
+        table.add(row);
+        return true;
+    }
+
+    /**
+     * Signals the end of the rows if a stream is open
+     */
+    private void closeStream() {
+        if (stream != null) {
+            stream.close(this::isCancelled);
+        }
     }
 
     @Override
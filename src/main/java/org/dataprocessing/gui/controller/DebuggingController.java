@@ -56,11 +56,12 @@ public class DebuggingController {
             });
             progSpin.getStyleClass().setAll(styles);
         }
+        server.connectAsync();
         ExecutorService executor = CustomExecutors.newFixedThreadPool(20);
         process.setOnAction(action -> {
             progSpin.getStyleClass().remove("custom-spinner-success");
             progSpin.getStyleClass().remove("custom-spinner-cancel");
-            server.connectToServer();
+            server.connectAsync();
             KitWriter kitWriter = new KitWriter();
             //VendorList vendorList = new VendorList(Paths.get("./mapped data/"));
             DoubleBinding totalProgress = Bindings.createDoubleBinding(() -> (
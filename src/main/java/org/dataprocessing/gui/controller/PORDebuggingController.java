@@ -113,6 +113,7 @@ public class PORDebuggingController {
     @PostConstruct
     public void init() {
         processor.setText("Debugging");
+        server.connectAsync();
         @SuppressWarnings("unchecked")
         ObservableList<String> styles = (ObservableList<String>) context.getRegisteredObject("StyleClasses");
         if (styles != null) {
@@ -146,7 +147,7 @@ public class PORDebuggingController {
                 model.setLocked(false);
                 model.setProgLabelText("Canceled");
                 progSpin.getStyleClass().add("custom-spinner-cancel");
-                server.closeConnection();
+                server.endRun();
                 model.setCancelable(false);
             }
         });
@@ -189,7 +190,7 @@ public class PORDebuggingController {
             }
             else {
                 ExecutorService executor = CustomExecutors.newFixedThreadPool(20);
-                server.connectToServer();
+                server.connectAsync();
                 Path storeLocation = Paths.get(storageLocation.toURI());
                 Path porStoreLocation = storeLocation.resolve("POR/");
                 try {
@@ -242,6 +243,7 @@ public class PORDebuggingController {
                             model.setProgLabelText("Complete");
                             model.setLocked(false);
                             model.setCancelable(false);
+                            server.endRun();
                             complete.removeListener(this);
                         }
                     }
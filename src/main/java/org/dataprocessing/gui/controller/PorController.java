@@ -114,6 +114,7 @@ public class PorController {
     @PostConstruct
     public void init() {
         processor.setText("POR Processing");
+        server.connectAsync();
         @SuppressWarnings("unchecked")
         ObservableList<String> styles = (ObservableList<String>) context.getRegisteredObject("StyleClasses");
         if (styles != null) {
@@ -147,7 +148,7 @@ public class PorController {
                 model.setLocked(false);
                 model.setProgLabelText("Canceled");
                 progSpin.getStyleClass().add("custom-spinner-cancel");
-                server.closeConnection();
+                server.endRun();
                 model.setCancelable(false);
             }
         });
@@ -190,7 +191,7 @@ public class PorController {
             }
             else {
                 ExecutorService executor = Executors.newCachedThreadPool();
-                server.connectToServer();
+                server.connectAsync();
                 Path storeLocation = Paths.get(storageLocation.toURI());
                 Path porStoreLocation = storeLocation.resolve("POR/");
                 try {
@@ -259,7 +260,7 @@ public class PorController {
                             model.setProgLabelText("Complete");
                             model.setLocked(false);
                             model.setCancelable(false);
-                            server.closeConnection();
+                            server.endRun();
                             complete.removeListener(this);
                             executor.shutdown();
                         }
@@ -0,0 +1,239 @@
+package org.dataprocessing.utils;
+
+/**
+ * Recognizes the form of the string of a cell in one pass over its characters
+ * <p>
+ * The lexer replaces the date, phone number, zip code, zip+4 code, currency and weight patterns of the XLSX writers.
+ * While it classifies the string it also notes any type marker and parses the digits of the string, so a number is
+ * read without a Matcher, without removing the dash of a zip+4 code and without catching a NumberFormatException. A
+ * number whose digits do not fit exactly in a double is parsed by Double.parseDouble instead. A lexer holds the result
+ * of the last string it read and is reused from string to string, so it must not be shared between threads.
+ *
+ * @author Nicholas Curl
+ */
+public class CellLexer {
+
+    /**
+     * The largest integer a double holds exactly
+     */
+    private static final long     MAX_EXACT = 1L << 53;
+    /**
+     * The powers of ten a double holds exactly
+     */
+    private static final double[] POWERS    = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18,
+            1e19, 1e20, 1e21, 1e22
+    };
+    /**
+     * The string last read
+     */
+    private              String   string;
+    /**
+     * The form of the string last read
+     */
+    private              Shape    shape;
+    /**
+     * Does the string last read contain a type marker
+     */
+    private              boolean  marked;
+    /**
+     * Is the string last read a plain number, an optional sign followed by digits with at most one point
+     */
+    private              boolean  number;
+    /**
+     * Does the string last read contain a digit
+     */
+    private              boolean  digit;
+    /**
+     * The digits of the string last read as an integer
+     */
+    private              long     mantissa;
+    /**
+     * The number of digits after the point
+     */
+    private              int      places;
+    /**
+     * Do the digits not fit exactly in a double
+     */
+    private              boolean  inexact;
+    /**
+     * Does the string last read start with a minus sign
+     */
+    private              boolean  negative;
+
+    /**
+     * Reads a string
+     * <p>
+     * The patterns the forms replace end with $, which also matches before a line terminator at the end of the
+     * string, so a trailing \n, \r\n, \r, U+0085, U+2028 or U+2029 is ignored by every form but the date.
+     *
+     * @param string The string
+     *
+     * @return The form of the string
+     */
+    public Shape lex(String string) {
+        this.string = string;
+        int length = string.length();
+        int end = length;
+        if (end > 0) {
+            char last = string.charAt(end - 1);
+            if (last == '\n') {
+                end--;
+                if (end > 0 && string.charAt(end - 1) == '\r') {
+                    end--;
+                }
+            }
+            else if (last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029') {
+                end--;
+            }
+        }
+        boolean date = length >= 10;
+        boolean sign = false;
+        int digits = 0;
+        int dash = -1;
+        int dashes = 0;
+        int points = 0;
+        marked = false;
+        mantissa = 0;
+        places = 0;
+        inexact = false;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            boolean isDigit = c >= '0' && c <= '9';
+            if (date && i < 10) {
+                date = i == 4 || i == 7 ? c == '-' : isDigit;
+            }
+            if (c == '@' || c == '$' || c == '^' || c == '%' || c == '#') {
+                marked = true;
+            }
+            if (i >= end) {
+                continue;
+            }
+            if (isDigit) {
+                digits++;
+                if (mantissa > (MAX_EXACT - 9) / 10) {
+                    inexact = true;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (points > 0) {
+                    places++;
+                }
+            }
+            else if (c == '.') {
+                points++;
+            }
+            else if (c == '-') {
+                dash = i;
+                dashes++;
+            }
+            else if (c == '+' && i == 0) {
+                sign = true;
+            }
+        }
+        negative = dashes == 1 && dash == 0;
+        sign |= negative;
+        digit = digits > 0;
+        number = digit && end == length && points <= 1 && digits + points + (sign ? 1 : 0) == length;
+        inexact |= places >= POWERS.length;
+        if (date) {
+            shape = Shape.DATE;
+        }
+        else if (digits == end && (end == 10 || end == 5)) {
+            shape = end == 10 ? Shape.PHONE : Shape.ZIP;
+        }
+        else if (end == 10 && digits == 9 && dashes == 1 && dash == 5) {
+            shape = Shape.ZIP_PLUS_FOUR;
+        }
+        else if (points == 1 && digits == end - 1 && places >= 1 && places <= 4) {
+            shape = places == 4 ? Shape.CURRENCY : Shape.WEIGHT;
+        }
+        else {
+            shape = Shape.NONE;
+        }
+        return shape;
+    }
+
+    /**
+     * Gets the form of the string last read
+     *
+     * @return The form
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * Does the string last read contain one of the type markers @, $, ^, % or #
+     *
+     * @return True if the string contains a type marker
+     */
+    public boolean isMarked() {
+        return marked;
+    }
+
+    /**
+     * Is the string last read a plain number, an optional sign followed by digits with at most one point
+     *
+     * @return True if the string is a plain number
+     */
+    public boolean isNumber() {
+        return number;
+    }
+
+    /**
+     * Does the string last read contain a digit
+     *
+     * @return True if the string contains a digit
+     */
+    public boolean hasDigit() {
+        return digit;
+    }
+
+    /**
+     * Gets the number of the string last read, for a phone number, zip code, zip+4 code, currency, weight or plain
+     * number
+     *
+     * @return The number
+     */
+    public double getNumber() {
+        if (inexact) {
+            return Double.parseDouble(shape == Shape.ZIP_PLUS_FOUR ? string.replace("-", "") : string);
+        }
+        double value = places > 0 ? mantissa / POWERS[places] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * The forms of the string of a cell
+     */
+    public enum Shape {
+        /**
+         * None of the forms below
+         */
+        NONE,
+        /**
+         * Starts with a yyyy-MM-dd date
+         */
+        DATE,
+        /**
+         * Ten digits
+         */
+        PHONE,
+        /**
+         * Five digits
+         */
+        ZIP,
+        /**
+         * Five digits, a dash and four digits
+         */
+        ZIP_PLUS_FOUR,
+        /**
+         * Digits, a point and four digits
+         */
+        CURRENCY,
+        /**
+         * Digits, a point and one to three digits
+         */
+        WEIGHT
+    }
+}
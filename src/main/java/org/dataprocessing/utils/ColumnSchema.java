@@ -0,0 +1,286 @@
+package org.dataprocessing.utils;
+
+import java.util.List;
+
+/**
+ * The inferred form of each column of a table of strings, used to type the cells of the XLSX writers
+ * <p>
+ * The columns of the templates hold one form of value, so each column is sampled once and given the form most of its
+ * sampled cells have. A cell is then checked against the form of its column with a few character comparisons and
+ * typed directly, only cells that do not have the form of their column are parsed by {@link TypedValue#parse(String)}.
+ * A cell typed through its column is typed exactly as parse would type it.
+ *
+ * @author Nicholas Curl
+ */
+public class ColumnSchema {
+
+    /**
+     * The number of rows sampled from each column
+     */
+    private static final int     SAMPLE_SIZE = Integer.getInteger("dataprocessing.xlsx.sampleRows", 256);
+    /**
+     * The form of each column, null if a column has no form
+     */
+    private final        Shape[] shapes;
+
+    /**
+     * The constructor for this class
+     *
+     * @param shapes The form of each column
+     */
+    private ColumnSchema(Shape[] shapes) {
+        this.shapes = shapes;
+    }
+
+    /**
+     * Infers the form of each column of a table from a sample of its rows
+     *
+     * @param rows        The rows of the table
+     * @param first       The position of the first row after the header
+     * @param columnCount The number of columns
+     *
+     * @return The schema of the table
+     */
+    public static ColumnSchema infer(List<? extends List<String>> rows, int first, int columnCount) {
+        Shape[] values = Shape.values();
+        int[][] counts = new int[columnCount][values.length];
+        int step = Math.max(1, (rows.size() - first) / SAMPLE_SIZE);
+        for (int i = first; i < rows.size(); i += step) {
+            List<String> row = rows.get(i);
+            for (int j = 0; j < Math.min(columnCount, row.size()); j++) {
+                String string = row.get(j);
+                if (string == null || string.isEmpty()) {
+                    continue;
+                }
+                for (Shape shape : values) {
+                    if (shape.matches(string)) {
+                        counts[j][shape.ordinal()]++;
+                        break;
+                    }
+                }
+            }
+        }
+        Shape[] shapes = new Shape[columnCount];
+        for (int j = 0; j < columnCount; j++) {
+            int best = 0;
+            for (Shape shape : values) {
+                if (counts[j][shape.ordinal()] > best) {
+                    best = counts[j][shape.ordinal()];
+                    shapes[j] = shape;
+                }
+            }
+        }
+        return new ColumnSchema(shapes);
+    }
+
+    /**
+     * Gets the kind of cell a column was inferred to hold
+     *
+     * @param column The position of the column
+     *
+     * @return The kind of cell, null if the column has no form or its kind depends on the type markers of its cells
+     */
+    public TypedValue.Kind getKind(int column) {
+        return column < shapes.length && shapes[column] != null ? shapes[column].kind : null;
+    }
+
+    /**
+     * Types a cell of a column
+     *
+     * @param column The position of the column
+     * @param string The string of the cell
+     *
+     * @return The typed value of the cell
+     */
+    public TypedValue parse(int column, String string) {
+        Shape shape = column < shapes.length ? shapes[column] : null;
+        if (shape != null && !string.isEmpty() && shape.matches(string)) {
+            return shape.convert(string);
+        }
+        return TypedValue.parse(string);
+    }
+
+    /**
+     * Is a character a digit matched by \d
+     *
+     * @param c The character
+     *
+     * @return True if the character is an ASCII digit
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Is a character one of the type markers
+     *
+     * @param c The character
+     *
+     * @return True if the character is @, $, ^, % or #
+     */
+    private static boolean isMarker(char c) {
+        return c == '@' || c == '$' || c == '^' || c == '%' || c == '#';
+    }
+
+    /**
+     * Are the characters of a range of a string digits
+     *
+     * @param string The string
+     * @param from   The position of the first character, inclusive
+     * @param to     The position of the last character, exclusive
+     *
+     * @return True if every character of the range is a digit
+     */
+    private static boolean isDigits(String string, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isDigit(string.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Is a string digits followed by a point and a number of places
+     *
+     * @param string    The string
+     * @param minPlaces The least number of places
+     * @param maxPlaces The most number of places
+     *
+     * @return True if the string is a decimal with the number of places
+     */
+    private static boolean isDecimal(String string, int minPlaces, int maxPlaces) {
+        int point = string.indexOf('.');
+        int places = string.length() - point - 1;
+        return point >= 0 && places >= minPlaces && places <= maxPlaces && isDigits(string, 0, point) &&
+               isDigits(string, point + 1, string.length());
+    }
+
+    /**
+     * The forms of the cells of a column, in the order the forms are tried when a column is sampled
+     * <p>
+     * Each form matches only strings that {@link TypedValue#parse(String)} types the same way, from the check of the
+     * type markers down to the date, phone number, zip code, currency and weight patterns.
+     */
+    private enum Shape {
+        /**
+         * A string ending with a type marker or not starting with a digit or a point, which none of the patterns of
+         * parse can match
+         */
+        MARKED(null) {
+            @Override
+            boolean matches(String string) {
+                char first = string.charAt(0);
+                return isMarker(string.charAt(string.length() - 1)) || !isDigit(first) && first != '.';
+            }
+
+            @Override
+            TypedValue convert(String string) {
+                return TypedValue.parseMarked(string);
+            }
+        },
+        /**
+         * A string starting with a yyyy-MM-dd date and without type markers
+         */
+        DATE(TypedValue.Kind.DATE) {
+            @Override
+            boolean matches(String string) {
+                if (string.length() < 10 || string.charAt(4) != '-' || string.charAt(7) != '-' ||
+                    !isDigits(string, 0, 4) || !isDigits(string, 5, 7) || !isDigits(string, 8, 10)) {
+                    return false;
+                }
+                for (int i = 10; i < string.length(); i++) {
+                    if (isMarker(string.charAt(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            TypedValue convert(String string) {
+                return TypedValue.of(kind, string.substring(0, 10));
+            }
+        },
+        /**
+         * Ten digits
+         */
+        PHONE(TypedValue.Kind.PHONE) {
+            @Override
+            boolean matches(String string) {
+                return string.length() == 10 && isDigits(string, 0, 10);
+            }
+        },
+        /**
+         * Five digits
+         */
+        ZIP(TypedValue.Kind.ZIP) {
+            @Override
+            boolean matches(String string) {
+                return string.length() == 5 && isDigits(string, 0, 5);
+            }
+        },
+        /**
+         * Five digits, a dash and four digits
+         */
+        ZIP_PLUS_FOUR(TypedValue.Kind.ZIP_PLUS_FOUR) {
+            @Override
+            boolean matches(String string) {
+                return string.length() == 10 && string.charAt(5) == '-' && isDigits(string, 0, 5) &&
+                       isDigits(string, 6, 10);
+            }
+        },
+        /**
+         * A decimal with four places
+         */
+        CURRENCY(TypedValue.Kind.CURRENCY) {
+            @Override
+            boolean matches(String string) {
+                return isDecimal(string, 4, 4);
+            }
+        },
+        /**
+         * A decimal with one to three places
+         */
+        WEIGHT(TypedValue.Kind.WEIGHT) {
+            @Override
+            boolean matches(String string) {
+                return isDecimal(string, 1, 3);
+            }
+        };
+
+        /**
+         * The kind of cell of the form, null if it depends on the type marker
+         */
+        final TypedValue.Kind kind;
+
+        /**
+         * The constructor for this enum
+         *
+         * @param kind The kind of cell of the form
+         */
+        Shape(TypedValue.Kind kind) {
+            this.kind = kind;
+        }
+
+        /**
+         * Does a string have this form
+         *
+         * @param string The string, not empty
+         *
+         * @return True if the string has this form
+         */
+        abstract boolean matches(String string);
+
+        /**
+         * Types a string that has this form
+         *
+         * @param string The string
+         *
+         * @return The typed value
+         */
+        TypedValue convert(String string) {
+            return TypedValue.of(kind, string);
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package org.dataprocessing.utils;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Tracks the width of the widest cell of each column of a sheet while the cells are written, so the columns can be
+ * sized without {@link Sheet#autoSizeColumn(int)}
+ * <p>
+ * Sheet.autoSizeColumn reads every cell of a column back and lays out its formatted string through the AWT font
+ * metrics, and a streamed sheet can only do so for the rows it still holds. The writers all use Arial 10 pt, so the
+ * tracker sums the widths of the glyphs of Arial from a table instead, and works out the width of numbers and dates
+ * from the formats of {@link TypedValue.Kind} without formatting them. The widths follow the rule of autoSizeColumn,
+ * the string with a 0 appended, measured in widths of the 0 of the default font. Setting the
+ * dataprocessing.xlsx.fastAutoSize property to false goes back to autoSizeColumn. A tracker is used by the thread
+ * writing its sheet only.
+ *
+ * @author Nicholas Curl
+ */
+public class ColumnWidthTracker {
+
+    /**
+     * Are the columns sized from the tracked widths instead of by autoSizeColumn
+     */
+    private static final boolean  enabled        = Boolean.parseBoolean(System.getProperty(
+            "dataprocessing.xlsx.fastAutoSize",
+            "true"
+    ));
+    /**
+     * The widths of the printable ASCII glyphs of Arial, from the space to the tilde, in thousandths of an em
+     */
+    private static final short[]  REGULAR        = {
+            278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+            1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+            333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+            556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+    /**
+     * The widths of the printable ASCII glyphs of Arial Bold, from the space to the tilde, in thousandths of an em
+     */
+    private static final short[]  BOLD           = {
+            278, 333, 474, 556, 556, 889, 722, 238, 333, 333, 389, 584, 278, 333, 278, 278,
+            556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 333, 333, 584, 584, 584, 611,
+            975, 722, 722, 722, 722, 667, 611, 778, 722, 278, 556, 722, 611, 833, 722, 778,
+            667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 333, 278, 333, 584, 556,
+            333, 556, 611, 556, 611, 556, 333, 611, 611, 278, 278, 556, 278, 889, 611, 611,
+            611, 611, 389, 556, 333, 611, 556, 778, 556, 556, 500, 389, 280, 389, 584
+    };
+    /**
+     * The names of the months of the date format
+     */
+    private static final String[] MONTHS         = {
+            "January", "February", "March", "April", "May", "June", "July", "August", "September", "October",
+            "November", "December"
+    };
+    /**
+     * The width of a glyph that is not in the tables
+     */
+    private static final int      OTHER          = 556;
+    /**
+     * The width of a glyph of the scripts from CJK onwards, which are as wide as an em
+     */
+    private static final int      WIDE           = 1000;
+    /**
+     * The width of any widest glyph, used to skip strings too short to widen a column
+     */
+    private static final int      WIDEST         = 1015;
+    /**
+     * The width of a digit
+     */
+    private static final int      DIGIT          = 556;
+    /**
+     * The width of the 0 of Calibri 11 pt, the default font, in thousandths of an em of Arial 10 pt. autoSizeColumn
+     * truncates the advance of the 0 to 5 points.
+     */
+    private static final int      CHARACTER      = 500;
+    /**
+     * The largest width of a column, in 256ths of a character
+     */
+    private static final int      MAX_WIDTH      = 255 * 256;
+    /**
+     * The number of characters a number in the general format is shown in
+     */
+    private static final int      GENERAL_LENGTH = 11;
+    /**
+     * The largest number whose digits are counted as a long
+     */
+    private static final double   MAX_WHOLE      = 1e15;
+    /**
+     * The width of the widest cell of each column, 0 if no cell of the column was measured
+     */
+    private final        int[]    widths;
+    /**
+     * The calendar the dates are split into their fields by, created when the first date is measured
+     */
+    private              Calendar calendar;
+
+    /**
+     * The constructor for this class
+     *
+     * @param columnCount The number of columns of the sheet
+     */
+    public ColumnWidthTracker(int columnCount) {
+        this.widths = new int[columnCount];
+    }
+
+    /**
+     * Are the columns sized from the tracked widths instead of by autoSizeColumn
+     *
+     * @return True if the columns are sized from the tracked widths
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Measures a cell of the header, which is bold
+     *
+     * @param column The position of the column
+     * @param string The string of the cell
+     */
+    public void measureHeader(int column, String string) {
+        if (enabled && string != null && column < widths.length) {
+            widen(column, textWidth(string, BOLD, widths[column]));
+        }
+    }
+
+    /**
+     * Measures a cell
+     *
+     * @param column The position of the column
+     * @param value  The typed value of the cell
+     */
+    public void measure(int column, TypedValue value) {
+        measure(column, value.getKind(), value.getValue());
+    }
+
+    /**
+     * Measures a cell
+     *
+     * @param column The position of the column
+     * @param kind   The kind of cell, which gives the format of a number or date
+     * @param value  The value of the cell, a Double, Boolean, Date or String, null for a blank cell
+     */
+    public void measure(int column, TypedValue.Kind kind, Object value) {
+        if (!enabled || value == null || column >= widths.length) {
+            return;
+        }
+        if (value instanceof Double) {
+            measure(column, kind, ((Double) value).doubleValue());
+        }
+        else if (value instanceof Boolean) {
+            widen(column, textWidth((Boolean) value ? "TRUE" : "FALSE", REGULAR, widths[column]));
+        }
+        else if (value instanceof Date) {
+            if (kind == TypedValue.Kind.DATE) {
+                widen(column, dateWidth((Date) value));
+            }
+            else {
+                widen(column, generalWidth(DateUtil.getExcelDate((Date) value)));
+            }
+        }
+        else {
+            widen(column, textWidth(value.toString(), REGULAR, widths[column]));
+        }
+    }
+
+    /**
+     * Measures a cell holding a number
+     *
+     * @param column The position of the column
+     * @param kind   The kind of cell, which gives the format of the number
+     * @param number The number
+     */
+    public void measure(int column, TypedValue.Kind kind, double number) {
+        if (enabled && column < widths.length) {
+            widen(column, numberWidth(kind, number));
+        }
+    }
+
+    /**
+     * Sizes a column to its widest cell, or by autoSizeColumn if the tracker is disabled
+     *
+     * @param sheet  The sheet
+     * @param column The position of the column
+     */
+    public void apply(Sheet sheet, int column) {
+        if (!enabled) {
+            sheet.autoSizeColumn(column);
+        }
+        else if (column < widths.length && widths[column] > 0) {
+            long width = (long) (widths[column] + DIGIT) * 256 / CHARACTER;
+            sheet.setColumnWidth(column, (int) Math.min(width, MAX_WIDTH));
+        }
+    }
+
+    /**
+     * Gets the width of the widest cell of a column
+     *
+     * @param column The position of the column
+     *
+     * @return The width in thousandths of an em of Arial 10 pt, 0 if no cell of the column was measured
+     */
+    public int getWidth(int column) {
+        return widths[column];
+    }
+
+    /**
+     * Widens a column to a width if it is narrower
+     *
+     * @param column The position of the column
+     * @param width  The width of a cell of the column
+     */
+    private void widen(int column, int width) {
+        if (width > widths[column]) {
+            widths[column] = width;
+        }
+    }
+
+    /**
+     * Measures the widest line of a string
+     *
+     * @param string The string
+     * @param glyphs The widths of the glyphs of the font
+     * @param known  The width of the column so far, a string that cannot be wider is not measured
+     *
+     * @return The width of the widest line, or known if the string cannot be wider
+     */
+    private static int textWidth(String string, short[] glyphs, int known) {
+        int length = string.length();
+        if ((long) length * WIDEST <= known) {
+            return known;
+        }
+        int widest = 0;
+        int line = 0;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c == '\n') {
+                widest = Math.max(widest, line);
+                line = 0;
+            }
+            else if (c >= ' ' && c <= '~') {
+                line += glyphs[c - ' '];
+            }
+            else if (c >= '\u2E80') {
+                line += WIDE;
+            }
+            else if (c >= ' ') {
+                line += OTHER;
+            }
+        }
+        return Math.max(widest, line);
+    }
+
+    /**
+     * Measures a number in the format of a kind of cell
+     *
+     * @param kind   The kind of cell
+     * @param number The number
+     *
+     * @return The width of the formatted number
+     */
+    private static int numberWidth(TypedValue.Kind kind, double number) {
+        double magnitude = Math.abs(number);
+        if (Double.isNaN(number) || magnitude >= MAX_WHOLE) {
+            return generalWidth(number);
+        }
+        int sign = number < 0 ? REGULAR['-' - ' '] : 0;
+        switch (kind) {
+            case NUMBER:
+                return sign + digits(Math.round(magnitude)) * DIGIT;
+            case WEIGHT:
+                return sign + digits((long) (magnitude + 0.0005)) * DIGIT + REGULAR['.' - ' '] + 3 * DIGIT;
+            case PERCENT:
+                return sign + digits((long) (magnitude * 100 + 0.005)) * DIGIT + REGULAR['.' - ' '] + 2 * DIGIT +
+                       REGULAR['%' - ' '];
+            case CURRENCY:
+                int whole = digits((long) (magnitude + 0.005));
+                return (number < 0 ? REGULAR['(' - ' '] : 0) + REGULAR['$' - ' '] + whole * DIGIT +
+                       (whole - 1) / 3 * REGULAR[',' - ' '] + REGULAR['.' - ' '] + 2 * DIGIT + REGULAR[')' - ' '];
+            case PHONE:
+                long phone = Math.round(magnitude);
+                if (phone <= 9999999) {
+                    return digits(phone) * DIGIT + REGULAR['-' - ' '];
+                }
+                return digits(phone) * DIGIT + REGULAR['(' - ' '] + REGULAR[')' - ' '] + REGULAR[0] +
+                       REGULAR['-' - ' '];
+            case ZIP:
+                return Math.max(5, digits(Math.round(magnitude))) * DIGIT;
+            case ZIP_PLUS_FOUR:
+                return Math.max(9, digits(Math.round(magnitude))) * DIGIT + REGULAR['-' - ' '];
+            default:
+                return generalWidth(number);
+        }
+    }
+
+    /**
+     * Measures a number in the general format, which shows at most eleven characters
+     *
+     * @param number The number
+     *
+     * @return The width of the formatted number
+     */
+    private static int generalWidth(double number) {
+        double magnitude = Math.abs(number);
+        if (magnitude < MAX_WHOLE && magnitude == Math.rint(magnitude)) {
+            int digits = Math.min(digits((long) magnitude), GENERAL_LENGTH);
+            return (number < 0 ? REGULAR['-' - ' '] : 0) + digits * DIGIT;
+        }
+        String string = Double.toString(number);
+        return textWidth(string.substring(0, Math.min(string.length(), GENERAL_LENGTH)), REGULAR, 0);
+    }
+
+    /**
+     * Measures a date in the mmmm d, yyyy format
+     *
+     * @param date The date
+     *
+     * @return The width of the formatted date
+     */
+    private int dateWidth(Date date) {
+        if (calendar == null) {
+            calendar = Calendar.getInstance();
+        }
+        calendar.setTime(date);
+        return textWidth(MONTHS[calendar.get(Calendar.MONTH)], REGULAR, 0) + 2 * REGULAR[0] +
+               REGULAR[',' - ' '] + (digits(calendar.get(Calendar.DAY_OF_MONTH)) +
+                                     digits(calendar.get(Calendar.YEAR))) * DIGIT;
+    }
+
+    /**
+     * Counts the digits of a whole number
+     *
+     * @param number The number, not negative
+     *
+     * @return The number of digits, 1 for 0
+     */
+    private static int digits(long number) {
+        int digits = 1;
+        while (number >= 10) {
+            number /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,314 @@
+package org.dataprocessing.utils;
+
+import org.apache.commons.collections4.MapIterator;
+import org.apache.commons.collections4.MultiSet;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import org.apache.commons.collections4.multiset.HashMultiSet;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A multi valued map that many threads can add to at once
+ * <p>
+ * The values of each key are kept in a lock free queue in a {@link ConcurrentHashMap}, so threads adding to different
+ * keys do not wait on each other and reads never lock. The values of a key keep the order they were added in. The
+ * views of the keys and values are weakly consistent, they can be iterated while values are added and never throw a
+ * ConcurrentModificationException. The views of the values, entries and keys are read only, use {@link #snapshot()}
+ * for a consistent copy.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ *
+ * @author Nicholas Curl
+ */
+public class ConcurrentMultiValuedMap<K, V> implements MultiValuedMap<K, V> {
+
+    /**
+     * The values mapped by their key
+     */
+    private final ConcurrentHashMap<K, ConcurrentLinkedQueue<V>> map;
+    /**
+     * The number of values in the map
+     */
+    private final LongAdder                                      count;
+
+    /**
+     * The constructor for this class
+     */
+    public ConcurrentMultiValuedMap() {
+        this.map = new ConcurrentHashMap<>();
+        this.count = new LongAdder();
+    }
+
+    /**
+     * Copies the values of a map, key by key
+     *
+     * @param map The map to copy
+     */
+    public ConcurrentMultiValuedMap(MultiValuedMap<? extends K, ? extends V> map) {
+        this();
+        putAll(map);
+    }
+
+    @Override
+    public int size() {
+        return count.intValue();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (ConcurrentLinkedQueue<V> values : map.values()) {
+            if (values.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean containsMapping(Object key, Object value) {
+        ConcurrentLinkedQueue<V> values = map.get(key);
+        return values != null && values.contains(value);
+    }
+
+    /**
+     * Gets the values of a key
+     *
+     * @param key The key
+     *
+     * @return A read only, weakly consistent view of the values of the key, empty if the key has no values
+     */
+    @Override
+    public Collection<V> get(K key) {
+        ConcurrentLinkedQueue<V> values = map.get(key);
+        return values == null ? Collections.emptyList() : Collections.unmodifiableCollection(values);
+    }
+
+    /**
+     * Adds a value to a key
+     * <p>
+     * Only the bin of the key in the map is locked while the value is added, so threads adding to other keys do not
+     * wait and the queue of the key cannot be dropped by a remove while the value is added to it.
+     *
+     * @param key   The key
+     * @param value The value
+     *
+     * @return True
+     */
+    @Override
+    public boolean put(K key, V value) {
+        map.compute(key, (k, values) -> {
+            if (values == null) {
+                values = new ConcurrentLinkedQueue<>();
+            }
+            values.add(value);
+            return values;
+        });
+        count.increment();
+        return true;
+    }
+
+    @Override
+    public boolean putAll(K key, Iterable<? extends V> values) {
+        boolean changed = false;
+        for (V value : values) {
+            changed |= put(key, value);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean putAll(Map<? extends K, ? extends V> map) {
+        boolean changed = false;
+        for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            changed |= put(entry.getKey(), entry.getValue());
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean putAll(MultiValuedMap<? extends K, ? extends V> map) {
+        boolean changed = false;
+        for (Entry<? extends K, ? extends V> entry : map.entries()) {
+            changed |= put(entry.getKey(), entry.getValue());
+        }
+        return changed;
+    }
+
+    /**
+     * Removes a key and its values
+     *
+     * @param key The key
+     *
+     * @return The values that were removed, empty if the key had no values
+     */
+    @Override
+    public Collection<V> remove(Object key) {
+        ConcurrentLinkedQueue<V> values = map.remove(key);
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        List<V> removed = new ArrayList<>(values);
+        count.add(-removed.size());
+        return removed;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeMapping(Object key, Object item) {
+        boolean[] removed = new boolean[1];
+        map.computeIfPresent((K) key, (k, values) -> {
+            removed[0] = values.remove(item);
+            return values.isEmpty() ? null : values;
+        });
+        if (removed[0]) {
+            count.decrement();
+        }
+        return removed[0];
+    }
+
+    @Override
+    public void clear() {
+        for (K key : map.keySet()) {
+            remove(key);
+        }
+    }
+
+    /**
+     * Gets the entries of the map
+     *
+     * @return A read only copy of the entries of the map
+     */
+    @Override
+    public Collection<Entry<K, V>> entries() {
+        List<Entry<K, V>> entries = new ArrayList<>();
+        for (Entry<K, ConcurrentLinkedQueue<V>> entry : map.entrySet()) {
+            for (V value : entry.getValue()) {
+                entries.add(new SimpleImmutableEntry<>(entry.getKey(), value));
+            }
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Gets the keys of the map with the number of values of each key
+     *
+     * @return A copy of the keys of the map
+     */
+    @Override
+    public MultiSet<K> keys() {
+        MultiSet<K> keys = new HashMultiSet<>();
+        for (Entry<K, ConcurrentLinkedQueue<V>> entry : map.entrySet()) {
+            keys.add(entry.getKey(), entry.getValue().size());
+        }
+        return keys;
+    }
+
+    /**
+     * Gets the keys that have values
+     *
+     * @return A read only, weakly consistent view of the keys
+     */
+    @Override
+    public Set<K> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    /**
+     * Gets the values of the map
+     *
+     * @return A read only, weakly consistent view of the values of every key
+     */
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                Iterator<ConcurrentLinkedQueue<V>> keys = map.values().iterator();
+                return new Iterator<V>() {
+                    private Iterator<V> values = Collections.emptyIterator();
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!values.hasNext() && keys.hasNext()) {
+                            values = keys.next().iterator();
+                        }
+                        return values.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        hasNext();
+                        return values.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentMultiValuedMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Gets the map of the keys to their values
+     *
+     * @return A read only, weakly consistent view of the map
+     */
+    @Override
+    public Map<K, Collection<V>> asMap() {
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Gets an iterator over a copy of the entries of the map
+     *
+     * @return The iterator, removing through it does not change this map
+     */
+    @Override
+    public MapIterator<K, V> mapIterator() {
+        return snapshot().mapIterator();
+    }
+
+    /**
+     * Copies the map, each key with the values it has at the time it is copied
+     *
+     * @return The copy of the map
+     */
+    public ArrayListValuedHashMap<K, V> snapshot() {
+        ArrayListValuedHashMap<K, V> snapshot = new ArrayListValuedHashMap<>();
+        for (Entry<K, ConcurrentLinkedQueue<V>> entry : map.entrySet()) {
+            snapshot.putAll(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return snapshot;
+    }
+
+    @Override
+    public String toString() {
+        return map.toString();
+    }
+}
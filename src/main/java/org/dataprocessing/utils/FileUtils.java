@@ -8,6 +8,8 @@ import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.AreaReference;
 import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.*;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTAutoFilter;
 
@@ -15,20 +17,40 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Date;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * @author Nicholas Curl
  */
 public class FileUtils extends Utils {
 
-    private static final Logger    logger   = LogManager.getLogger(FileUtils.class);
-    private static final FileUtils instance = new FileUtils();
+    private static final Logger    logger         = LogManager.getLogger(FileUtils.class);
+    private static final FileUtils instance       = new FileUtils();
+    /**
+     * Are the workbooks of the write tasks streamed to the file instead of built in memory
+     */
+    private static final boolean   streaming      = Boolean.parseBoolean(System.getProperty(
+            "dataprocessing.xlsx.streaming",
+            "true"
+    ));
+    /**
+     * The number of rows of a streamed sheet kept in memory before they are flushed to a temporary file
+     */
+    private static final int       rowWindow      = Integer.getInteger("dataprocessing.xlsx.rowWindow", 100);
+    /**
+     * The estimated number of bytes a cell of a sheet holds on the heap until the workbook is written
+     */
+    private static final long      CELL_BYTES     = 256;
+    /**
+     * The estimated number of bytes a workbook holds on the heap besides its cells
+     */
+    private static final long      WORKBOOK_BYTES = 16L << 20;
 
     public static FileUtils getInstance() {
         return instance;
@@ -85,10 +107,12 @@ public class FileUtils extends Utils {
         headerStyle.setFont(headerFont);
         Row headerRow = sheet.createRow(0);
         List<String> tableHeaderRow = table.get(0);
+        ColumnWidthTracker widths = new ColumnWidthTracker(tableHeaderRow.size());
         for (int i = 0; i < tableHeaderRow.size(); i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(tableHeaderRow.get(i));
             cell.setCellStyle(headerStyle);
+            widths.measureHeader(i, tableHeaderRow.get(i));
         }
         Font dataFont = wb.createFont();
         dataFont.setFontName("Arial");
@@ -113,116 +137,85 @@ public class FileUtils extends Utils {
         CellStyle weightCell = wb.createCellStyle();
         weightCell.setFont(dataFont);
         weightCell.setDataFormat(creationHelper.createDataFormat().getFormat("0.000"));
-        Pattern datePattern = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}");
-        Pattern phoneNumPattern = Pattern.compile("^\\d{10}$");
-        Pattern zipPattern = Pattern.compile("^\\d{5}$");
-        Pattern zipPlusFourPattern = Pattern.compile("^\\d{5}-\\d{4}$");
-        Pattern currencyPattern = Pattern.compile("^\\d*\\.\\d{4}$");
-        Pattern weightPattern = Pattern.compile("^\\d*\\.\\d{1,3}$");
+        CellLexer lexer = new CellLexer();
         for (int i = 1; i < table.size(); i++) {
             Row row = sheet.createRow(i);
             List<String> tableRow = table.get(i);
             for (int j = 0; j < tableRow.size(); j++) {
                 Cell cell = row.createCell(j);
-                Matcher dateMatcher = datePattern.matcher(tableRow.get(j));
-                Matcher phoneNumMatcher = phoneNumPattern.matcher(tableRow.get(j));
-                Matcher zipMatcher = zipPattern.matcher(tableRow.get(j));
-                Matcher zipPlusFourMatcher = zipPlusFourPattern.matcher(tableRow.get(j));
-                Matcher currencyMatcher = currencyPattern.matcher(tableRow.get(j));
-                Matcher weightMatcher = weightPattern.matcher(tableRow.get(j));
-                if (dateMatcher.find()) {
-                    String dateString = dateMatcher.group();
-                    cell.setCellValue(getDateFormat(dateString));
-                    cell.setCellStyle(dateCell);
-                }
-                else if (phoneNumMatcher.find()) {
-                    String phoneNumString = phoneNumMatcher.group();
-                    double phoneNum = 0;
-                    try {
-                        phoneNum = Double.parseDouble(phoneNumString);
-                    }
-                    catch (NumberFormatException e) {
-                        logger.fatal("Unable to parse phone number.", e);
-                        System.exit(-1);
-                    }
-                    cell.setCellValue(phoneNum);
-                    cell.setCellStyle(phoneNumCell);
-                }
-                else if (zipMatcher.find()) {
-                    String zipString = zipMatcher.group();
-                    double zip = 0;
-                    try {
-                        zip = Double.parseDouble(zipString);
-                    }
-                    catch (NumberFormatException e) {
-                        logger.fatal("Unable to parse zip code.", e);
-                        System.exit(-1);
-                    }
-                    cell.setCellValue(zip);
-                    cell.setCellStyle(zipCell);
-                }
-                else if (zipPlusFourMatcher.find()) {
-                    String zipPlusFourString = zipPlusFourMatcher.group();
-                    zipPlusFourString = zipPlusFourString.replace("-", "");
-                    double zipPlusFour = 0;
-                    try {
-                        zipPlusFour = Double.parseDouble(zipPlusFourString);
-                    }
-                    catch (NumberFormatException e) {
-                        logger.fatal("Unable to parse zip code.", e);
-                        System.exit(-1);
-                    }
-                    cell.setCellValue(zipPlusFour);
-                    cell.setCellStyle(zipPlusFourCell);
-                }
-                else if (currencyMatcher.find()) {
-                    String currencyString = currencyMatcher.group();
-                    double currency = 0;
-                    try {
-                        currency = Double.parseDouble(currencyString);
-                    }
-                    catch (NumberFormatException e) {
-                        logger.fatal("Unable to parse currency.", e);
-                        System.exit(-1);
-                    }
-                    cell.setCellValue(currency);
-                    cell.setCellStyle(currencyCell);
-                }
-                else if (weightMatcher.find()) {
-                    String weightString = weightMatcher.group();
-                    double weight = 0;
-                    try {
-                        weight = Double.parseDouble(weightString);
-                    }
-                    catch (NumberFormatException e) {
-                        logger.fatal("Unable to parse weight.", e);
-                        System.exit(-1);
-                    }
-                    cell.setCellValue(weight);
-                    cell.setCellStyle(weightCell);
-                }
-                else if (tableRow.get(j).equalsIgnoreCase("FALSE")) {
-                    cell.setCellValue(false);
-                    cell.setCellStyle(dataCell);
-                }
-                else if (tableRow.get(j).equalsIgnoreCase("TRUE")) {
-                    cell.setCellValue(true);
-                    cell.setCellStyle(dataCell);
+                String value = tableRow.get(j);
+                CellStyle style = dataCell;
+                TypedValue.Kind kind = null;
+                switch (lexer.lex(value)) {
+                    case DATE:
+                        Date date = getDateFormat(value.substring(0, 10));
+                        cell.setCellValue(date);
+                        widths.measure(j, TypedValue.Kind.DATE, date);
+                        style = dateCell;
+                        break;
+                    case PHONE:
+                        cell.setCellValue(lexer.getNumber());
+                        kind = TypedValue.Kind.PHONE;
+                        style = phoneNumCell;
+                        break;
+                    case ZIP:
+                        cell.setCellValue(lexer.getNumber());
+                        kind = TypedValue.Kind.ZIP;
+                        style = zipCell;
+                        break;
+                    case ZIP_PLUS_FOUR:
+                        cell.setCellValue(lexer.getNumber());
+                        kind = TypedValue.Kind.ZIP_PLUS_FOUR;
+                        style = zipPlusFourCell;
+                        break;
+                    case CURRENCY:
+                        cell.setCellValue(lexer.getNumber());
+                        kind = TypedValue.Kind.CURRENCY;
+                        style = currencyCell;
+                        break;
+                    case WEIGHT:
+                        cell.setCellValue(lexer.getNumber());
+                        kind = TypedValue.Kind.WEIGHT;
+                        style = weightCell;
+                        break;
+                    default:
+                        if (value.equalsIgnoreCase("FALSE") || value.equalsIgnoreCase("TRUE")) {
+                            cell.setCellValue(Boolean.parseBoolean(value));
+                            widths.measure(j, TypedValue.Kind.BOOLEAN, cell.getBooleanCellValue());
+                            break;
+                        }
+                        String entry = value.trim();
+                        lexer.lex(entry);
+                        if (lexer.isNumber()) {
+                            cell.setCellValue(lexer.getNumber());
+                        }
+                        else if (!lexer.hasDigit() && !entry.contains("NaN") && !entry.contains("Infinity")) {
+                            cell.setCellValue(entry);
+                        }
+                        else {
+                            try {
+                                cell.setCellValue(Double.parseDouble(entry));
+                            }
+                            catch (NumberFormatException e) {
+                                cell.setCellValue(entry);
+                            }
+                        }
+                        if (cell.getCellType() == CellType.NUMERIC) {
+                            kind = TypedValue.Kind.GENERAL;
+                        }
+                        else {
+                            widths.measure(j, TypedValue.Kind.GENERAL, entry);
+                        }
+                        break;
                 }
-                else {
-                    try {
-                        double num = Double.parseDouble(tableRow.get(j).trim());
-                        cell.setCellValue(num);
-                    }
-                    catch (NumberFormatException e) {
-                        cell.setCellValue(tableRow.get(j).trim());
-                    }
-                    cell.setCellStyle(dataCell);
+                if (kind != null) {
+                    widths.measure(j, kind, cell.getNumericCellValue());
                 }
+                cell.setCellStyle(style);
             }
         }
         for (int i = 0; i < tableHeaderRow.size(); i++) {
-            sheet.autoSizeColumn(i);
+            widths.apply(sheet, i);
         }
         try {
             FileOutputStream fileOut = new FileOutputStream(filename);
@@ -264,6 +257,180 @@ public class FileUtils extends Utils {
         return new XlsxTaskMultiSheet(filename);
     }
 
+    /**
+     * Creates the workbook of a write task
+     * <p>
+     * A streamed workbook keeps a window of rows of each sheet in memory and flushes older rows to compressed temporary
+     * files, so the memory used by a write task does not grow with the number of rows.
+     *
+     * @return A streamed workbook, or a workbook built in memory if dataprocessing.xlsx.streaming is false
+     */
+    private static Workbook createWorkbook() {
+        if (!streaming) {
+            return new XSSFWorkbook();
+        }
+        SXSSFWorkbook wb = new SXSSFWorkbook(rowWindow);
+        wb.setCompressTempFiles(true);
+        return wb;
+    }
+
+    /**
+     * Creates a sheet of a write task, the columns of a streamed sheet are tracked so they can be auto-sized once the
+     * rows have been flushed, unless they are sized by a {@link ColumnWidthTracker}
+     *
+     * @param wb        The workbook
+     * @param sheetName The name of the sheet
+     *
+     * @return The sheet
+     */
+    private static Sheet createSheet(Workbook wb, String sheetName) {
+        Sheet sheet = wb.createSheet(sheetName);
+        if (sheet instanceof SXSSFSheet && !ColumnWidthTracker.isEnabled()) {
+            ((SXSSFSheet) sheet).trackAllColumnsForAutoSizing();
+        }
+        return sheet;
+    }
+
+    /**
+     * Formats the rows of a sheet as a table with an auto filter
+     * <p>
+     * The table is created on the sheet of the underlying XSSFWorkbook when the workbook is streamed, its header row
+     * has already been flushed so the column names are taken from the header instead of the cells.
+     *
+     * @param wb       The workbook
+     * @param sheet    The sheet
+     * @param header   The header of the table
+     * @param rowCount The number of rows of the table, including the header
+     */
+    private static void createTable(Workbook wb, Sheet sheet, List<String> header, int rowCount) {
+        AreaReference reference = new AreaReference(new CellReference(0, 0),
+                                                    new CellReference(rowCount - 1, header.size() - 1),
+                                                    SpreadsheetVersion.EXCEL2007
+        );
+        XSSFSheet xssfSheet = wb instanceof SXSSFWorkbook ?
+                              ((SXSSFWorkbook) wb).getXSSFWorkbook().getSheet(sheet.getSheetName()) :
+                              (XSSFSheet) sheet;
+        XSSFTable xssfTable = xssfSheet.createTable(reference);
+        List<XSSFTableColumn> columns = xssfTable.getColumns();
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).setName(header.get(i).trim());
+        }
+        xssfTable.getCTTable().addNewTableStyleInfo();
+        XSSFTableStyleInfo style = (XSSFTableStyleInfo) xssfTable.getStyle();
+        style.setName("TableStyleMedium16");
+        style.setShowColumnStripes(false);
+        style.setShowRowStripes(true);
+        style.setFirstColumn(false);
+        style.setLastColumn(false);
+        CTAutoFilter autoFilter = xssfTable.getCTTable().addNewAutoFilter();
+        autoFilter.setRef(reference.formatAsString());
+    }
+
+    /**
+     * Creates the styles of the kinds of cells of a write task
+     *
+     * @param wb The workbook
+     *
+     * @return The style of each kind of cell
+     */
+    private static Map<TypedValue.Kind, CellStyle> createStyles(Workbook wb) {
+        CreationHelper creationHelper = wb.getCreationHelper();
+        Font dataFont = wb.createFont();
+        dataFont.setFontName("Arial");
+        dataFont.setColor(IndexedColors.AUTOMATIC.getIndex());
+        dataFont.setFontHeightInPoints((short) 10);
+        CellStyle numCell = wb.createCellStyle();
+        numCell.setFont(dataFont);
+        numCell.setDataFormat((short) 1);
+        CellStyle dataCell = wb.createCellStyle();
+        dataCell.setFont(dataFont);
+        dataCell.setDataFormat((short) 0);
+        CellStyle textCell = wb.createCellStyle();
+        textCell.setFont(dataFont);
+        textCell.setDataFormat((short) 0x31);
+        CellStyle booleanCell = wb.createCellStyle();
+        booleanCell.setFont(dataFont);
+        booleanCell.setDataFormat((short) 0);
+        CellStyle dateCell = wb.createCellStyle();
+        dateCell.setDataFormat(creationHelper.createDataFormat().getFormat("[$-en-US]mmmm d, yyyy;@"));
+        dateCell.setFont(dataFont);
+        CellStyle phoneNumCell = wb.createCellStyle();
+        phoneNumCell.setFont(dataFont);
+        phoneNumCell.setDataFormat(creationHelper.createDataFormat()
+                                                 .getFormat("[<=9999999]###-####;(###) ###-####"));
+        CellStyle zipCell = wb.createCellStyle();
+        zipCell.setFont(dataFont);
+        zipCell.setDataFormat(creationHelper.createDataFormat().getFormat("00000"));
+        CellStyle zipPlusFourCell = wb.createCellStyle();
+        zipPlusFourCell.setFont(dataFont);
+        zipPlusFourCell.setDataFormat(creationHelper.createDataFormat().getFormat("00000-0000"));
+        CellStyle currencyCell = wb.createCellStyle();
+        currencyCell.setFont(dataFont);
+        currencyCell.setDataFormat((short) 7);
+        CellStyle weightCell = wb.createCellStyle();
+        weightCell.setFont(dataFont);
+        weightCell.setDataFormat(creationHelper.createDataFormat().getFormat("0.000"));
+        CellStyle memoStyle = wb.createCellStyle();
+        memoStyle.setWrapText(true);
+        memoStyle.setFont(dataFont);
+        memoStyle.setDataFormat((short) 0x31);
+        CellStyle percentStyle = wb.createCellStyle();
+        percentStyle.setFont(dataFont);
+        percentStyle.setDataFormat((short) 0xa);
+        Map<TypedValue.Kind, CellStyle> styles = new EnumMap<>(TypedValue.Kind.class);
+        styles.put(TypedValue.Kind.GENERAL, dataCell);
+        styles.put(TypedValue.Kind.TEXT, textCell);
+        styles.put(TypedValue.Kind.MEMO, memoStyle);
+        styles.put(TypedValue.Kind.NUMBER, numCell);
+        styles.put(TypedValue.Kind.WEIGHT, weightCell);
+        styles.put(TypedValue.Kind.CURRENCY, currencyCell);
+        styles.put(TypedValue.Kind.PERCENT, percentStyle);
+        styles.put(TypedValue.Kind.DATE, dateCell);
+        styles.put(TypedValue.Kind.BOOLEAN, booleanCell);
+        styles.put(TypedValue.Kind.PHONE, phoneNumCell);
+        styles.put(TypedValue.Kind.ZIP, zipCell);
+        styles.put(TypedValue.Kind.ZIP_PLUS_FOUR, zipPlusFourCell);
+        return styles;
+    }
+
+    /**
+     * Sets the value and style of a cell
+     *
+     * @param cell  The cell
+     * @param value The typed value of the cell
+     * @param style The style of the kind of cell
+     */
+    private static void setCell(Cell cell, TypedValue value, CellStyle style) {
+        Object cellValue = value.getValue();
+        if (cellValue instanceof Double) {
+            cell.setCellValue((Double) cellValue);
+        }
+        else if (cellValue instanceof Boolean) {
+            cell.setCellValue((Boolean) cellValue);
+        }
+        else if (cellValue instanceof Date) {
+            cell.setCellValue((Date) cellValue);
+        }
+        else if (cellValue instanceof String) {
+            cell.setCellValue((String) cellValue);
+        }
+        cell.setCellStyle(style);
+    }
+
+    /**
+     * Closes the workbook of a write task and deletes the temporary files of a streamed workbook
+     *
+     * @param wb The workbook
+     *
+     * @throws IOException If the workbook could not be closed
+     */
+    private static void closeWorkbook(Workbook wb) throws IOException {
+        if (wb instanceof SXSSFWorkbook) {
+            ((SXSSFWorkbook) wb).dispose();
+        }
+        wb.close();
+    }
+
     public static class XlsxTaskMultiSheet extends Task<Void> {
 
         private static final Logger                          logger = LogManager.getLogger();
@@ -277,7 +444,7 @@ public class FileUtils extends Utils {
 
         @Override
         protected Void call() {
-            XSSFWorkbook wb = new XSSFWorkbook();
+            Workbook wb = createWorkbook();
             if (!isCancelled()) {
                 int totalSize = 0;
                 int totalHeaderSize = 0;
@@ -292,9 +459,8 @@ public class FileUtils extends Utils {
                     if (isCancelled()) {
                         break;
                     }
-                    XSSFSheet sheet = wb.createSheet(sheetName);
+                    Sheet sheet = createSheet(wb, sheetName);
                     List<List<String>> table = sheets.get(sheetName);
-                    CreationHelper creationHelper = wb.getCreationHelper();
                     Font headerFont = wb.createFont();
                     headerFont.setBold(true);
                     headerFont.setFontHeightInPoints((short) 10);
@@ -302,71 +468,26 @@ public class FileUtils extends Utils {
                     CellStyle headerStyle = wb.createCellStyle();
                     headerStyle.setFont(headerFont);
                     List<String> tableHeaderRow = table.get(0);
+                    ColumnWidthTracker widths = new ColumnWidthTracker(tableHeaderRow.size());
                     if (!isCancelled()) {
-                        XSSFRow headerRow = sheet.createRow(0);
+                        Row headerRow = sheet.createRow(0);
                         for (int i = 0; i < tableHeaderRow.size(); i++) {
                             if (isCancelled()) {
                                 break;
                             }
-                            XSSFCell cell = headerRow.createCell(i);
+                            Cell cell = headerRow.createCell(i);
                             cell.setCellValue(tableHeaderRow.get(i).trim());
                             cell.setCellStyle(headerStyle);
+                            widths.measureHeader(i, tableHeaderRow.get(i).trim());
                             progress += progressUpdate;
                             updateProgress(progress, 1.0);
                         }
                     }
                     if (!isCancelled()) {
-                        XSSFFont dataFont = wb.createFont();
-                        dataFont.setFontName("Arial");
-                        dataFont.setColor(IndexedColors.AUTOMATIC.getIndex());
-                        dataFont.setFontHeightInPoints((short) 10);
-                        CellStyle numCell = wb.createCellStyle();
-                        numCell.setFont(dataFont);
-                        numCell.setDataFormat((short) 1);
-                        CellStyle dataCell = wb.createCellStyle();
-                        dataCell.setFont(dataFont);
-                        dataCell.setDataFormat((short) 0);
-                        CellStyle textCell = wb.createCellStyle();
-                        textCell.setFont(dataFont);
-                        textCell.setDataFormat((short) 0x31);
-                        CellStyle booleanCell = wb.createCellStyle();
-                        booleanCell.setFont(dataFont);
-                        booleanCell.setDataFormat((short) 0);
-                        CellStyle dateCell = wb.createCellStyle();
-                        dateCell.setDataFormat(creationHelper.createDataFormat().getFormat("[$-en-US]mmmm d, yyyy;@"));
-                        dateCell.setFont(dataFont);
-                        CellStyle phoneNumCell = wb.createCellStyle();
-                        phoneNumCell.setFont(dataFont);
-                        phoneNumCell.setDataFormat(creationHelper.createDataFormat()
-                                                                 .getFormat("[<=9999999]###-####;(###) ###-####"));
-                        CellStyle zipCell = wb.createCellStyle();
-                        zipCell.setFont(dataFont);
-                        zipCell.setDataFormat(creationHelper.createDataFormat().getFormat("00000"));
-                        CellStyle zipPlusFourCell = wb.createCellStyle();
-                        zipPlusFourCell.setFont(dataFont);
-                        zipPlusFourCell.setDataFormat(creationHelper.createDataFormat().getFormat("00000-0000"));
-                        CellStyle currencyCell = wb.createCellStyle();
-                        currencyCell.setFont(dataFont);
-                        currencyCell.setDataFormat((short) 7);
-                        CellStyle weightCell = wb.createCellStyle();
-                        weightCell.setFont(dataFont);
-                        weightCell.setDataFormat(creationHelper.createDataFormat().getFormat("0.000"));
-                        CellStyle memoStyle = wb.createCellStyle();
-                        memoStyle.setWrapText(true);
-                        memoStyle.setFont(dataFont);
-                        memoStyle.setDataFormat((short) 0x31);
-                        XSSFCellStyle percentStyle = wb.createCellStyle();
-                        percentStyle.setFont(dataFont);
-                        percentStyle.setDataFormat((short) 0xa);
-                        Pattern datePattern = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}");
-                        Pattern phoneNumPattern = Pattern.compile("^\\d{10}$");
-                        Pattern zipPattern = Pattern.compile("^\\d{5}$");
-                        Pattern zipPlusFourPattern = Pattern.compile("^\\d{5}-\\d{4}$");
-                        Pattern currencyPattern = Pattern.compile("^\\d*\\.\\d{4}$");
-                        Pattern weightPattern = Pattern.compile("^\\d*\\.\\d{1,3}$");
-                        Pattern specificTypePattern = Pattern.compile("[@$^%#]");
-                        XSSFRow row;
-                        XSSFCell cell;
+                        Map<TypedValue.Kind, CellStyle> styles = createStyles(wb);
+                        ColumnSchema schema = ColumnSchema.infer(table, 1, tableHeaderRow.size());
+                        Row row;
+                        Cell cell;
                         int comments = 0;
                         int memo = 0;
                         int i = 1;
@@ -395,177 +516,15 @@ public class FileUtils extends Utils {
                                     break loopBreak;
                                 }
                                 cell = row.createCell(j);
-                                Matcher dateMatcher = datePattern.matcher(tableRow.get(j));
-                                Matcher phoneNumMatcher = phoneNumPattern.matcher(tableRow.get(j));
-                                Matcher zipMatcher = zipPattern.matcher(tableRow.get(j));
-                                Matcher zipPlusFourMatcher = zipPlusFourPattern.matcher(tableRow.get(j));
-                                Matcher currencyMatcher = currencyPattern.matcher(tableRow.get(j));
-                                Matcher weightMatcher = weightPattern.matcher(tableRow.get(j));
-                                boolean specificType = specificTypePattern.matcher(tableRow.get(j)).find();
-                                if (dateMatcher.find() && !specificType) {
-                                    String dateString = dateMatcher.group();
-                                    cell.setCellValue(utils.getDateFormat(dateString));
-                                    cell.setCellStyle(dateCell);
-                                }
-                                else if (phoneNumMatcher.find() && !specificType) {
-                                    String phoneNumString = phoneNumMatcher.group();
-                                    double phoneNum = 0;
-                                    try {
-                                        phoneNum = Double.parseDouble(phoneNumString);
-                                    }
-                                    catch (NumberFormatException e) {
-                                        logger.fatal("Unable to parse phone number.", e);
-                                        System.exit(-1);
-                                    }
-                                    cell.setCellValue(phoneNum);
-                                    cell.setCellStyle(phoneNumCell);
-                                }
-                                else if (zipMatcher.find() && !specificType) {
-                                    String zipString = zipMatcher.group();
-                                    double zip = 0;
-                                    try {
-                                        zip = Double.parseDouble(zipString);
-                                    }
-                                    catch (NumberFormatException e) {
-                                        logger.fatal("Unable to parse zip code.", e);
-                                        System.exit(-1);
-                                    }
-                                    cell.setCellValue(zip);
-                                    cell.setCellStyle(zipCell);
-                                }
-                                else if (zipPlusFourMatcher.find() && !specificType) {
-                                    String zipPlusFourString = zipPlusFourMatcher.group();
-                                    zipPlusFourString = zipPlusFourString.replace("-", "");
-                                    double zipPlusFour = 0;
-                                    try {
-                                        zipPlusFour = Double.parseDouble(zipPlusFourString);
-                                    }
-                                    catch (NumberFormatException e) {
-                                        logger.fatal("Unable to parse zip code.", e);
-                                        System.exit(-1);
-                                    }
-                                    cell.setCellValue(zipPlusFour);
-                                    cell.setCellStyle(zipPlusFourCell);
-                                }
-                                else if (currencyMatcher.find() && !specificType) {
-                                    String currencyString = currencyMatcher.group();
-                                    double currency = 0;
-                                    try {
-                                        currency = Double.parseDouble(currencyString);
-                                    }
-                                    catch (NumberFormatException e) {
-                                        logger.fatal("Unable to parse currency.", e);
-                                        System.exit(-1);
-                                    }
-                                    cell.setCellValue(currency);
-                                    cell.setCellStyle(currencyCell);
-                                }
-                                else if (weightMatcher.find() && !specificType) {
-                                    String weightString = weightMatcher.group();
-                                    double weight = 0;
-                                    try {
-                                        weight = Double.parseDouble(weightString);
-                                    }
-                                    catch (NumberFormatException e) {
-                                        logger.fatal("Unable to parse weight.", e);
-                                        System.exit(-1);
-                                    }
-                                    cell.setCellValue(weight);
-                                    cell.setCellStyle(weightCell);
-                                }
-                                else if (tableRow.get(j).equalsIgnoreCase("FALSE")) {
-                                    cell.setCellValue(false);
-                                    cell.setCellStyle(booleanCell);
-                                }
-                                else if (tableRow.get(j).equalsIgnoreCase("TRUE")) {
-                                    cell.setCellValue(true);
-                                    cell.setCellStyle(booleanCell);
-                                }
-                                else {
-                                    String entry = tableRow.get(j).trim();
-                                    if (entry.endsWith("#")) {
-                                        entry = entry.substring(0, entry.length() - 1);
-                                        try {
-                                            double transID = Double.parseDouble(entry);
-                                            cell.setCellValue(transID);
-                                            cell.setCellStyle(numCell);
-                                        }
-                                        catch (NumberFormatException e) {
-                                            logger.warn("Unable to parse number.", e);
-                                        }
-                                    }
-                                    else if (entry.endsWith("@")) {
-                                        entry = entry.substring(0, entry.length() - 1);
-                                        cell.setCellValue(entry);
-                                        cell.setCellStyle(textCell);
-                                    }
-                                    else if (entry.endsWith("$")) {
-                                        entry = entry.substring(0, entry.length() - 1);
-                                        double currency = 0;
-                                        try {
-                                            currency = Double.parseDouble(entry);
-                                        }
-                                        catch (NumberFormatException e) {
-                                            logger.fatal("Unable to parse currency.", e);
-                                            System.exit(-1);
-                                        }
-                                        cell.setCellValue(currency);
-                                        cell.setCellStyle(currencyCell);
-                                    }
-                                    else if (entry.endsWith("^")) {
-                                        entry = entry.substring(0, entry.length() - 1);
-                                        if (entry.endsWith("\n.")) {
-                                            entry = entry.substring(0, entry.length() - 2);
-                                        }
-                                        entry = entry.trim();
-                                        cell.setCellValue(entry);
-                                        cell.setCellStyle(memoStyle);
-
-                                    }
-                                    else if (entry.endsWith("%")) {
-                                        entry = entry.substring(0, entry.length() - 1);
-                                        double percentage = 0;
-                                        try {
-                                            percentage = Double.parseDouble(entry);
-                                        }
-                                        catch (NumberFormatException e) {
-                                            logger.fatal("Unable to parse percentage.", e);
-                                            System.exit(-1);
-                                        }
-                                        cell.setCellValue(percentage);
-                                        cell.setCellStyle(percentStyle);
-                                    }
-                                    else {
-                                        if (utils.isBlankString(entry)) {
-                                            cell.setCellType(CellType.BLANK);
-                                        }
-                                        else {
-                                            cell.setCellValue(entry);
-                                        }
-                                        cell.setCellStyle(dataCell);
-                                    }
-                                }
+                                TypedValue value = schema.parse(j, tableRow.get(j));
+                                setCell(cell, value, styles.get(value.getKind()));
+                                widths.measure(j, value);
                                 progress += progressUpdate;
                                 updateProgress(progress, 1.0);
                             }
                             i++;
                         }
-                        AreaReference reference = new AreaReference(new CellReference(0, 0),
-                                                                    new CellReference(table.size() - 1,
-                                                                                      tableHeaderRow.size() - 1
-                                                                    ),
-                                                                    SpreadsheetVersion.EXCEL2007
-                        );
-                        XSSFTable xssfTable = sheet.createTable(reference);
-                        xssfTable.getCTTable().addNewTableStyleInfo();
-                        XSSFTableStyleInfo style = (XSSFTableStyleInfo) xssfTable.getStyle();
-                        style.setName("TableStyleMedium16");
-                        style.setShowColumnStripes(false);
-                        style.setShowRowStripes(true);
-                        style.setFirstColumn(false);
-                        style.setLastColumn(false);
-                        CTAutoFilter autoFilter = xssfTable.getCTTable().addNewAutoFilter();
-                        autoFilter.setRef(reference.formatAsString());
+                        createTable(wb, sheet, tableHeaderRow, table.size());
                         for (int j = 0; j < tableHeaderRow.size(); j++) {
                             if (isCancelled()) {
                                 break;
@@ -580,7 +539,7 @@ public class FileUtils extends Utils {
                                 memo = 0;
                                 continue;
                             }
-                            sheet.autoSizeColumn(j);
+                            widths.apply(sheet, j);
                             progress += progressUpdate;
                             updateProgress(progress, 1.0);
                         }
@@ -591,7 +550,7 @@ public class FileUtils extends Utils {
                         FileOutputStream fileOut = new FileOutputStream(filename);
                         wb.write(fileOut);
                         fileOut.close();
-                        wb.close();
+                        closeWorkbook(wb);
                         updateProgress(1.0, 1.0);
                         return null;
                     }
@@ -602,7 +561,7 @@ public class FileUtils extends Utils {
                 }
                 else {
                     try {
-                        wb.close();
+                        closeWorkbook(wb);
                         return null;
                     }
                     catch (IOException e) {
@@ -613,7 +572,7 @@ public class FileUtils extends Utils {
             }
             else {
                 try {
-                    wb.close();
+                    closeWorkbook(wb);
                     return null;
                 }
                 catch (IOException e) {
@@ -644,6 +603,14 @@ public class FileUtils extends Utils {
         private static final Utils              utils  = getInstance();
         private final        File               filename;
         private              List<List<String>> table;
+        /**
+         * The columnar table being written, null if the table is a list of rows
+         */
+        private              Table              source;
+        /**
+         * Does a failure of the task stop the program, otherwise the failure is left to the owner of the task
+         */
+        private              boolean            failFast = true;
 
         public XlsxTask(File filename) {
             this.filename = filename;
@@ -651,10 +618,9 @@ public class FileUtils extends Utils {
 
         @Override
         protected Void call() {
-            XSSFWorkbook wb = new XSSFWorkbook();
+            Workbook wb = createWorkbook();
             if (!isCancelled()) {
-                XSSFSheet sheet = wb.createSheet("Mapped");
-                CreationHelper creationHelper = wb.getCreationHelper();
+                Sheet sheet = createSheet(wb, "Mapped");
                 Font headerFont = wb.createFont();
                 headerFont.setBold(true);
                 headerFont.setFontHeightInPoints((short) 10);
@@ -662,79 +628,44 @@ public class FileUtils extends Utils {
                 CellStyle headerStyle = wb.createCellStyle();
                 headerStyle.setFont(headerFont);
                 List<String> tableHeaderRow = table.get(0);
+                ColumnWidthTracker widths = new ColumnWidthTracker(tableHeaderRow.size());
                 double progressUpdate = 1.0 / ((table.size() + 1) * 2) / tableHeaderRow.size();
                 double progress = 0.0;
                 updateProgress(progress, 1.0);
                 if (!isCancelled()) {
-                    XSSFRow headerRow = sheet.createRow(0);
+                    Row headerRow = sheet.createRow(0);
                     for (int i = 0; i < tableHeaderRow.size(); i++) {
                         if (isCancelled()) {
                             break;
                         }
-                        XSSFCell cell = headerRow.createCell(i);
+                        Cell cell = headerRow.createCell(i);
                         cell.setCellValue(tableHeaderRow.get(i).trim());
                         cell.setCellStyle(headerStyle);
+                        widths.measureHeader(i, tableHeaderRow.get(i).trim());
                         progress += progressUpdate;
                         updateProgress(progress, 1.0);
                     }
                 }
                 if (!isCancelled()) {
-                    XSSFFont dataFont = wb.createFont();
-                    dataFont.setFontName("Arial");
-                    dataFont.setColor(IndexedColors.AUTOMATIC.getIndex());
-                    dataFont.setFontHeightInPoints((short) 10);
-                    CellStyle numCell = wb.createCellStyle();
-                    numCell.setFont(dataFont);
-                    numCell.setDataFormat((short) 1);
-                    CellStyle dataCell = wb.createCellStyle();
-                    dataCell.setFont(dataFont);
-                    dataCell.setDataFormat((short) 0);
-                    CellStyle textCell = wb.createCellStyle();
-                    textCell.setFont(dataFont);
-                    textCell.setDataFormat((short) 0x31);
-                    CellStyle booleanCell = wb.createCellStyle();
-                    booleanCell.setFont(dataFont);
-                    booleanCell.setDataFormat((short) 0);
-                    CellStyle dateCell = wb.createCellStyle();
-                    dateCell.setDataFormat(creationHelper.createDataFormat().getFormat("[$-en-US]mmmm d, yyyy;@"));
-                    dateCell.setFont(dataFont);
-                    CellStyle phoneNumCell = wb.createCellStyle();
-                    phoneNumCell.setFont(dataFont);
-                    phoneNumCell.setDataFormat(creationHelper.createDataFormat()
-                                                             .getFormat("[<=9999999]###-####;(###) ###-####"));
-                    CellStyle zipCell = wb.createCellStyle();
-                    zipCell.setFont(dataFont);
-                    zipCell.setDataFormat(creationHelper.createDataFormat().getFormat("00000"));
-                    CellStyle zipPlusFourCell = wb.createCellStyle();
-                    zipPlusFourCell.setFont(dataFont);
-                    zipPlusFourCell.setDataFormat(creationHelper.createDataFormat().getFormat("00000-0000"));
-                    CellStyle currencyCell = wb.createCellStyle();
-                    currencyCell.setFont(dataFont);
-                    currencyCell.setDataFormat((short) 7);
-                    CellStyle weightCell = wb.createCellStyle();
-                    weightCell.setFont(dataFont);
-                    weightCell.setDataFormat(creationHelper.createDataFormat().getFormat("0.000"));
-                    CellStyle memoStyle = wb.createCellStyle();
-                    memoStyle.setWrapText(true);
-                    memoStyle.setFont(dataFont);
-                    memoStyle.setDataFormat((short) 0x31);
-                    XSSFCellStyle percentStyle = wb.createCellStyle();
-                    percentStyle.setFont(dataFont);
-                    percentStyle.setDataFormat((short) 0xa);
-                    Pattern datePattern = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}");
-                    Pattern phoneNumPattern = Pattern.compile("^\\d{10}$");
-                    Pattern zipPattern = Pattern.compile("^\\d{5}$");
-                    Pattern zipPlusFourPattern = Pattern.compile("^\\d{5}-\\d{4}$");
-                    Pattern currencyPattern = Pattern.compile("^\\d*\\.\\d{4}$");
-                    Pattern weightPattern = Pattern.compile("^\\d*\\.\\d{1,3}$");
-                    Pattern specificTypePattern = Pattern.compile("[@$^%#]");
-                    XSSFRow row;
-                    XSSFCell cell;
+                    Map<TypedValue.Kind, CellStyle> styles = createStyles(wb);
+                    Row row;
+                    Cell cell;
                     int comments = 0;
                     int memo = 0;
                     int i = 1;
+                    ColumnSchema schema = source == null ? ColumnSchema.infer(table, 1, tableHeaderRow.size()) : null;
+                    TypedValue[][] decoded = new TypedValue[tableHeaderRow.size()][];
+                    if (source != null) {
+                        for (int j = 0; j < decoded.length; j++) {
+                            if (source.getType(j) == Table.Type.STRING) {
+                                decoded[j] = new TypedValue[source.getDictionary(j).size()];
+                            }
+                        }
+                    }
+                    int index = -1;
                     loopBreak:
                     for (List<String> tableRow : table) {
+                        index++;
                         if (tableRow.equals(tableHeaderRow)) {
                             continue;
                         }
@@ -758,177 +689,29 @@ public class FileUtils extends Utils {
                                 break loopBreak;
                             }
                             cell = row.createCell(j);
-                            Matcher dateMatcher = datePattern.matcher(tableRow.get(j));
-                            Matcher phoneNumMatcher = phoneNumPattern.matcher(tableRow.get(j));
-                            Matcher zipMatcher = zipPattern.matcher(tableRow.get(j));
-                            Matcher zipPlusFourMatcher = zipPlusFourPattern.matcher(tableRow.get(j));
-                            Matcher currencyMatcher = currencyPattern.matcher(tableRow.get(j));
-                            Matcher weightMatcher = weightPattern.matcher(tableRow.get(j));
-                            boolean specificType = specificTypePattern.matcher(tableRow.get(j)).find();
-                            if (dateMatcher.find() && !specificType) {
-                                String dateString = dateMatcher.group();
-                                cell.setCellValue(utils.getDateFormat(dateString));
-                                cell.setCellStyle(dateCell);
+                            TypedValue value;
+                            if (source == null) {
+                                value = schema.parse(j, tableRow.get(j));
                             }
-                            else if (phoneNumMatcher.find() && !specificType) {
-                                String phoneNumString = phoneNumMatcher.group();
-                                double phoneNum = 0;
-                                try {
-                                    phoneNum = Double.parseDouble(phoneNumString);
-                                }
-                                catch (NumberFormatException e) {
-                                    logger.fatal("Unable to parse phone number.", e);
-                                    System.exit(-1);
+                            else if (decoded[j] != null) {
+                                int code = source.getCode(index - 1, j);
+                                value = decoded[j][code];
+                                if (value == null) {
+                                    value = source.getTyped(index - 1, j);
+                                    decoded[j][code] = value;
                                 }
-                                cell.setCellValue(phoneNum);
-                                cell.setCellStyle(phoneNumCell);
-                            }
-                            else if (zipMatcher.find() && !specificType) {
-                                String zipString = zipMatcher.group();
-                                double zip = 0;
-                                try {
-                                    zip = Double.parseDouble(zipString);
-                                }
-                                catch (NumberFormatException e) {
-                                    logger.fatal("Unable to parse zip code.", e);
-                                    System.exit(-1);
-                                }
-                                cell.setCellValue(zip);
-                                cell.setCellStyle(zipCell);
-                            }
-                            else if (zipPlusFourMatcher.find() && !specificType) {
-                                String zipPlusFourString = zipPlusFourMatcher.group();
-                                zipPlusFourString = zipPlusFourString.replace("-", "");
-                                double zipPlusFour = 0;
-                                try {
-                                    zipPlusFour = Double.parseDouble(zipPlusFourString);
-                                }
-                                catch (NumberFormatException e) {
-                                    logger.fatal("Unable to parse zip code.", e);
-                                    System.exit(-1);
-                                }
-                                cell.setCellValue(zipPlusFour);
-                                cell.setCellStyle(zipPlusFourCell);
-                            }
-                            else if (currencyMatcher.find() && !specificType) {
-                                String currencyString = currencyMatcher.group();
-                                double currency = 0;
-                                try {
-                                    currency = Double.parseDouble(currencyString);
-                                }
-                                catch (NumberFormatException e) {
-                                    logger.fatal("Unable to parse currency.", e);
-                                    System.exit(-1);
-                                }
-                                cell.setCellValue(currency);
-                                cell.setCellStyle(currencyCell);
-                            }
-                            else if (weightMatcher.find() && !specificType) {
-                                String weightString = weightMatcher.group();
-                                double weight = 0;
-                                try {
-                                    weight = Double.parseDouble(weightString);
-                                }
-                                catch (NumberFormatException e) {
-                                    logger.fatal("Unable to parse weight.", e);
-                                    System.exit(-1);
-                                }
-                                cell.setCellValue(weight);
-                                cell.setCellStyle(weightCell);
-                            }
-                            else if (tableRow.get(j).equalsIgnoreCase("FALSE")) {
-                                cell.setCellValue(false);
-                                cell.setCellStyle(booleanCell);
-                            }
-                            else if (tableRow.get(j).equalsIgnoreCase("TRUE")) {
-                                cell.setCellValue(true);
-                                cell.setCellStyle(booleanCell);
                             }
                             else {
-                                String entry = tableRow.get(j).trim();
-                                if (entry.endsWith("#")) {
-                                    entry = entry.substring(0, entry.length() - 1);
-                                    try {
-                                        double transID = Double.parseDouble(entry);
-                                        cell.setCellValue(transID);
-                                        cell.setCellStyle(numCell);
-                                    }
-                                    catch (NumberFormatException e) {
-                                        logger.warn("Unable to parse number.", e);
-                                    }
-                                }
-                                else if (entry.endsWith("@")) {
-                                    entry = entry.substring(0, entry.length() - 1);
-                                    cell.setCellValue(entry);
-                                    cell.setCellStyle(textCell);
-                                }
-                                else if (entry.endsWith("$")) {
-                                    entry = entry.substring(0, entry.length() - 1);
-                                    double currency = 0;
-                                    try {
-                                        currency = Double.parseDouble(entry);
-                                    }
-                                    catch (NumberFormatException e) {
-                                        logger.fatal("Unable to parse currency.", e);
-                                        System.exit(-1);
-                                    }
-                                    cell.setCellValue(currency);
-                                    cell.setCellStyle(currencyCell);
-                                }
-                                else if (entry.endsWith("^")) {
-                                    entry = entry.substring(0, entry.length() - 1);
-                                    if (entry.endsWith("\n.")) {
-                                        entry = entry.substring(0, entry.length() - 2);
-                                    }
-                                    entry = entry.trim();
-                                    cell.setCellValue(entry);
-                                    cell.setCellStyle(memoStyle);
-
-                                }
-                                else if (entry.endsWith("%")) {
-                                    entry = entry.substring(0, entry.length() - 1);
-                                    double percentage = 0;
-                                    try {
-                                        percentage = Double.parseDouble(entry);
-                                    }
-                                    catch (NumberFormatException e) {
-                                        logger.fatal("Unable to parse percentage.", e);
-                                        System.exit(-1);
-                                    }
-                                    cell.setCellValue(percentage);
-                                    cell.setCellStyle(percentStyle);
-                                }
-                                else {
-                                    if (utils.isBlankString(entry)) {
-                                        cell.setCellType(CellType.BLANK);
-                                    }
-                                    else {
-                                        cell.setCellValue(entry);
-                                    }
-                                    cell.setCellStyle(dataCell);
-                                }
+                                value = source.getTyped(index - 1, j);
                             }
+                            setCell(cell, value, styles.get(value.getKind()));
+                            widths.measure(j, value);
                             progress += progressUpdate;
                             updateProgress(progress, 1.0);
                         }
                         i++;
                     }
-                    AreaReference reference = new AreaReference(new CellReference(0, 0),
-                                                                new CellReference(table.size() - 1,
-                                                                                  tableHeaderRow.size() - 1
-                                                                ),
-                                                                SpreadsheetVersion.EXCEL2007
-                    );
-                    XSSFTable xssfTable = sheet.createTable(reference);
-                    xssfTable.getCTTable().addNewTableStyleInfo();
-                    XSSFTableStyleInfo style = (XSSFTableStyleInfo) xssfTable.getStyle();
-                    style.setName("TableStyleMedium16");
-                    style.setShowColumnStripes(false);
-                    style.setShowRowStripes(true);
-                    style.setFirstColumn(false);
-                    style.setLastColumn(false);
-                    CTAutoFilter autoFilter = xssfTable.getCTTable().addNewAutoFilter();
-                    autoFilter.setRef(reference.formatAsString());
+                    createTable(wb, sheet, tableHeaderRow, table.size());
                     for (int j = 0; j < tableHeaderRow.size(); j++) {
                         if (isCancelled()) {
                             break;
@@ -943,7 +726,7 @@ public class FileUtils extends Utils {
                             memo = 0;
                             continue;
                         }
-                        sheet.autoSizeColumn(j);
+                        widths.apply(sheet, j);
                         progress += progressUpdate;
                         updateProgress(progress, 1.0);
                     }
@@ -953,18 +736,21 @@ public class FileUtils extends Utils {
                         FileOutputStream fileOut = new FileOutputStream(filename);
                         wb.write(fileOut);
                         fileOut.close();
-                        wb.close();
+                        closeWorkbook(wb);
                         updateProgress(1.0, 1.0);
                         return null;
                     }
                     catch (IOException e) {
+                        if (!failFast) {
+                            throw new UncheckedIOException("Unable to write " + filename, e);
+                        }
                         logger.fatal("Unable to write Excel Workbook", e);
                         System.exit(-1);
                     }
                 }
                 else {
                     try {
-                        wb.close();
+                        closeWorkbook(wb);
                         return null;
                     }
                     catch (IOException e) {
@@ -975,7 +761,7 @@ public class FileUtils extends Utils {
             }
             else {
                 try {
-                    wb.close();
+                    closeWorkbook(wb);
                     return null;
                 }
                 catch (IOException e) {
@@ -988,15 +774,78 @@ public class FileUtils extends Utils {
 
         /**
          * Logs the exception when the task transitions to the failure state
+         * <p>
+         * A task that does not fail fast deletes the part of the workbook it wrote and completes its progress, so the
+         * progress of the other tasks it is written with can still reach the end.
          */
         @Override
         protected void failed() {
+            if (!failFast) {
+                logger.error("Unable to write " + filename, getException());
+                if (filename.exists() && !filename.delete()) {
+                    logger.warn("Unable to delete partial workbook " + filename);
+                }
+                updateProgress(1.0, 1.0);
+                return;
+            }
             logger.fatal("Write Task failed", getException());
             System.exit(-1);
         }
 
+        /**
+         * Gets the file the workbook is written to
+         *
+         * @return The file
+         */
+        public File getFilename() {
+            return filename;
+        }
+
+        /**
+         * Sets whether a failure of the task stops the program
+         *
+         * @param failFast False to leave a failure to the owner of the task
+         */
+        public void setFailFast(boolean failFast) {
+            this.failFast = failFast;
+        }
+
+        /**
+         * Gets the number of cells of the table to write
+         *
+         * @return The number of rows times the number of columns of the header
+         */
+        long getCellCount() {
+            return table == null || table.isEmpty() ? 0 : (long) table.size() * table.get(0).size();
+        }
+
+        /**
+         * Estimates the heap the task uses while it writes, a streamed sheet only holds a window of rows
+         *
+         * @return The estimated number of bytes
+         */
+        long estimateMemory() {
+            long rows = table == null ? 0 : streaming ? Math.min(table.size(), rowWindow) : table.size();
+            int columns = table == null || table.isEmpty() ? 0 : table.get(0).size();
+            return WORKBOOK_BYTES + rows * columns * CELL_BYTES;
+        }
+
         public void setTable(List<List<String>> table) {
             this.table = table;
+            this.source = null;
+        }
+
+        /**
+         * Sets the table to write, the cells are read from its columns as the rows are written
+         * <p>
+         * The cells are written as the kind of cell of their column or by their values, the cells of string columns
+         * are typed once per distinct string of the column.
+         *
+         * @param table The table to write
+         */
+        public void setTable(Table table) {
+            this.table = table.asRows();
+            this.source = table;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,265 @@
+package org.dataprocessing.utils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * The rows of a table grouped by a key
+ * <p>
+ * Rows whose keys are in order are grouped in a single pass, each group is the [start, end) range of the rows with
+ * the same key and its rows are a view of the table, so no key is hashed and no row is copied. Rows whose keys are not
+ * in order are grouped through a hash map of the keys instead, the groups are then ranges of a permutation of the rows
+ * in the order their keys first appear.
+ *
+ * @param <T> The type of the rows
+ * @param <K> The type of the keys
+ *
+ * @author Nicholas Curl
+ */
+public class RowGroups<T, K> extends AbstractList<RowGroups<T, K>.Group> implements RandomAccess {
+
+    /**
+     * The rows of the table, in group order
+     */
+    private final List<T> rows;
+    /**
+     * The keys of the groups
+     */
+    private final List<K> keys;
+    /**
+     * The position of the first row of each group, followed by the number of rows
+     */
+    private final int[]   starts;
+    /**
+     * Were the keys of the rows in order
+     */
+    private final boolean sorted;
+
+    /**
+     * The constructor for this class
+     *
+     * @param rows   The rows of the table, in group order
+     * @param keys   The keys of the groups
+     * @param starts The position of the first row of each group, followed by the number of rows
+     * @param sorted Were the keys of the rows in order
+     */
+    private RowGroups(List<T> rows, List<K> keys, int[] starts, boolean sorted) {
+        this.rows = rows;
+        this.keys = keys;
+        this.starts = starts;
+        this.sorted = sorted;
+    }
+
+    /**
+     * Groups the rows of a table by a key
+     *
+     * @param rows The rows of the table
+     * @param key  Gets the key of a row
+     * @param <T>  The type of the rows
+     * @param <K>  The type of the keys
+     *
+     * @return The groups of the rows
+     */
+    public static <T, K extends Comparable<? super K>> RowGroups<T, K> of(List<T> rows,
+                                                                          Function<? super T, ? extends K> key
+    ) {
+        Comparator<K> order = Comparator.nullsFirst(Comparator.naturalOrder());
+        List<K> keys = new ArrayList<>();
+        int[] starts = new int[16];
+        K previous = null;
+        for (int i = 0; i < rows.size(); i++) {
+            K current = key.apply(rows.get(i));
+            if (i == 0 || !Objects.equals(previous, current)) {
+                if (i > 0 && order.compare(previous, current) > 0) {
+                    return hashed(rows, key);
+                }
+                if (keys.size() == starts.length) {
+                    starts = Arrays.copyOf(starts, starts.length * 2);
+                }
+                starts[keys.size()] = i;
+                keys.add(current);
+            }
+            previous = current;
+        }
+        starts = Arrays.copyOf(starts, keys.size() + 1);
+        starts[keys.size()] = rows.size();
+        return new RowGroups<>(rows, keys, starts, true);
+    }
+
+    /**
+     * Groups rows whose keys are not in order through a hash map of the keys
+     *
+     * @param rows The rows of the table
+     * @param key  Gets the key of a row
+     * @param <T>  The type of the rows
+     * @param <K>  The type of the keys
+     *
+     * @return The groups of the rows, in the order their keys first appear
+     */
+    private static <T, K> RowGroups<T, K> hashed(List<T> rows, Function<? super T, ? extends K> key) {
+        Map<K, Integer> groupOf = new HashMap<>();
+        List<K> keys = new ArrayList<>();
+        int[] groups = new int[rows.size()];
+        int[] counts = new int[16];
+        for (int i = 0; i < rows.size(); i++) {
+            K current = key.apply(rows.get(i));
+            Integer group = groupOf.get(current);
+            if (group == null) {
+                group = keys.size();
+                groupOf.put(current, group);
+                keys.add(current);
+                if (group == counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                }
+            }
+            groups[i] = group;
+            counts[group]++;
+        }
+        int[] starts = new int[keys.size() + 1];
+        for (int group = 0; group < keys.size(); group++) {
+            starts[group + 1] = starts[group] + counts[group];
+        }
+        int[] next = Arrays.copyOf(starts, keys.size());
+        int[] permutation = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            permutation[next[groups[i]]++] = i;
+        }
+        return new RowGroups<>(new PermutedRows<>(rows, permutation), keys, starts, false);
+    }
+
+    /**
+     * Gets a group
+     *
+     * @param index The position of the group
+     *
+     * @return The group
+     */
+    @Override
+    public Group get(int index) {
+        if (index < 0 || index >= keys.size()) {
+            throw new IndexOutOfBoundsException("Group " + index + " of " + keys.size() + " groups");
+        }
+        return new Group(index);
+    }
+
+    /**
+     * Gets the number of groups
+     *
+     * @return The number of groups
+     */
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Were the keys of the rows in order, so that the groups are ranges of the table itself
+     *
+     * @return True if the rows were grouped without hashing
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * A group of rows with the same key
+     */
+    public class Group {
+
+        /**
+         * The position of the group
+         */
+        private final int index;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param index The position of the group
+         */
+        private Group(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Gets the key of the group
+         *
+         * @return The key
+         */
+        public K getKey() {
+            return keys.get(index);
+        }
+
+        /**
+         * Gets the position of the first row of the group
+         *
+         * @return The position of the first row, inclusive
+         */
+        public int getStart() {
+            return starts[index];
+        }
+
+        /**
+         * Gets the position after the last row of the group
+         *
+         * @return The position of the last row, exclusive
+         */
+        public int getEnd() {
+            return starts[index + 1];
+        }
+
+        /**
+         * Gets the rows of the group
+         *
+         * @return A view of the rows of the group
+         */
+        public List<T> getRows() {
+            return rows.subList(getStart(), getEnd());
+        }
+    }
+
+    /**
+     * A read only view of rows in the order of a permutation
+     *
+     * @param <T> The type of the rows
+     */
+    private static class PermutedRows<T> extends AbstractList<T> implements RandomAccess {
+
+        /**
+         * The rows
+         */
+        private final List<T> rows;
+        /**
+         * The positions of the rows in order
+         */
+        private final int[]   permutation;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param rows        The rows
+         * @param permutation The positions of the rows in order
+         */
+        private PermutedRows(List<T> rows, int[] permutation) {
+            this.rows = rows;
+            this.permutation = permutation;
+        }
+
+        @Override
+        public T get(int index) {
+            return rows.get(permutation[index]);
+        }
+
+        @Override
+        public int size() {
+            return permutation.length;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package org.dataprocessing.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A table of string rows that moves to a temporary file once the rows of every store exceed a heap budget
+ * <p>
+ * Rows are kept on the heap as they are added until the estimated size of the rows held by all the stores crosses the
+ * budget set by the dataprocessing.rowStore.heapBudgetMb property, a quarter of the maximum heap by default. After
+ * that the rows of the store are serialized as length prefixed UTF-8 strings through an off-heap buffer into a
+ * temporary file in the dataprocessing.rowStore.dir directory, and are read back by their offset when they are
+ * fetched. Rows fetched in the order of the file are read a block at a time instead of one by one. Rows read from the
+ * file are copies, changing them does not change the store. Rows can only be added, or {@link #moveFrom moved} in a
+ * new order from another store, and the store should be closed once it has been written to release its part of the
+ * budget and delete its file.
+ *
+ * @author Nicholas Curl
+ */
+public class SpillableRowStore extends AbstractList<List<String>> implements RandomAccess, Closeable {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger             logger      = LogManager.getLogger(SpillableRowStore.class);
+    /**
+     * The number of bytes the rows of every store may hold on the heap
+     */
+    private static final long               budget      = Long.getLong(
+            "dataprocessing.rowStore.heapBudgetMb",
+            Runtime.getRuntime().maxMemory() >> 22
+    ) << 20;
+    /**
+     * The directory the rows are spilled to
+     */
+    private static final Path               directory   = Paths.get(System.getProperty(
+            "dataprocessing.rowStore.dir",
+            System.getProperty("java.io.tmpdir")
+    ));
+    /**
+     * The estimated number of bytes the rows of every store hold on the heap
+     */
+    private static final AtomicLong         heapUsed    = new AtomicLong();
+    /**
+     * The size of the buffer the spilled rows are written through
+     */
+    private static final int                BUFFER_SIZE = 1 << 16;
+    /**
+     * The number of rows moved from another store at a time
+     */
+    private static final int                MOVE_WINDOW = 1 << 15;
+    /**
+     * The rows kept on the heap, the first rows of the store
+     */
+    private final        List<List<String>> heap;
+    /**
+     * The estimated number of bytes the rows kept on the heap hold
+     */
+    private              long               heapBytes;
+    /**
+     * The offset of each spilled row in the file, followed by the end of the last row
+     */
+    private              long[]             offsets;
+    /**
+     * The number of spilled rows
+     */
+    private              int                spilled;
+    /**
+     * The temporary file the rows are spilled to, null if no row has been spilled
+     */
+    private              Path               file;
+    /**
+     * The channel of the temporary file
+     */
+    private              FileChannel        channel;
+    /**
+     * The buffer the spilled rows are written through
+     */
+    private              ByteBuffer         buffer;
+    /**
+     * The number of bytes written to the file
+     */
+    private              long               written;
+    /**
+     * The block of the file the spilled rows were last read from, null if no row has been read
+     */
+    private              ByteBuffer         block;
+    /**
+     * The offset of the block in the file
+     */
+    private              long               blockStart;
+    /**
+     * Has the store been closed
+     */
+    private              boolean            closed;
+
+    /**
+     * The constructor for this class
+     */
+    public SpillableRowStore() {
+        this.heap = new ArrayList<>();
+        this.offsets = new long[]{0};
+    }
+
+    /**
+     * Creates a store holding rows
+     *
+     * @param rows The rows to add
+     */
+    public SpillableRowStore(List<? extends List<String>> rows) {
+        this();
+        addAll(rows);
+    }
+
+    /**
+     * Adds a row to the end of the store
+     *
+     * @param row The row
+     *
+     * @return True
+     */
+    @Override
+    public synchronized boolean add(List<String> row) {
+        checkOpen();
+        if (file == null) {
+            long size = estimate(row);
+            if (heapUsed.addAndGet(size) <= budget) {
+                heap.add(row);
+                heapBytes += size;
+                modCount++;
+                return true;
+            }
+            heapUsed.addAndGet(-size);
+            open();
+        }
+        try {
+            spill(row);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Unable to spill row to " + file, e);
+        }
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Moves the rows of another store to the end of this store in a new order and closes the other store
+     * <p>
+     * The heap budget of the other store is released before its rows are added here, so the rows are only counted
+     * once. Its spilled rows are read a window of the order at a time, each window in the order of the file, instead
+     * of one read per row in the new order.
+     *
+     * @param source The store to move the rows from
+     * @param order  The positions of the rows of the other store in the order they are added, as given by
+     *               {@link TableSort#permutation(List)}
+     */
+    public synchronized void moveFrom(SpillableRowStore source, int[] order) {
+        checkOpen();
+        if (source == this) {
+            throw new IllegalArgumentException("A row store cannot move its rows to itself");
+        }
+        synchronized (source) {
+            source.checkOpen();
+            heapUsed.addAndGet(-source.heapBytes);
+            source.heapBytes = 0;
+            int heapRows = source.heap.size();
+            long[] reads = new long[MOVE_WINDOW];
+            List<String>[] window = newWindow();
+            try {
+                for (int start = 0; start < order.length; start += MOVE_WINDOW) {
+                    int end = Math.min(order.length, start + MOVE_WINDOW);
+                    int count = 0;
+                    for (int i = start; i < end; i++) {
+                        if (order[i] >= heapRows) {
+                            reads[count++] = (long) (order[i] - heapRows) << 32 | (i - start);
+                        }
+                    }
+                    Arrays.sort(reads, 0, count);
+                    for (int i = 0; i < count; i++) {
+                        window[(int) reads[i]] = source.read((int) (reads[i] >>> 32));
+                    }
+                    for (int i = start; i < end; i++) {
+                        add(order[i] < heapRows ? source.heap.get(order[i]) : window[i - start]);
+                        window[i - start] = null;
+                    }
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Unable to read row from " + source.file, e);
+            }
+            source.close();
+        }
+    }
+
+    /**
+     * Creates the array a window of moved rows is read into
+     *
+     * @return The array
+     */
+    @SuppressWarnings("unchecked")
+    private static List<String>[] newWindow() {
+        return (List<String>[]) new List<?>[MOVE_WINDOW];
+    }
+
+    /**
+     * Gets a row
+     *
+     * @param index The position of the row
+     *
+     * @return The row, a copy if the row was spilled
+     */
+    @Override
+    public synchronized List<String> get(int index) {
+        checkOpen();
+        if (index < heap.size()) {
+            return heap.get(index);
+        }
+        int position = index - heap.size();
+        if (position < 0 || position >= spilled) {
+            throw new IndexOutOfBoundsException("Row " + index + " of " + size() + " rows");
+        }
+        try {
+            return read(position);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Unable to read row from " + file, e);
+        }
+    }
+
+    /**
+     * Gets the number of rows
+     *
+     * @return The number of rows
+     */
+    @Override
+    public synchronized int size() {
+        return heap.size() + spilled;
+    }
+
+    /**
+     * Have any of the rows been spilled to the temporary file
+     *
+     * @return True if the store uses a temporary file
+     */
+    public synchronized boolean isSpilled() {
+        return file != null;
+    }
+
+    /**
+     * Releases the heap budget of the rows and deletes the temporary file
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        heapUsed.addAndGet(-heapBytes);
+        heap.clear();
+        heapBytes = 0;
+        if (file != null) {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            }
+            catch (IOException e) {
+                logger.warn("Unable to delete spilled rows " + file, e);
+            }
+            buffer = null;
+            block = null;
+        }
+    }
+
+    /**
+     * Estimates the number of bytes a row holds on the heap
+     *
+     * @param row The row
+     *
+     * @return The estimated number of bytes
+     */
+    private static long estimate(List<String> row) {
+        long size = 40 + 8L * row.size();
+        for (String value : row) {
+            if (value != null) {
+                size += 40 + 2L * value.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Throws an exception if the store has been closed
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The row store has been closed");
+        }
+    }
+
+    /**
+     * Opens the temporary file the rows are spilled to
+     */
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            file = Files.createTempFile(directory, "rows", ".bin");
+            file.toFile().deleteOnExit();
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            logger.debug("Heap budget of " + (budget >> 20) + " MB reached, spilling rows to " + file);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Unable to create spill file in " + directory, e);
+        }
+    }
+
+    /**
+     * Writes a row to the end of the temporary file
+     *
+     * @param row The row
+     *
+     * @throws IOException If the row could not be written
+     */
+    private void spill(List<String> row) throws IOException {
+        byte[][] values = new byte[row.size()][];
+        int length = 4;
+        for (int i = 0; i < values.length; i++) {
+            String value = row.get(i);
+            if (value != null) {
+                values[i] = value.getBytes(StandardCharsets.UTF_8);
+                length += values[i].length;
+            }
+            length += 4;
+        }
+        ByteBuffer target = buffer;
+        if (length > buffer.remaining()) {
+            flush();
+            if (length > buffer.capacity()) {
+                target = ByteBuffer.allocate(length);
+            }
+        }
+        target.putInt(values.length);
+        for (byte[] value : values) {
+            if (value == null) {
+                target.putInt(-1);
+            }
+            else {
+                target.putInt(value.length);
+                target.put(value);
+            }
+        }
+        if (target != buffer) {
+            target.flip();
+            write(target);
+        }
+        if (spilled + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[spilled + 1] = offsets[spilled] + length;
+        spilled++;
+    }
+
+    /**
+     * Writes the buffered rows to the temporary file
+     *
+     * @throws IOException If the rows could not be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Writes bytes to the end of the temporary file
+     *
+     * @param bytes The bytes to write
+     *
+     * @throws IOException If the bytes could not be written
+     */
+    private void write(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            written += channel.write(bytes, written);
+        }
+    }
+
+    /**
+     * Reads a spilled row
+     *
+     * @param position The position of the row among the spilled rows
+     *
+     * @return The row
+     *
+     * @throws IOException If the row could not be read
+     */
+    private List<String> read(int position) throws IOException {
+        long start = offsets[position];
+        long end = offsets[position + 1];
+        if (end > written) {
+            flush();
+        }
+        if (block == null || start < blockStart || end > blockStart + block.limit()) {
+            boolean forward = block != null && start >= blockStart &&
+                              start - blockStart - block.limit() < BUFFER_SIZE;
+            int size = (int) (forward ? Math.min(Math.max(BUFFER_SIZE, end - start), written - start) : end - start);
+            if (block == null || block.capacity() < size) {
+                block = ByteBuffer.allocate(Math.max(BUFFER_SIZE, size));
+            }
+            block.clear();
+            block.limit(size);
+            while (block.hasRemaining()) {
+                int read = channel.read(block, start + block.position());
+                if (read < 0) {
+                    throw new IOException("Unexpected end of spilled rows");
+                }
+            }
+            blockStart = start;
+        }
+        ByteBuffer bytes = block.duplicate();
+        bytes.position((int) (start - blockStart));
+        int columns = bytes.getInt();
+        List<String> row = new ArrayList<>(columns);
+        for (int i = 0; i < columns; i++) {
+            int length = bytes.getInt();
+            if (length < 0) {
+                row.add(null);
+            }
+            else {
+                row.add(new String(bytes.array(), bytes.position(), length, StandardCharsets.UTF_8));
+                bytes.position(bytes.position() + length);
+            }
+        }
+        return row;
+    }
+}
@@ -0,0 +1,1089 @@
+package org.dataprocessing.utils;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column oriented, read only table
+ * <p>
+ * Every column keeps its values in a primitive array of its type. Whole numbers are stored in int or long arrays,
+ * floating point numbers in double arrays, decimals as unscaled longs with the scale of the column and dates as epoch
+ * days. Any other value is stored as a dictionary encoded string, each distinct string is kept once and the cells hold
+ * its int code. A column whose values do not fit its type is stored as strings. Tables are built row by row with a
+ * {@link Builder}, selecting columns and slicing or reordering rows share the arrays of the table instead of copying
+ * them.
+ * <p>
+ * The string form of a cell is the trimmed string form of the value it was built from and an empty string for null,
+ * the same as {@link Utils#convertToRowString(List)}, so a table can stand in for a List&lt;List&lt;String&gt;&gt;
+ * table through {@link #asRows()}.
+ *
+ * @author Nicholas Curl
+ */
+public class Table {
+
+    /**
+     * The names of the columns
+     */
+    private final List<String>      header;
+    /**
+     * The columns of the table
+     */
+    private final Column[]          columns;
+    /**
+     * The position of the first row of the table in its columns
+     */
+    private final int               offset;
+    /**
+     * The positions of the rows in the columns from the offset on, null if the rows are in the order of the columns
+     */
+    private final int[]             order;
+    /**
+     * The kinds of cells the columns are written as, null for a column whose cells are typed by their values
+     */
+    private final TypedValue.Kind[] kinds;
+    /**
+     * The number of rows in the table
+     */
+    private final int               rowCount;
+
+    /**
+     * The constructor for this class
+     *
+     * @param header   The names of the columns
+     * @param columns  The columns of the table
+     * @param offset   The position of the first row of the table in its columns, or in its order if it has one
+     * @param rowCount The number of rows in the table
+     * @param order    The positions of the rows in the columns, null if the rows are in the order of the columns
+     * @param kinds    The kinds of cells the columns are written as
+     */
+    private Table(List<String> header, Column[] columns, int offset, int rowCount, int[] order,
+                  TypedValue.Kind[] kinds
+    ) {
+        this.header = Collections.unmodifiableList(header);
+        this.columns = columns;
+        this.offset = offset;
+        this.rowCount = rowCount;
+        this.order = order;
+        this.kinds = kinds;
+    }
+
+    /**
+     * Creates a builder for a table with the column names
+     *
+     * @param header The names of the columns
+     *
+     * @return The builder of the table
+     */
+    public static Builder builder(List<String> header) {
+        return new Builder(header);
+    }
+
+    /**
+     * Converts a List&lt;List&lt;?&gt;&gt; table whose first row is the header into a table
+     *
+     * @param rows The rows of the table, the first row is the header
+     *
+     * @return The converted table
+     */
+    public static Table fromRows(List<? extends List<?>> rows) {
+        List<String> header = new ArrayList<>();
+        if (!rows.isEmpty()) {
+            for (Object name : rows.get(0)) {
+                header.add(name == null ? "" : name.toString().trim());
+            }
+        }
+        Builder builder = new Builder(header);
+        for (int i = 1; i < rows.size(); i++) {
+            builder.add(rows.get(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the names of the columns
+     *
+     * @return The read only names of the columns
+     */
+    public List<String> getHeader() {
+        return header;
+    }
+
+    /**
+     * Gets the number of rows, not counting the header
+     *
+     * @return The number of rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of columns
+     *
+     * @return The number of columns
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Gets the position of a column by its name
+     *
+     * @param name The name of the column
+     *
+     * @return The position of the column
+     *
+     * @throws IllegalArgumentException If the table has no column with the name
+     */
+    public int indexOf(String name) {
+        int index = header.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Table has no column " + name + ", the columns are " + header);
+        }
+        return index;
+    }
+
+    /**
+     * Gets the type of a column
+     *
+     * @param column The position of the column
+     *
+     * @return The type the column is stored as
+     */
+    public Type getType(int column) {
+        return columns[column].type;
+    }
+
+    /**
+     * Gets the kind of cell a column is written as
+     *
+     * @param column The position of the column
+     *
+     * @return The kind of cell, null if the cells are typed by their values
+     */
+    public TypedValue.Kind getKind(int column) {
+        return kinds[column];
+    }
+
+    /**
+     * Gets the typed value of a cell, as the kind of cell of its column if it has one and otherwise by its value
+     *
+     * @param row    The position of the row
+     * @param column The position of the column
+     *
+     * @return The typed value of the cell
+     */
+    public TypedValue getTyped(int row, int column) {
+        Object value = get(row, column);
+        return kinds[column] == null ? TypedValue.of(value) : TypedValue.of(kinds[column], value);
+    }
+
+    /**
+     * Gets a view of a row
+     *
+     * @param row The position of the row
+     *
+     * @return The view of the row
+     */
+    public Row row(int row) {
+        checkRow(row);
+        return new Row(row);
+    }
+
+    /**
+     * Gets the value of a cell
+     *
+     * @param row    The position of the row
+     * @param column The position of the column
+     *
+     * @return The value of the cell, null if the cell is null
+     */
+    public Object get(int row, int column) {
+        checkRow(row);
+        return columns[column].get(position(row));
+    }
+
+    /**
+     * Gets the string form of a cell
+     *
+     * @param row    The position of the row
+     * @param column The position of the column
+     *
+     * @return The string form of the cell, an empty string if the cell is null
+     */
+    public String getString(int row, int column) {
+        checkRow(row);
+        return columns[column].getString(position(row));
+    }
+
+    /**
+     * Is a cell null
+     *
+     * @param row    The position of the row
+     * @param column The position of the column
+     *
+     * @return True if the cell is null
+     */
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return columns[column].nulls.get(position(row));
+    }
+
+    /**
+     * Selects columns of the table without copying them
+     *
+     * @param columns The positions of the columns in the order they are selected
+     *
+     * @return The table of the selected columns
+     */
+    public Table select(int... columns) {
+        List<String> selectedHeader = new ArrayList<>(columns.length);
+        Column[] selected = new Column[columns.length];
+        TypedValue.Kind[] selectedKinds = new TypedValue.Kind[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            selectedHeader.add(header.get(columns[i]));
+            selected[i] = this.columns[columns[i]];
+            selectedKinds[i] = kinds[columns[i]];
+        }
+        return new Table(selectedHeader, selected, offset, rowCount, order, selectedKinds);
+    }
+
+    /**
+     * Slices a range of rows of the table without copying them
+     *
+     * @param from The position of the first row, inclusive
+     * @param to   The position of the last row, exclusive
+     *
+     * @return The table of the rows in the range
+     */
+    public Table slice(int from, int to) {
+        if (from < 0 || to > rowCount || from > to) {
+            throw new IndexOutOfBoundsException("Slice [" + from + ", " + to + ") of " + rowCount + " rows");
+        }
+        return new Table(header, columns, offset + from, to - from, order, kinds);
+    }
+
+    /**
+     * Reorders the rows of the table without copying them
+     *
+     * @param rows The positions of the rows in the order they are taken, a row can be left out or taken more than once
+     *
+     * @return The table of the rows in the order
+     *
+     * @see TableSort#sort(Table)
+     */
+    public Table reorder(int[] rows) {
+        int[] positions = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            checkRow(rows[i]);
+            positions[i] = position(rows[i]);
+        }
+        return new Table(header, columns, 0, positions.length, positions, kinds);
+    }
+
+    /**
+     * Gets a read only view of the table as a List&lt;List&lt;String&gt;&gt; table whose first row is the header
+     * <p>
+     * The cells are read from the columns as the view is read, no rows are copied.
+     *
+     * @return The view of the table
+     */
+    public List<List<String>> asRows() {
+        return new Rows();
+    }
+
+    /**
+     * Gets the code of a cell of a string column
+     *
+     * @param row    The position of the row
+     * @param column The position of the column
+     *
+     * @return The code of the string of the cell in the dictionary of the column
+     *
+     * @throws IllegalStateException If the column is not a string column
+     */
+    public int getCode(int row, int column) {
+        checkRow(row);
+        return columns[column].getCode(position(row));
+    }
+
+    /**
+     * Gets the code of a string in the dictionary of a string column, so cells can be compared to it by their code
+     *
+     * @param column The position of the column
+     * @param value  The string
+     *
+     * @return The code of the string, -1 if no cell of the column has the string
+     *
+     * @throws IllegalStateException If the column is not a string column
+     */
+    public int codeOf(int column, String value) {
+        return columns[column].codeOf(value);
+    }
+
+    /**
+     * Gets the dictionary of a string column
+     *
+     * @param column The position of the column
+     *
+     * @return The read only distinct strings of the column by their code
+     *
+     * @throws IllegalStateException If the column is not a string column
+     */
+    public List<String> getDictionary(int column) {
+        return Collections.unmodifiableList(columns[column].getDictionary());
+    }
+
+    /**
+     * Gets the sort key of a cell of a column that is not a string column, the keys order the same as the values
+     *
+     * @param row    The position of the row
+     * @param column The position of the column
+     *
+     * @return The sort key of the cell, 0 if the cell is null
+     */
+    long getKey(int row, int column) {
+        return columns[column].getKey(position(row));
+    }
+
+    /**
+     * Gets the position of a row in the columns
+     *
+     * @param row The position of the row in the table
+     *
+     * @return The position of the row in the columns
+     */
+    private int position(int row) {
+        return order == null ? offset + row : order[offset + row];
+    }
+
+    /**
+     * Checks that a row is in the table
+     *
+     * @param row The position of the row
+     */
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount + " rows");
+        }
+    }
+
+    /**
+     * The types a column can be stored as
+     */
+    public enum Type {
+        /**
+         * Whole numbers that fit an int
+         */
+        INT,
+        /**
+         * Whole numbers that fit a long
+         */
+        LONG,
+        /**
+         * Floating point numbers
+         */
+        DOUBLE,
+        /**
+         * Decimals with the same scale stored as unscaled longs
+         */
+        DECIMAL,
+        /**
+         * Dates stored as epoch days
+         */
+        DATE,
+        /**
+         * Dictionary encoded strings
+         */
+        STRING
+    }
+
+    /**
+     * A column of a table
+     */
+    private static class Column {
+
+        /**
+         * The type of the column
+         */
+        private final Type         type;
+        /**
+         * The rows that are null
+         */
+        private final BitSet       nulls;
+        /**
+         * The values of an int column, the days of a date column or the codes of a string column
+         */
+        private final int[]        ints;
+        /**
+         * The values of a long column or the unscaled values of a decimal column
+         */
+        private final long[]       longs;
+        /**
+         * The values of a double column
+         */
+        private final double[]     doubles;
+        /**
+         * The scale of a decimal column
+         */
+        private final int          scale;
+        /**
+         * Are the dates of a date column timestamps at midnight
+         */
+        private final boolean      timestamps;
+        /**
+         * The distinct strings of a string column by their code
+         */
+        private final List<String> dictionary;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param builder The builder of the column
+         */
+        private Column(ColumnBuilder builder) {
+            this.type = builder.type;
+            this.nulls = builder.nulls;
+            this.ints = builder.ints == null ? null : Arrays.copyOf(builder.ints, builder.size);
+            this.longs = builder.longs == null ? null : Arrays.copyOf(builder.longs, builder.size);
+            this.doubles = builder.doubles == null ? null : Arrays.copyOf(builder.doubles, builder.size);
+            this.scale = builder.scale;
+            this.timestamps = builder.timestamps;
+            this.dictionary = builder.dictionary == null ? null : new ArrayList<>(builder.dictionary);
+        }
+
+        /**
+         * Gets the value of a cell
+         *
+         * @param index The position of the cell in the column
+         *
+         * @return The value of the cell, null if the cell is null
+         */
+        private Object get(int index) {
+            if (nulls.get(index)) {
+                return null;
+            }
+            switch (type) {
+                case INT:
+                    return ints[index];
+                case LONG:
+                    return longs[index];
+                case DOUBLE:
+                    return doubles[index];
+                case DECIMAL:
+                    return BigDecimal.valueOf(longs[index], scale);
+                case DATE:
+                    return LocalDate.ofEpochDay(ints[index]);
+                default:
+                    return dictionary.get(ints[index]);
+            }
+        }
+
+        /**
+         * Gets the string form of a cell
+         *
+         * @param index The position of the cell in the column
+         *
+         * @return The string form of the cell, an empty string if the cell is null
+         */
+        private String getString(int index) {
+            if (type == Type.STRING) {
+                return dictionary.get(ints[index]);
+            }
+            if (nulls.get(index)) {
+                return "";
+            }
+            switch (type) {
+                case INT:
+                    return Integer.toString(ints[index]);
+                case LONG:
+                    return Long.toString(longs[index]);
+                case DOUBLE:
+                    return Double.toString(doubles[index]);
+                case DECIMAL:
+                    return BigDecimal.valueOf(longs[index], scale).toString();
+                default:
+                    String date = LocalDate.ofEpochDay(ints[index]).toString();
+                    return timestamps ? date + " 00:00:00.0" : date;
+            }
+        }
+
+        /**
+         * Gets the sort key of a cell of a column that is not a string column
+         *
+         * @param index The position of the cell in the column
+         *
+         * @return The sort key of the cell, 0 if the cell is null
+         */
+        private long getKey(int index) {
+            if (nulls.get(index)) {
+                return 0;
+            }
+            switch (type) {
+                case INT:
+                case DATE:
+                    return ints[index];
+                case LONG:
+                case DECIMAL:
+                    return longs[index];
+                case DOUBLE:
+                    long bits = Double.doubleToLongBits(doubles[index]);
+                    return bits ^ bits >> 63 & Long.MAX_VALUE;
+                default:
+                    throw new IllegalStateException("A string column is ordered by its dictionary");
+            }
+        }
+
+        /**
+         * Gets the dictionary of a string column
+         *
+         * @return The distinct strings of the column by their code
+         */
+        private List<String> getDictionary() {
+            if (type != Type.STRING) {
+                throw new IllegalStateException("A " + type + " column is not dictionary encoded");
+            }
+            return dictionary;
+        }
+
+        /**
+         * Gets the code of a cell of a string column
+         *
+         * @param index The position of the cell in the column
+         *
+         * @return The code of the string of the cell
+         */
+        private int getCode(int index) {
+            getDictionary();
+            return ints[index];
+        }
+
+        /**
+         * Gets the code of a string of a string column
+         *
+         * @param value The string
+         *
+         * @return The code of the string, -1 if no cell of the column has the string
+         */
+        private int codeOf(String value) {
+            return getDictionary().indexOf(value);
+        }
+    }
+
+    /**
+     * Collects the values of a column, the type of the column is the type of its first value that is not null
+     */
+    private static class ColumnBuilder {
+
+        /**
+         * The type of the column, null until a value that is not null is added
+         */
+        private Type                 type;
+        /**
+         * The number of values added
+         */
+        private int                  size;
+        /**
+         * The rows that are null
+         */
+        private BitSet               nulls = new BitSet();
+        /**
+         * The values of an int column, the days of a date column or the codes of a string column
+         */
+        private int[]                ints;
+        /**
+         * The values of a long column or the unscaled values of a decimal column
+         */
+        private long[]               longs;
+        /**
+         * The values of a double column
+         */
+        private double[]             doubles;
+        /**
+         * The scale of a decimal column
+         */
+        private int                  scale;
+        /**
+         * Are the dates of a date column timestamps at midnight
+         */
+        private boolean              timestamps;
+        /**
+         * The distinct strings of a string column by their code
+         */
+        private List<String>         dictionary;
+        /**
+         * The codes of the distinct strings of a string column
+         */
+        private Map<String, Integer> codes;
+
+        /**
+         * Adds a value to the column, converting the column to strings if the value does not fit its type
+         *
+         * @param value The value to add
+         */
+        private void add(Object value) {
+            if (value == null) {
+                nulls.set(size);
+                if (type == Type.STRING) {
+                    addString("");
+                }
+                else {
+                    size++;
+                }
+                return;
+            }
+            if (type == null) {
+                type = typeOf(value);
+                scale = value instanceof BigDecimal ? ((BigDecimal) value).scale() : 0;
+                timestamps = value instanceof Timestamp;
+                allocate();
+            }
+            if (!fits(value)) {
+                convertToStrings();
+            }
+            ensureCapacity();
+            switch (type) {
+                case INT:
+                    ints[size++] = ((Number) value).intValue();
+                    break;
+                case LONG:
+                    longs[size++] = ((Number) value).longValue();
+                    break;
+                case DOUBLE:
+                    doubles[size++] = (Double) value;
+                    break;
+                case DECIMAL:
+                    longs[size++] = ((BigDecimal) value).unscaledValue().longValue();
+                    break;
+                case DATE:
+                    ints[size++] = (int) epochDay(value);
+                    break;
+                default:
+                    addString(value.toString().trim());
+                    break;
+            }
+        }
+
+        /**
+         * Does the value fit the type of the column, an int column is widened to a long column for a long
+         *
+         * @param value The value that is not null
+         *
+         * @return True if the value can be stored in the column
+         */
+        private boolean fits(Object value) {
+            switch (type) {
+                case INT:
+                    if (value instanceof Long) {
+                        longs = new long[ints.length];
+                        for (int i = 0; i < size; i++) {
+                            longs[i] = ints[i];
+                        }
+                        ints = null;
+                        type = Type.LONG;
+                        return true;
+                    }
+                    return value instanceof Integer || value instanceof Short || value instanceof Byte;
+                case LONG:
+                    return value instanceof Long || value instanceof Integer || value instanceof Short ||
+                           value instanceof Byte;
+                case DOUBLE:
+                    return value instanceof Double;
+                case DECIMAL:
+                    return value instanceof BigDecimal && ((BigDecimal) value).scale() == scale &&
+                           ((BigDecimal) value).unscaledValue().bitLength() < 64;
+                case DATE:
+                    return timestamps ? value instanceof Timestamp && isMidnight((Timestamp) value) :
+                           value instanceof java.sql.Date || value instanceof LocalDate;
+                default:
+                    return true;
+            }
+        }
+
+        /**
+         * Makes a column that only has null values a string column
+         */
+        private void finish() {
+            if (type == null) {
+                type = Type.STRING;
+                allocate();
+            }
+        }
+
+        /**
+         * Allocates the array of the type of the column
+         */
+        private void allocate() {
+            int capacity = Math.max(16, size);
+            switch (type) {
+                case LONG:
+                case DECIMAL:
+                    longs = new long[capacity];
+                    break;
+                case DOUBLE:
+                    doubles = new double[capacity];
+                    break;
+                case STRING:
+                    ints = new int[capacity];
+                    dictionary = new ArrayList<>();
+                    codes = new HashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        ints[i] = code("");
+                    }
+                    break;
+                default:
+                    ints = new int[capacity];
+                    break;
+            }
+        }
+
+        /**
+         * Converts the values added so far to strings so values of any type can be added
+         */
+        private void convertToStrings() {
+            Column typed = new Column(this);
+            int count = size;
+            ints = new int[Math.max(16, count)];
+            longs = null;
+            doubles = null;
+            dictionary = new ArrayList<>();
+            codes = new HashMap<>();
+            type = Type.STRING;
+            for (int i = 0; i < count; i++) {
+                ints[i] = code(typed.getString(i));
+            }
+        }
+
+        /**
+         * Grows the array of the column if it is full
+         */
+        private void ensureCapacity() {
+            if (ints != null && size == ints.length) {
+                ints = Arrays.copyOf(ints, size * 2);
+            }
+            if (longs != null && size == longs.length) {
+                longs = Arrays.copyOf(longs, size * 2);
+            }
+            if (doubles != null && size == doubles.length) {
+                doubles = Arrays.copyOf(doubles, size * 2);
+            }
+        }
+
+        /**
+         * Adds a string to a string column
+         *
+         * @param value The string
+         */
+        private void addString(String value) {
+            ensureCapacity();
+            ints[size++] = code(value);
+        }
+
+        /**
+         * Gets the code of a string, adding it to the dictionary if it is new
+         *
+         * @param value The string
+         *
+         * @return The code of the string
+         */
+        private int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        /**
+         * Gets the type a column starting with the value is stored as
+         *
+         * @param value The value that is not null
+         *
+         * @return The type of the column
+         */
+        private static Type typeOf(Object value) {
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return Type.INT;
+            }
+            if (value instanceof Long) {
+                return Type.LONG;
+            }
+            if (value instanceof Double) {
+                return Type.DOUBLE;
+            }
+            if (value instanceof BigDecimal && ((BigDecimal) value).unscaledValue().bitLength() < 64) {
+                return Type.DECIMAL;
+            }
+            if (value instanceof java.sql.Date || value instanceof LocalDate ||
+                value instanceof Timestamp && isMidnight((Timestamp) value)) {
+                return Type.DATE;
+            }
+            return Type.STRING;
+        }
+
+        /**
+         * Is the timestamp at midnight
+         *
+         * @param timestamp The timestamp
+         *
+         * @return True if the timestamp has no time of day
+         */
+        private static boolean isMidnight(Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toLocalTime().equals(LocalTime.MIDNIGHT);
+        }
+
+        /**
+         * Gets the epoch day of a date or timestamp
+         *
+         * @param value The date or timestamp
+         *
+         * @return The number of days since 1970-01-01
+         */
+        private static long epochDay(Object value) {
+            if (value instanceof Timestamp) {
+                return ((Timestamp) value).toLocalDateTime().toLocalDate().toEpochDay();
+            }
+            if (value instanceof LocalDate) {
+                return ((LocalDate) value).toEpochDay();
+            }
+            return ((java.sql.Date) value).toLocalDate().toEpochDay();
+        }
+    }
+
+    /**
+     * Builds a table row by row
+     */
+    public static class Builder {
+
+        /**
+         * The names of the columns
+         */
+        private final List<String>      header;
+        /**
+         * The builders of the columns
+         */
+        private final ColumnBuilder[]   columns;
+        /**
+         * The kinds of cells the columns are written as
+         */
+        private final TypedValue.Kind[] kinds;
+        /**
+         * The number of rows added
+         */
+        private       int               rowCount;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param header The names of the columns
+         */
+        private Builder(List<String> header) {
+            this.header = new ArrayList<>(header);
+            this.columns = new ColumnBuilder[header.size()];
+            this.kinds = new TypedValue.Kind[header.size()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new ColumnBuilder();
+            }
+        }
+
+        /**
+         * Sets the kind of cell a column is written as instead of typing its cells by their values
+         *
+         * @param column The position of the column
+         * @param kind   The kind of cell
+         *
+         * @return This builder
+         */
+        public Builder setKind(int column, TypedValue.Kind kind) {
+            kinds[column] = kind;
+            return this;
+        }
+
+        /**
+         * Adds a row, missing cells are null and extra cells are ignored
+         *
+         * @param row The values of the row
+         *
+         * @return This builder
+         */
+        public Builder add(List<?> row) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].add(i < row.size() ? row.get(i) : null);
+            }
+            rowCount++;
+            return this;
+        }
+
+        /**
+         * Adds a row, missing cells are null and extra cells are ignored
+         *
+         * @param row The values of the row
+         *
+         * @return This builder
+         */
+        public Builder add(Object... row) {
+            return add(Arrays.asList(row));
+        }
+
+        /**
+         * Gets the number of rows added
+         *
+         * @return The number of rows
+         */
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Builds the table, the builder must not be used afterwards
+         *
+         * @return The table of the rows added
+         */
+        public Table build() {
+            Column[] built = new Column[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].finish();
+                built[i] = new Column(columns[i]);
+                columns[i] = null;
+            }
+            return new Table(header, built, 0, rowCount, null, kinds.clone());
+        }
+    }
+
+    /**
+     * A view of a row of the table
+     */
+    public class Row {
+
+        /**
+         * The position of the row in the table
+         */
+        private final int row;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param row The position of the row in the table
+         */
+        private Row(int row) {
+            this.row = row;
+        }
+
+        /**
+         * Gets the position of the row in the table
+         *
+         * @return The position of the row
+         */
+        public int getIndex() {
+            return row;
+        }
+
+        /**
+         * Gets the value of a cell
+         *
+         * @param column The position of the column
+         *
+         * @return The value of the cell, null if the cell is null
+         */
+        public Object get(int column) {
+            return columns[column].get(position(row));
+        }
+
+        /**
+         * Gets the string form of a cell
+         *
+         * @param column The position of the column
+         *
+         * @return The string form of the cell, an empty string if the cell is null
+         */
+        public String getString(int column) {
+            return columns[column].getString(position(row));
+        }
+
+        /**
+         * Is a cell null
+         *
+         * @param column The position of the column
+         *
+         * @return True if the cell is null
+         */
+        public boolean isNull(int column) {
+            return columns[column].nulls.get(position(row));
+        }
+
+        /**
+         * Gets the code of a cell of a string column
+         *
+         * @param column The position of the column
+         *
+         * @return The code of the string of the cell in the dictionary of the column
+         *
+         * @throws IllegalStateException If the column is not a string column
+         */
+        public int getCode(int column) {
+            return columns[column].getCode(position(row));
+        }
+
+        /**
+         * Gets a read only view of the string forms of the cells of the row
+         *
+         * @return The view of the row
+         */
+        public List<String> asList() {
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return getString(index);
+                }
+
+                @Override
+                public int size() {
+                    return columns.length;
+                }
+            };
+        }
+    }
+
+    /**
+     * A read only view of the table as a List&lt;List&lt;String&gt;&gt; table whose first row is the header
+     */
+    public class Rows extends AbstractList<List<String>> {
+
+        /**
+         * The constructor for this inner class
+         */
+        private Rows() {
+        }
+
+        /**
+         * Gets the table this is a view of
+         *
+         * @return The table
+         */
+        public Table getTable() {
+            return Table.this;
+        }
+
+        @Override
+        public List<String> get(int index) {
+            return index == 0 ? header : new Row(index - 1).asList();
+        }
+
+        @Override
+        public int size() {
+            return rowCount + 1;
+        }
+    }
+}
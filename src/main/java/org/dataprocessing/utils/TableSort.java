@@ -0,0 +1,374 @@
+package org.dataprocessing.utils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+/**
+ * Sorts the rows of a table by one or more columns without copying the rows
+ * <p>
+ * Every column the rows are sorted by is ranked once, the ranks of the columns are combined into one rank per row and
+ * the rows are sorted by packing their rank and position into a long array that is sorted in parallel, so the sort is
+ * stable. The sorted rows are a view of the table in the sorted order. The rows of a List&lt;List&lt;String&gt;&gt;
+ * table are ordered by their strings, the columns of a {@link Table} by their values, with null first.
+ *
+ * @author Nicholas Curl
+ */
+public class TableSort {
+
+    /**
+     * The positions of the columns the rows are sorted by, in the order they are compared
+     */
+    private final int[]     columns;
+    /**
+     * Is the column at the same position sorted in descending order
+     */
+    private final boolean[] descending;
+    /**
+     * Is the first row of a List&lt;List&lt;String&gt;&gt; table the header that stays first
+     */
+    private final boolean   pinHeader;
+
+    /**
+     * The constructor for this class
+     *
+     * @param columns    The positions of the columns the rows are sorted by
+     * @param descending Is the column at the same position sorted in descending order
+     * @param pinHeader  Is the first row of a List&lt;List&lt;String&gt;&gt; table the header that stays first
+     */
+    private TableSort(int[] columns, boolean[] descending, boolean pinHeader) {
+        this.columns = columns;
+        this.descending = descending;
+        this.pinHeader = pinHeader;
+    }
+
+    /**
+     * Sorts the rows by a column in ascending order
+     *
+     * @param column The position of the column
+     *
+     * @return The sort
+     */
+    public static TableSort ascending(int column) {
+        return new TableSort(new int[]{column}, new boolean[]{false}, false);
+    }
+
+    /**
+     * Sorts the rows by a column in descending order
+     *
+     * @param column The position of the column
+     *
+     * @return The sort
+     */
+    public static TableSort descending(int column) {
+        return new TableSort(new int[]{column}, new boolean[]{true}, false);
+    }
+
+    /**
+     * Sorts the rows that are equal by the columns of this sort by a column in ascending order
+     *
+     * @param column The position of the column
+     *
+     * @return The sort
+     */
+    public TableSort thenAscending(int column) {
+        return then(column, false);
+    }
+
+    /**
+     * Sorts the rows that are equal by the columns of this sort by a column in descending order
+     *
+     * @param column The position of the column
+     *
+     * @return The sort
+     */
+    public TableSort thenDescending(int column) {
+        return then(column, true);
+    }
+
+    /**
+     * Keeps the first row of a List&lt;List&lt;String&gt;&gt; table first, since it is the header of the table
+     *
+     * @return The sort
+     */
+    public TableSort pinHeader() {
+        return new TableSort(columns, descending, true);
+    }
+
+    /**
+     * Sorts the rows of a List&lt;List&lt;String&gt;&gt; table
+     *
+     * @param rows The rows of the table
+     * @param <T>  The type of the rows
+     *
+     * @return A read only view of the rows in sorted order
+     */
+    public <T extends List<String>> List<T> sort(List<T> rows) {
+        int[] permutation = permutation(rows);
+        return new SortedRows<>(rows, permutation);
+    }
+
+    /**
+     * Sorts the rows of a table
+     *
+     * @param table The table
+     *
+     * @return The table of the rows in sorted order, sharing the columns of the table
+     */
+    public Table sort(Table table) {
+        return table.reorder(permutation(table));
+    }
+
+    /**
+     * Gets the positions of the rows of a List&lt;List&lt;String&gt;&gt; table in sorted order
+     *
+     * @param rows The rows of the table
+     *
+     * @return The positions of the rows in sorted order
+     */
+    public int[] permutation(List<? extends List<String>> rows) {
+        int first = pinHeader && !rows.isEmpty() ? 1 : 0;
+        int[] permutation = order(rows.size() - first, column -> rankStrings(rows, first, column));
+        if (first == 0) {
+            return permutation;
+        }
+        int[] pinned = new int[rows.size()];
+        for (int i = 0; i < permutation.length; i++) {
+            pinned[i + 1] = permutation[i] + 1;
+        }
+        return pinned;
+    }
+
+    /**
+     * Gets the positions of the rows of a table in sorted order
+     *
+     * @param table The table
+     *
+     * @return The positions of the rows in sorted order
+     */
+    public int[] permutation(Table table) {
+        return order(table.getRowCount(), column -> rankColumn(table, column));
+    }
+
+    /**
+     * Adds a column to compare the rows that are equal by the columns of this sort
+     *
+     * @param column     The position of the column
+     * @param descending Is the column sorted in descending order
+     *
+     * @return The sort
+     */
+    private TableSort then(int column, boolean descending) {
+        int[] thenColumns = Arrays.copyOf(columns, columns.length + 1);
+        boolean[] thenDescending = Arrays.copyOf(this.descending, this.descending.length + 1);
+        thenColumns[columns.length] = column;
+        thenDescending[columns.length] = descending;
+        return new TableSort(thenColumns, thenDescending, pinHeader);
+    }
+
+    /**
+     * Sorts rows by the ranks of the columns of this sort
+     *
+     * @param rowCount The number of rows
+     * @param ranks    Gets the ascending ranks of the rows in a column
+     *
+     * @return The positions of the rows in sorted order
+     */
+    private int[] order(int rowCount, IntFunction<int[]> ranks) {
+        int[] combined = null;
+        for (int k = 0; k < columns.length; k++) {
+            int[] rank = ranks.apply(columns[k]);
+            if (descending[k]) {
+                int max = 0;
+                for (int value : rank) {
+                    max = Math.max(max, value);
+                }
+                for (int i = 0; i < rank.length; i++) {
+                    rank[i] = max - rank[i];
+                }
+            }
+            if (combined == null) {
+                combined = rank;
+            }
+            else {
+                long[] pairs = new long[rowCount];
+                for (int i = 0; i < rowCount; i++) {
+                    pairs[i] = (long) combined[i] << 32 | rank[i];
+                }
+                combined = denseRanks(pairs);
+            }
+        }
+        long[] packed = new long[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            packed[i] = (long) combined[i] << 32 | i;
+        }
+        Arrays.parallelSort(packed);
+        int[] permutation = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            permutation[i] = (int) packed[i];
+        }
+        return permutation;
+    }
+
+    /**
+     * Ranks the rows of a List&lt;List&lt;String&gt;&gt; table by the strings of a column
+     *
+     * @param rows   The rows of the table
+     * @param first  The position of the first row that is ranked
+     * @param column The position of the column
+     *
+     * @return The ascending ranks of the rows from the first row on
+     */
+    private static int[] rankStrings(List<? extends List<String>> rows, int first, int column) {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        int[] rank = new int[rows.size() - first];
+        for (int i = 0; i < rank.length; i++) {
+            String value = rows.get(first + i).get(column);
+            value = value == null ? "" : value;
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            rank[i] = code;
+        }
+        int[] codeRanks = rankDictionary(dictionary);
+        for (int i = 0; i < rank.length; i++) {
+            rank[i] = codeRanks[rank[i]];
+        }
+        return rank;
+    }
+
+    /**
+     * Ranks the rows of a table by the values of a column
+     *
+     * @param table  The table
+     * @param column The position of the column
+     *
+     * @return The ascending ranks of the rows, null values rank first
+     */
+    private static int[] rankColumn(Table table, int column) {
+        int[] rank = new int[table.getRowCount()];
+        if (table.getType(column) == Table.Type.STRING) {
+            int[] codeRanks = rankDictionary(table.getDictionary(column));
+            for (int i = 0; i < rank.length; i++) {
+                rank[i] = codeRanks[table.getCode(i, column)];
+            }
+            return rank;
+        }
+        long[] keys = new long[rank.length];
+        int count = 0;
+        for (int i = 0; i < rank.length; i++) {
+            if (!table.isNull(i, column)) {
+                keys[count++] = table.getKey(i, column);
+            }
+        }
+        Arrays.parallelSort(keys, 0, count);
+        int distinct = unique(keys, count);
+        for (int i = 0; i < rank.length; i++) {
+            rank[i] = table.isNull(i, column) ? 0 : Arrays.binarySearch(keys, 0, distinct, table.getKey(i, column)) + 1;
+        }
+        return rank;
+    }
+
+    /**
+     * Ranks the distinct strings of a dictionary
+     *
+     * @param dictionary The distinct strings by their code
+     *
+     * @return The ascending rank of each string by its code
+     */
+    private static int[] rankDictionary(List<String> dictionary) {
+        Integer[] byValue = new Integer[dictionary.size()];
+        for (int i = 0; i < byValue.length; i++) {
+            byValue[i] = i;
+        }
+        Arrays.parallelSort(byValue, (o1, o2) -> dictionary.get(o1).compareTo(dictionary.get(o2)));
+        int[] codeRanks = new int[byValue.length];
+        for (int i = 0; i < byValue.length; i++) {
+            codeRanks[byValue[i]] = i;
+        }
+        return codeRanks;
+    }
+
+    /**
+     * Ranks keys by their distinct values
+     *
+     * @param keys The keys
+     *
+     * @return The ascending rank of each key, equal keys have the same rank
+     */
+    private static int[] denseRanks(long[] keys) {
+        long[] sorted = keys.clone();
+        Arrays.parallelSort(sorted);
+        int distinct = unique(sorted, sorted.length);
+        int[] rank = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            rank[i] = Arrays.binarySearch(sorted, 0, distinct, keys[i]);
+        }
+        return rank;
+    }
+
+    /**
+     * Moves the distinct values of a sorted array to its start
+     *
+     * @param sorted The sorted array
+     * @param length The number of values in the array
+     *
+     * @return The number of distinct values
+     */
+    private static int unique(long[] sorted, int length) {
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * A read only view of the rows of a table in sorted order
+     *
+     * @param <T> The type of the rows
+     */
+    private static class SortedRows<T> extends AbstractList<T> implements RandomAccess {
+
+        /**
+         * The rows of the table
+         */
+        private final List<T> rows;
+        /**
+         * The positions of the rows in sorted order
+         */
+        private final int[]   permutation;
+
+        /**
+         * The constructor for this inner class
+         *
+         * @param rows        The rows of the table
+         * @param permutation The positions of the rows in sorted order
+         */
+        private SortedRows(List<T> rows, int[] permutation) {
+            this.rows = rows;
+            this.permutation = permutation;
+        }
+
+        @Override
+        public T get(int index) {
+            return rows.get(permutation[index]);
+        }
+
+        @Override
+        public int size() {
+            return permutation.length;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package org.dataprocessing.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * The value of a cell and the kind of cell it is written as
+ * <p>
+ * Values read from the server keep their type from the query to the writer, a decimal with four places is currency,
+ * a date or timestamp is a date and so on. Strings that carry a type marker, the trailing #, $, @, ^ or % the mappers
+ * append, or that look like a date, phone number, zip code, currency or weight are parsed by {@link #parse(String)}
+ * through a {@link CellLexer}.
+ *
+ * @author Nicholas Curl
+ */
+public class TypedValue {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger     logger = LogManager.getLogger(TypedValue.class);
+    /**
+     * The instance of the Utils class
+     */
+    private static final Utils      utils  = Utils.getInstance();
+    /**
+     * A blank cell
+     */
+    private static final TypedValue BLANK  = new TypedValue(Kind.GENERAL, null);
+    /**
+     * The kind of cell
+     */
+    private final        Kind       kind;
+    /**
+     * The value of the cell, a Double, Boolean, Date or String, null for a blank cell
+     */
+    private final        Object     value;
+
+    /**
+     * The constructor for this class
+     *
+     * @param kind  The kind of cell
+     * @param value The value of the cell, a Double, Boolean, Date or String, null for a blank cell
+     */
+    private TypedValue(Kind kind, Object value) {
+        this.kind = kind;
+        this.value = value;
+    }
+
+    /**
+     * Types a value by its Java type, strings are parsed
+     *
+     * @param value The value
+     *
+     * @return The typed value
+     */
+    public static TypedValue of(Object value) {
+        if (value == null) {
+            return BLANK;
+        }
+        if (value instanceof Boolean) {
+            return new TypedValue(Kind.BOOLEAN, value);
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return new TypedValue(Kind.NUMBER, ((Number) value).doubleValue());
+        }
+        if (value instanceof BigDecimal) {
+            int scale = ((BigDecimal) value).scale();
+            Kind kind = scale == 0 ? Kind.NUMBER : scale == 4 ? Kind.CURRENCY : scale <= 3 ? Kind.WEIGHT : Kind.GENERAL;
+            return new TypedValue(kind, ((BigDecimal) value).doubleValue());
+        }
+        if (value instanceof Number) {
+            return new TypedValue(Kind.GENERAL, ((Number) value).doubleValue());
+        }
+        if (value instanceof Date || value instanceof LocalDate) {
+            return new TypedValue(Kind.DATE, toDate(value));
+        }
+        return parse(value.toString());
+    }
+
+    /**
+     * Types a value as a kind of cell
+     *
+     * @param kind  The kind of cell
+     * @param value The value, a string is converted to the kind
+     *
+     * @return The typed value
+     */
+    public static TypedValue of(Kind kind, Object value) {
+        if (value == null || value instanceof String && utils.isBlankString((String) value)) {
+            return new TypedValue(kind, null);
+        }
+        switch (kind) {
+            case BOOLEAN:
+                return new TypedValue(kind, value instanceof Boolean ? value :
+                                            Boolean.parseBoolean(value.toString().trim()));
+            case DATE:
+                return new TypedValue(kind, value instanceof String ? utils.getDateFormat(value.toString().trim()) :
+                                            toDate(value));
+            case GENERAL:
+            case TEXT:
+            case MEMO:
+                return new TypedValue(kind, value instanceof Number && kind == Kind.GENERAL ?
+                                            ((Number) value).doubleValue() : value.toString().trim());
+            default:
+                if (value instanceof Number) {
+                    return new TypedValue(kind, ((Number) value).doubleValue());
+                }
+                String number = value.toString().trim();
+                if (kind == Kind.ZIP_PLUS_FOUR) {
+                    number = number.replace("-", "");
+                }
+                return new TypedValue(kind, parseDouble(number, kind));
+        }
+    }
+
+    /**
+     * Parses a string into a typed value by its type marker or its form
+     *
+     * @param string The string
+     *
+     * @return The typed value
+     */
+    public static TypedValue parse(String string) {
+        CellLexer lexer = new CellLexer();
+        CellLexer.Shape shape = lexer.lex(string);
+        if (!lexer.isMarked()) {
+            switch (shape) {
+                case DATE:
+                    return new TypedValue(Kind.DATE, utils.getDateFormat(string.substring(0, 10)));
+                case PHONE:
+                    return new TypedValue(Kind.PHONE, lexer.getNumber());
+                case ZIP:
+                    return new TypedValue(Kind.ZIP, lexer.getNumber());
+                case ZIP_PLUS_FOUR:
+                    return new TypedValue(Kind.ZIP_PLUS_FOUR, lexer.getNumber());
+                case CURRENCY:
+                    return new TypedValue(Kind.CURRENCY, lexer.getNumber());
+                case WEIGHT:
+                    return new TypedValue(Kind.WEIGHT, lexer.getNumber());
+            }
+        }
+        return parseMarked(string);
+    }
+
+    /**
+     * Parses a string that has a type marker or does not look like a date, phone number, zip code, currency or weight
+     *
+     * @param string The string
+     *
+     * @return The typed value
+     */
+    static TypedValue parseMarked(String string) {
+        if (string.equalsIgnoreCase("FALSE")) {
+            return new TypedValue(Kind.BOOLEAN, false);
+        }
+        if (string.equalsIgnoreCase("TRUE")) {
+            return new TypedValue(Kind.BOOLEAN, true);
+        }
+        String entry = string.trim();
+        if (entry.isEmpty()) {
+            return BLANK;
+        }
+        String marked = entry.substring(0, entry.length() - 1);
+        switch (entry.charAt(entry.length() - 1)) {
+            case '#':
+                try {
+                    return new TypedValue(Kind.NUMBER, Double.parseDouble(marked));
+                }
+                catch (NumberFormatException e) {
+                    logger.warn("Unable to parse number.", e);
+                    return new TypedValue(Kind.NUMBER, null);
+                }
+            case '@':
+                return new TypedValue(Kind.TEXT, marked);
+            case '$':
+                return new TypedValue(Kind.CURRENCY, parseDouble(marked, Kind.CURRENCY));
+            case '^':
+                if (marked.endsWith("\n.")) {
+                    marked = marked.substring(0, marked.length() - 2);
+                }
+                return new TypedValue(Kind.MEMO, marked.trim());
+            case '%':
+                return new TypedValue(Kind.PERCENT, parseDouble(marked, Kind.PERCENT));
+            default:
+                return utils.isBlankString(entry) ? BLANK : new TypedValue(Kind.GENERAL, entry);
+        }
+    }
+
+    /**
+     * Gets the kind of cell
+     *
+     * @return The kind of cell
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the value of the cell
+     *
+     * @return A Double, Boolean, Date or String, null for a blank cell
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Parses the number of a kind of cell
+     *
+     * @param string The number
+     * @param kind   The kind of cell
+     *
+     * @return The number
+     */
+    private static double parseDouble(String string, Kind kind) {
+        try {
+            return Double.parseDouble(string);
+        }
+        catch (NumberFormatException e) {
+            logger.fatal("Unable to parse " + kind.toString().toLowerCase().replace('_', ' ') + ".", e);
+            System.exit(-1);
+            return 0;
+        }
+    }
+
+    /**
+     * Converts a date to the date of a cell, without its time of day
+     *
+     * @param value A Date or LocalDate
+     *
+     * @return The date at the start of its day
+     */
+    private static Date toDate(Object value) {
+        LocalDate date;
+        if (value instanceof LocalDate) {
+            date = (LocalDate) value;
+        }
+        else if (value instanceof java.sql.Date) {
+            date = ((java.sql.Date) value).toLocalDate();
+        }
+        else if (value instanceof Timestamp) {
+            date = ((Timestamp) value).toLocalDateTime().toLocalDate();
+        }
+        else {
+            date = ((Date) value).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        }
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * The kinds of cells
+     */
+    public enum Kind {
+        /**
+         * A string, a number or a blank cell in the general format
+         */
+        GENERAL,
+        /**
+         * A string in the text format
+         */
+        TEXT,
+        /**
+         * A string in the text format that wraps
+         */
+        MEMO,
+        /**
+         * A whole number
+         */
+        NUMBER,
+        /**
+         * A number with three places
+         */
+        WEIGHT,
+        /**
+         * A currency amount
+         */
+        CURRENCY,
+        /**
+         * A percentage
+         */
+        PERCENT,
+        /**
+         * A date
+         */
+        DATE,
+        /**
+         * A boolean
+         */
+        BOOLEAN,
+        /**
+         * A phone number
+         */
+        PHONE,
+        /**
+         * A zip code
+         */
+        ZIP,
+        /**
+         * A zip+4 code
+         */
+        ZIP_PLUS_FOUR
+    }
+}
@@ -19,32 +19,48 @@ import java.util.concurrent.TimeUnit;
 public class Utils {
 
 
-    private static final Logger           logger     = LogManager.getLogger(Utils.class);
-    private static final Utils            instance   = new Utils();
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-    private              Window           window;
+    private static final Logger                        logger     = LogManager.getLogger(Utils.class);
+    private static final Utils                         instance   = new Utils();
+    /**
+     * The date format of each thread, a SimpleDateFormat cannot be shared by the write tasks running at the same time
+     */
+    private static final ThreadLocal<SimpleDateFormat> dateFormat = ThreadLocal.withInitial(
+            () -> new SimpleDateFormat("yyyy-MM-dd")
+    );
+    private              Window                        window;
 
     public static Utils getInstance() {
         return instance;
     }
 
     public List<List<String>> convertToTableString(List<List<?>> dataList) {
-        List<List<String>> data = new ArrayList<>();
+        List<List<String>> data = new ArrayList<>(dataList.size());
         for (List<?> objects : dataList) {
-            List<String> row = new ArrayList<>();
-            for (Object object : objects) {
-                if (object == null) {
-                    row.add("");
-                }
-                else {
-                    row.add(object.toString().trim());
-                }
-            }
-            data.add(row);
+            data.add(convertToRowString(objects));
         }
         return data;
     }
 
+    /**
+     * Converts a row of objects to a row of strings
+     *
+     * @param objects The row to convert
+     *
+     * @return The converted row
+     */
+    public List<String> convertToRowString(List<?> objects) {
+        List<String> row = new ArrayList<>(objects.size());
+        for (Object object : objects) {
+            if (object == null) {
+                row.add("");
+            }
+            else {
+                row.add(object.toString().trim());
+            }
+        }
+        return row;
+    }
+
     /**
      * Creates an empty table row of specified width
      *
@@ -75,7 +91,7 @@ public class Utils {
 
     public Date getDateFormat(String dateString) {
         try {
-            return dateFormat.parse(dateString);
+            return dateFormat.get().parse(dateString);
         }
         catch (ParseException e) {
             logger.fatal("Unable to parse date.", e);
@@ -96,32 +112,40 @@ public class Utils {
         return string == null || string.trim().isEmpty();
     }
 
+    /**
+     * Sorts the rows of the table in ascending order of a column
+     *
+     * @param list  The table
+     * @param index The position of the column
+     *
+     * @return A new list of the rows of the table in sorted order, the rows themselves are not copied
+     */
     public List<List<String>> parallelSortListAscending(List<List<String>> list, int index) {
-        List<String[]> listTemp = Converters.convertTableToTableArrayString(list);
-        String[][] listArray = listTemp.toArray(new String[listTemp.size()][]);
-        Arrays.parallelSort(listArray, Comparator.comparing(o -> o[index]));
-        listTemp = new ArrayList<>(Arrays.asList(listArray));
-        return Converters.convertTableArrayToTableString(listTemp);
+        return new ArrayList<>(TableSort.ascending(index).sort(list));
     }
 
+    /**
+     * Sorts the rows of the table in descending order of a column
+     *
+     * @param list  The table
+     * @param index The position of the column
+     *
+     * @return A new list of the rows of the table in sorted order, the rows themselves are not copied
+     */
     public List<List<String>> parallelSortListDescending(List<List<String>> list, int index) {
-        List<String[]> listTemp = Converters.convertTableToTableArrayString(list);
-        String[][] listArray = listTemp.toArray(new String[listTemp.size()][]);
-        Arrays.parallelSort(listArray, Comparator.comparing(o -> o[index], Comparator.reverseOrder()));
-        listTemp = new ArrayList<>(Arrays.asList(listArray));
-        return Converters.convertTableArrayToTableString(listTemp);
+        return new ArrayList<>(TableSort.descending(index).sort(list));
     }
 
+    /**
+     * Sorts the rows of the table after its header in descending order of a column
+     *
+     * @param list         The table whose first row is the header
+     * @param sortingIndex The position of the column
+     *
+     * @return A new list of the header and the rows of the table in sorted order, the rows themselves are not copied
+     */
     public List<List<String>> parallelSortListDescendingExcludeHeader(List<List<String>> list, int sortingIndex) {
-        List<String[]> listTemp = Converters.convertTableToTableArrayString(list);
-        String[][] listArray = listTemp.toArray(new String[listTemp.size()][]);
-        Arrays.parallelSort(listArray,
-                            1,
-                            listArray.length,
-                            Comparator.comparing(strings -> strings[sortingIndex], Comparator.reverseOrder())
-        );
-        listTemp = new ArrayList<>(Arrays.asList(listArray));
-        return Converters.convertTableArrayToTableString(listTemp);
+        return new ArrayList<>(TableSort.descending(sortingIndex).pinHeader().sort(list));
     }
 
     public void parseRow(Row row, FormulaEvaluator fe, DataFormatter formatter, int c, List<String> rowList) {
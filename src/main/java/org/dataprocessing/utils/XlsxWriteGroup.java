@@ -0,0 +1,184 @@
+package org.dataprocessing.utils;
+
+import javafx.concurrent.WorkerStateEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.dataprocessing.utils.FileUtils.XlsxTask;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Writes independent workbooks at the same time under a limit on the number of writers and the heap they use
+ * <p>
+ * The write tasks of a group are started largest table first, as many at a time as the
+ * dataprocessing.xlsx.parallelWrites property allows, the number of processors by default, and only while the
+ * estimated heap of the running tasks stays within the dataprocessing.xlsx.writeBudgetMb property, half of the maximum
+ * heap by default. A task is always started when no other task is running. Each time a task ends the next tasks that
+ * fit are started, so the group takes about as long as its slowest workbook. A task that fails is logged and its
+ * partial workbook deleted without stopping the other tasks, the failed workbooks are reported once the group ends.
+ * The tasks keep their own progress. The group is driven by the state events of its tasks, so it is started and used
+ * on the JavaFX application thread.
+ *
+ * @author Nicholas Curl
+ */
+public class XlsxWriteGroup {
+
+    /**
+     * The instance of the logger
+     */
+    private static final Logger                  logger = LogManager.getLogger(XlsxWriteGroup.class);
+    /**
+     * The most workbooks written at the same time
+     */
+    private static final int                     limit  = Integer.getInteger(
+            "dataprocessing.xlsx.parallelWrites",
+            Runtime.getRuntime().availableProcessors()
+    );
+    /**
+     * The number of bytes of heap the running tasks may use
+     */
+    private static final long                    budget = Long.getLong(
+            "dataprocessing.xlsx.writeBudgetMb",
+            Runtime.getRuntime().maxMemory() >> 21
+    ) << 20;
+    /**
+     * The name of the group used in its report
+     */
+    private final        String                  name;
+    /**
+     * The tasks that have not been started
+     */
+    private final        List<XlsxTask>          pending;
+    /**
+     * The estimated heap of each running task
+     */
+    private final        Map<XlsxTask, Long>     running;
+    /**
+     * The action to run when each task ends
+     */
+    private final        Map<XlsxTask, Runnable> onDone;
+    /**
+     * The exception of each failed workbook
+     */
+    private final        Map<File, Throwable>    failures;
+    /**
+     * The executor the tasks are submitted to, null until the group is started
+     */
+    private              ExecutorService         executorService;
+    /**
+     * The estimated heap of the running tasks
+     */
+    private              long                    reserved;
+
+    /**
+     * The constructor for this class
+     *
+     * @param name The name of the group used in its report
+     */
+    public XlsxWriteGroup(String name) {
+        this.name = name;
+        this.pending = new ArrayList<>();
+        this.running = new IdentityHashMap<>();
+        this.onDone = new IdentityHashMap<>();
+        this.failures = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds a write task to the group, a failure of the task no longer stops the program
+     *
+     * @param task The write task, its table must be set before the group is started
+     */
+    public void add(XlsxTask task) {
+        add(task, () -> {
+        });
+    }
+
+    /**
+     * Adds a write task to the group, a failure of the task no longer stops the program
+     *
+     * @param task   The write task, its table must be set before the group is started
+     * @param onDone The action to run when the task ends, whether it succeeded, failed or was cancelled
+     */
+    public void add(XlsxTask task, Runnable onDone) {
+        task.setFailFast(false);
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, event -> finished(task));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, event -> finished(task));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, event -> finished(task));
+        this.onDone.put(task, onDone);
+        this.pending.add(task);
+    }
+
+    /**
+     * Starts writing the workbooks of the group
+     *
+     * @param executorService The executor to write the workbooks on
+     */
+    public void start(ExecutorService executorService) {
+        this.executorService = executorService;
+        pending.sort(Comparator.comparingLong(XlsxTask::getCellCount).reversed());
+        schedule();
+    }
+
+    /**
+     * Gets the workbooks that failed
+     *
+     * @return The exception of each failed workbook
+     */
+    public Map<File, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Is every task of the group done
+     *
+     * @return True if no task is pending or running
+     */
+    public boolean isDone() {
+        return pending.isEmpty() && running.isEmpty();
+    }
+
+    /**
+     * Starts the pending tasks that fit within the limit and the heap budget
+     */
+    private void schedule() {
+        while (!pending.isEmpty() && running.size() < limit) {
+            XlsxTask task = pending.get(0);
+            long memory = task.estimateMemory();
+            if (!running.isEmpty() && reserved + memory > budget) {
+                break;
+            }
+            pending.remove(0);
+            running.put(task, memory);
+            reserved += memory;
+            executorService.submit(task);
+        }
+    }
+
+    /**
+     * Releases the heap of a task that ended and starts the next tasks
+     *
+     * @param task The task
+     */
+    private void finished(XlsxTask task) {
+        Long memory = running.remove(task);
+        if (memory == null) {
+            return;
+        }
+        reserved -= memory;
+        if (task.getException() != null) {
+            failures.put(task.getFilename(), task.getException());
+        }
+        onDone.remove(task).run();
+        schedule();
+        if (isDone() && !failures.isEmpty()) {
+            logger.error(name + ": " + failures.size() + " workbook(s) failed to write " + failures.keySet());
+        }
+    }
+}
@@ -0,0 +1,273 @@
+-- Schema of the POR3 tables read by the mappers, for the embedded stand-in database.
+-- Only the columns the mappers read are created.
+
+-- IIF takes and returns strings, H2 only overloads aliases by their number of parameters. Every IIF of the mapper
+-- queries chooses between strings, the smoke test runs each of them.
+CREATE ALIAS IF NOT EXISTS IIF FOR 'org.dataprocessing.backend.database.EmbeddedPorDataSource.iif';
+
+CREATE TABLE ParameterFile
+(
+    Store      NVARCHAR(3) PRIMARY KEY,
+    STORE_NAME NVARCHAR(50)
+);
+
+CREATE TABLE Salesman
+(
+    Number     INT PRIMARY KEY,
+    Name       NVARCHAR(50),
+    OperatorNo NVARCHAR(10)
+);
+
+CREATE TABLE OperatorId
+(
+    OPNO NVARCHAR(10) PRIMARY KEY
+);
+
+CREATE TABLE CustomerType
+(
+    Type INT PRIMARY KEY
+);
+
+CREATE TABLE CustomerStatus
+(
+    Status      NVARCHAR(1) PRIMARY KEY,
+    Description NVARCHAR(50)
+);
+
+CREATE TABLE CustomerFile
+(
+    CNUM             NVARCHAR(8) PRIMARY KEY,
+    NAME             NVARCHAR(50),
+    Address          NVARCHAR(50),
+    Address2         NVARCHAR(50),
+    City             NVARCHAR(50),
+    Zip              NVARCHAR(10),
+    ZIP4             NVARCHAR(4),
+    Phone            NVARCHAR(20),
+    WORK             NVARCHAR(20),
+    MOBILE           NVARCHAR(20),
+    FAX              NVARCHAR(20),
+    CreditLimit      DECIMAL(19, 4),
+    Status           NVARCHAR(1),
+    Email            NVARCHAR(100),
+    BillContact      NVARCHAR(50),
+    BillPhone        NVARCHAR(20),
+    BillAddress1     NVARCHAR(50),
+    BillAddress2     NVARCHAR(50),
+    BillCityState    NVARCHAR(50),
+    BillZip          NVARCHAR(10),
+    BillZip4         NVARCHAR(4),
+    TaxExemptNumber  NVARCHAR(20),
+    TaxExemptExpire  DATETIME,
+    InsuranceNumber  NVARCHAR(20),
+    InsuranceExpire  DATETIME,
+    Terms            NVARCHAR(20),
+    CustomerPrintOut NVARCHAR(50),
+    Nontaxable       BIT,
+    CurrentBalance   DECIMAL(19, 4),
+    Type             INT,
+    Salesman         INT
+);
+
+CREATE TABLE CustomerJobSite
+(
+    Number   INT PRIMARY KEY,
+    Salesman INT
+);
+
+CREATE TABLE CallLog
+(
+    Id   INT PRIMARY KEY,
+    CNUM NVARCHAR(8),
+    Opr  NVARCHAR(10)
+);
+
+CREATE TABLE TransactionType
+(
+    TypeNumber INT PRIMARY KEY,
+    TypeName   NVARCHAR(50)
+);
+
+CREATE TABLE TransactionOperation
+(
+    OperationNumber INT PRIMARY KEY
+);
+
+CREATE TABLE TaxTable
+(
+    TaxCode        NVARCHAR(10) PRIMARY KEY,
+    TaxDescription NVARCHAR(50),
+    TaxRent1       FLOAT
+);
+
+CREATE TABLE ItemDepartment
+(
+    Department     INT PRIMARY KEY,
+    DepartmentName NVARCHAR(50)
+);
+
+CREATE TABLE DepartmentMapping
+(
+    OldDepartment     INT PRIMARY KEY,
+    NewDepartment     INT,
+    NewDepartmentName NVARCHAR(50)
+);
+
+CREATE TABLE ItemCategory
+(
+    Category INT PRIMARY KEY,
+    Name     NVARCHAR(50),
+    GLNumber NVARCHAR(10)
+);
+
+CREATE TABLE ItemType
+(
+    Type NVARCHAR(1) PRIMARY KEY
+);
+
+CREATE TABLE ServiceMap
+(
+    ItemCatID   INT,
+    ItemDeptID  INT,
+    ServiceName NVARCHAR(50),
+    ServiceID   INT,
+    PRIMARY KEY (ItemCatID, ItemDeptID)
+);
+
+CREATE TABLE NewAccounts
+(
+    InternalId  INT PRIMARY KEY,
+    AccountNum  NVARCHAR(10),
+    AccountName NVARCHAR(50)
+);
+
+CREATE TABLE NewAccountMap
+(
+    OldAccountNum NVARCHAR(10) PRIMARY KEY,
+    InternalId    INT
+);
+
+CREATE TABLE COGS_Association
+(
+    DepartmentNum INT PRIMARY KEY,
+    IternalID     INT
+);
+
+CREATE TABLE ItemFile
+(
+    NUM             INT PRIMARY KEY,
+    [KEY]           NVARCHAR(20),
+    Name            NVARCHAR(100),
+    Department      INT,
+    Category        INT,
+    TYPE            NVARCHAR(1),
+    CurrentStore    NVARCHAR(3),
+    QTY             FLOAT,
+    QYOT            FLOAT,
+    MANF            NVARCHAR(50),
+    RMIN            FLOAT,
+    VendorNumber1   INT,
+    VendorNumber2   INT,
+    VendorNumber3   INT,
+    Weight          FLOAT,
+    PURP            DECIMAL(19, 4),
+    SELL            DECIMAL(19, 4),
+    ReplacementCost DECIMAL(19, 4),
+    Inactive        BIT
+);
+
+CREATE TABLE ItemKitsAuto
+(
+    Id       INT PRIMARY KEY,
+    Num      INT,
+    Quantity FLOAT,
+    ItemKey  NVARCHAR(20),
+    MiscName NVARCHAR(100)
+);
+
+CREATE TABLE Transactions
+(
+    CNTR            NVARCHAR(8) PRIMARY KEY,
+    CUSN            NVARCHAR(8),
+    DATE            DATETIME,
+    STAT            NVARCHAR(2),
+    TOTL            DECIMAL(19, 4),
+    PAID            DECIMAL(19, 4),
+    DEPP            DECIMAL(19, 4),
+    PYMT            NVARCHAR(1),
+    CLDT            DATETIME,
+    Archived        TINYINT,
+    Salesman        INT,
+    JobSite         INT,
+    TransactionType INT,
+    Operation       INT,
+    TaxCode         NVARCHAR(10),
+    STR             NVARCHAR(3),
+    DeliveryDate    DATETIME,
+    DeliveryAddress NVARCHAR(50),
+    DeliveryCity    NVARCHAR(50),
+    DeliveryZip     NVARCHAR(10),
+    Contact         NVARCHAR(50),
+    ContactPhone    NVARCHAR(20),
+    JBPO            NVARCHAR(20),
+    JBID            NVARCHAR(20),
+    JOBN            NVARCHAR(50),
+    Notes           NVARCHAR(500),
+    EventEndDate    DATETIME,
+    PickupDate      DATETIME,
+    ReviewBilling   BIT
+);
+
+CREATE TABLE TransactionItems
+(
+    CNTR     NVARCHAR(8),
+    LineNum  INT,
+    ITEM     INT,
+    [Desc]   NVARCHAR(100),
+    QTY      FLOAT,
+    PRIC     DECIMAL(19, 4),
+    Comments NVARCHAR(500),
+    PRIMARY KEY (CNTR, LineNum)
+);
+
+CREATE TABLE VendorFile
+(
+    VendorNumber  INT PRIMARY KEY,
+    VendorName    NVARCHAR(50),
+    Terms         NVARCHAR(20),
+    Address1      NVARCHAR(50),
+    Address2      NVARCHAR(50),
+    CityState     NVARCHAR(50),
+    Zip           NVARCHAR(10),
+    Contact1      NVARCHAR(50),
+    Phone         NVARCHAR(20),
+    Contact1Email NVARCHAR(100),
+    Fax           NVARCHAR(20)
+);
+
+CREATE TABLE PurchaseOrder
+(
+    PONumber     INT PRIMARY KEY,
+    Store        NVARCHAR(3),
+    Date         DATETIME,
+    Notes        NVARCHAR(500),
+    VendorNumber INT,
+    Status       NVARCHAR(1)
+);
+
+CREATE TABLE PurchaseOrderDetail
+(
+    PONumber        INT,
+    LineNumber      INT,
+    ItemNumber      INT,
+    ItemName        NVARCHAR(100),
+    Comments        NVARCHAR(500),
+    PriceEach       DECIMAL(19, 4),
+    QuantityOrdered FLOAT,
+    PRIMARY KEY (PONumber, LineNumber)
+);
+
+CREATE INDEX IX_TransactionItems_ITEM ON TransactionItems (ITEM);
+CREATE INDEX IX_Transactions_CUSN ON Transactions (CUSN);
+CREATE INDEX IX_ItemKitsAuto_Num ON ItemKitsAuto (Num);
+CREATE INDEX IX_CallLog_CNUM ON CallLog (CNUM);
@@ -0,0 +1,107 @@
+package org.dataprocessing.backend.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link DatasetRegistry} loads a dataset once for concurrent requests and that a request waiting on a
+ * canceled load loads the dataset itself
+ *
+ * @author Nicholas Curl
+ */
+public class DatasetRegistryTest {
+
+    /**
+     * The registry under test
+     */
+    private final DatasetRegistry registry = DatasetRegistry.getInstance();
+
+    /**
+     * Drops the datasets of the test
+     */
+    @AfterEach
+    void clear() {
+        registry.clear();
+    }
+
+    /**
+     * Cancels the first load while a second request waits on it, the second request then loads the dataset itself
+     *
+     * @throws Exception If a request failed
+     */
+    @Test
+    void waiterLoadsAfterCanceledLoad() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch loading = new CountDownLatch(1);
+            CountDownLatch cancel = new CountDownLatch(1);
+            Future<List<List<?>>> first = executor.submit(() -> registry.get("canceled", () -> {
+                loading.countDown();
+                cancel.await();
+                throw new CancellationException("The load was canceled");
+            }));
+            assertTrue(loading.await(10, TimeUnit.SECONDS), "The first load did not start");
+            AtomicInteger loads = new AtomicInteger();
+            List<List<?>> table = Collections.singletonList(Arrays.asList("a", 1));
+            AtomicReference<Thread> waiter = new AtomicReference<>();
+            Future<List<List<?>>> second = executor.submit(() -> {
+                waiter.set(Thread.currentThread());
+                return registry.get("canceled", () -> {
+                    loads.incrementAndGet();
+                    return table;
+                });
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (waiter.get() == null || waiter.get().getState() != Thread.State.WAITING) {
+                assertTrue(System.nanoTime() < deadline, "The second request did not wait on the first load");
+                Thread.sleep(1);
+            }
+            cancel.countDown();
+            assertEquals(table, second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loads.get(), "The waiting request did not load the dataset itself");
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> first.get(10, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof CancellationException);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads a dataset once for two requests and hands both the same table
+     *
+     * @throws Exception If a request failed
+     */
+    @Test
+    void loadsOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        List<List<?>> first = registry.get("shared", () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(Arrays.asList("a", 1));
+        });
+        List<List<?>> second = registry.get("shared", () -> {
+            loads.incrementAndGet();
+            return Collections.emptyList();
+        });
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,96 @@
+package org.dataprocessing.backend.database;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link PartitionedQuery} splits a query on a string key into ranges that hold every row exactly once
+ *
+ * @author Nicholas Curl
+ */
+public class PartitionedQueryTest {
+
+    /**
+     * The connection to the embedded database
+     */
+    private static Connection connection;
+
+    /**
+     * Creates a table of contracts whose numbers are zero padded digits, with one null and one unpadded number
+     *
+     * @throws SQLException If the table could not be created
+     */
+    @BeforeAll
+    static void createTable() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:partitioned-query;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE Contracts (CNTR NVARCHAR(10), Name NVARCHAR(20))");
+        }
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO Contracts VALUES (?, ?)")) {
+            for (int i = 1; i <= 1000; i++) {
+                statement.setString(1, String.format("%08d", i * 7));
+                statement.setString(2, "Contract " + i);
+                statement.addBatch();
+            }
+            statement.setString(1, null);
+            statement.setString(2, "No contract");
+            statement.addBatch();
+            statement.setString(1, "123");
+            statement.setString(2, "Short contract");
+            statement.addBatch();
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Closes the connection to the embedded database
+     *
+     * @throws SQLException If the connection could not be closed
+     */
+    @AfterAll
+    static void closeConnection() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * Splits the query on the digits of the key and reads every row exactly once
+     *
+     * @param count The number of partitions
+     *
+     * @throws SQLException If the query could not be read
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {2, 4, 7, 16})
+    void splitsDigitKeysIntoDisjointRanges(int count) throws SQLException {
+        PartitionedQuery query = new PartitionedQuery("SELECT CNTR, Name FROM Contracts", "CNTR");
+        List<PartitionedQuery.Partition> partitions = query.split(connection, count, false, "Contracts probe");
+        assertTrue(partitions.size() > 1, "The query was not split");
+        List<String> names = new ArrayList<>();
+        for (PartitionedQuery.Partition partition : partitions) {
+            try (PreparedStatement statement = connection.prepareStatement(partition.getSql())) {
+                partition.bind(statement);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        names.add(resultSet.getString(2));
+                    }
+                }
+            }
+        }
+        assertEquals(1002, names.size());
+        assertEquals(1002, names.stream().distinct().count());
+    }
+}
@@ -0,0 +1,121 @@
+package org.dataprocessing.backend.tasks;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import org.dataprocessing.backend.database.SqlServer;
+import org.dataprocessing.backend.mappers.por.PORCustomer;
+import org.dataprocessing.backend.mappers.por.PORItemMaster;
+import org.dataprocessing.backend.mappers.por.POROpenAR;
+import org.dataprocessing.backend.mappers.por.POROpenPO;
+import org.dataprocessing.backend.mappers.por.POROpenSales;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the query of every POR mapper through a {@link ServerTableConvertTask} against the embedded POR3 database
+ * <p>
+ * The embedded database is seeded from the por3-schema.sql script with a few thousand generated rows, so a query that
+ * uses SQL Server syntax the embedded database does not accept, like the bracketed identifiers, IIF or the joins of
+ * the mappers, fails here instead of only against the server. The JavaFX toolkit is started headless, the tasks
+ * update their progress through it.
+ *
+ * @author Nicholas Curl
+ */
+public class EmbeddedPorSmokeTest {
+
+    /**
+     * The directory the mappers store their data in
+     */
+    @TempDir
+    static Path storeLocation;
+
+    /**
+     * Points the server at a fresh embedded database and starts the JavaFX toolkit
+     *
+     * @throws InterruptedException If interrupted while the toolkit starts
+     */
+    @BeforeAll
+    static void startToolkit() throws InterruptedException {
+        System.setProperty("dataprocessing.dataSource", "embedded");
+        System.setProperty("dataprocessing.embedded.url", "jdbc:h2:mem:por3-smoke;DB_CLOSE_DELAY=-1");
+        System.setProperty("dataprocessing.embedded.rows", "5000");
+        System.setProperty("dataprocessing.snapshotCache", "false");
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        }
+        catch (IllegalStateException e) {
+            started.countDown();
+        }
+        assertTrue(started.await(30, TimeUnit.SECONDS), "The JavaFX toolkit did not start");
+    }
+
+    /**
+     * Closes the connections to the embedded database
+     */
+    @AfterAll
+    static void closeConnection() {
+        SqlServer.getInstance().closeConnection();
+    }
+
+    /**
+     * Runs the queries of the mappers
+     *
+     * @return A test for each query
+     */
+    @TestFactory
+    List<DynamicTest> mapperQueriesRun() {
+        Map<String, List<Task<?>>> mappers = new LinkedHashMap<>();
+        mappers.put("Customer", new PORCustomer(storeLocation).getTasks());
+        mappers.put("Item Master", new PORItemMaster(storeLocation).getTasks());
+        mappers.put("Open AR", new POROpenAR(storeLocation).getTasks());
+        mappers.put("Open Sales", new POROpenSales(storeLocation).getTasks());
+        mappers.put("Open PO", new POROpenPO(storeLocation).getTasks());
+        List<DynamicTest> tests = new ArrayList<>();
+        for (Map.Entry<String, List<Task<?>>> mapper : mappers.entrySet()) {
+            int query = 0;
+            for (Task<?> task : mapper.getValue()) {
+                if (task instanceof ServerTableConvertTask) {
+                    ServerTableConvertTask convertTask = (ServerTableConvertTask) task;
+                    tests.add(DynamicTest.dynamicTest(mapper.getKey() + " query " + ++query,
+                                                      () -> assertReads(convertTask)
+                    ));
+                }
+            }
+        }
+        assertFalse(tests.isEmpty(), "No queries found");
+        return tests;
+    }
+
+    /**
+     * Reads the query of a task and checks that it returned a header and rows as wide as the header
+     *
+     * @param task The task
+     *
+     * @throws Exception If the query failed
+     */
+    private static void assertReads(ServerTableConvertTask task) throws Exception {
+        List<List<?>> table = task.call();
+        assertFalse(table.isEmpty(), "The query returned no header");
+        assertTrue(table.size() > 1, "The query returned no rows");
+        int columns = table.get(0).size();
+        for (List<?> row : table) {
+            assertEquals(columns, row.size(), "A row is not as wide as the header");
+        }
+    }
+}
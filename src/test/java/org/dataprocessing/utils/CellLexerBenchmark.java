@@ -0,0 +1,135 @@
+package org.dataprocessing.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CellLexer} against the {@link CellPatterns regex path} it replaced, classifying and reading the
+ * strings of a table of cells the way the XLSX writers do
+ * <p>
+ * Run it with the main method from the test classpath once the test sources are compiled.
+ *
+ * @author Nicholas Curl
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CellLexerBenchmark {
+
+    /**
+     * The number of cells in the table
+     */
+    private static final int       CELLS = 4096;
+    /**
+     * The lexer, reused from cell to cell as the writers do
+     */
+    private final        CellLexer lexer = new CellLexer();
+    /**
+     * The strings of the cells
+     */
+    private              String[]  cells;
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args The arguments, not used
+     *
+     * @throws RunnerException If the benchmark failed
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CellLexerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Fills the table with a mix of dates, phone numbers, zip codes, amounts, weights, marked values and text
+     */
+    @Setup
+    public void createCells() {
+        Random random = new Random(42);
+        cells = new String[CELLS];
+        for (int i = 0; i < CELLS; i++) {
+            switch (random.nextInt(10)) {
+                case 0:
+                    cells[i] = String.format("2021-%02d-%02d 00:00:00.0", random.nextInt(12) + 1,
+                                             random.nextInt(28) + 1
+                    );
+                    break;
+                case 1:
+                    cells[i] = String.format("717%07d", random.nextInt(10_000_000));
+                    break;
+                case 2:
+                    cells[i] = String.format("%05d", random.nextInt(100_000));
+                    break;
+                case 3:
+                    cells[i] = String.format("%05d-%04d", random.nextInt(100_000), random.nextInt(10_000));
+                    break;
+                case 4:
+                case 5:
+                    cells[i] = random.nextInt(100_000) + "." + String.format("%04d", random.nextInt(10_000));
+                    break;
+                case 6:
+                    cells[i] = random.nextInt(1000) + "." + random.nextInt(1000);
+                    break;
+                case 7:
+                    cells[i] = random.nextInt(1000) + "#";
+                    break;
+                default:
+                    cells[i] = "Customer " + random.nextInt(1000);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Classifies and reads the cells with the lexer
+     *
+     * @param blackhole Consumes the forms and numbers
+     */
+    @Benchmark
+    public void lexer(Blackhole blackhole) {
+        for (String cell : cells) {
+            CellLexer.Shape shape = lexer.lex(cell);
+            if (!lexer.isMarked() && shape != CellLexer.Shape.NONE && shape != CellLexer.Shape.DATE) {
+                blackhole.consume(lexer.getNumber());
+            }
+            blackhole.consume(shape);
+        }
+    }
+
+    /**
+     * Classifies and reads the cells with the patterns
+     *
+     * @param blackhole Consumes the forms and numbers
+     */
+    @Benchmark
+    public void patterns(Blackhole blackhole) {
+        for (String cell : cells) {
+            CellLexer.Shape shape = CellLexer.Shape.NONE;
+            if (!CellPatterns.isMarked(cell)) {
+                shape = CellPatterns.shape(cell);
+                if (shape != CellLexer.Shape.NONE && shape != CellLexer.Shape.DATE) {
+                    blackhole.consume(CellPatterns.number(cell, shape));
+                }
+            }
+            blackhole.consume(shape);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.dataprocessing.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link CellLexer} classifies and reads the strings of cells the same as the {@link CellPatterns regex
+ * path} it replaced
+ *
+ * @author Nicholas Curl
+ */
+public class CellLexerTest {
+
+    /**
+     * The lexer under test
+     */
+    private final CellLexer lexer = new CellLexer();
+
+    /**
+     * Reads a string of each form
+     *
+     * @param string The string
+     * @param shape  The expected form
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "2021-03-04, DATE",
+            "2021-03-04 10:15:00.0, DATE",
+            "7175551234, PHONE",
+            "17601, ZIP",
+            "17601-1234, ZIP_PLUS_FOUR",
+            "12.3400, CURRENCY",
+            ".1234, CURRENCY",
+            "12.5, WEIGHT",
+            "0.125, WEIGHT",
+            "12.34567, NONE",
+            "1760, NONE",
+            "176011, NONE",
+            "-12.5, NONE",
+            "1760-11234, NONE",
+            "2021-3-04, NONE",
+            "Lancaster, NONE",
+            "'', NONE"
+    })
+    void readsEachShape(String string, CellLexer.Shape shape) {
+        assertEquals(shape, lexer.lex(string));
+        assertEquals(CellPatterns.shape(string), lexer.getShape());
+    }
+
+    /**
+     * Reads the numbers of the numeric forms
+     */
+    @Test
+    void readsTheNumbers() {
+        assertNumber("7175551234", 7175551234.0);
+        assertNumber("17601", 17601);
+        assertNumber("17601-1234", 176011234);
+        assertNumber("12.3400", 12.34);
+        assertNumber(".1234", 0.1234);
+        assertNumber("0.125", 0.125);
+    }
+
+    /**
+     * Notes each of the type markers, wherever it is in the string
+     *
+     * @param string The string
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"12345@", "$12.5000", "17601^", "25%", "#", "2021-03-04#", "A@B"})
+    void notesTheMarkers(String string) {
+        lexer.lex(string);
+        assertTrue(lexer.isMarked());
+        assertEquals(CellPatterns.shape(string), lexer.getShape());
+    }
+
+    /**
+     * Does not note a marker in a string without one
+     */
+    @Test
+    void noMarkerIsNotMarked() {
+        lexer.lex("17601-1234");
+        assertFalse(lexer.isMarked());
+        lexer.lex("");
+        assertFalse(lexer.isMarked());
+    }
+
+    /**
+     * Ignores one trailing line terminator, as the $ of the patterns does, but not two
+     *
+     * @param string The string, each with a trailing line terminator
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "17601\n", "17601\r\n", "17601\r", "17601\u0085", "17601\u2028", "17601-1234\n", "7175551234\r\n",
+            "12.3400\n", "12.5\n", "2021-03-04\n", "17601\n\n", "17601\r\r", "17601\n\r\n", "\n"
+    })
+    void ignoresOneTrailingLineTerminator(String string) {
+        CellLexer.Shape shape = lexer.lex(string);
+        assertEquals(CellPatterns.shape(string), shape);
+        if (shape != CellLexer.Shape.NONE && shape != CellLexer.Shape.DATE &&
+            string.trim().length() < string.length()) {
+            assertBits(CellPatterns.number(string, shape), lexer.getNumber());
+        }
+    }
+
+    /**
+     * Reads digits that do not fit exactly in a double the same as Double.parseDouble
+     *
+     * @param string The string
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "9007199254740993.5", "12345678901234567.1234", "99999999999999999999.125", "0.12345678901234567",
+            "123456789012345678901234", "9007199254740993", "1.00000000000000000000001"
+    })
+    void readsInexactMantissas(String string) {
+        lexer.lex(string);
+        assertTrue(lexer.isNumber());
+        assertBits(Double.parseDouble(string), lexer.getNumber());
+    }
+
+    /**
+     * Reads a negative zero as -0.0, as Double.parseDouble does
+     *
+     * @param string The string
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"-0", "-0.0", "-0.000", "-00"})
+    void readsNegativeZero(String string) {
+        lexer.lex(string);
+        assertTrue(lexer.isNumber());
+        assertBits(-0.0, lexer.getNumber());
+        assertBits(Double.parseDouble(string), lexer.getNumber());
+    }
+
+    /**
+     * Reads signed and plain numbers and rejects strings that are not
+     */
+    @Test
+    void readsPlainNumbers() {
+        lexer.lex("+0");
+        assertTrue(lexer.isNumber());
+        assertBits(0.0, lexer.getNumber());
+        lexer.lex("-12.5");
+        assertTrue(lexer.isNumber());
+        assertBits(-12.5, lexer.getNumber());
+        for (String string : new String[]{"1.2.3", "12-", "-", "+", ".", "1 2", "--1", "+-1", ""}) {
+            lexer.lex(string);
+            assertFalse(lexer.isNumber(), string);
+        }
+        lexer.lex("abc");
+        assertFalse(lexer.hasDigit());
+        lexer.lex("a1");
+        assertTrue(lexer.hasDigit());
+    }
+
+    /**
+     * Reads random strings of digits, points, dashes, signs, markers and line breaks and compares the forms, markers
+     * and numbers with the regex path
+     */
+    @Test
+    void matchesTheRegexPath() {
+        Random random = new Random(42);
+        char[] alphabet = "0123456789012345678901234567890123456789..--+$#@ a\n\r".toCharArray();
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String string = builder.toString();
+            CellLexer.Shape shape = lexer.lex(string);
+            assertEquals(CellPatterns.shape(string), shape, string);
+            assertEquals(CellPatterns.isMarked(string), lexer.isMarked(), string);
+            if (shape != CellLexer.Shape.NONE && shape != CellLexer.Shape.DATE) {
+                assertBits(CellPatterns.number(string, shape), lexer.getNumber());
+            }
+            else if (lexer.isNumber()) {
+                assertBits(Double.parseDouble(string), lexer.getNumber());
+            }
+        }
+    }
+
+    /**
+     * Reads a string and checks its number
+     *
+     * @param string   The string
+     * @param expected The expected number
+     */
+    private void assertNumber(String string, double expected) {
+        CellLexer.Shape shape = lexer.lex(string);
+        assertBits(expected, lexer.getNumber());
+        assertBits(CellPatterns.number(string, shape), lexer.getNumber());
+    }
+
+    /**
+     * Checks that two numbers are the same double, telling -0.0 from 0.0
+     *
+     * @param expected The expected number
+     * @param actual   The actual number
+     */
+    private static void assertBits(double expected, double actual) {
+        assertEquals(Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(actual),
+                     () -> "Expected " + expected + " but was " + actual
+        );
+    }
+}
@@ -0,0 +1,95 @@
+package org.dataprocessing.utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * Classifies the string of a cell with the patterns the XLSX writers used before {@link CellLexer}
+ * <p>
+ * The patterns are checked in the order the writers checked them and a number is read with Double.parseDouble, so the
+ * lexer is tested and benchmarked against the regex path it replaced.
+ *
+ * @author Nicholas Curl
+ */
+public class CellPatterns {
+
+    /**
+     * Matches a string starting with a date
+     */
+    private static final Pattern datePattern         = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}");
+    /**
+     * Matches a phone number
+     */
+    private static final Pattern phoneNumPattern     = Pattern.compile("^\\d{10}$");
+    /**
+     * Matches a zip code
+     */
+    private static final Pattern zipPattern          = Pattern.compile("^\\d{5}$");
+    /**
+     * Matches a zip+4 code
+     */
+    private static final Pattern zipPlusFourPattern  = Pattern.compile("^\\d{5}-\\d{4}$");
+    /**
+     * Matches a currency amount with four places
+     */
+    private static final Pattern currencyPattern     = Pattern.compile("^\\d*\\.\\d{4}$");
+    /**
+     * Matches a weight with up to three places
+     */
+    private static final Pattern weightPattern       = Pattern.compile("^\\d*\\.\\d{1,3}$");
+    /**
+     * Matches the type markers
+     */
+    private static final Pattern specificTypePattern = Pattern.compile("[@$^%#]");
+
+    /**
+     * Gets the form of a string
+     *
+     * @param string The string
+     *
+     * @return The form of the string
+     */
+    public static CellLexer.Shape shape(String string) {
+        if (datePattern.matcher(string).find()) {
+            return CellLexer.Shape.DATE;
+        }
+        if (phoneNumPattern.matcher(string).find()) {
+            return CellLexer.Shape.PHONE;
+        }
+        if (zipPattern.matcher(string).find()) {
+            return CellLexer.Shape.ZIP;
+        }
+        if (zipPlusFourPattern.matcher(string).find()) {
+            return CellLexer.Shape.ZIP_PLUS_FOUR;
+        }
+        if (currencyPattern.matcher(string).find()) {
+            return CellLexer.Shape.CURRENCY;
+        }
+        if (weightPattern.matcher(string).find()) {
+            return CellLexer.Shape.WEIGHT;
+        }
+        return CellLexer.Shape.NONE;
+    }
+
+    /**
+     * Does a string contain one of the type markers @, $, ^, % or #
+     *
+     * @param string The string
+     *
+     * @return True if the string contains a type marker
+     */
+    public static boolean isMarked(String string) {
+        return specificTypePattern.matcher(string).find();
+    }
+
+    /**
+     * Gets the number of a string of a numeric form the way the writers parsed it
+     *
+     * @param string The string
+     * @param shape  The form of the string
+     *
+     * @return The number
+     */
+    public static double number(String string, CellLexer.Shape shape) {
+        return Double.parseDouble(shape == CellLexer.Shape.ZIP_PLUS_FOUR ? string.replace("-", "") : string);
+    }
+}
@@ -0,0 +1,199 @@
+package org.dataprocessing.utils;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ConcurrentMultiValuedMap} keeps every value and a consistent size while many threads write to it,
+ * comparing it with the same writes to a {@link SynchronizedMultiValuedMap}
+ *
+ * @author Nicholas Curl
+ */
+public class ConcurrentMultiValuedMapTest {
+
+    /**
+     * The number of writing threads
+     */
+    private static final int WRITERS = 8;
+    /**
+     * The number of values each writer puts
+     */
+    private static final int VALUES  = 20000;
+    /**
+     * The number of keys the values are spread over, so the writers share keys
+     */
+    private static final int KEYS    = 64;
+
+    /**
+     * Puts values from many threads while other threads read and snapshot the map, then checks the contents match a
+     * synchronized map given the same values
+     *
+     * @throws Exception If a thread failed
+     */
+    @Test
+    void concurrentPutsKeepEveryValue() throws Exception {
+        ConcurrentMultiValuedMap<Integer, Integer> map = new ConcurrentMultiValuedMap<>();
+        SynchronizedMultiValuedMap<Integer, Integer> expected = new SynchronizedMultiValuedMap<>(
+                new ArrayListValuedHashMap<>());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Callable<Void>> readers = new ArrayList<>();
+        readers.add(() -> {
+            while (writing.get()) {
+                ArrayListValuedHashMap<Integer, Integer> snapshot = map.snapshot();
+                for (Integer key : snapshot.keySet()) {
+                    assertTrue(snapshot.get(key).size() <= map.get(key).size(),
+                               "A snapshot holds values the map does not"
+                    );
+                }
+            }
+            return null;
+        });
+        readers.add(() -> {
+            while (writing.get()) {
+                for (int key = 0; key < KEYS; key++) {
+                    for (Integer value : map.get(key)) {
+                        assertEquals(key, value % KEYS, "A value was read from the wrong key");
+                    }
+                }
+            }
+            return null;
+        });
+        runWriters(readers, writing, value -> {
+            map.put(value % KEYS, value);
+            expected.put(value % KEYS, value);
+        });
+        assertEquals(WRITERS * VALUES, map.size());
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < KEYS; key++) {
+            assertEquals(new HashSet<>(expected.get(key)), new HashSet<>(map.get(key)), "The values of key " + key);
+        }
+        assertEquals(map.size(), map.snapshot().size());
+    }
+
+    /**
+     * Removes keys and mappings while values are put, then checks that every value put was either removed or is still
+     * in the map and that the size counts exactly the values left
+     *
+     * @throws Exception If a thread failed
+     */
+    @Test
+    void concurrentRemovesKeepTheSize() throws Exception {
+        ConcurrentMultiValuedMap<Integer, Integer> map = new ConcurrentMultiValuedMap<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Integer> removed = new ArrayList<>();
+        List<Callable<Void>> removers = new ArrayList<>();
+        removers.add(() -> {
+            List<Integer> values = new ArrayList<>();
+            while (writing.get()) {
+                for (int key = 0; key < KEYS; key += 2) {
+                    values.addAll(map.remove(key));
+                }
+            }
+            synchronized (removed) {
+                removed.addAll(values);
+            }
+            return null;
+        });
+        removers.add(() -> {
+            List<Integer> values = new ArrayList<>();
+            while (writing.get()) {
+                for (int key = 1; key < KEYS; key += 2) {
+                    for (Integer value : new ArrayList<>(map.get(key))) {
+                        if (value % 3 == 0 && map.removeMapping(key, value)) {
+                            values.add(value);
+                        }
+                    }
+                }
+            }
+            synchronized (removed) {
+                removed.addAll(values);
+            }
+            return null;
+        });
+        runWriters(removers, writing, value -> map.put(value % KEYS, value));
+        Set<Integer> left = new HashSet<>(map.values());
+        assertEquals(map.size(), left.size(), "The size does not count the values left");
+        assertEquals(WRITERS * VALUES, left.size() + removed.size(), "A value was lost or removed twice");
+        for (Integer value : removed) {
+            assertTrue(!left.contains(value), "A removed value is still in the map");
+        }
+        MultiValuedMap<Integer, Integer> snapshot = map.snapshot();
+        assertEquals(map.size(), snapshot.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.size());
+    }
+
+    /**
+     * Runs the writers, each putting its own distinct values, alongside the other threads, which run until the
+     * writers are done
+     *
+     * @param others  The threads run alongside the writers
+     * @param writing Cleared once the writers are done
+     * @param put     Puts one value
+     *
+     * @throws Exception If a thread failed
+     */
+    private static void runWriters(List<Callable<Void>> others, AtomicBoolean writing, Put put) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + others.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> writers = new ArrayList<>();
+            for (int writer = 0; writer < WRITERS; writer++) {
+                int first = writer * VALUES;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int value = first; value < first + VALUES; value++) {
+                        put.put(value);
+                    }
+                    return null;
+                }));
+            }
+            List<Future<Void>> running = new ArrayList<>();
+            for (Callable<Void> other : others) {
+                running.add(executor.submit(other));
+            }
+            start.countDown();
+            for (Future<Void> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<Void> other : running) {
+                other.get(60, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Puts one value into the maps under test
+     */
+    @FunctionalInterface
+    private interface Put {
+
+        /**
+         * Puts the value
+         *
+         * @param value The value
+         */
+        void put(int value);
+    }
+}
@@ -0,0 +1,103 @@
+package org.dataprocessing.utils;
+
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ConcurrentMultiValuedMap} against the {@link SynchronizedMultiValuedMap} it replaced under the
+ * contention of the kit breakouts, 20 threads adding to and reading from a shared map
+ * <p>
+ * Run it with the main method from the test classpath once the test sources are compiled.
+ *
+ * @author Nicholas Curl
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(20)
+@State(Scope.Benchmark)
+public class MultiValuedMapBenchmark {
+
+    /**
+     * The number of keys the threads spread their values over
+     */
+    private static final int                              KEYS = 256;
+    /**
+     * The map under test, either concurrent or synchronized
+     */
+    @Param({"concurrent", "synchronized"})
+    public               String                           implementation;
+    /**
+     * The shared map
+     */
+    private              MultiValuedMap<Integer, Integer> map;
+
+    /**
+     * Runs the benchmark
+     *
+     * @param args The arguments, not used
+     *
+     * @throws RunnerException If the benchmark failed
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MultiValuedMapBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * Creates the map for an iteration, with one value for every key
+     */
+    @Setup(Level.Iteration)
+    public void createMap() {
+        map = implementation.equals("concurrent") ?
+              new ConcurrentMultiValuedMap<>() :
+              new SynchronizedMultiValuedMap<>(new ArrayListValuedHashMap<>());
+        for (int key = 0; key < KEYS; key++) {
+            map.put(key, key);
+        }
+    }
+
+    /**
+     * Adds a value to a random key and removes it again, so the map stays the same size across the iteration
+     *
+     * @return True if the value was removed
+     */
+    @Benchmark
+    public boolean putAndRemove() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(KEYS);
+        int value = random.nextInt();
+        map.put(key, value);
+        return map.removeMapping(key, value);
+    }
+
+    /**
+     * Reads the values of a random key
+     *
+     * @return The number of values of the key
+     */
+    @Benchmark
+    public int get() {
+        return map.get(ThreadLocalRandom.current().nextInt(KEYS)).size();
+    }
+}
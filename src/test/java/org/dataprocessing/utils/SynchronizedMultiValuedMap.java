@@ -13,6 +13,11 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 /**
+ * Decorates a multi valued map so that every call holds the lock of the decorator
+ * <p>
+ * This was the map the kit breakouts shared before {@link ConcurrentMultiValuedMap}, it is kept as the baseline the
+ * concurrent map is benchmarked and tested against.
+ *
  * @author Nicholas Curl
  */
 public class SynchronizedMultiValuedMap<K, V> extends AbstractMultiValuedMapDecorator<K, V> {